@@ -0,0 +1,114 @@
+package com.uniremington.canasta_familiar.benchmark;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.store.CanastaStore;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import com.uniremington.canasta_familiar.store.TipoAlmacen;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Almacén de objetos contra almacén en columnas
+ * Mide el recorrido completo de la canasta leyendo items enteros, solo
+ * precio y cantidad por posición, o las columnas copiadas por tandas
+ * Al preparar cada canasta imprime la memoria que ocupa por línea (sin
+ * contar los textos de los nombres, que son los mismos en ambos)
+ * Ejecutar: mvn -Pbenchmark test-compile exec:exec -Djmh.args="AlmacenBenchmark -t 1"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AlmacenBenchmark {
+
+    // Posiciones copiadas por tanda en recorrerColumnas
+    private static final int TANDA = 4_096;
+
+    @Param({ "OBJETOS", "COLUMNAR" })
+    public TipoAlmacen almacen;
+
+    @Param({ "1000000" })
+    public int tamano;
+
+    // Nombres distintos: pocos (canasta real con productos repetidos) o todos distintos
+    @Param({ "1000", "1000000" })
+    public int nombresDistintos;
+
+    private InstantaneaCanasta canasta;
+    private final long[] precios = new long[TANDA];
+    private final int[] cantidades = new int[TANDA];
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        String[] nombres = new String[nombresDistintos];
+        for (int i = 0; i < nombresDistintos; i++) {
+            nombres[i] = "Producto " + i;
+        }
+
+        long antes = memoriaUsada();
+        CanastaStore store = new CanastaStore(CanastaStore.CAPACIDAD_RANKING_POR_DEFECTO, almacen);
+        List<ItemCanasta> lote = new ArrayList<>(10_000);
+        for (int i = 0; i < tamano; i++) {
+            lote.add(new ItemCanasta(nombres[i % nombresDistintos], 1000 + (i * 37) % 50_000, 1 + i % 5));
+            if (lote.size() == 10_000) {
+                store.agregarTodos(lote);
+                lote = new ArrayList<>(10_000);
+            }
+        }
+        store.agregarTodos(lote);
+        lote = null;
+        canasta = store.instantanea();
+        long despues = memoriaUsada();
+
+        System.out.printf("%n%s con %d nombres distintos: %.1f bytes por línea%n",
+                almacen, nombresDistintos, (despues - antes) / (double) tamano);
+    }
+
+    // Lee cada item completo (con columnas, crea un ItemCanasta por línea)
+    @Benchmark
+    public double recorrerItems() {
+        double total = 0;
+        for (int i = 0, n = canasta.size(); i < n; i++) {
+            ItemCanasta item = canasta.get(i);
+            total += item.getPrecio() * item.getCantidad();
+        }
+        return total;
+    }
+
+    // Lee solo precio y cantidad por posición, sin crear objetos
+    @Benchmark
+    public double recorrerPorPosicion() {
+        double total = 0;
+        for (int i = 0, n = canasta.size(); i < n; i++) {
+            total += canasta.precio(i) * canasta.cantidad(i);
+        }
+        return total;
+    }
+
+    // Copia las columnas por tandas y las recorre con un ciclo primitivo
+    @Benchmark
+    public long recorrerColumnas() {
+        long total = 0;
+        for (int desde = 0, n = canasta.size(); desde < n; desde += TANDA) {
+            int hasta = Math.min(n, desde + TANDA);
+            canasta.copiarColumnas(desde, hasta, precios, cantidades);
+            for (int i = 0; i < hasta - desde; i++) {
+                total += precios[i] * cantidades[i];
+            }
+        }
+        return total;
+    }
+
+    private static long memoriaUsada() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
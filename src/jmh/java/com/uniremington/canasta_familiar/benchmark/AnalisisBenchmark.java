@@ -0,0 +1,72 @@
+package com.uniremington.canasta_familiar.benchmark;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.service.AnalisisService;
+import com.uniremington.canasta_familiar.service.EstadisticasCanasta;
+import com.uniremington.canasta_familiar.store.CanastaStore;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import com.uniremington.canasta_familiar.store.TipoAlmacen;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estadísticas de una canasta grande en un solo recorrido, secuencial o
+ * en paralelo con distinta cantidad de hilos del pool (curva de escalado)
+ * hilosPool = 0 recorre en el hilo del benchmark, sin fork-join
+ * Los hilos del benchmark (-t) conviene dejarlos en 1: el paralelismo lo
+ * pone el pool
+ * Ejecutar: mvn -Pbenchmark test-compile exec:exec -Djmh.args="AnalisisBenchmark -t 1"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AnalisisBenchmark {
+
+    @Param({ "COLUMNAR", "OBJETOS" })
+    public TipoAlmacen almacen;
+
+    @Param({ "4000000" })
+    public int tamano;
+
+    @Param({ "0", "1", "2", "4", "8" })
+    public int hilosPool;
+
+    private InstantaneaCanasta canasta;
+    private ForkJoinPool pool;
+    private AnalisisService analisis;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        CanastaStore store = new CanastaStore(CanastaStore.CAPACIDAD_RANKING_POR_DEFECTO, almacen);
+        List<ItemCanasta> lote = new ArrayList<>(10_000);
+        for (int i = 0; i < tamano; i++) {
+            lote.add(new ItemCanasta("Producto " + i % 1000, 1000 + (i * 37) % 50_000, 1 + i % 5));
+            if (lote.size() == 10_000) {
+                store.agregarTodos(lote);
+                lote = new ArrayList<>(10_000);
+            }
+        }
+        store.agregarTodos(lote);
+        canasta = store.instantanea();
+
+        pool = new ForkJoinPool(Math.max(hilosPool, 1));
+        analisis = new AnalisisService(hilosPool == 0 ? Integer.MAX_VALUE : 0, pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public EstadisticasCanasta analizar() {
+        return analisis.analizar(canasta, 10);
+    }
+}
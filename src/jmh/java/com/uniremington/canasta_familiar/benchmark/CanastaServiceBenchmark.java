@@ -0,0 +1,122 @@
+package com.uniremington.canasta_familiar.benchmark;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.service.CanastaService;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import com.uniremington.canasta_familiar.store.RegistroCanastas;
+import com.uniremington.canasta_familiar.store.TotalesProducto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operaciones frecuentes de CanastaService sobre canastas de distinto tamaño
+ * Mide throughput y latencia (SampleTime: percentiles); la cantidad de hilos
+ * la fija EjecutarBenchmarks
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CanastaServiceBenchmark {
+
+    private static final String CANASTA = "benchmark";
+
+    /**
+     * Canasta ya cargada, compartida por todos los hilos (solo lecturas)
+     */
+    @State(Scope.Benchmark)
+    public static class CanastaLlena {
+
+        @Param({ "10", "1000", "100000", "1000000" })
+        public int tamano;
+
+        CanastaService canastaService;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            canastaService = crearServicio();
+            List<ItemCanasta> lote = new ArrayList<>(10_000);
+            for (int i = 0; i < tamano; i++) {
+                lote.add(new ItemCanasta("Producto " + i, 1000 + (i * 37) % 50_000, 1 + i % 5));
+                if (lote.size() == 10_000) {
+                    canastaService.agregarLote(CANASTA, lote);
+                    lote.clear();
+                }
+            }
+            canastaService.agregarLote(CANASTA, lote);
+        }
+    }
+
+    /**
+     * Canasta que recibe escrituras; se vacía en cada iteración para que
+     * la memoria no crezca durante la medición
+     */
+    @State(Scope.Benchmark)
+    public static class CanastaEscritura {
+
+        CanastaService canastaService;
+        final ItemCanasta item = new ItemCanasta("Arroz", 5000, 2);
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            canastaService = crearServicio();
+        }
+
+        @Setup(Level.Iteration)
+        public void vaciar() {
+            canastaService.limpiarCanasta(CANASTA);
+        }
+    }
+
+    @Benchmark
+    public void agregarItem(CanastaEscritura canasta) {
+        canasta.canastaService.agregarItem(CANASTA, canasta.item);
+    }
+
+    @Benchmark
+    public double calcularTotal(CanastaLlena canasta) {
+        return canasta.canastaService.obtenerInstantanea(CANASTA).calcularTotal();
+    }
+
+    @Benchmark
+    public double calcularPromedio(CanastaLlena canasta) {
+        return canasta.canastaService.obtenerInstantanea(CANASTA).calcularPromedio();
+    }
+
+    @Benchmark
+    public List<ItemCanasta> obtenerProductosMasCostosos(CanastaLlena canasta) {
+        return canasta.canastaService.obtenerInstantanea(CANASTA).obtenerMasCostosos(3);
+    }
+
+    // Vista sin copia, para comparar con obtenerItems
+    @Benchmark
+    public InstantaneaCanasta obtenerInstantanea(CanastaLlena canasta) {
+        return canasta.canastaService.obtenerInstantanea(CANASTA);
+    }
+
+    // Copia completa de la lista en cada llamada
+    @Benchmark
+    public List<ItemCanasta> obtenerItems(CanastaLlena canasta) {
+        return new ArrayList<>(canasta.canastaService.obtenerInstantanea(CANASTA));
+    }
+
+    // Autocompletar: prefijo de nombre (muchos candidatos) y de palabra
+    @Benchmark
+    public List<TotalesProducto> buscarPorPrefijoNombre(CanastaLlena canasta) {
+        return canasta.canastaService.buscarProductos(CANASTA, "produ", CanastaService.LIMITE_BUSQUEDA_POR_DEFECTO);
+    }
+
+    @Benchmark
+    public List<TotalesProducto> buscarPorPrefijoPalabra(CanastaLlena canasta) {
+        return canasta.canastaService.buscarProductos(CANASTA, "99", CanastaService.LIMITE_BUSQUEDA_POR_DEFECTO);
+    }
+
+    // Sin límites de memoria que interfieran con la medición
+    private static CanastaService crearServicio() {
+        return new CanastaService(new RegistroCanastas(10, Long.MAX_VALUE, 60, 100));
+    }
+}
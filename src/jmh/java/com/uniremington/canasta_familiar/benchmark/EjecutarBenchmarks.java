@@ -0,0 +1,62 @@
+package com.uniremington.canasta_familiar.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Punto de entrada de los benchmarks (perfil Maven "benchmark")
+ * Acepta las mismas opciones que JMH y además:
+ * - Repite la corrida para cada cantidad de hilos de -Dbenchmark.hilos
+ *   (por defecto 1,4,16), salvo que se indique -t
+ * - Agrega siempre el perfilador de GC (memoria asignada por operación)
+ * - Guarda los resultados en JSON en target/jmh/resultados-N-hilos.json,
+ *   para comparar entre versiones
+ * Ejemplo: mvn -Pbenchmark test-compile exec:exec -Djmh.args="CanastaService -p tamano=1000"
+ */
+public final class EjecutarBenchmarks {
+
+    private static final String DIRECTORIO_RESULTADOS = "target/jmh";
+
+    private EjecutarBenchmarks() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions linea = new CommandLineOptions(args);
+        if (linea.shouldHelp() || linea.shouldList() || linea.shouldListProfilers()
+                || linea.shouldListResultFormats()) {
+            // Consultas de JMH (-h, -l, ...): se delegan sin cambios
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        String[] hilos = linea.getThreads().hasValue()
+                ? new String[] { String.valueOf(linea.getThreads().get()) }
+                : System.getProperty("benchmark.hilos", "1,4,16").split(",");
+        boolean conGc = linea.getProfilers().stream()
+                .noneMatch(perfilador -> perfilador.getKlass().equals("gc")
+                        || perfilador.getKlass().equals(GCProfiler.class.getName()));
+
+        new File(DIRECTORIO_RESULTADOS).mkdirs();
+        for (String cantidad : hilos) {
+            int n = Integer.parseInt(cantidad.trim());
+            ChainedOptionsBuilder opciones = new OptionsBuilder()
+                    .parent(linea)
+                    .threads(n)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(DIRECTORIO_RESULTADOS + "/resultados-" + n + "-hilos.json");
+            if (conGc) {
+                opciones.addProfiler(GCProfiler.class);
+            }
+            new Runner(opciones.build()).run();
+        }
+    }
+}
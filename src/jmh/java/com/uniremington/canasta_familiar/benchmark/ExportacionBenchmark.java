@@ -0,0 +1,74 @@
+package com.uniremington.canasta_familiar.benchmark;
+
+import com.uniremington.canasta_familiar.exportacion.ExportacionService;
+import com.uniremington.canasta_familiar.exportacion.Exportador;
+import com.uniremington.canasta_familiar.exportacion.ExportadorCsv;
+import com.uniremington.canasta_familiar.exportacion.ExportadorJsonl;
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.service.CachePdf;
+import com.uniremington.canasta_familiar.service.CanastaService;
+import com.uniremington.canasta_familiar.service.PdfService;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exportación de una canasta en cada formato (CSV, JSON Lines y PDF)
+ * El contador auxiliar "filas" da las filas por segundo de cada formato;
+ * el PDF se genera siempre (sin caché) para medir el costo real
+ * Ejecutar: mvn -Pbenchmark test-compile exec:exec -Djmh.args="Exportacion -t 1"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportacionBenchmark {
+
+    @Param({ "csv", "jsonl", "pdf" })
+    public String formato;
+
+    // Con más productos el PDF tarda varios segundos por documento
+    @Param({ "10000" })
+    public int productos;
+
+    private Exportador exportador;
+    private InstantaneaCanasta canasta;
+
+    @Setup
+    public void preparar() {
+        ExportacionService exportacion = new ExportacionService(List.of(new ExportadorCsv(),
+                new ExportadorJsonl(), new PdfService(new CachePdf(0, 0))));
+        exportador = exportacion.buscar(formato);
+
+        List<ItemCanasta> items = new ArrayList<>(productos);
+        for (int i = 0; i < productos; i++) {
+            items.add(new ItemCanasta("Producto " + i, 1000 + (i * 37) % 50_000, 1 + i % 5));
+        }
+        CanastaService servicio = new CanastaService();
+        servicio.agregarLote("benchmark", items);
+        canasta = servicio.obtenerInstantanea("benchmark");
+    }
+
+    /**
+     * Filas exportadas; JMH las informa por segundo
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Filas {
+
+        public long filas;
+    }
+
+    @Benchmark
+    public void exportar(Filas contador) throws IOException {
+        exportador.exportar("benchmark", canasta, OutputStream.nullOutputStream());
+        contador.filas += productos;
+    }
+}
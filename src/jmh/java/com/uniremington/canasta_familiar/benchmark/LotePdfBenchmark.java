@@ -0,0 +1,84 @@
+package com.uniremington.canasta_familiar.benchmark;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.service.CachePdf;
+import com.uniremington.canasta_familiar.service.CanastaService;
+import com.uniremington.canasta_familiar.service.LotePdfService;
+import com.uniremington.canasta_familiar.service.PdfService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resúmenes PDF de muchas canastas: uno por uno contra el lote (un PDF con
+ * marcadores o un ZIP) con distintos hilos de generación
+ * El PDF de cada canasta se genera siempre (sin caché)
+ * Ejecutar: mvn -Pbenchmark test-compile exec:exec -Djmh.args="LotePdf -t 1"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LotePdfBenchmark {
+
+    @Param({ "500" })
+    public int canastas;
+
+    @Param({ "50" })
+    public int productos;
+
+    @Param({ "1", "4" })
+    public int hilos;
+
+    private PdfService pdfService;
+    private CanastaService canastaService;
+    private LotePdfService lotes;
+    private List<String> ids;
+
+    @Setup
+    public void preparar() {
+        pdfService = new PdfService(new CachePdf(0, 0));
+        canastaService = new CanastaService();
+        ids = new ArrayList<>(canastas);
+        for (int c = 0; c < canastas; c++) {
+            String id = "canasta-" + c;
+            List<ItemCanasta> items = new ArrayList<>(productos);
+            for (int i = 0; i < productos; i++) {
+                items.add(new ItemCanasta("Producto " + i, 1000 + (i * 37) % 50_000, 1 + i % 5));
+            }
+            canastaService.agregarLote(id, items);
+            ids.add(id);
+        }
+        lotes = new LotePdfService(pdfService, canastaService, hilos, LotePdfService.MAX_FILAS_EN_VUELO_POR_DEFECTO,
+                canastas);
+    }
+
+    @TearDown
+    public void cerrar() {
+        lotes.cerrar();
+    }
+
+    // Sin lote: un resumen por canasta en el hilo que llama (no depende de "hilos")
+    @Benchmark
+    public void unoPorUno() throws IOException {
+        for (String id : ids) {
+            pdfService.escribirResumen(id, canastaService.obtenerInstantanea(id), OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public int lotePdf() throws IOException {
+        return lotes.escribirPdf(ids, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public int loteZip() throws IOException {
+        return lotes.escribirZip(ids, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,54 @@
+package com.uniremington.canasta_familiar.benchmark;
+
+import com.uniremington.canasta_familiar.metricas.MetricasCanasta;
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.persistencia.PersistenciaCanastas;
+import com.uniremington.canasta_familiar.service.CanastaService;
+import com.uniremington.canasta_familiar.store.RegistroCanastas;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de las métricas en la operación más frecuente (agregar un item)
+ * muestreo = 0 usa métricas deshabilitadas (línea base); 1 mide todas las
+ * operaciones y N mide una de cada N, con el registro de Prometheus real
+ * Ejecutar: mvn -Pbenchmark test-compile exec:exec -Djmh.args="MetricasBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MetricasBenchmark {
+
+    private static final String CANASTA = "benchmark";
+
+    @Param({ "0", "1", "100" })
+    public int muestreo;
+
+    private final ItemCanasta item = new ItemCanasta("Arroz", 5000, 2);
+    private CanastaService canastaService;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        MetricasCanasta metricas = muestreo == 0 ? MetricasCanasta.deshabilitadas()
+                : new MetricasCanasta(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), muestreo);
+        canastaService = new CanastaService(new RegistroCanastas(10, Long.MAX_VALUE, 60, 100),
+                (PersistenciaCanastas) null, metricas);
+    }
+
+    // La memoria no crece durante la medición
+    @Setup(Level.Iteration)
+    public void vaciar() {
+        canastaService.limpiarCanasta(CANASTA);
+    }
+
+    @Benchmark
+    public void agregarItem() {
+        canastaService.agregarItem(CANASTA, item);
+    }
+}
@@ -0,0 +1,51 @@
+package com.uniremington.canasta_familiar.benchmark;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.service.PdfService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generación del resumen en PDF
+ * Mide throughput, latencia y la memoria asignada por documento; la
+ * cantidad de hilos (descargas simultáneas) la fija EjecutarBenchmarks
+ * Ejecutar: mvn -Pbenchmark test-compile exec:exec -Djmh.args="PdfService"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfServiceBenchmark {
+
+    // Más de 10.000 filas tarda varios segundos por documento
+    @Param({ "10", "1000", "10000" })
+    public int productos;
+
+    private final PdfService pdfService = new PdfService();
+
+    private List<ItemCanasta> items;
+    private List<ItemCanasta> costosos;
+    private double total;
+
+    @Setup
+    public void preparar() {
+        items = new ArrayList<>(productos);
+        for (int i = 0; i < productos; i++) {
+            items.add(new ItemCanasta("Producto " + i, 1000 + (i * 37) % 50_000, 1 + i % 5));
+        }
+        total = items.stream().mapToDouble(ItemCanasta::calcularSubtotal).sum();
+        costosos = items.subList(0, Math.min(3, productos));
+    }
+
+    @Benchmark
+    public void generarPdfResumen() throws IOException {
+        pdfService.generarPdfResumen(items, total, total / productos, costosos, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,182 @@
+package com.uniremington.canasta_familiar.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Prueba de carga HTTP contra la aplicación ya levantada
+ * Cada cliente concurrente repite una petición apenas recibe la respuesta
+ * anterior (lazo cerrado), alternando entre las rutas. Por cada cantidad de
+ * clientes imprime peticiones por segundo, percentiles de latencia y errores
+ * Sirve para comparar la aplicación con hilos de plataforma (Java 17) y con
+ * hilos virtuales (perfil Maven java21 y perfil de Spring "virtuales"):
+ * se levanta en un modo, se corre la prueba, y se repite en el otro
+ * Antes de medir carga una canasta de prueba (cabecera X-Canasta-Id) con
+ * {@code -Dcarga.items} productos (1000 por defecto), así el resumen y el
+ * PDF tienen un tamaño realista
+ * Ejecutar:
+ * mvn -Pbenchmark test-compile exec:exec
+ *     -Dbenchmark.principal=com.uniremington.canasta_familiar.benchmark.PruebaCarga
+ *     -Djmh.args="http://localhost:3070 1000,5000,10000 30"
+ * Con 10000 clientes en la misma máquina que el servidor hacen falta unos
+ * 20000 descriptores de archivo (ulimit -n)
+ */
+public final class PruebaCarga {
+
+    private static final String USO = "Uso: PruebaCarga <url base> <clientes,...> <segundos> [ruta,...]";
+
+    private static final String CANASTA = "prueba-carga";
+
+    private static final List<String> RUTAS_POR_DEFECTO = List.of(
+            "/api/canasta/resumen",
+            "/api/canasta/items?limit=50",
+            "/descargar-pdf");
+
+    // Latencias en milisegundos; la última casilla junta todo lo que la supera
+    private static final int MAX_MILIS = 60_000;
+
+    private PruebaCarga() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.err.println(USO);
+            System.exit(1);
+        }
+        URI base = URI.create(args[0]);
+        int[] clientes = Arrays.stream(args[1].split(",")).mapToInt(Integer::parseInt).toArray();
+        int segundos = Integer.parseInt(args[2]);
+        List<String> rutas = args.length > 3 ? List.of(args[3].split(",")) : RUTAS_POR_DEFECTO;
+
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        cargarCanasta(http, base, Integer.getInteger("carga.items", 1000));
+
+        System.out.printf("%9s %12s %9s %9s %9s %9s %9s%n",
+                "clientes", "peticiones/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "errores");
+        for (int cantidad : clientes) {
+            Ronda ronda = new Ronda(http, base, rutas, cantidad, segundos);
+            ronda.ejecutar();
+            System.out.printf("%9d %12.1f %9d %9d %9d %9d %9d%n",
+                    cantidad, ronda.completadas.get() / (double) segundos,
+                    ronda.percentil(0.50), ronda.percentil(0.90), ronda.percentil(0.99),
+                    ronda.maximo.get(), ronda.errores.get());
+        }
+    }
+
+    private static void cargarCanasta(HttpClient http, URI base, int items) throws IOException, InterruptedException {
+        StringBuilder csv = new StringBuilder("nombre,precio,cantidad\n");
+        for (int i = 0; i < items; i++) {
+            csv.append("Producto ").append(i).append(',').append(1000 + (i * 37) % 50_000)
+                    .append(',').append(1 + i % 5).append('\n');
+        }
+        enviar(http, HttpRequest.newBuilder(base.resolve("/limpiar"))
+                .header("X-Canasta-Id", CANASTA)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build());
+        HttpResponse<String> respuesta = enviar(http, HttpRequest.newBuilder(base.resolve("/api/canasta/items:batch"))
+                .header("X-Canasta-Id", CANASTA)
+                .header("Content-Type", "text/csv")
+                .POST(HttpRequest.BodyPublishers.ofString(csv.toString()))
+                .build());
+        if (respuesta.statusCode() != 200) {
+            throw new IOException("No se pudo cargar la canasta de prueba: " + respuesta.statusCode()
+                    + " " + respuesta.body());
+        }
+    }
+
+    private static HttpResponse<String> enviar(HttpClient http, HttpRequest peticion)
+            throws IOException, InterruptedException {
+        return http.send(peticion, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Una medición con una cantidad fija de clientes
+     */
+    private static final class Ronda {
+
+        private final HttpClient http;
+        private final HttpRequest[] peticiones;
+        private final int clientes;
+        private final int segundos;
+        private final CountDownLatch terminados;
+        private final AtomicLongArray latencias = new AtomicLongArray(MAX_MILIS + 1);
+        private final AtomicLong completadas = new AtomicLong();
+        private final AtomicLong errores = new AtomicLong();
+        private final AtomicLong maximo = new AtomicLong();
+        private volatile long fin;
+
+        Ronda(HttpClient http, URI base, List<String> rutas, int clientes, int segundos) {
+            this.http = http;
+            this.peticiones = rutas.stream()
+                    .map(ruta -> HttpRequest.newBuilder(base.resolve(ruta))
+                            .header("X-Canasta-Id", CANASTA)
+                            .timeout(Duration.ofSeconds(MAX_MILIS / 1000))
+                            .GET()
+                            .build())
+                    .toArray(HttpRequest[]::new);
+            this.clientes = clientes;
+            this.segundos = segundos;
+            this.terminados = new CountDownLatch(clientes);
+        }
+
+        void ejecutar() throws InterruptedException {
+            fin = System.nanoTime() + TimeUnit.SECONDS.toNanos(segundos);
+            for (int i = 0; i < clientes; i++) {
+                pedir(i);
+            }
+            if (!terminados.await(segundos + MAX_MILIS / 1000 + 10, TimeUnit.SECONDS)) {
+                System.err.println("Algunos clientes no terminaron a tiempo");
+            }
+        }
+
+        // Cada cliente encadena su siguiente petición al terminar la anterior
+        private void pedir(int numero) {
+            long inicio = System.nanoTime();
+            http.sendAsync(peticiones[numero % peticiones.length], HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((respuesta, error) -> {
+                        long ahora = System.nanoTime();
+                        if (ahora - fin <= 0) {
+                            registrar(ahora - inicio, error != null || respuesta.statusCode() >= 400);
+                            pedir(numero + 1);
+                        } else {
+                            terminados.countDown();
+                        }
+                    });
+        }
+
+        private void registrar(long nanos, boolean fallo) {
+            long milis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            latencias.incrementAndGet((int) Math.min(milis, MAX_MILIS));
+            maximo.accumulateAndGet(milis, Math::max);
+            completadas.incrementAndGet();
+            if (fallo) {
+                errores.incrementAndGet();
+            }
+        }
+
+        long percentil(double fraccion) {
+            long objetivo = (long) Math.ceil(completadas.get() * fraccion);
+            long acumulado = 0;
+            for (int milis = 0; milis <= MAX_MILIS; milis++) {
+                acumulado += latencias.get(milis);
+                if (acumulado >= objetivo && acumulado > 0) {
+                    return milis;
+                }
+            }
+            return MAX_MILIS;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.uniremington.canasta_familiar.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de los cambios en vivo (GET /api/canasta/stream) contra la aplicación ya levantada
+ * Abre muchas suscripciones a la misma canasta, espera el estado inicial en
+ * todas, agrega productos de a uno y mide cuánto tarda cada suscriptor en
+ * ver la última versión. Las líneas se leen sin un hilo por conexión
+ * Al final imprime las métricas de /api/canasta/stream/metricas (cambios
+ * combinados por suscriptores atrasados) y los hilos del servidor se pueden
+ * contar aparte (por ejemplo con jcmd PID Thread.print)
+ * Ejecutar:
+ * mvn -Pbenchmark test-compile exec:exec
+ *     -Dbenchmark.principal=com.uniremington.canasta_familiar.benchmark.PruebaStream
+ *     -Djmh.args="http://localhost:3070 10000 200"
+ * Cada suscripción es una conexión: cliente y servidor en la misma máquina
+ * necesitan el doble de descriptores de archivo (ulimit -n)
+ */
+public final class PruebaStream {
+
+    private static final String USO = "Uso: PruebaStream <url base> <suscriptores> <cambios>";
+
+    private static final String CANASTA = "prueba-stream";
+
+    private PruebaStream() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.err.println(USO);
+            System.exit(1);
+        }
+        URI base = URI.create(args[0]);
+        int suscriptores = Integer.parseInt(args[1]);
+        int cambios = Integer.parseInt(args[2]);
+
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        enviar(http, HttpRequest.newBuilder(base.resolve("/limpiar"))
+                .header("X-Canasta-Id", CANASTA)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build());
+
+        CountDownLatch conectados = new CountDownLatch(suscriptores);
+        Lector[] lectores = new Lector[suscriptores];
+        long inicio = System.nanoTime();
+        HttpRequest suscripcion = HttpRequest.newBuilder(base.resolve("/api/canasta/stream"))
+                .header("X-Canasta-Id", CANASTA)
+                .header("Accept", "text/event-stream")
+                .GET()
+                .build();
+        for (int i = 0; i < suscriptores; i++) {
+            Lector lector = new Lector(conectados);
+            lectores[i] = lector;
+            http.sendAsync(suscripcion, HttpResponse.BodyHandlers.fromLineSubscriber(lector))
+                    .exceptionally(error -> {
+                        lector.fallo();
+                        return null;
+                    });
+        }
+        if (!conectados.await(120, TimeUnit.SECONDS)) {
+            System.err.println("Conectados: " + (suscriptores - conectados.getCount()) + " de " + suscriptores);
+        }
+        System.out.printf("%d suscriptores conectados en %d ms%n", suscriptores - conectados.getCount(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+
+        long ultimaVersion;
+        long inicioCambios = System.nanoTime();
+        for (int i = 0; i < cambios; i++) {
+            HttpResponse<String> respuesta = enviar(http,
+                    HttpRequest.newBuilder(base.resolve("/api/canasta/items:batch"))
+                            .header("X-Canasta-Id", CANASTA)
+                            .header("Content-Type", "text/csv")
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                    "nombre,precio,cantidad\nProducto " + i + "," + (1000 + i) + ",1\n"))
+                            .build());
+            if (respuesta.statusCode() != 200) {
+                throw new IOException("No se pudo agregar: " + respuesta.statusCode() + " " + respuesta.body());
+            }
+        }
+        long finCambios = System.nanoTime();
+        ultimaVersion = Arrays.stream(lectores).mapToLong(lector -> lector.version.get()).max().orElse(0);
+
+        // Espera a que todos vean la última versión
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        long[] demoras = new long[suscriptores];
+        int alDia;
+        do {
+            Thread.sleep(50);
+            ultimaVersion = Math.max(ultimaVersion,
+                    Arrays.stream(lectores).mapToLong(lector -> lector.version.get()).max().orElse(0));
+            alDia = 0;
+            for (Lector lector : lectores) {
+                if (lector.version.get() >= ultimaVersion) {
+                    alDia++;
+                }
+            }
+        } while (alDia < suscriptores && System.nanoTime() < limite);
+        for (int i = 0; i < suscriptores; i++) {
+            demoras[i] = TimeUnit.NANOSECONDS.toMillis(Math.max(0, lectores[i].recibido.get() - finCambios));
+        }
+        Arrays.sort(demoras);
+
+        long eventos = Arrays.stream(lectores).mapToLong(lector -> lector.eventos.get()).sum();
+        long fallidos = Arrays.stream(lectores).filter(lector -> lector.fallido).count();
+        System.out.printf("%d cambios enviados en %d ms; %d de %d suscriptores al día%n", cambios,
+                TimeUnit.NANOSECONDS.toMillis(finCambios - inicioCambios), alDia, suscriptores);
+        System.out.printf("eventos recibidos %d (%.1f por suscriptor), fallidos %d%n", eventos,
+                eventos / (double) suscriptores, fallidos);
+        System.out.printf("última versión vista tras el último cambio: p50 %d ms, p99 %d ms, max %d ms%n",
+                demoras[suscriptores / 2], demoras[(int) (suscriptores * 0.99)], demoras[suscriptores - 1]);
+        System.out.println(enviar(http, HttpRequest.newBuilder(base.resolve("/api/canasta/stream/metricas"))
+                .GET().build()).body());
+        System.exit(0);
+    }
+
+    private static HttpResponse<String> enviar(HttpClient http, HttpRequest peticion)
+            throws IOException, InterruptedException {
+        return http.send(peticion, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Lee las líneas de una suscripción y recuerda la última versión (id del evento)
+     */
+    private static final class Lector implements Flow.Subscriber<String> {
+
+        private final CountDownLatch conectados;
+        private final AtomicLong version = new AtomicLong(-1);
+        private final AtomicLong recibido = new AtomicLong();
+        private final AtomicLong eventos = new AtomicLong();
+        private volatile boolean fallido;
+        private boolean primero = true;
+
+        Lector(CountDownLatch conectados) {
+            this.conectados = conectados;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription suscripcion) {
+            suscripcion.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String linea) {
+            if (linea.startsWith("id:")) {
+                version.set(Long.parseLong(linea.substring(3).trim()));
+                recibido.set(System.nanoTime());
+                eventos.incrementAndGet();
+                if (primero) {
+                    primero = false;
+                    conectados.countDown();
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            fallo();
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        void fallo() {
+            if (!fallido) {
+                fallido = true;
+                if (primero) {
+                    primero = false;
+                    conectados.countDown();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.uniremington.canasta_familiar.benchmark;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.persistencia.PersistenciaCanastas;
+import com.uniremington.canasta_familiar.store.CanastaStore;
+import com.uniremington.canasta_familiar.store.RegistroCanastas;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Tiempo de arranque con la persistencia habilitada
+ * Se prepara una bitácora con {@code registros} items (un registro por
+ * item) repartidos en 100 canastas, y se mide la recuperación completa:
+ * - BITACORA: sin punto de control, se reproduce toda la bitácora
+ * - PUNTO_CONTROL: se carga el punto de control compactado (mapeado en memoria)
+ * Ejecutar: mvn -Pbenchmark test-compile exec:exec -Djmh.args="RecuperacionBenchmark -t 1"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class RecuperacionBenchmark {
+
+    public enum Modo {
+        BITACORA, PUNTO_CONTROL
+    }
+
+    @Param({ "BITACORA", "PUNTO_CONTROL" })
+    public Modo modo;
+
+    @Param({ "10000000" })
+    public int registros;
+
+    private Path directorio;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        directorio = Files.createTempDirectory("recuperacion");
+        RegistroCanastas registro = crearRegistro();
+        PersistenciaCanastas persistencia = new PersistenciaCanastas(registro, directorio, false, Long.MAX_VALUE);
+        persistencia.iniciar();
+        CanastaStore[] stores = new CanastaStore[100];
+        for (int c = 0; c < stores.length; c++) {
+            stores[c] = registro.obtener("c" + c);
+        }
+        for (int i = 0; i < registros; i++) {
+            int c = i % stores.length;
+            ItemCanasta item = new ItemCanasta("Producto " + i % 1000, 1000 + (i * 37) % 50_000, 1 + i % 5);
+            persistencia.agregar("c" + c, stores[c], List.of(item));
+        }
+        if (modo == Modo.PUNTO_CONTROL) {
+            persistencia.compactar();
+        }
+        persistencia.detener();
+    }
+
+    @TearDown(Level.Trial)
+    public void borrar() throws IOException {
+        try (Stream<Path> archivos = Files.walk(directorio)) {
+            for (Path archivo : archivos.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(archivo);
+            }
+        }
+    }
+
+    private RegistroCanastas crearRegistro() {
+        return new RegistroCanastas(1_000, registros + 1L, 30, CanastaStore.CAPACIDAD_RANKING_POR_DEFECTO);
+    }
+
+    @Benchmark
+    public RegistroCanastas recuperar() throws IOException {
+        RegistroCanastas registro = crearRegistro();
+        PersistenciaCanastas persistencia = new PersistenciaCanastas(registro, directorio, false, Long.MAX_VALUE);
+        persistencia.iniciar();
+        persistencia.detener();
+        return registro;
+    }
+}
@@ -2,13 +2,16 @@ package com.uniremington.canasta_familiar;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /*
  * Clase principal que arranca la aplicación Spring Boot
  * Contiene el método main que inicia el contenedor de Spring
+ * Habilita las tareas programadas (expulsión de canastas inactivas)
  */
 
 @SpringBootApplication
+@EnableScheduling
 public class CanastaFamiliarApplication {
 
 	public static void main(String[] args) {
@@ -2,28 +2,39 @@ package com.uniremington.canasta_familiar.controller;
 
 import com.uniremington.canasta_familiar.model.ItemCanasta;
 import com.uniremington.canasta_familiar.service.CanastaService;
+import com.uniremington.canasta_familiar.service.PaginaItems;
 import com.uniremington.canasta_familiar.service.PdfService;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import java.util.List;
+import jakarta.servlet.http.HttpServletRequest;
 
 /**
  * Controlador MVC
  * Maneja las vistas Thymeleaf
  * Endpoints:
- * - GET: mostrar formulario principal
- * - POST: agregar producto
- * - POST: mostrar resumen
+ * - GET: mostrar formulario principal (productos paginados)
+ * - POST: agregar producto (con la cabecera X-Fragmento responde solo la
+ *   fila nueva y los totales, sin volver a pintar la tabla)
+ * - POST: mostrar resumen (contenido reutilizado mientras la canasta no cambie)
+ * - GET/POST: descargar el resumen en PDF (con ETag)
+ * Cada sesión del navegador tiene su propia canasta
  */
 @Controller
 public class CanastaController {
@@ -34,27 +45,58 @@ public class CanastaController {
     @Autowired
     private PdfService pdfService;
 
+    @Autowired
+    private VistaResumen vistaResumen;
+
     /**
      * Muestra la vista principal con el formulario
-     * GET /
+     * GET /?pagina=N
+     * La tabla muestra una página de productos, así la vista no crece con la canasta
      */
     @GetMapping("/")
-    public String mostrarFormulario(Model model) {
+    public String mostrarFormulario(@RequestParam(defaultValue = "1") int pagina, Model model,
+            HttpServletRequest request) {
+        InstantaneaCanasta canasta = canastaService.obtenerInstantanea(IdentificadorCanasta.resolver(request));
+        int tamanoPagina = CanastaService.LIMITE_PAGINA_POR_DEFECTO;
+        int totalPaginas = totalPaginas(canasta.size());
+        int paginaActual = Math.min(Math.max(pagina, 1), totalPaginas);
+        PaginaItems items = canastaService.obtenerPagina(canasta, (paginaActual - 1) * tamanoPagina,
+                tamanoPagina);
+
         model.addAttribute("itemCanasta", new ItemCanasta());
-        model.addAttribute("items", canastaService.obtenerItems());
-        model.addAttribute("total", canastaService.calcularTotal());
+        model.addAttribute("items", items.items());
+        model.addAttribute("desde", items.desde());
+        model.addAttribute("cantidadItems", canasta.size());
+        model.addAttribute("pagina", paginaActual);
+        model.addAttribute("totalPaginas", totalPaginas);
+        agregarTotal(canasta, model);
         return "canasta";
     }
 
+    // Sin total la página sigue disponible para poder limpiar la canasta
+    private void agregarTotal(InstantaneaCanasta canasta, Model model) {
+        try {
+            model.addAttribute("total", canastaService.calcularTotal(canasta).aBigDecimal());
+        } catch (ArithmeticException e) {
+            model.addAttribute("mensaje", "Error: " + e.getMessage());
+            model.addAttribute("tipoMensaje", "danger");
+        }
+    }
+
+    private static int totalPaginas(int cantidadItems) {
+        int tamanoPagina = CanastaService.LIMITE_PAGINA_POR_DEFECTO;
+        return Math.max(1, (cantidadItems + tamanoPagina - 1) / tamanoPagina);
+    }
+
     /**
      * Agrega un producto a la canasta
      * POST /agregar
      */
     @PostMapping("/agregar")
     public String agregarProducto(@ModelAttribute ItemCanasta item,
-            RedirectAttributes redirectAttributes) {
+            RedirectAttributes redirectAttributes, HttpServletRequest request) {
         try {
-            canastaService.agregarItem(item);
+            canastaService.agregarItem(IdentificadorCanasta.resolver(request), item);
             redirectAttributes.addFlashAttribute("mensaje",
                     "Producto agregado exitosamente");
             redirectAttributes.addFlashAttribute("tipoMensaje", "success");
@@ -67,38 +109,92 @@ public class CanastaController {
         return "redirect:/";
     }
 
+    /**
+     * Agrega un producto y responde solo lo que cambió en la vista principal
+     * POST /agregar con la cabecera X-Fragmento (lo envía el script de canasta.html)
+     * Responde la fila nueva, si cae en la página que muestra el navegador,
+     * y la cantidad, el total, la paginación y el mensaje; el costo no
+     * depende de cuántos productos tenga la canasta
+     * 
+     * @param pagina página de productos que muestra el navegador
+     */
+    @PostMapping(value = "/agregar", headers = "X-Fragmento=true")
+    public String agregarProductoFragmento(@ModelAttribute ItemCanasta item,
+            @RequestParam(defaultValue = "1") int pagina, Model model, HttpServletRequest request) {
+        String idCanasta = IdentificadorCanasta.resolver(request);
+        boolean agregado = false;
+        try {
+            canastaService.agregarItem(idCanasta, item);
+            agregado = true;
+            model.addAttribute("mensaje", "Producto agregado exitosamente");
+            model.addAttribute("tipoMensaje", "success");
+        } catch (IllegalArgumentException e) {
+            model.addAttribute("mensaje", "Error: " + e.getMessage());
+            model.addAttribute("tipoMensaje", "danger");
+        }
+
+        InstantaneaCanasta canasta = canastaService.obtenerInstantanea(idCanasta);
+        int totalPaginas = totalPaginas(canasta.size());
+        // Con agregados simultáneos en la misma canasta el número es aproximado
+        int numero = canasta.size();
+        boolean visible = agregado
+                && (numero - 1) / CanastaService.LIMITE_PAGINA_POR_DEFECTO + 1 == pagina;
+        model.addAttribute("item", visible ? item : null);
+        model.addAttribute("numero", numero);
+        model.addAttribute("cantidadItems", canasta.size());
+        model.addAttribute("pagina", Math.min(Math.max(pagina, 1), totalPaginas));
+        model.addAttribute("totalPaginas", totalPaginas);
+        agregarTotal(canasta, model);
+        return "fragmentos/canasta :: agregado";
+    }
+
     /**
      * Muestra la vista de resumen con estadísticas
      * POST /resumen
+     * El contenido se pinta una vez por versión de la canasta ({@link VistaResumen})
      */
     @PostMapping("/resumen")
-    public String mostrarResumen(Model model) {
-        model.addAttribute("items", canastaService.obtenerItems());
-        model.addAttribute("total", canastaService.calcularTotal());
-        model.addAttribute("promedio", canastaService.calcularPromedio());
-        model.addAttribute("productosCostosos",
-                canastaService.obtenerProductosMasCostosos());
+    public String mostrarResumen(Model model, HttpServletRequest request) {
+        String idCanasta = IdentificadorCanasta.resolver(request);
+        InstantaneaCanasta canasta = canastaService.obtenerInstantanea(idCanasta);
+        model.addAttribute("contenido", vistaResumen.contenido(idCanasta, canasta));
 
         return "resumen";
     }
 
-    @PostMapping("/descargar-pdf")
-    public ResponseEntity<byte[]> descargarPdf() {
-        List<ItemCanasta> items = canastaService.obtenerItems();
-        double total = canastaService.calcularTotal();
-        double promedio = canastaService.calcularPromedio();
-        List<ItemCanasta> costosos = canastaService.obtenerProductosMasCostosos();
+    /**
+     * Descarga el resumen en PDF
+     * GET o POST /descargar-pdf
+     * El PDF se escribe directamente en la respuesta mientras se genera,
+     * sin guardar una copia completa en memoria; si la canasta no cambió
+     * se reutiliza el PDF anterior
+     * En GET el ETag es la etiqueta de versión de la canasta: con If-None-Match igual
+     * se responde 304 sin cuerpo
+     */
+    @RequestMapping(value = "/descargar-pdf", method = { RequestMethod.GET, RequestMethod.POST })
+    public ResponseEntity<StreamingResponseBody> descargarPdf(HttpServletRequest request, WebRequest webRequest) {
+        String idCanasta = IdentificadorCanasta.resolver(request);
+        InstantaneaCanasta canasta = canastaService.obtenerInstantanea(idCanasta);
+
+        // Etiqueta débil: el contenido no cambia, pero la fecha del PDF puede
+        // variar si la caché lo expulsa y se vuelve a generar. Incluye el
+        // arranque del proceso: las versiones se repiten después de reiniciar
+        String etag = "W/\"" + canasta.etiqueta() + "\"";
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
 
-        byte[] pdfBytes = pdfService.generarPdfResumen(items, total, promedio, costosos);
+        StreamingResponseBody cuerpo = salida -> pdfService.escribirResumen(idCanasta, canasta, salida);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
         headers.setContentDispositionFormData("attachment", "resumen-canasta-familiar.pdf");
-        headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
+        // En GET checkNotModified ya agregó la cabecera ETag a la respuesta
+        headers.setCacheControl("private, no-cache, must-revalidate");
 
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(pdfBytes);
+                .body(cuerpo);
     }
 
     /**
@@ -106,11 +202,21 @@ public class CanastaController {
      * POST /limpiar
      */
     @PostMapping("/limpiar")
-    public String limpiarCanasta(RedirectAttributes redirectAttributes) {
-        canastaService.limpiarCanasta();
+    public String limpiarCanasta(RedirectAttributes redirectAttributes, HttpServletRequest request) {
+        canastaService.limpiarCanasta(IdentificadorCanasta.resolver(request));
         redirectAttributes.addFlashAttribute("mensaje",
                 "Canasta limpiada exitosamente");
         redirectAttributes.addFlashAttribute("tipoMensaje", "info");
         return "redirect:/";
     }
+
+    /**
+     * Un identificador de canasta no válido (cabecera o parámetro) responde 400 con el mensaje
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> manejarDatosInvalidos(IllegalArgumentException e) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(e.getMessage());
+    }
 }
\ No newline at end of file
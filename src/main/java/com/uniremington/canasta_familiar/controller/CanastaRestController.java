@@ -1,61 +1,406 @@
 package com.uniremington.canasta_familiar.controller;
 
+import com.uniremington.canasta_familiar.eventos.EstadisticasDifusion;
+import com.uniremington.canasta_familiar.eventos.SuscriptoresAgotadosException;
+import com.uniremington.canasta_familiar.exportacion.ExportacionService;
+import com.uniremington.canasta_familiar.exportacion.Exportador;
+import com.uniremington.canasta_familiar.historial.ConsultaHistorial;
+import com.uniremington.canasta_familiar.historial.Resolucion;
+import com.uniremington.canasta_familiar.model.Dinero;
 import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.persistencia.EstadisticasPersistencia;
+import com.uniremington.canasta_familiar.service.AnalisisService;
 import com.uniremington.canasta_familiar.service.CanastaService;
+import com.uniremington.canasta_familiar.service.EscritorJson;
+import com.uniremington.canasta_familiar.service.EstadisticasCanasta;
+import com.uniremington.canasta_familiar.service.IngestaService;
+import com.uniremington.canasta_familiar.service.PaginaItems;
+import com.uniremington.canasta_familiar.service.ResultadoIngesta;
+import com.uniremington.canasta_familiar.store.EstadisticasRegistro;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import com.uniremington.canasta_familiar.store.TotalesProducto;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
  * Controlador REST
  * Expone la información en formato JSON
  * Endpoints:
- * - GET /api/canasta/items
- * - GET /api/canasta/resumen
+ * - GET /api/canasta/items (completa, o paginada con limit/offset/cursor)
+ * - GET /api/canasta/items/search?q=texto&limit=N
+ * - GET /api/canasta/resumen?top=N
+ * - GET /api/canasta/productos y /api/canasta/productos/{nombre}
+ * - GET /api/canasta/estadisticas?top=N
+ * - GET /api/canasta/metricas
+ * - GET /api/canasta/persistencia (404 si no está habilitada)
+ * - GET /api/canasta/historial?desde=...&hasta=...&resolucion=puntos|hora|dia (404 si no está habilitado)
+ * - GET /api/canasta/stream (Server-Sent Events con los cambios) y /api/canasta/stream/metricas
+ * - GET /api/canasta/export?format=csv|jsonl|pdf
+ * - POST /api/canasta/items:batch (JSON o CSV)
+ * La canasta se elige con la cabecera X-Canasta-Id (o el parámetro
+ * "canasta"); sin ellos se usa la de la sesión si ya existe (la página
+ * del navegador), y si no hay sesión se responde 400
  * Demuestra el uso de API REST en Spring Boot
  */
 @RestController
 @RequestMapping("/api/canasta")
 public class CanastaRestController {
 
+    // Segundos sugeridos al cliente antes de reconectarse sin lugar para suscriptores
+    private static final String REINTENTAR_STREAM_EN_SEGUNDOS = "5";
+
     @Autowired
     private CanastaService canastaService;
 
+    @Autowired
+    private IngestaService ingestaService;
+
+    @Autowired
+    private AnalisisService analisisService;
+
+    @Autowired
+    private ExportacionService exportacionService;
+
+    // Después de este tiempo la conexión se cierra y EventSource se reconecta sola
+    @Value("${canasta.stream.timeout-ms:1800000}")
+    private long timeoutStream;
+
+    @Autowired
+    private JsonMapper json;
+
     /**
-     * Obtiene todos los items de la canasta en formato JSON
-     * GET /api/canasta/items
+     * Obtiene los items de la canasta en formato JSON
+     * GET /api/canasta/items?limit=N&offset=M o ?cursor=C&limit=N
+     * Sin parámetros devuelve la lista completa; con alguno devuelve una
+     * página (PaginaItems) cuyo costo no depende del tamaño de la canasta
+     * Si se indican cursor y offset, se usa el cursor
+     * La respuesta se escribe a medida que se recorren los items
+     * (transferencia por partes), sin copiar la lista
      * 
-     * @return lista de items
+     * @param cursor cursor "siguiente" de una página anterior
+     * @param offset posición del primer item (desde 0)
+     * @param limit items por página (por defecto 50, máximo 1000)
+     * @return lista de items o página de items
      */
     @GetMapping("/items")
-    public ResponseEntity<List<ItemCanasta>> obtenerItems() {
-        List<ItemCanasta> items = canastaService.obtenerItems();
-        return ResponseEntity.ok(items);
+    public ResponseEntity<StreamingResponseBody> obtenerItems(@RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer offset,
+            @RequestParam(required = false) Integer limit, HttpServletRequest request) {
+        String idCanasta = IdentificadorCanasta.resolverApi(request);
+        if (cursor == null && offset == null && limit == null) {
+            InstantaneaCanasta canasta = canastaService.obtenerInstantanea(idCanasta);
+            return json(salida -> EscritorJson.escribirItems(canasta, salida));
+        }
+
+        // La página se valida aquí, para que un cursor o límite inválido responda 400
+        int limite = limit != null ? limit : CanastaService.LIMITE_PAGINA_POR_DEFECTO;
+        PaginaItems pagina = cursor != null
+                ? canastaService.obtenerPaginaDesdeCursor(idCanasta, cursor, limite)
+                : canastaService.obtenerPagina(idCanasta, offset != null ? offset : 0, limite);
+        return json(salida -> EscritorJson.escribirPagina(pagina, salida));
+    }
+
+    /**
+     * Busca productos por el comienzo del nombre o de una de sus palabras,
+     * sin importar tildes ni mayúsculas (autocompletar del formulario)
+     * GET /api/canasta/items/search?q=arr&limit=10
+     * 
+     * @param q texto escrito por el usuario
+     * @param limit cantidad máxima de resultados (por defecto 10, máximo 100)
+     * @return productos encontrados con su cantidad y subtotal acumulados
+     */
+    @GetMapping("/items/search")
+    public ResponseEntity<List<TotalesProducto>> buscarItems(@RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "10") int limit, HttpServletRequest request) {
+        return ResponseEntity.ok(canastaService.buscarProductos(IdentificadorCanasta.resolverApi(request), q, limit));
+    }
+
+    /**
+     * Carga masiva de items desde un arreglo JSON
+     * POST /api/canasta/items:batch (Content-Type: application/json)
+     * El cuerpo se lee a medida que llega, sin guardarlo completo en memoria
+     * 
+     * @return cantidad de items aceptados y detalle de los rechazados
+     */
+    @PostMapping(value = "/items:batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ResultadoIngesta> agregarLoteJson(HttpServletRequest request) throws IOException {
+        String idCanasta = IdentificadorCanasta.resolverApi(request);
+        return ResponseEntity.ok(ingestaService.ingerirJson(idCanasta, request.getInputStream()));
+    }
+
+    /**
+     * Carga masiva de items desde un CSV (nombre,precio,cantidad)
+     * POST /api/canasta/items:batch (Content-Type: text/csv)
+     * 
+     * @return cantidad de items aceptados y detalle de los rechazados
+     */
+    @PostMapping(value = "/items:batch", consumes = "text/csv")
+    public ResponseEntity<ResultadoIngesta> agregarLoteCsv(HttpServletRequest request) throws IOException {
+        String idCanasta = IdentificadorCanasta.resolverApi(request);
+        Charset charset = request.getCharacterEncoding() != null
+                ? Charset.forName(request.getCharacterEncoding())
+                : StandardCharsets.UTF_8;
+        return ResponseEntity.ok(ingestaService.ingerirCsv(idCanasta,
+                new InputStreamReader(request.getInputStream(), charset)));
     }
 
     /**
      * Obtiene el resumen completo de la canasta en formato JSON
-     * GET /api/canasta/resumen
+     * GET /api/canasta/resumen?top=N
+     * Los agregados se escriben primero y la lista de items al final,
+     * a medida que se recorre la instantánea
      * 
+     * @param top cantidad de productos más costosos a incluir (por defecto 3, máximo 1000)
      * @return objeto con total, promedio, cantidad de items y productos más
-     *         costosos
+     *         costosos; 400 si top no está entre 1 y 1000
      */
     @GetMapping("/resumen")
-    public ResponseEntity<Map<String, Object>> obtenerResumen() {
-        Map<String, Object> resumen = new HashMap<>();
+    public ResponseEntity<StreamingResponseBody> obtenerResumen(
+            @RequestParam(defaultValue = "3") int top, HttpServletRequest request) {
+        InstantaneaCanasta canasta = canastaService.obtenerInstantanea(IdentificadorCanasta.resolverApi(request));
+        // Los agregados se calculan antes de responder, para que un top
+        // inválido o un total desbordado respondan con su código de error
+        List<ItemCanasta> masCostosos = canastaService.obtenerProductosMasCostosos(canasta, top);
+        Dinero total = canastaService.calcularTotal(canasta);
+        double promedio = canastaService.calcularPromedio(canasta);
+        return json(salida -> EscritorJson.escribirResumen(canasta, total, promedio, masCostosos, salida));
+    }
+
+    /**
+     * Obtiene la cantidad y el subtotal de cada producto, juntando las
+     * líneas del mismo nombre
+     * GET /api/canasta/productos
+     * 
+     * @return totales por producto, ordenados por nombre
+     */
+    @GetMapping("/productos")
+    public ResponseEntity<List<TotalesProducto>> obtenerProductos(HttpServletRequest request) {
+        return ResponseEntity.ok(canastaService.obtenerTotalesProductos(IdentificadorCanasta.resolverApi(request)));
+    }
+
+    /**
+     * Obtiene la cantidad y el subtotal de un producto
+     * GET /api/canasta/productos/{nombre}
+     * El nombre no distingue tildes ni mayúsculas
+     * 
+     * @return totales del producto, 404 si no está en la canasta
+     */
+    @GetMapping("/productos/{nombre}")
+    public ResponseEntity<TotalesProducto> obtenerProducto(@PathVariable String nombre,
+            HttpServletRequest request) {
+        TotalesProducto totales = canastaService.obtenerTotalesProducto(
+                IdentificadorCanasta.resolverApi(request), nombre);
+        return totales == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(totales);
+    }
 
-        resumen.put("items", canastaService.obtenerItems());
-        resumen.put("cantidadItems", canastaService.obtenerCantidadItems());
-        resumen.put("total", canastaService.calcularTotal());
-        resumen.put("promedio", canastaService.calcularPromedio());
-        resumen.put("productosMasCostosos", canastaService.obtenerProductosMasCostosos());
+    /**
+     * Obtiene las estadísticas de la canasta recorriéndola completa
+     * GET /api/canasta/estadisticas?top=N
+     * Las canastas muy grandes se recorren en paralelo
+     * 
+     * @param top cantidad de productos más costosos a incluir (por defecto 3, máximo 1000)
+     * @return cantidad, total, promedio, precio mínimo y máximo y más costosos
+     */
+    @GetMapping("/estadisticas")
+    public ResponseEntity<EstadisticasCanasta> obtenerEstadisticas(
+            @RequestParam(defaultValue = "3") int top, HttpServletRequest request) {
+        InstantaneaCanasta canasta = canastaService.obtenerInstantanea(IdentificadorCanasta.resolverApi(request));
+        return ResponseEntity.ok(analisisService.analizar(canasta, top));
+    }
 
-        return ResponseEntity.ok(resumen);
+    /**
+     * Obtiene las métricas de memoria de las canastas
+     * GET /api/canasta/metricas
+     * 
+     * @return canastas e items residentes y expulsiones acumuladas
+     */
+    @GetMapping("/metricas")
+    public ResponseEntity<EstadisticasRegistro> obtenerMetricas() {
+        return ResponseEntity.ok(canastaService.obtenerEstadisticasRegistro());
+    }
+
+    /**
+     * Obtiene las métricas de la persistencia en disco
+     * GET /api/canasta/persistencia
+     * 
+     * @return recuperación, escrituras agrupadas y puntos de control, o 404 si no está habilitada
+     */
+    @GetMapping("/persistencia")
+    public ResponseEntity<EstadisticasPersistencia> obtenerMetricasPersistencia() {
+        EstadisticasPersistencia estadisticas = canastaService.obtenerEstadisticasPersistencia();
+        return estadisticas == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(estadisticas);
+    }
+
+    /**
+     * Obtiene el historial de precios de la canasta en un rango de fechas
+     * GET /api/canasta/historial?desde=2026-01-01T00:00:00Z&hasta=2026-12-31T23:59:59Z
+     * Sin resolución se elige la más fina que no pasa de 1000 puntos; una
+     * resolución pedida que pasa de 1000 puntos se sube a la que no pasa
+     * 
+     * @param desde comienzo del rango (ISO-8601; por defecto 30 días antes de "hasta")
+     * @param hasta fin del rango (ISO-8601; por defecto ahora)
+     * @param resolucion puntos, hora o dia (opcional)
+     * @return evolución del total y variación de precio (inflación) por producto;
+     *         404 si el historial no está habilitado
+     */
+    @GetMapping("/historial")
+    public ResponseEntity<ConsultaHistorial> obtenerHistorial(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant hasta,
+            @RequestParam(required = false) String resolucion, HttpServletRequest request) {
+        Instant fin = hasta != null ? hasta : Instant.now();
+        Instant inicio = desde != null ? desde : fin.minus(Duration.ofDays(30));
+        ConsultaHistorial historial = canastaService.consultarHistorial(IdentificadorCanasta.resolverApi(request),
+                inicio, fin, leerResolucion(resolucion));
+        return historial == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(historial);
+    }
+
+    private static Resolucion leerResolucion(String resolucion) {
+        if (resolucion == null || resolucion.isBlank()) {
+            return null;
+        }
+        try {
+            return Resolucion.valueOf(resolucion.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("La resolución debe ser puntos, hora o dia");
+        }
+    }
+
+    /**
+     * Descarga la canasta en el formato pedido
+     * GET /api/canasta/export?format=csv|jsonl|pdf
+     * CSV y JSON Lines traen solo las filas (nombre, precio, cantidad) y se
+     * escriben mientras se recorre la canasta, con memoria constante; el
+     * CSV se puede volver a cargar con POST /api/canasta/items:batch
+     * 
+     * @param format formato del archivo (por defecto csv)
+     * @return archivo como adjunto, o 400 si el formato no existe
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportar(@RequestParam(defaultValue = "csv") String format,
+            HttpServletRequest request) {
+        Exportador exportador = exportacionService.buscar(format);
+        String idCanasta = IdentificadorCanasta.resolverApi(request);
+        InstantaneaCanasta canasta = canastaService.obtenerInstantanea(idCanasta);
+
+        StreamingResponseBody cuerpo = salida -> exportador.exportar(idCanasta, canasta, salida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportador.tipoContenido()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"canasta." + exportador.extension() + "\"")
+                .body(cuerpo);
+    }
+
+    /**
+     * Envía los cambios de la canasta a medida que ocurren (Server-Sent Events)
+     * GET /api/canasta/stream
+     * El primer evento es el estado actual; después llega un evento "cambio"
+     * por cada modificación con los items agregados, si se limpió, y la
+     * cantidad, el total, el promedio y los 3 más costosos. Si el cliente se
+     * atrasa, los cambios pendientes se juntan en uno solo
+     * La conexión no ocupa un hilo mientras espera, y un cliente que no lee
+     * no retiene los hilos de envío (E/S no bloqueante)
+     * Responde con un flujo de eventos, o 503 si se alcanzó el máximo de suscriptores
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void suscribirCambios(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String idCanasta = IdentificadorCanasta.resolverApi(request);
+        SuscriptorSse suscriptor = new SuscriptorSse(json);
+        // Si no hay lugar, la excepción responde 503 antes de abrir la conexión
+        Runnable cancelar = canastaService.suscribirCambios(idCanasta, suscriptor);
+        try {
+            suscriptor.abrir(request, response, timeoutStream, cancelar);
+        } catch (IOException | RuntimeException e) {
+            cancelar.run();
+            throw e;
+        }
+    }
+
+    /**
+     * Obtiene las métricas de la difusión de cambios
+     * GET /api/canasta/stream/metricas
+     * 
+     * @return suscriptores, cambios enviados y combinados y suscriptores descartados
+     */
+    @GetMapping("/stream/metricas")
+    public ResponseEntity<EstadisticasDifusion> obtenerMetricasStream() {
+        return ResponseEntity.ok(canastaService.obtenerEstadisticasDifusion());
+    }
+
+    // Sin Content-Length: el servidor envía la respuesta por partes
+    private static ResponseEntity<StreamingResponseBody> json(StreamingResponseBody cuerpo) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(cuerpo);
+    }
+
+    /**
+     * Convierte los errores de validación en respuestas 400 con el mensaje
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> manejarDatosInvalidos(IllegalArgumentException e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        return ResponseEntity.badRequest().body(error);
+    }
+
+    /**
+     * Un total que excede el rango de los montos responde 422 con el mensaje
+     */
+    @ExceptionHandler(ArithmeticException.class)
+    public ResponseEntity<Map<String, Object>> manejarDesbordamiento(ArithmeticException e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        return ResponseEntity.unprocessableContent().body(error);
+    }
+
+    /**
+     * Si el cambio no se pudo anotar en disco responde 503: no quedó confirmado
+     */
+    @ExceptionHandler(UncheckedIOException.class)
+    public ResponseEntity<Map<String, Object>> manejarErrorDisco(UncheckedIOException e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
+    /**
+     * Sin lugar para otro suscriptor responde 503: el cliente reintenta más tarde
+     */
+    @ExceptionHandler(SuscriptoresAgotadosException.class)
+    public ResponseEntity<Map<String, Object>> manejarSuscriptoresAgotados(SuscriptoresAgotadosException e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, REINTENTAR_STREAM_EN_SEGUNDOS)
+                .body(error);
     }
-}
\ No newline at end of file
+}
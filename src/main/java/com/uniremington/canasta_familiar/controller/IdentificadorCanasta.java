@@ -0,0 +1,68 @@
+package com.uniremington.canasta_familiar.controller;
+
+import com.uniremington.canasta_familiar.service.CanastaService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+
+/**
+ * Resuelve qué canasta corresponde a una petición
+ * - Primero la cabecera X-Canasta-Id o el parámetro "canasta" (clientes de la API)
+ * - Si no vienen, la sesión HTTP del navegador
+ * En la API la sesión solo se usa si ya existe (la página del navegador
+ * también consulta la API): un cliente sin cabecera ni sesión recibe 400
+ * y no se le crea una sesión en cada petición
+ */
+final class IdentificadorCanasta {
+
+    static final String CABECERA = "X-Canasta-Id";
+    static final String PARAMETRO = "canasta";
+
+    // Los identificadores de sesión usan ':' y así no chocan con los del cliente
+    private static final String PREFIJO_SESION = "sesion:";
+
+    private IdentificadorCanasta() {
+    }
+
+    /**
+     * Canasta de una petición de las vistas; crea la sesión si no existe
+     * @param request petición HTTP
+     * @return identificador de la canasta de la petición
+     * @throws IllegalArgumentException si el identificador enviado no es válido
+     */
+    static String resolver(HttpServletRequest request) {
+        String id = enviado(request);
+        return id != null ? id : PREFIJO_SESION + request.getSession().getId();
+    }
+
+    /**
+     * Canasta de una petición de la API; no crea sesiones
+     * @param request petición HTTP
+     * @return identificador de la canasta de la petición
+     * @throws IllegalArgumentException si el identificador enviado no es válido,
+     *         o si no se envió y la petición no tiene sesión
+     */
+    static String resolverApi(HttpServletRequest request) {
+        String id = enviado(request);
+        if (id != null) {
+            return id;
+        }
+        HttpSession sesion = request.getSession(false);
+        if (sesion == null) {
+            throw new IllegalArgumentException("Falta el identificador de canasta: envíe la cabecera "
+                    + CABECERA + " o el parámetro " + PARAMETRO);
+        }
+        return PREFIJO_SESION + sesion.getId();
+    }
+
+    // Identificador enviado por el cliente; null si no envió ninguno
+    private static String enviado(HttpServletRequest request) {
+        String id = request.getHeader(CABECERA);
+        if (id == null) {
+            id = request.getParameter(PARAMETRO);
+        }
+        if (id != null && !CanastaService.esIdentificadorValido(id)) {
+            throw new IllegalArgumentException("El identificador de canasta no es válido");
+        }
+        return id;
+    }
+}
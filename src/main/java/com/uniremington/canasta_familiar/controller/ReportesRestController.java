@@ -0,0 +1,211 @@
+package com.uniremington.canasta_familiar.controller;
+
+import com.uniremington.canasta_familiar.service.CanastaService;
+import com.uniremington.canasta_familiar.service.ColaReportesLlenaException;
+import com.uniremington.canasta_familiar.service.EstadisticasReportes;
+import com.uniremington.canasta_familiar.service.EstadoReporte;
+import com.uniremington.canasta_familiar.service.InfoReporte;
+import com.uniremington.canasta_familiar.service.LotePdfService;
+import com.uniremington.canasta_familiar.service.ReportesService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Controlador REST de reportes PDF asíncronos
+ * Endpoints:
+ * - POST /api/canasta/reportes: pide un reporte (202 con su id, 429 si la cola está llena)
+ * - GET /api/canasta/reportes/{id}: estado del reporte
+ * - GET /api/canasta/reportes/{id}/pdf: PDF terminado (409 si aún no está listo, 404 si expiró)
+ * - GET /api/canasta/reportes/metricas: cola y tiempos de generación
+ * - POST /api/canasta/reportes/lote: resúmenes de muchas canastas en un solo
+ *   PDF con marcadores o en un ZIP, escritos a medida que se generan
+ * Los PDF se generan en un grupo de hilos propio, así una descarga grande
+ * no ocupa los hilos que atienden las demás peticiones
+ */
+@RestController
+@RequestMapping("/api/canasta/reportes")
+public class ReportesRestController {
+
+    // Segundos sugeridos al cliente antes de reintentar con la cola llena
+    private static final String REINTENTAR_EN_SEGUNDOS = "5";
+
+    @Autowired
+    private CanastaService canastaService;
+
+    @Autowired
+    private ReportesService reportesService;
+
+    @Autowired
+    private LotePdfService lotePdfService;
+
+    // Duración máxima de la descarga de un lote; las demás respuestas asíncronas
+    // conservan el límite por defecto
+    @Value("${canasta.lote.timeout-ms:1800000}")
+    private long timeoutLoteMs;
+
+    /**
+     * Pide el reporte PDF de la canasta actual
+     * POST /api/canasta/reportes
+     *
+     * @return estado inicial del reporte; la cabecera Location indica dónde consultarlo
+     */
+    @PostMapping
+    public ResponseEntity<InfoReporte> solicitarReporte(HttpServletRequest request) {
+        String idCanasta = IdentificadorCanasta.resolverApi(request);
+        InfoReporte reporte = reportesService.solicitar(idCanasta, canastaService.obtenerInstantanea(idCanasta));
+        return ResponseEntity.accepted()
+                .location(ubicacion(reporte.id()))
+                .body(reporte);
+    }
+
+    /**
+     * Consulta el estado de un reporte
+     * GET /api/canasta/reportes/{id}
+     *
+     * @return estado del reporte, 404 si no existe o expiró
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<InfoReporte> consultarReporte(@PathVariable String id, HttpServletRequest request) {
+        InfoReporte reporte = reportesService.consultar(IdentificadorCanasta.resolverApi(request), id);
+        return reporte == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(reporte);
+    }
+
+    /**
+     * Descarga el PDF de un reporte terminado
+     * GET /api/canasta/reportes/{id}/pdf
+     *
+     * @return PDF del reporte, 404 si no existe o expiró, 409 si aún no está
+     *         listo (con Location apuntando al estado)
+     */
+    @GetMapping("/{id}/pdf")
+    public ResponseEntity<StreamingResponseBody> descargarReporte(@PathVariable String id,
+            HttpServletRequest request) throws IOException {
+        String idCanasta = IdentificadorCanasta.resolverApi(request);
+        InfoReporte reporte = reportesService.consultar(idCanasta, id);
+        if (reporte == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (reporte.estado() != EstadoReporte.LISTO) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).location(ubicacion(id)).build();
+        }
+
+        // Se abre aquí, antes de confirmar la respuesta: si expiró se responde 404 en vez de
+        // cortar la descarga a mitad de camino
+        InputStream pdf = reportesService.abrirPdf(idCanasta, id);
+        if (pdf == null) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody cuerpo = salida -> {
+            try (pdf) {
+                pdf.transferTo(salida);
+            }
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("attachment", "resumen-canasta-familiar.pdf");
+        headers.setContentLength(reporte.bytes());
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(cuerpo);
+    }
+
+    /**
+     * Obtiene las métricas de los reportes
+     * GET /api/canasta/reportes/metricas
+     *
+     * @return profundidad de la cola, reportes en curso y tiempos de generación
+     */
+    @GetMapping("/metricas")
+    public ResponseEntity<EstadisticasReportes> obtenerMetricas() {
+        return ResponseEntity.ok(reportesService.estadisticas());
+    }
+
+    /**
+     * Genera los resúmenes de varias canastas en una sola descarga
+     * POST /api/canasta/reportes/lote?formato=pdf|zip
+     * Cuerpo: arreglo JSON con los identificadores de las canastas, en el
+     * orden en que se quieren
+     *
+     * @param formato pdf (un documento con una sección y un marcador por
+     *        canasta, por defecto) o zip (un PDF por canasta)
+     * @return documento del lote, escrito a medida que se generan los
+     *         resúmenes; 400 si el lote o el formato no son válidos
+     */
+    @PostMapping("/lote")
+    public ResponseEntity<StreamingResponseBody> generarLote(@RequestBody List<String> canastas,
+            @RequestParam(defaultValue = "pdf") String formato, HttpServletRequest request) {
+        List<String> ids = lotePdfService.validar(canastas);
+        // Un lote grande puede tardar más que el límite de las respuestas asíncronas:
+        // solo esta descarga usa el límite más largo
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(timeoutLoteMs);
+        HttpHeaders headers = new HttpHeaders();
+        StreamingResponseBody cuerpo;
+        switch (formato.trim().toLowerCase(Locale.ROOT)) {
+            case "pdf" -> {
+                headers.setContentType(MediaType.APPLICATION_PDF);
+                headers.setContentDispositionFormData("attachment", "resumenes-canasta-familiar.pdf");
+                cuerpo = salida -> lotePdfService.escribirPdf(ids, salida);
+            }
+            case "zip" -> {
+                headers.setContentType(MediaType.parseMediaType("application/zip"));
+                headers.setContentDispositionFormData("attachment", "resumenes-canasta-familiar.zip");
+                cuerpo = salida -> lotePdfService.escribirZip(ids, salida);
+            }
+            default -> throw new IllegalArgumentException("El formato del lote debe ser pdf o zip");
+        }
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(cuerpo);
+    }
+
+    private static URI ubicacion(String idReporte) {
+        return URI.create("/api/canasta/reportes/" + idReporte);
+    }
+
+    /**
+     * Con la cola llena se responde 429 y se sugiere cuándo reintentar
+     */
+    @ExceptionHandler(ColaReportesLlenaException.class)
+    public ResponseEntity<Map<String, Object>> manejarColaLlena(ColaReportesLlenaException e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, REINTENTAR_EN_SEGUNDOS)
+                .body(error);
+    }
+
+    /**
+     * Un lote o formato inválido responde 400 con el mensaje
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, Object>> manejarDatosInvalidos(IllegalArgumentException e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", e.getMessage());
+        return ResponseEntity.badRequest().body(error);
+    }
+}
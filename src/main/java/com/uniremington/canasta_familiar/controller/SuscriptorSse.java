@@ -0,0 +1,219 @@
+package com.uniremington.canasta_familiar.controller;
+
+import com.uniremington.canasta_familiar.eventos.CambioCanasta;
+import com.uniremington.canasta_familiar.eventos.Suscriptor;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Suscriptor que escribe los cambios en una conexión Server-Sent Events
+ * Cada cambio es un evento "cambio" con la versión de la canasta como id;
+ * los latidos son comentarios que EventSource ignora
+ * Escribe con la E/S no bloqueante del servlet: solo escribe cuando la
+ * conexión acepta datos ({@link #listo()}); si el cliente no lee, el hilo
+ * de envío queda libre y el contenedor avisa cuando se puede seguir
+ * ({@link WriteListener#onWritePossible()}). Así ningún cliente trabado
+ * retiene un hilo, y cerrar la conexión nunca espera una escritura
+ */
+final class SuscriptorSse implements Suscriptor, WriteListener, AsyncListener {
+
+    private static final byte[] LATIDO = ":latido\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final JsonMapper json;
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    private AsyncContext contexto;
+    private ServletOutputStream salida;
+    private Runnable cancelar;
+    private Runnable aviso;
+    // listo() respondió false: hay que avisar cuando la conexión acepte datos
+    private boolean esperando;
+    // Se escribió un evento que todavía no se pudo vaciar
+    private boolean porVaciar;
+    private boolean cerrado;
+
+    SuscriptorSse(JsonMapper json) {
+        this.json = json;
+    }
+
+    /**
+     * Pasa la petición a modo asíncrono y empieza a escribir
+     * Hasta entonces el suscriptor no está listo y los cambios esperan
+     * @param timeoutMs duración máxima de la conexión
+     * @param cancelar cancela la suscripción cuando la conexión termina
+     */
+    void abrir(HttpServletRequest request, HttpServletResponse response, long timeoutMs, Runnable cancelar)
+            throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        // Evita que un proxy (nginx) retenga los eventos
+        response.setHeader("X-Accel-Buffering", "no");
+
+        cerrojo.lock();
+        try {
+            this.cancelar = cancelar;
+            contexto = request.startAsync(request, response);
+            contexto.setTimeout(timeoutMs);
+            contexto.addListener(this);
+            if (cerrado) {
+                // Se descartó antes de abrir
+                contexto.complete();
+                return;
+            }
+            salida = response.getOutputStream();
+            // El contenedor llama enseguida a onWritePossible: ahí se avisa si hay cambios esperando
+            salida.setWriteListener(this);
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    @Override
+    public void alLiberarse(Runnable aviso) {
+        this.aviso = aviso;
+    }
+
+    @Override
+    public boolean listo() {
+        cerrojo.lock();
+        try {
+            if (cerrado) {
+                // El envío falla y el suscriptor se descarta
+                return true;
+            }
+            if (salida != null && salida.isReady()) {
+                return true;
+            }
+            esperando = true;
+            return false;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    @Override
+    public void enviar(CambioCanasta cambio) throws IOException {
+        String datos = json.writeValueAsString(cambio);
+        escribir(("id:" + cambio.version() + "\nevent:cambio\ndata:" + datos + "\n\n")
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void latir() throws IOException {
+        escribir(LATIDO);
+    }
+
+    // Solo se llama después de que listo() respondió true
+    private void escribir(byte[] evento) throws IOException {
+        cerrojo.lock();
+        try {
+            if (cerrado || salida == null) {
+                throw new IOException("La conexión está cerrada");
+            }
+            salida.write(evento);
+            if (salida.isReady()) {
+                salida.flush();
+                porVaciar = false;
+            } else {
+                porVaciar = true;
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    @Override
+    public void cerrar() {
+        cerrojo.lock();
+        try {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            if (contexto != null) {
+                // No espera: el contenedor termina la respuesta en sus propios hilos
+                contexto.complete();
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+        Runnable reanudar = null;
+        cerrojo.lock();
+        try {
+            if (cerrado) {
+                return;
+            }
+            if (porVaciar && salida.isReady()) {
+                salida.flush();
+                porVaciar = false;
+            }
+            if (esperando && salida.isReady()) {
+                esperando = false;
+                reanudar = aviso;
+            }
+        } finally {
+            cerrojo.unlock();
+        }
+        if (reanudar != null) {
+            reanudar.run();
+        }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        terminar();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent evento) {
+        terminar();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent evento) {
+        terminar();
+        evento.getAsyncContext().complete();
+    }
+
+    @Override
+    public void onError(AsyncEvent evento) {
+        terminar();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent evento) {
+    }
+
+    // La conexión terminó (cliente, tiempo o error): se deja de escribir y se cancela la suscripción
+    private void terminar() {
+        Runnable cancelacion;
+        cerrojo.lock();
+        try {
+            cerrado = true;
+            cancelacion = cancelar;
+        } finally {
+            cerrojo.unlock();
+        }
+        if (cancelacion != null) {
+            cancelacion.run();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.uniremington.canasta_familiar.controller;
+
+import com.uniremington.canasta_familiar.service.CanastaService;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Contenido de la vista de resumen, ya convertido en HTML
+ * Se encarga de:
+ * - Pintar el fragmento "contenido" de fragmentos/resumen.html (estadísticas,
+ *   más costosos y primera página de productos)
+ * - Guardar el último HTML de cada canasta junto con la versión con que se pintó
+ * - Reutilizarlo mientras la canasta no cambie, sin volver a procesar la plantilla
+ * - Limitar la memoria total, expulsando primero los menos usados
+ * Mismo criterio que {@link com.uniremington.canasta_familiar.service.CachePdf}
+ */
+@Component
+class VistaResumen {
+
+    static final String PLANTILLA = "fragmentos/resumen";
+    static final String FRAGMENTO = "contenido";
+
+    // Productos de la tabla del resumen; la lista completa va en el PDF
+    static final int PRODUCTOS = CanastaService.LIMITE_PAGINA_POR_DEFECTO;
+
+    private final ITemplateEngine motor;
+    private final CanastaService canastaService;
+    private final long maxCaracteres;
+
+    // Un contenido por canasta, en orden de acceso (el primero es el menos usado)
+    private final LinkedHashMap<String, ContenidoGuardado> contenidos = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock candado = new ReentrantLock();
+    private long caracteres;
+
+    /**
+     * @param motor motor de plantillas de la aplicación
+     * @param canastaService servicio para leer la primera página de productos
+     * @param maxCaracteres memoria máxima, en caracteres, sumando todos los contenidos guardados
+     */
+    @Autowired
+    VistaResumen(ITemplateEngine motor, CanastaService canastaService,
+            @Value("${canasta.resumen.cache.max-caracteres:4194304}") long maxCaracteres) {
+        if (maxCaracteres < 0) {
+            throw new IllegalArgumentException("El límite de la caché del resumen no puede ser negativo");
+        }
+        this.motor = motor;
+        this.canastaService = canastaService;
+        this.maxCaracteres = maxCaracteres;
+    }
+
+    /**
+     * Obtiene el contenido del resumen para la versión de la canasta
+     * @param idCanasta identificador de la canasta
+     * @param canasta instantánea de la canasta
+     * @return HTML del contenido
+     * @throws ArithmeticException si el total de la canasta desborda
+     */
+    String contenido(String idCanasta, InstantaneaCanasta canasta) {
+        candado.lock();
+        try {
+            ContenidoGuardado guardado = contenidos.get(idCanasta);
+            if (guardado != null && guardado.version == canasta.version()) {
+                return guardado.html;
+            }
+        } finally {
+            candado.unlock();
+        }
+
+        // Se pinta fuera del candado; si dos peticiones pintan la misma versión queda cualquiera
+        String html = pintar(canasta);
+        guardar(idCanasta, canasta.version(), html);
+        return html;
+    }
+
+    private String pintar(InstantaneaCanasta canasta) {
+        Context contexto = new Context();
+        contexto.setVariable("items", canastaService.obtenerPagina(canasta, 0, PRODUCTOS).items());
+        contexto.setVariable("cantidadItems", canasta.size());
+        contexto.setVariable("total", canastaService.calcularTotal(canasta).aBigDecimal());
+        contexto.setVariable("promedio", canastaService.calcularPromedio(canasta));
+        contexto.setVariable("productosCostosos", canastaService.obtenerProductosMasCostosos(canasta, 3));
+        return motor.process(PLANTILLA, Set.of(FRAGMENTO), contexto);
+    }
+
+    private void guardar(String idCanasta, long version, String html) {
+        if (html.length() > maxCaracteres) {
+            return;
+        }
+        candado.lock();
+        try {
+            ContenidoGuardado anterior = contenidos.get(idCanasta);
+            if (anterior != null) {
+                if (anterior.version > version) {
+                    return;
+                }
+                caracteres -= anterior.html.length();
+            }
+            contenidos.put(idCanasta, new ContenidoGuardado(version, html));
+            caracteres += html.length();
+
+            Iterator<ContenidoGuardado> menosUsados = contenidos.values().iterator();
+            while (caracteres > maxCaracteres) {
+                caracteres -= menosUsados.next().html.length();
+                menosUsados.remove();
+            }
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    private record ContenidoGuardado(long version, String html) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.uniremington.canasta_familiar.eventos;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cambio de una canasta que se envía a los suscriptores (evento "cambio")
+ * Trae los items agregados desde el evento anterior y el estado nuevo
+ * (cantidad, total, promedio y los 3 más costosos), no la canasta completa
+ * Si el suscriptor se atrasa, los cambios pendientes se juntan en uno solo
+ * con {@link #combinar}
+ * @param version versión de la canasta después del cambio
+ * @param limpiada si la canasta se limpió desde el evento anterior (los
+ *        agregados son entonces los posteriores a la limpieza)
+ * @param agregados items agregados, hasta {@link #MAX_AGREGADOS}
+ * @param omitidos items agregados que no se incluyen por superar el máximo
+ * @param cantidadItems items en la canasta
+ * @param total total en pesos, o null si desborda
+ * @param promedio promedio de precios en pesos, o null si desborda
+ * @param masCostosos los 3 productos más costosos
+ */
+public record CambioCanasta(
+        long version,
+        boolean limpiada,
+        List<ItemCanasta> agregados,
+        long omitidos,
+        int cantidadItems,
+        Double total,
+        Double promedio,
+        List<ItemCanasta> masCostosos) {
+
+    // Items que viajan en un evento; el resto solo se cuenta
+    public static final int MAX_AGREGADOS = 100;
+
+    public static final int MAS_COSTOSOS = 3;
+
+    /**
+     * Arma el cambio a partir del estado de la canasta
+     * @param canasta instantánea tomada después del cambio
+     * @param agregados items agregados (vacío si solo se limpió)
+     * @param limpiada si el cambio fue una limpieza
+     */
+    public static CambioCanasta de(InstantaneaCanasta canasta, List<ItemCanasta> agregados, boolean limpiada) {
+        Double total;
+        Double promedio;
+        try {
+            total = canasta.calcularTotal();
+            promedio = canasta.calcularPromedio();
+        } catch (ArithmeticException e) {
+            total = null;
+            promedio = null;
+        }
+        List<ItemCanasta> incluidos = agregados.size() <= MAX_AGREGADOS
+                ? List.copyOf(agregados)
+                : List.copyOf(agregados.subList(agregados.size() - MAX_AGREGADOS, agregados.size()));
+        return new CambioCanasta(canasta.version(), limpiada, incluidos, agregados.size() - incluidos.size(),
+                canasta.size(), total, promedio,
+                canasta.size() == 0 ? List.of() : canasta.obtenerMasCostosos(MAS_COSTOSOS));
+    }
+
+    /**
+     * Junta este cambio con uno posterior que todavía no se envió
+     * El estado es el del cambio más nuevo (por versión); los agregados se
+     * acumulan conservando los últimos, salvo que entre medio se haya limpiado
+     * @param siguiente cambio publicado después
+     * @return un cambio equivalente a enviar los dos
+     */
+    public CambioCanasta combinar(CambioCanasta siguiente) {
+        CambioCanasta estado = siguiente.version >= version ? siguiente : this;
+        if (siguiente.limpiada) {
+            return new CambioCanasta(estado.version, true, siguiente.agregados, siguiente.omitidos,
+                    estado.cantidadItems, estado.total, estado.promedio, estado.masCostosos);
+        }
+        List<ItemCanasta> juntos = new ArrayList<>(agregados.size() + siguiente.agregados.size());
+        juntos.addAll(agregados);
+        juntos.addAll(siguiente.agregados);
+        int sobrantes = Math.max(0, juntos.size() - MAX_AGREGADOS);
+        return new CambioCanasta(estado.version, limpiada, List.copyOf(juntos.subList(sobrantes, juntos.size())),
+                omitidos + siguiente.omitidos + sobrantes,
+                estado.cantidadItems, estado.total, estado.promedio, estado.masCostosos);
+    }
+}
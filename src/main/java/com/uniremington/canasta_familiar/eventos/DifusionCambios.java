@@ -0,0 +1,358 @@
+package com.uniremington.canasta_familiar.eventos;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PreDestroy;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Difusión de los cambios de las canastas a sus suscriptores
+ * Se encarga de:
+ * - Registrar suscriptores por canasta, hasta un máximo entre todas
+ * - Entregar cada cambio publicado a los suscriptores de la canasta sin
+ *   bloquear a quien publica: el cambio queda pendiente en cada suscriptor
+ *   y unos pocos hilos de envío lo escriben
+ * - Juntar los cambios de un suscriptor atrasado en uno solo
+ *   ({@link CambioCanasta#combinar}): la memoria por suscriptor no crece
+ * - Enviar latidos periódicos y descartar a los suscriptores que llevan
+ *   demasiado tiempo sin poder recibir
+ * Un suscriptor tiene a lo sumo una tarea de envío en curso o en cola, así
+ * que miles de conexiones no ocupan un hilo cada una. Un suscriptor que no
+ * puede recibir ({@link Suscriptor#listo()}) no retiene un hilo de envío:
+ * su tarea se reanuda cuando avisa que se liberó
+ * Los latidos corren en un hilo propio, no en el planificador compartido
+ * de Spring, y nunca esperan a un suscriptor: descartar a uno lo cancela y
+ * su cierre se hace en un hilo de envío
+ */
+@Component
+public class DifusionCambios {
+
+    public static final int HILOS_POR_DEFECTO = 2;
+    public static final int MAX_SUSCRIPTORES_POR_DEFECTO = 20_000;
+    public static final long MAX_ATRASO_MS_POR_DEFECTO = 30_000;
+
+    private final Executor ejecutor;
+    // Hilo de los latidos; null si los latidos se piden a mano
+    private final ScheduledExecutorService latidos;
+    private final int maxSuscriptores;
+    private final long maxAtrasoNanos;
+    private final LongSupplier reloj;
+
+    // Suscripciones por canasta; una canasta sin suscriptores no tiene entrada
+    private final ConcurrentHashMap<String, Set<Suscripcion>> suscripciones = new ConcurrentHashMap<>();
+    private final AtomicInteger cantidad = new AtomicInteger();
+
+    private final AtomicLong enviados = new AtomicLong();
+    private final AtomicLong combinados = new AtomicLong();
+    private final AtomicLong descartados = new AtomicLong();
+
+    /**
+     * Difusión sin latidos automáticos (se piden con {@link #latir()})
+     */
+    public DifusionCambios() {
+        this(crearEjecutor(HILOS_POR_DEFECTO), MAX_SUSCRIPTORES_POR_DEFECTO,
+                TimeUnit.MILLISECONDS.toNanos(MAX_ATRASO_MS_POR_DEFECTO), System::nanoTime);
+    }
+
+    /**
+     * @param hilos hilos que escriben a los suscriptores
+     * @param maxSuscriptores suscriptores a la vez entre todas las canastas
+     * @param maxAtrasoMs tiempo máximo esperando para enviar a un suscriptor antes de descartarlo
+     * @param latidoMs intervalo entre latidos
+     */
+    @Autowired
+    public DifusionCambios(@Value("${canasta.stream.hilos:2}") int hilos,
+            @Value("${canasta.stream.max-suscriptores:20000}") int maxSuscriptores,
+            @Value("${canasta.stream.max-atraso-ms:30000}") long maxAtrasoMs,
+            @Value("${canasta.stream.latido-ms:15000}") long latidoMs) {
+        this(crearEjecutor(hilos), crearLatidos(), maxSuscriptores, TimeUnit.MILLISECONDS.toNanos(maxAtrasoMs),
+                System::nanoTime);
+        if (latidoMs <= 0) {
+            latidos.shutdownNow();
+            throw new IllegalArgumentException("El intervalo de los latidos debe ser mayor a cero");
+        }
+        latidos.scheduleWithFixedDelay(this::latir, latidoMs, latidoMs, TimeUnit.MILLISECONDS);
+    }
+
+    DifusionCambios(Executor ejecutor, int maxSuscriptores, long maxAtrasoNanos, LongSupplier reloj) {
+        this(ejecutor, null, maxSuscriptores, maxAtrasoNanos, reloj);
+    }
+
+    private DifusionCambios(Executor ejecutor, ScheduledExecutorService latidos, int maxSuscriptores,
+            long maxAtrasoNanos, LongSupplier reloj) {
+        if (maxSuscriptores <= 0 || maxAtrasoNanos <= 0) {
+            throw new IllegalArgumentException("Los límites de la difusión deben ser mayores a cero");
+        }
+        this.ejecutor = ejecutor;
+        this.latidos = latidos;
+        this.maxSuscriptores = maxSuscriptores;
+        this.maxAtrasoNanos = maxAtrasoNanos;
+        this.reloj = reloj;
+    }
+
+    /**
+     * Indica si alguien escucha los cambios de la canasta
+     * Sirve para no armar el cambio cuando nadie lo va a recibir
+     */
+    public boolean tieneSuscriptores(String idCanasta) {
+        return suscripciones.containsKey(idCanasta);
+    }
+
+    /**
+     * Suscribe a los cambios de una canasta
+     * @param idCanasta identificador de la canasta
+     * @param suscriptor destino de los cambios
+     * @param inicial estado actual, que se envía primero
+     * @return acción que cancela la suscripción (por ejemplo al cerrarse la conexión)
+     * @throws SuscriptoresAgotadosException si se alcanzó el máximo de suscriptores
+     */
+    public Runnable suscribir(String idCanasta, Suscriptor suscriptor, CambioCanasta inicial) {
+        if (cantidad.incrementAndGet() > maxSuscriptores) {
+            cantidad.decrementAndGet();
+            throw new SuscriptoresAgotadosException("Hay demasiados suscriptores, intente más tarde");
+        }
+        Suscripcion suscripcion = new Suscripcion(idCanasta, suscriptor);
+        suscriptor.alLiberarse(suscripcion::reanudar);
+        suscripciones.compute(idCanasta, (id, conjunto) -> {
+            Set<Suscripcion> resultado = conjunto != null ? conjunto : ConcurrentHashMap.newKeySet();
+            resultado.add(suscripcion);
+            return resultado;
+        });
+        suscripcion.ofrecer(inicial);
+        return suscripcion::cancelar;
+    }
+
+    /**
+     * Publica un cambio a los suscriptores de la canasta
+     * No espera a que se envíe
+     * @param idCanasta identificador de la canasta
+     * @param cambio cambio a enviar
+     */
+    public void publicar(String idCanasta, CambioCanasta cambio) {
+        Set<Suscripcion> conjunto = suscripciones.get(idCanasta);
+        if (conjunto == null) {
+            return;
+        }
+        for (Suscripcion suscripcion : conjunto) {
+            suscripcion.ofrecer(cambio);
+        }
+    }
+
+    /**
+     * Envía un latido a los suscriptores libres y descarta a los atrasados
+     * No bloquea: los latidos y los cierres los hacen los hilos de envío
+     */
+    public void latir() {
+        long ahora = reloj.getAsLong();
+        for (Set<Suscripcion> conjunto : suscripciones.values()) {
+            for (Suscripcion suscripcion : conjunto) {
+                long esperando = suscripcion.esperandoDesde;
+                if (esperando != 0 && ahora - esperando > maxAtrasoNanos) {
+                    suscripcion.descartarAtrasado();
+                } else {
+                    suscripcion.latidoPendiente = true;
+                    suscripcion.programar();
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtiene las métricas de la difusión
+     * @return suscriptores actuales, cambios enviados, combinados y suscriptores descartados
+     */
+    public EstadisticasDifusion estadisticas() {
+        return new EstadisticasDifusion(cantidad.get(), enviados.get(), combinados.get(), descartados.get());
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        if (latidos != null) {
+            latidos.shutdownNow();
+        }
+        for (Set<Suscripcion> conjunto : suscripciones.values()) {
+            for (Suscripcion suscripcion : conjunto) {
+                if (suscripcion.cancelar()) {
+                    suscripcion.suscriptor.cerrar();
+                }
+            }
+        }
+        if (ejecutor instanceof ExecutorService servicio) {
+            servicio.shutdownNow();
+        }
+    }
+
+    private static ThreadPoolExecutor crearEjecutor(int hilos) {
+        if (hilos <= 0) {
+            throw new IllegalArgumentException("Los hilos de la difusión deben ser mayores a cero");
+        }
+        AtomicInteger numero = new AtomicInteger();
+        // La cola no crece más que los suscriptores: cada uno tiene a lo sumo una tarea
+        ThreadPoolExecutor ejecutor = new ThreadPoolExecutor(hilos, hilos, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), tarea -> {
+                    Thread hilo = new Thread(tarea, "difusion-cambios-" + numero.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        // Sin suscriptores no quedan hilos vivos
+        ejecutor.allowCoreThreadTimeOut(true);
+        return ejecutor;
+    }
+
+    private static ScheduledExecutorService crearLatidos() {
+        ScheduledThreadPoolExecutor latidos = new ScheduledThreadPoolExecutor(1, tarea -> {
+            Thread hilo = new Thread(tarea, "difusion-latidos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        latidos.setRemoveOnCancelPolicy(true);
+        return latidos;
+    }
+
+    /**
+     * Un suscriptor de una canasta con su cambio pendiente
+     */
+    private final class Suscripcion {
+
+        private final String idCanasta;
+        private final Suscriptor suscriptor;
+
+        // Cambio todavía no enviado; los que llegan mientras tanto se combinan con él
+        private final AtomicReference<CambioCanasta> pendiente = new AtomicReference<>();
+        // Hay una tarea de envío en cola o en curso
+        private final AtomicBoolean programada = new AtomicBoolean();
+        private final AtomicBoolean cancelada = new AtomicBoolean();
+        private volatile boolean latidoPendiente;
+        // Desde cuándo espera la tarea o el envío en curso; 0 si está libre
+        private volatile long esperandoDesde;
+
+        Suscripcion(String idCanasta, Suscriptor suscriptor) {
+            this.idCanasta = idCanasta;
+            this.suscriptor = suscriptor;
+        }
+
+        void ofrecer(CambioCanasta cambio) {
+            CambioCanasta anterior = pendiente.getAndAccumulate(cambio,
+                    (actual, nuevo) -> actual == null ? nuevo : actual.combinar(nuevo));
+            if (anterior != null) {
+                combinados.incrementAndGet();
+            }
+            programar();
+        }
+
+        void programar() {
+            if (cancelada.get() || !programada.compareAndSet(false, true)) {
+                return;
+            }
+            esperandoDesde = marca();
+            try {
+                ejecutor.execute(this::drenar);
+            } catch (RejectedExecutionException e) {
+                // Se está apagando la aplicación
+                cancelar();
+            }
+        }
+
+        // El suscriptor se liberó después de responder que no estaba listo;
+        // la tarea sigue programada, así que se reanuda sin volver a marcarla
+        void reanudar() {
+            if (cancelada.get()) {
+                return;
+            }
+            try {
+                ejecutor.execute(this::drenar);
+            } catch (RejectedExecutionException e) {
+                cancelar();
+            }
+        }
+
+        private void drenar() {
+            try {
+                while (!cancelada.get()) {
+                    if ((latidoPendiente || pendiente.get() != null) && !suscriptor.listo()) {
+                        // Avisará con reanudar(); mientras tanto la tarea queda
+                        // programada y esperandoDesde sigue contando el atraso
+                        return;
+                    }
+                    if (latidoPendiente) {
+                        latidoPendiente = false;
+                        esperandoDesde = marca();
+                        suscriptor.latir();
+                    }
+                    CambioCanasta cambio = pendiente.getAndSet(null);
+                    if (cambio != null) {
+                        esperandoDesde = marca();
+                        suscriptor.enviar(cambio);
+                        enviados.incrementAndGet();
+                        continue;
+                    }
+                    esperandoDesde = 0;
+                    programada.set(false);
+                    // Lo que llegó después de vaciar y antes de liberar se envía en esta misma tarea
+                    if ((pendiente.get() == null && !latidoPendiente) || !programada.compareAndSet(false, true)) {
+                        return;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                descartar();
+            }
+        }
+
+        // Nunca devuelve 0, que indica "libre"
+        private long marca() {
+            long ahora = reloj.getAsLong();
+            return ahora == 0 ? 1 : ahora;
+        }
+
+        void descartar() {
+            if (cancelar()) {
+                descartados.incrementAndGet();
+                suscriptor.cerrar();
+            }
+        }
+
+        // Desde el hilo de los latidos: se cancela ya y el cierre lo hace un
+        // hilo de envío, así un suscriptor trabado no detiene los latidos
+        void descartarAtrasado() {
+            if (cancelar()) {
+                descartados.incrementAndGet();
+                try {
+                    ejecutor.execute(suscriptor::cerrar);
+                } catch (RejectedExecutionException e) {
+                    // Se está apagando la aplicación: cerrar() cierra las conexiones
+                }
+            }
+        }
+
+        // true solo la primera vez
+        boolean cancelar() {
+            if (!cancelada.compareAndSet(false, true)) {
+                return false;
+            }
+            suscripciones.computeIfPresent(idCanasta, (id, conjunto) -> {
+                conjunto.remove(this);
+                return conjunto.isEmpty() ? null : conjunto;
+            });
+            cantidad.decrementAndGet();
+            pendiente.set(null);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.uniremington.canasta_familiar.eventos;
+
+/**
+ * Métricas de la difusión de cambios
+ * @param suscriptores suscriptores conectados
+ * @param enviados cambios enviados
+ * @param combinados cambios que se juntaron con uno pendiente (suscriptor atrasado)
+ * @param descartados suscriptores cerrados por atraso o por error al enviar
+ */
+public record EstadisticasDifusion(int suscriptores, long enviados, long combinados, long descartados) {
+}
@@ -0,0 +1,50 @@
+package com.uniremington.canasta_familiar.eventos;
+
+import java.io.IOException;
+
+/**
+ * Destino de los cambios de una canasta (por ejemplo una conexión SSE)
+ * Los métodos de envío se llaman desde los hilos de envío de
+ * {@link DifusionCambios}, nunca dos a la vez para el mismo suscriptor
+ * Un suscriptor que escribe sin bloquear indica con {@link #listo()} si
+ * puede recibir ya; si no, avisa cuando se libera y mientras tanto no
+ * ocupa ningún hilo
+ */
+public interface Suscriptor {
+
+    /**
+     * Recibe la acción que se ejecuta cuando el suscriptor, después de
+     * responder false en {@link #listo()}, vuelve a poder recibir
+     * Se llama una vez, antes del primer envío
+     * @param aviso acción que reanuda los envíos
+     */
+    default void alLiberarse(Runnable aviso) {
+    }
+
+    /**
+     * Indica si se puede enviar sin bloquear
+     * @return true si se puede enviar ya; false si no, y entonces avisará
+     *         una vez con la acción de {@link #alLiberarse}
+     */
+    default boolean listo() {
+        return true;
+    }
+
+    /**
+     * Envía un cambio
+     * @throws IOException si la conexión se cortó; el suscriptor se descarta
+     */
+    void enviar(CambioCanasta cambio) throws IOException;
+
+    /**
+     * Envía un latido sin datos para mantener viva la conexión
+     * @throws IOException si la conexión se cortó; el suscriptor se descarta
+     */
+    void latir() throws IOException;
+
+    /**
+     * Cierra la conexión porque el suscriptor se descartó (atrasado o al apagar)
+     * No debe bloquear: se llama también cuando el suscriptor no responde
+     */
+    void cerrar();
+}
@@ -0,0 +1,14 @@
+package com.uniremington.canasta_familiar.eventos;
+
+/**
+ * Se lanza cuando se alcanzó el máximo de suscriptores a los cambios
+ * El cliente debe reintentar más tarde (HTTP 503)
+ */
+public class SuscriptoresAgotadosException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SuscriptoresAgotadosException(String mensaje) {
+        super(mensaje);
+    }
+}
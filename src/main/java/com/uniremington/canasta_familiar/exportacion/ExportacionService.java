@@ -0,0 +1,58 @@
+package com.uniremington.canasta_familiar.exportacion;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reúne los formatos de exportación disponibles
+ * Se encarga de:
+ * - Recibir todas las implementaciones de {@link Exportador} (CSV, JSON
+ *   Lines, PDF y las que se agreguen)
+ * - Elegir la del formato pedido, sin importar mayúsculas
+ */
+@Service
+public class ExportacionService {
+
+    // Ordenado por nombre para listar los formatos en los mensajes de error
+    private final Map<String, Exportador> exportadores = new TreeMap<>();
+
+    /**
+     * @param exportadores formatos disponibles; dos con el mismo nombre son un error
+     */
+    @Autowired
+    public ExportacionService(List<Exportador> exportadores) {
+        for (Exportador exportador : exportadores) {
+            if (this.exportadores.putIfAbsent(exportador.formato(), exportador) != null) {
+                throw new IllegalArgumentException("Formato de exportación repetido: " + exportador.formato());
+            }
+        }
+    }
+
+    /**
+     * Busca el exportador de un formato
+     * @param formato nombre del formato (csv, jsonl, pdf...)
+     * @return exportador del formato
+     * @throws IllegalArgumentException si el formato no existe
+     */
+    public Exportador buscar(String formato) {
+        Exportador exportador = formato == null ? null
+                : exportadores.get(formato.trim().toLowerCase(Locale.ROOT));
+        if (exportador == null) {
+            throw new IllegalArgumentException("El formato debe ser uno de: "
+                    + String.join(", ", exportadores.keySet()));
+        }
+        return exportador;
+    }
+
+    /**
+     * @return nombres de los formatos disponibles, en orden alfabético
+     */
+    public List<String> formatos() {
+        return List.copyOf(exportadores.keySet());
+    }
+}
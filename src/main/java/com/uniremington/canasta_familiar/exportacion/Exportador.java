@@ -0,0 +1,41 @@
+package com.uniremington.canasta_familiar.exportacion;
+
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Formato en que se puede descargar una canasta
+ * Cada implementación es un bean de Spring; {@link ExportacionService} las
+ * reúne y elige por {@link #formato()}. Para agregar un formato basta con
+ * otra implementación
+ * Las implementaciones escriben directo en la salida a medida que recorren
+ * la instantánea, sin armar el archivo completo en memoria
+ */
+public interface Exportador {
+
+    /**
+     * @return nombre del formato en el parámetro format (en minúsculas, por ejemplo "csv")
+     */
+    String formato();
+
+    /**
+     * @return tipo de contenido de la respuesta (por ejemplo "text/csv")
+     */
+    String tipoContenido();
+
+    /**
+     * @return extensión del archivo descargado, sin punto
+     */
+    String extension();
+
+    /**
+     * Escribe la canasta en este formato
+     * @param idCanasta identificador de la canasta
+     * @param canasta instantánea de la canasta
+     * @param salida flujo donde se escribe (no se cierra)
+     * @throws IOException si falla la escritura
+     */
+    void exportar(String idCanasta, InstantaneaCanasta canasta, OutputStream salida) throws IOException;
+}
@@ -0,0 +1,164 @@
+package com.uniremington.canasta_familiar.exportacion;
+
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exportación en CSV con las columnas nombre,precio,cantidad (UTF-8, con encabezado)
+ * Es el mismo formato que acepta POST /api/canasta/items:batch, así una
+ * exportación se puede volver a cargar
+ * Las filas se arman byte a byte en un búfer fijo leyendo las columnas de
+ * la instantánea: no se crea un ItemCanasta ni un String por fila
+ * El precio se escribe en pesos con dos decimales exactos (sale de los centavos)
+ * Un nombre con coma, comillas o salto de línea va entre comillas dobles
+ */
+@Component
+public class ExportadorCsv implements Exportador {
+
+    private static final byte[] ENCABEZADO = "nombre,precio,cantidad\n".getBytes(StandardCharsets.US_ASCII);
+
+    // Tamaño del búfer de escritura; una fila que no entra se escribe aparte
+    private static final int BUFER = 64 * 1024;
+
+    // Una fila sin el nombre: coma, precio (hasta 20 dígitos, punto y 2 decimales), coma, cantidad y salto
+    private static final int MAX_NUMEROS_POR_FILA = 1 + 24 + 1 + 11 + 1;
+
+    @Override
+    public String formato() {
+        return "csv";
+    }
+
+    @Override
+    public String tipoContenido() {
+        return "text/csv;charset=UTF-8";
+    }
+
+    @Override
+    public String extension() {
+        return "csv";
+    }
+
+    @Override
+    public void exportar(String idCanasta, InstantaneaCanasta canasta, OutputStream salida) throws IOException {
+        Escritor escritor = new Escritor(salida);
+        escritor.escribir(ENCABEZADO);
+        for (int i = 0, n = canasta.size(); i < n; i++) {
+            escritor.nombre(canasta.nombre(i));
+            escritor.reservar(MAX_NUMEROS_POR_FILA);
+            escritor.byteSinVerificar(',');
+            escritor.centavos(canasta.precioCentavos(i));
+            escritor.byteSinVerificar(',');
+            escritor.entero(canasta.cantidad(i));
+            escritor.byteSinVerificar('\n');
+        }
+        escritor.vaciar();
+    }
+
+    /**
+     * Búfer de bytes con las conversiones de texto y números que usa el CSV
+     */
+    private static final class Escritor {
+
+        private final OutputStream salida;
+        private final byte[] bufer = new byte[BUFER];
+        private int usados;
+
+        Escritor(OutputStream salida) {
+            this.salida = salida;
+        }
+
+        void reservar(int bytes) throws IOException {
+            if (BUFER - usados < bytes) {
+                vaciar();
+            }
+        }
+
+        void byteSinVerificar(char c) {
+            bufer[usados++] = (byte) c;
+        }
+
+        void escribir(byte[] bytes) throws IOException {
+            if (bytes.length > BUFER - usados) {
+                vaciar();
+                if (bytes.length > BUFER) {
+                    salida.write(bytes);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, bufer, usados, bytes.length);
+            usados += bytes.length;
+        }
+
+        void nombre(String nombre) throws IOException {
+            int largo = nombre.length();
+            boolean comillas = false;
+            boolean ascii = true;
+            for (int i = 0; i < largo; i++) {
+                char c = nombre.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    comillas = true;
+                } else if (c >= 0x80) {
+                    ascii = false;
+                }
+            }
+            if (comillas) {
+                escribir(('"' + nombre.replace("\"", "\"\"") + '"').getBytes(StandardCharsets.UTF_8));
+            } else if (!ascii) {
+                escribir(nombre.getBytes(StandardCharsets.UTF_8));
+            } else {
+                // Caso común: se copia carácter por carácter sin codificar
+                reservar(largo);
+                if (largo > BUFER) {
+                    salida.write(nombre.getBytes(StandardCharsets.US_ASCII));
+                    return;
+                }
+                for (int i = 0; i < largo; i++) {
+                    bufer[usados++] = (byte) nombre.charAt(i);
+                }
+            }
+        }
+
+        // Pesos con dos decimales: 123456 centavos -> 1234.56
+        void centavos(long centavos) {
+            if (centavos < 0) {
+                bufer[usados++] = '-';
+                // -Long.MIN_VALUE no existe, pero un precio válido nunca es negativo
+                centavos = -centavos;
+            }
+            entero(centavos / 100);
+            long resto = centavos % 100;
+            bufer[usados++] = '.';
+            bufer[usados++] = (byte) ('0' + resto / 10);
+            bufer[usados++] = (byte) ('0' + resto % 10);
+        }
+
+        void entero(long valor) {
+            if (valor < 0) {
+                bufer[usados++] = '-';
+                valor = -valor;
+            }
+            int inicio = usados;
+            do {
+                bufer[usados++] = (byte) ('0' + valor % 10);
+                valor /= 10;
+            } while (valor > 0);
+            // Los dígitos quedaron al revés
+            for (int i = inicio, j = usados - 1; i < j; i++, j--) {
+                byte temporal = bufer[i];
+                bufer[i] = bufer[j];
+                bufer[j] = temporal;
+            }
+        }
+
+        void vaciar() throws IOException {
+            if (usados > 0) {
+                salida.write(bufer, 0, usados);
+                usados = 0;
+            }
+        }
+    }
+}
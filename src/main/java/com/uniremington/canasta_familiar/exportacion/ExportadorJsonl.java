@@ -0,0 +1,35 @@
+package com.uniremington.canasta_familiar.exportacion;
+
+import com.uniremington.canasta_familiar.service.EscritorJson;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+
+/**
+ * Exportación en JSON Lines: un objeto {"nombre","precio","cantidad"} por línea
+ * Cada línea se procesa sola, sin leer el archivo completo (trabajos de análisis)
+ */
+@Component
+public class ExportadorJsonl implements Exportador {
+
+    @Override
+    public String formato() {
+        return "jsonl";
+    }
+
+    @Override
+    public String tipoContenido() {
+        return "application/jsonl";
+    }
+
+    @Override
+    public String extension() {
+        return "jsonl";
+    }
+
+    @Override
+    public void exportar(String idCanasta, InstantaneaCanasta canasta, OutputStream salida) {
+        EscritorJson.escribirLineas(canasta, salida);
+    }
+}
@@ -0,0 +1,16 @@
+package com.uniremington.canasta_familiar.historial;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Resultado de una consulta del historial de una canasta
+ * @param desde comienzo del rango consultado
+ * @param hasta fin del rango consultado
+ * @param resolucion resolución de la evolución del total
+ * @param total evolución del total de la canasta, en orden
+ * @param productos variación de precio de cada producto observado en el rango, por nombre
+ */
+public record ConsultaHistorial(Instant desde, Instant hasta, Resolucion resolucion, List<PuntoHistorial> total,
+        List<VariacionProducto> productos) {
+}
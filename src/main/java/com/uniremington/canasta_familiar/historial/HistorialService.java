@@ -0,0 +1,335 @@
+package com.uniremington.canasta_familiar.historial;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.store.NombreProducto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Historial de precios de las canastas
+ * Se encarga de:
+ * - Registrar el total de la canasta cada vez que cambia (también al
+ *   limpiarla: el historial no se borra)
+ * - Registrar el precio unitario de cada producto cada vez que se agrega
+ * - Consultar la evolución del total y la variación de precio (inflación)
+ *   de cada producto en un rango de fechas
+ * Cada serie es una {@link SerieTemporal} comprimida con resúmenes por hora
+ * y por día; la resolución de la consulta se elige para no entregar más de
+ * {@link #MAX_PUNTOS} puntos por serie, así un año se responde desde los
+ * resúmenes diarios sin recorrer las observaciones. Una resolución pedida
+ * más fina que eso se sube a la que lo cumple; la de cada producto se
+ * elige siempre así
+ * Los productos se identifican por su nombre normalizado, igual que en la canasta
+ * Las observaciones se conservan retencion-dias y los resúmenes por hora
+ * retencion-horas-dias; los resúmenes por día se conservan siempre. Un rango
+ * que empieza antes de lo conservado se responde con una resolución que
+ * todavía lo cubre
+ * Cada canasta tiene su propio candado: registrar en una canasta no espera
+ * a las demás. Al superar el máximo de canastas se descarta en lote el 1%
+ * menos usado recientemente, igual que en RegistroCanastas
+ * Se activa con canasta.historial.habilitado=true
+ */
+@Service
+@ConditionalOnProperty(name = "canasta.historial.habilitado", havingValue = "true")
+public class HistorialService {
+
+    public static final int MAX_CANASTAS_POR_DEFECTO = 10_000;
+    public static final int MAX_PRODUCTOS_POR_DEFECTO = 10_000;
+    public static final long RETENCION_DIAS_POR_DEFECTO = 30;
+    public static final long RETENCION_HORAS_DIAS_POR_DEFECTO = 365;
+
+    // Puntos máximos por serie en una consulta
+    public static final int MAX_PUNTOS = 1_000;
+
+    private final int maxCanastas;
+    private final int maxProductos;
+    private final long retencionPuntos;
+    private final long retencionHoras;
+    private final LongSupplier reloj;
+
+    private final ConcurrentHashMap<String, HistorialCanasta> historiales = new ConcurrentHashMap<>();
+
+    // Solo un hilo a la vez recorre el mapa para descartar
+    private final ReentrantLock descartando = new ReentrantLock();
+
+    public HistorialService() {
+        this(MAX_CANASTAS_POR_DEFECTO, MAX_PRODUCTOS_POR_DEFECTO, RETENCION_DIAS_POR_DEFECTO,
+                RETENCION_HORAS_DIAS_POR_DEFECTO);
+    }
+
+    /**
+     * @param maxCanastas canastas con historial; al superarlo se descarta la menos usada
+     * @param maxProductos productos distintos con historial por canasta; los demás no se registran
+     * @param retencionDias días que se conservan las observaciones; 0 = sin límite
+     * @param retencionHorasDias días que se conservan los resúmenes por hora; 0 = sin límite
+     */
+    @Autowired
+    public HistorialService(@Value("${canasta.historial.max-canastas:10000}") int maxCanastas,
+            @Value("${canasta.historial.max-productos:10000}") int maxProductos,
+            @Value("${canasta.historial.retencion-dias:30}") long retencionDias,
+            @Value("${canasta.historial.retencion-horas-dias:365}") long retencionHorasDias) {
+        this(maxCanastas, maxProductos, TimeUnit.DAYS.toMillis(retencionDias),
+                TimeUnit.DAYS.toMillis(retencionHorasDias), System::currentTimeMillis);
+    }
+
+    HistorialService(int maxCanastas, int maxProductos, LongSupplier reloj) {
+        this(maxCanastas, maxProductos, 0, 0, reloj);
+    }
+
+    HistorialService(int maxCanastas, int maxProductos, long retencionPuntos, long retencionHoras,
+            LongSupplier reloj) {
+        if (maxCanastas <= 0 || maxProductos <= 0) {
+            throw new IllegalArgumentException("Los límites del historial deben ser mayores a cero");
+        }
+        if (retencionPuntos < 0 || retencionHoras < 0) {
+            throw new IllegalArgumentException("La retención del historial no puede ser negativa");
+        }
+        this.maxCanastas = maxCanastas;
+        this.maxProductos = maxProductos;
+        this.retencionPuntos = retencionPuntos;
+        this.retencionHoras = retencionHoras;
+        this.reloj = reloj;
+    }
+
+    /**
+     * Registra items agregados a una canasta y el total que quedó
+     * @param idCanasta identificador de la canasta
+     * @param items items agregados (ya validados)
+     * @param totalCentavos total de la canasta después de agregarlos
+     */
+    public void registrarAgregados(String idCanasta, List<ItemCanasta> items, long totalCentavos) {
+        HistorialCanasta historial = historial(idCanasta);
+        long ahora = reloj.getAsLong();
+        historial.candado.lock();
+        try {
+            historial.total.agregar(ahora, totalCentavos);
+            // En un lote el mismo nombre suele repetirse: se normaliza una vez
+            Map<String, SerieProducto> vistos = items.size() > 1 ? new HashMap<>() : null;
+            for (ItemCanasta item : items) {
+                SerieProducto producto = vistos == null ? null : vistos.get(item.getNombre());
+                if (producto == null) {
+                    producto = historial.producto(item.getNombre());
+                    if (producto == null) {
+                        continue;
+                    }
+                    if (vistos != null) {
+                        vistos.put(item.getNombre(), producto);
+                    }
+                }
+                producto.precios.agregar(ahora, item.precioEnCentavos());
+            }
+        } finally {
+            historial.candado.unlock();
+        }
+    }
+
+    /**
+     * Registra que la canasta se limpió: su total pasa a cero
+     * @param idCanasta identificador de la canasta
+     */
+    public void registrarLimpieza(String idCanasta) {
+        HistorialCanasta historial = historial(idCanasta);
+        long ahora = reloj.getAsLong();
+        historial.candado.lock();
+        try {
+            historial.total.agregar(ahora, 0);
+        } finally {
+            historial.candado.unlock();
+        }
+    }
+
+    /**
+     * Descarta el historial de una canasta (por ejemplo cuando se expulsa del registro)
+     * @param idCanasta identificador de la canasta
+     */
+    public void eliminar(String idCanasta) {
+        historiales.remove(idCanasta);
+    }
+
+    /**
+     * Consulta la evolución del total y la variación de precio de los productos
+     * @param idCanasta identificador de la canasta
+     * @param desde comienzo del rango (inclusive)
+     * @param hasta fin del rango (inclusive)
+     * @param resolucion resolución del total, o null para elegirla según el rango;
+     *        si con ella el rango pasa de {@link #MAX_PUNTOS} puntos se usa una más gruesa
+     * @return historial del rango, con la resolución usada; vacío si la canasta no tiene historial
+     * @throws IllegalArgumentException si el rango está invertido
+     */
+    public ConsultaHistorial consultar(String idCanasta, Instant desde, Instant hasta, Resolucion resolucion) {
+        if (desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha inicial no puede ser posterior a la final");
+        }
+        long inicio = desde.toEpochMilli();
+        long fin = hasta.toEpochMilli();
+
+        HistorialCanasta historial = historiales.get(idCanasta);
+        if (historial == null) {
+            return new ConsultaHistorial(desde, hasta, resolucion == null ? Resolucion.PUNTOS : resolucion,
+                    List.of(), List.of());
+        }
+
+        historial.ultimoAcceso = reloj.getAsLong();
+        historial.candado.lock();
+        try {
+            Resolucion resolucionTotal = ajustar(resolucion, historial.total, inicio, fin);
+            List<PuntoHistorial> total = new ArrayList<>();
+            historial.total.recorrer(inicio, fin, resolucionTotal,
+                    (instante, primero, ultimo, minimo, maximo, cantidad) -> total.add(new PuntoHistorial(
+                            Instant.ofEpochMilli(instante), primero / 100.0, ultimo / 100.0,
+                            minimo / 100.0, maximo / 100.0, cantidad)));
+
+            List<VariacionProducto> productos = new ArrayList<>();
+            for (SerieProducto producto : historial.productos.values()) {
+                VariacionProducto variacion = producto.variacion(inicio, fin);
+                if (variacion != null) {
+                    productos.add(variacion);
+                }
+            }
+            productos.sort(Comparator.comparing(VariacionProducto::nombre, String.CASE_INSENSITIVE_ORDER));
+            return new ConsultaHistorial(desde, hasta, resolucionTotal, total, productos);
+        } finally {
+            historial.candado.unlock();
+        }
+    }
+
+    // La resolución pedida, o una más gruesa si con la pedida el rango pasa de
+    // MAX_PUNTOS puntos: la respuesta (y el tiempo con el candado tomado) queda acotada
+    static Resolucion ajustar(Resolucion pedida, SerieTemporal serie, long desde, long hasta) {
+        Resolucion posible = elegir(serie, desde, hasta);
+        return pedida == null || pedida.compareTo(posible) < 0 ? posible : pedida;
+    }
+
+    // La resolución más fina que no pasa de MAX_PUNTOS puntos en el rango
+    // y que todavía conserva su comienzo
+    static Resolucion elegir(SerieTemporal serie, long desde, long hasta) {
+        if (desde >= serie.puntosDesde() && serie.estimarPuntos(desde, hasta) <= MAX_PUNTOS) {
+            return Resolucion.PUNTOS;
+        }
+        if (desde >= serie.horasDesde() && (hasta - desde) / Resolucion.HORA.milis() < MAX_PUNTOS) {
+            return Resolucion.HORA;
+        }
+        return Resolucion.DIA;
+    }
+
+    private HistorialCanasta historial(String idCanasta) {
+        HistorialCanasta historial = historiales.get(idCanasta);
+        if (historial == null) {
+            historial = historiales.computeIfAbsent(idCanasta, id -> new HistorialCanasta());
+            if (historiales.size() > maxCanastas) {
+                descartarMenosUsados(idCanasta);
+            }
+        }
+        historial.ultimoAcceso = reloj.getAsLong();
+        return historial;
+    }
+
+    /**
+     * Descarta en lote el 1% de historiales menos usados recientemente
+     * Un solo recorrido con un montículo acotado libera muchos historiales,
+     * así el costo por canasta nueva no crece con el tamaño del mapa
+     */
+    private void descartarMenosUsados(String protegida) {
+        if (!descartando.tryLock()) {
+            // Otro hilo ya está descartando; el exceso es temporal
+            return;
+        }
+        try {
+            int lote = Math.max(1, maxCanastas / 100);
+            // Montículo de máximos: arriba queda el más reciente de los candidatos
+            PriorityQueue<Candidato> masAntiguos = new PriorityQueue<>(lote + 1,
+                    Comparator.comparingLong(Candidato::acceso).reversed());
+            for (Map.Entry<String, HistorialCanasta> canasta : historiales.entrySet()) {
+                if (canasta.getKey().equals(protegida)) {
+                    continue;
+                }
+                HistorialCanasta historial = canasta.getValue();
+                masAntiguos.offer(new Candidato(canasta.getKey(), historial, historial.ultimoAcceso));
+                if (masAntiguos.size() > lote) {
+                    masAntiguos.poll();
+                }
+            }
+            for (Candidato candidato : masAntiguos) {
+                historiales.remove(candidato.id(), candidato.historial());
+            }
+        } finally {
+            descartando.unlock();
+        }
+    }
+
+    private record Candidato(String id, HistorialCanasta historial, long acceso) {
+    }
+
+    /**
+     * Series de una canasta, protegidas por su propio candado
+     */
+    private final class HistorialCanasta {
+
+        private final ReentrantLock candado = new ReentrantLock();
+        private volatile long ultimoAcceso;
+        private final SerieTemporal total = new SerieTemporal(retencionPuntos, retencionHoras);
+        private final Map<String, SerieProducto> productos = new HashMap<>();
+
+        // Serie del producto; null si se alcanzó el máximo de productos
+        SerieProducto producto(String nombre) {
+            String clave = NombreProducto.normalizar(nombre);
+            SerieProducto producto = productos.get(clave);
+            if (producto == null && productos.size() < maxProductos) {
+                producto = new SerieProducto(nombre.trim(), new SerieTemporal(retencionPuntos, retencionHoras));
+                productos.put(clave, producto);
+            }
+            return producto;
+        }
+    }
+
+    /**
+     * Precios unitarios observados de un producto
+     */
+    private static final class SerieProducto {
+
+        private final String nombre;
+        private final SerieTemporal precios;
+
+        SerieProducto(String nombre, SerieTemporal precios) {
+            this.nombre = nombre;
+            this.precios = precios;
+        }
+
+        // Variación en el rango; null si no hay observaciones en él
+        VariacionProducto variacion(long desde, long hasta) {
+            long[] acumulado = { 0, 0, Long.MAX_VALUE, Long.MIN_VALUE, 0 };
+            precios.recorrer(desde, hasta, elegir(precios, desde, hasta),
+                    (instante, primero, ultimo, minimo, maximo, cantidad) -> {
+                        if (acumulado[4] == 0) {
+                            acumulado[0] = primero;
+                        }
+                        acumulado[1] = ultimo;
+                        acumulado[2] = Math.min(acumulado[2], minimo);
+                        acumulado[3] = Math.max(acumulado[3], maximo);
+                        acumulado[4] += cantidad;
+                    });
+            if (acumulado[4] == 0) {
+                return null;
+            }
+            long inicial = acumulado[0];
+            long fin = acumulado[1];
+            double variacion = inicial == 0 ? 0 : (fin - inicial) * 100.0 / inicial;
+            return new VariacionProducto(nombre, inicial / 100.0, fin / 100.0, acumulado[2] / 100.0,
+                    acumulado[3] / 100.0, variacion, acumulado[4]);
+        }
+    }
+}
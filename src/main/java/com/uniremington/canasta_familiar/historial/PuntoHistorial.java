@@ -0,0 +1,17 @@
+package com.uniremington.canasta_familiar.historial;
+
+import java.time.Instant;
+
+/**
+ * Total de la canasta en un intervalo del historial (o en una observación,
+ * con resolución PUNTOS, donde los cuatro montos son iguales)
+ * @param inicio comienzo del intervalo, o instante de la observación
+ * @param primero total al comienzo del intervalo
+ * @param ultimo total al final del intervalo
+ * @param minimo total más bajo del intervalo
+ * @param maximo total más alto del intervalo
+ * @param observaciones cambios de la canasta registrados en el intervalo
+ */
+public record PuntoHistorial(Instant inicio, double primero, double ultimo, double minimo, double maximo,
+        long observaciones) {
+}
@@ -0,0 +1,23 @@
+package com.uniremington.canasta_familiar.historial;
+
+/**
+ * Resolución de una consulta del historial
+ * PUNTOS entrega cada observación; HORA y DIA, un resumen por intervalo
+ */
+public enum Resolucion {
+
+    PUNTOS(0), HORA(3_600_000L), DIA(86_400_000L);
+
+    private final long milis;
+
+    Resolucion(long milis) {
+        this.milis = milis;
+    }
+
+    /**
+     * @return ancho del intervalo en milisegundos (0 en PUNTOS)
+     */
+    public long milis() {
+        return milis;
+    }
+}
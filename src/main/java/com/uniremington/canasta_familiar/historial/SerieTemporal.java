@@ -0,0 +1,390 @@
+package com.uniremington.canasta_familiar.historial;
+
+import java.util.Arrays;
+
+/**
+ * Serie temporal de solo-anexar: pares (instante en milisegundos, valor long)
+ * Los puntos se guardan por bloques comprimidos: el primero de cada bloque
+ * completo y los siguientes como diferencia con el anterior (zigzag y
+ * varint), así un punto cuyo instante y valor cambian poco ocupa 2 o 3
+ * bytes en lugar de 16. Cada bloque recuerda su primer instante para
+ * saltar directo al comienzo de un rango (búsqueda binaria)
+ * Además mantiene resúmenes por hora y por día (primero, último, mínimo,
+ * máximo y cantidad) que se actualizan al anexar; las consultas de rangos
+ * largos leen los resúmenes y no los puntos
+ * Con retención, los bloques cuyos puntos son todos más antiguos que la
+ * retención se descartan, y lo mismo los resúmenes por hora; los resúmenes
+ * por día se conservan siempre. Se descarta al anexar, cuando los arreglos
+ * se llenan (antes de hacerlos crecer), así el costo se reparte entre muchos
+ * puntos y una serie que se sigue usando no crece sin límite
+ * No es segura entre hilos: la protege quien la usa
+ */
+final class SerieTemporal {
+
+    // Puntos por bloque: acota lo que se decodifica de más al empezar un rango
+    static final int PUNTOS_POR_BLOQUE = 256;
+
+    private static final int CAPACIDAD_INICIAL = 8;
+
+    // Metadatos de cada bloque
+    private long[] instanteInicial = new long[CAPACIDAD_INICIAL];
+    private long[] valorInicial = new long[CAPACIDAD_INICIAL];
+    private int[] puntosBloque = new int[CAPACIDAD_INICIAL];
+    private byte[][] deltas = new byte[CAPACIDAD_INICIAL][];
+    private int bloques;
+
+    // Bloque abierto: deltas todavía en un búfer que crece
+    private byte[] abierto = new byte[64];
+    private int usadosAbierto;
+
+    private long ultimoInstante = Long.MIN_VALUE;
+    private long ultimoValor;
+    private long puntos;
+
+    // Milisegundos que se conservan los puntos y los resúmenes por hora; 0 = sin límite
+    private final long retencionPuntos;
+
+    // Desde qué instante están completos los puntos (Long.MIN_VALUE si no se descartó ninguno)
+    private long puntosDesde = Long.MIN_VALUE;
+
+    private final Resumenes porHora;
+    private final Resumenes porDia = new Resumenes(Resolucion.DIA.milis(), 0);
+
+    SerieTemporal() {
+        this(0, 0);
+    }
+
+    /**
+     * @param retencionPuntos milisegundos que se conservan los puntos; 0 = sin límite
+     * @param retencionHoras milisegundos que se conservan los resúmenes por hora; 0 = sin límite
+     */
+    SerieTemporal(long retencionPuntos, long retencionHoras) {
+        this.retencionPuntos = retencionPuntos;
+        this.porHora = new Resumenes(Resolucion.HORA.milis(), retencionHoras);
+    }
+
+    /**
+     * Anexa un punto
+     * Un instante anterior al último se toma como el último (el reloj no retrocede)
+     * @param instante milisegundos desde la época
+     * @param valor valor del punto
+     */
+    void agregar(long instante, long valor) {
+        if (instante < ultimoInstante) {
+            instante = ultimoInstante;
+        }
+        if (bloques == 0 || puntosBloque[bloques - 1] == PUNTOS_POR_BLOQUE) {
+            abrirBloque(instante, valor);
+        } else {
+            escribirVarint(zigzag(instante - ultimoInstante));
+            escribirVarint(zigzag(valor - ultimoValor));
+            puntosBloque[bloques - 1]++;
+        }
+        ultimoInstante = instante;
+        ultimoValor = valor;
+        puntos++;
+        porHora.agregar(instante, valor);
+        porDia.agregar(instante, valor);
+    }
+
+    long puntos() {
+        return puntos;
+    }
+
+    boolean vacia() {
+        return puntos == 0;
+    }
+
+    long ultimoValor() {
+        return ultimoValor;
+    }
+
+    /**
+     * Desde qué instante se tienen todos los puntos
+     * @return primer instante no descartado, o Long.MIN_VALUE si no se descartó ninguno
+     */
+    long puntosDesde() {
+        return puntosDesde;
+    }
+
+    /**
+     * Desde qué instante se tienen todos los resúmenes por hora
+     * @return inicio de la primera hora no descartada, o Long.MIN_VALUE si no se descartó ninguna
+     */
+    long horasDesde() {
+        return porHora.desde;
+    }
+
+    /**
+     * Bytes ocupados por los puntos (sin contar los resúmenes)
+     */
+    long bytes() {
+        long total = usadosAbierto + (long) bloques * (8 + 8 + 4);
+        for (int i = 0; i < bloques - 1; i++) {
+            total += deltas[i].length;
+        }
+        return total;
+    }
+
+    /**
+     * Cuenta aproximada de puntos en un rango, sin decodificarlos
+     * Cuenta los bloques que se tocan con el rango completos
+     */
+    long estimarPuntos(long desde, long hasta) {
+        if (bloques == 0) {
+            return 0;
+        }
+        int primero = primerBloque(desde);
+        int ultimo = ultimoBloque(hasta);
+        long total = 0;
+        for (int i = primero; i <= ultimo; i++) {
+            total += puntosBloque[i];
+        }
+        return total;
+    }
+
+    /**
+     * Entrega los tramos de [desde, hasta] en la resolución indicada, en orden
+     * En PUNTOS cada punto es un tramo; en HORA y DIA cada tramo resume un
+     * intervalo completo que se toca con el rango
+     */
+    void recorrer(long desde, long hasta, Resolucion resolucion, Destino destino) {
+        switch (resolucion) {
+            case PUNTOS -> recorrerPuntos(desde, hasta, destino);
+            case HORA -> porHora.recorrer(desde, hasta, destino);
+            case DIA -> porDia.recorrer(desde, hasta, destino);
+        }
+    }
+
+    private void recorrerPuntos(long desde, long hasta, Destino destino) {
+        if (bloques == 0 || hasta < desde) {
+            return;
+        }
+        for (int b = primerBloque(desde); b < bloques; b++) {
+            byte[] datos = b == bloques - 1 ? abierto : deltas[b];
+            long instante = instanteInicial[b];
+            long valor = valorInicial[b];
+            int posicion = 0;
+            for (int p = 0; p < puntosBloque[b]; p++) {
+                if (p > 0) {
+                    long d = 0;
+                    int desplazamiento = 0;
+                    byte leido;
+                    do {
+                        leido = datos[posicion++];
+                        d |= (long) (leido & 0x7F) << desplazamiento;
+                        desplazamiento += 7;
+                    } while (leido < 0);
+                    instante += dezigzag(d);
+                    d = 0;
+                    desplazamiento = 0;
+                    do {
+                        leido = datos[posicion++];
+                        d |= (long) (leido & 0x7F) << desplazamiento;
+                        desplazamiento += 7;
+                    } while (leido < 0);
+                    valor += dezigzag(d);
+                }
+                if (instante > hasta) {
+                    return;
+                }
+                if (instante >= desde) {
+                    destino.tramo(instante, valor, valor, valor, valor, 1);
+                }
+            }
+        }
+    }
+
+    // Primer bloque que puede tener puntos en o después del instante: el
+    // último que empieza estrictamente antes (el bloque anterior a uno que
+    // empieza en el instante puede terminar con puntos en ese mismo instante,
+    // p. ej. un lote registrado en un solo milisegundo); 0 si no hay
+    private int primerBloque(long instante) {
+        return Math.max(0, primeroQueEmpiezaEnODespues(instante) - 1);
+    }
+
+    // Último bloque que empieza en o antes del instante; -1 si todos empiezan después
+    private int ultimoBloque(long instante) {
+        return instante == Long.MAX_VALUE ? bloques - 1 : primeroQueEmpiezaEnODespues(instante + 1) - 1;
+    }
+
+    // Búsqueda binaria del primer bloque cuyo instante inicial es >= instante (bloques si no hay)
+    private int primeroQueEmpiezaEnODespues(long instante) {
+        int bajo = 0;
+        int alto = bloques;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (instanteInicial[medio] < instante) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private void abrirBloque(long instante, long valor) {
+        if (bloques > 0) {
+            deltas[bloques - 1] = Arrays.copyOf(abierto, usadosAbierto);
+            usadosAbierto = 0;
+        }
+        if (bloques == instanteInicial.length) {
+            descartarBloques(instante);
+        }
+        if (bloques == instanteInicial.length) {
+            int capacidad = bloques * 2;
+            instanteInicial = Arrays.copyOf(instanteInicial, capacidad);
+            valorInicial = Arrays.copyOf(valorInicial, capacidad);
+            puntosBloque = Arrays.copyOf(puntosBloque, capacidad);
+            deltas = Arrays.copyOf(deltas, capacidad);
+        }
+        instanteInicial[bloques] = instante;
+        valorInicial[bloques] = valor;
+        puntosBloque[bloques] = 1;
+        bloques++;
+    }
+
+    // Descarta los bloques cuyos puntos son todos anteriores a la retención: los
+    // de un bloque no pasan del instante en que empieza el siguiente
+    private void descartarBloques(long ahora) {
+        if (retencionPuntos <= 0) {
+            return;
+        }
+        long limite = ahora - retencionPuntos;
+        // El último bloque es el que se acaba de cerrar: queda al menos uno
+        int vencidos = 0;
+        while (vencidos < bloques - 1 && instanteInicial[vencidos + 1] < limite) {
+            vencidos++;
+        }
+        if (vencidos == 0) {
+            return;
+        }
+        for (int i = 0; i < vencidos; i++) {
+            puntos -= puntosBloque[i];
+        }
+        // Un bloque descartado pudo terminar en el mismo instante en que empieza el primero que queda
+        puntosDesde = instanteInicial[vencidos] + 1;
+        int quedan = bloques - vencidos;
+        System.arraycopy(instanteInicial, vencidos, instanteInicial, 0, quedan);
+        System.arraycopy(valorInicial, vencidos, valorInicial, 0, quedan);
+        System.arraycopy(puntosBloque, vencidos, puntosBloque, 0, quedan);
+        System.arraycopy(deltas, vencidos, deltas, 0, quedan);
+        Arrays.fill(deltas, quedan, bloques, null);
+        bloques = quedan;
+    }
+
+    private void escribirVarint(long valor) {
+        if (abierto.length - usadosAbierto < 10) {
+            abierto = Arrays.copyOf(abierto, abierto.length * 2);
+        }
+        while ((valor & ~0x7FL) != 0) {
+            abierto[usadosAbierto++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        abierto[usadosAbierto++] = (byte) valor;
+    }
+
+    private static long zigzag(long valor) {
+        return (valor << 1) ^ (valor >> 63);
+    }
+
+    private static long dezigzag(long valor) {
+        return (valor >>> 1) ^ -(valor & 1);
+    }
+
+    /**
+     * Recibe los tramos de una consulta
+     */
+    interface Destino {
+
+        void tramo(long inicio, long primero, long ultimo, long minimo, long maximo, long cantidad);
+    }
+
+    /**
+     * Resúmenes por intervalos fijos, en arreglos paralelos que crecen al final
+     * Los puntos llegan en orden, así que solo cambia el último intervalo
+     * Con retención, al llenarse los arreglos se descartan los intervalos vencidos
+     */
+    private static final class Resumenes {
+
+        private final long ancho;
+        private final long retencion;
+        // Inicio del primer intervalo conservado tras descartar (Long.MIN_VALUE si no se descartó)
+        private long desde = Long.MIN_VALUE;
+        private long[] inicio = new long[CAPACIDAD_INICIAL];
+        private long[] primero = new long[CAPACIDAD_INICIAL];
+        private long[] ultimo = new long[CAPACIDAD_INICIAL];
+        private long[] minimo = new long[CAPACIDAD_INICIAL];
+        private long[] maximo = new long[CAPACIDAD_INICIAL];
+        private long[] cantidad = new long[CAPACIDAD_INICIAL];
+        private int tamano;
+
+        Resumenes(long ancho, long retencion) {
+            this.ancho = ancho;
+            this.retencion = retencion;
+        }
+
+        void agregar(long instante, long valor) {
+            long intervalo = Math.floorDiv(instante, ancho) * ancho;
+            int i = tamano - 1;
+            if (tamano == 0 || inicio[i] != intervalo) {
+                if (tamano == inicio.length) {
+                    descartar(intervalo);
+                }
+                if (tamano == inicio.length) {
+                    crecer();
+                }
+                i = tamano++;
+                inicio[i] = intervalo;
+                primero[i] = valor;
+                minimo[i] = valor;
+                maximo[i] = valor;
+            } else {
+                minimo[i] = Math.min(minimo[i], valor);
+                maximo[i] = Math.max(maximo[i], valor);
+            }
+            ultimo[i] = valor;
+            cantidad[i]++;
+        }
+
+        void recorrer(long desde, long hasta, Destino destino) {
+            int i = Arrays.binarySearch(inicio, 0, tamano, Math.floorDiv(desde, ancho) * ancho);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            for (; i < tamano && inicio[i] <= hasta; i++) {
+                destino.tramo(inicio[i], primero[i], ultimo[i], minimo[i], maximo[i], cantidad[i]);
+            }
+        }
+
+        private void descartar(long ahora) {
+            if (retencion <= 0) {
+                return;
+            }
+            long limite = ahora - retencion;
+            int vencidos = 0;
+            while (vencidos < tamano && inicio[vencidos] + ancho <= limite) {
+                vencidos++;
+            }
+            if (vencidos == 0) {
+                return;
+            }
+            int quedan = tamano - vencidos;
+            desde = inicio[vencidos - 1] + ancho;
+            for (long[] arreglo : new long[][] { inicio, primero, ultimo, minimo, maximo, cantidad }) {
+                System.arraycopy(arreglo, vencidos, arreglo, 0, quedan);
+            }
+            tamano = quedan;
+        }
+
+        private void crecer() {
+            int capacidad = inicio.length * 2;
+            inicio = Arrays.copyOf(inicio, capacidad);
+            primero = Arrays.copyOf(primero, capacidad);
+            ultimo = Arrays.copyOf(ultimo, capacidad);
+            minimo = Arrays.copyOf(minimo, capacidad);
+            maximo = Arrays.copyOf(maximo, capacidad);
+            cantidad = Arrays.copyOf(cantidad, capacidad);
+        }
+    }
+}
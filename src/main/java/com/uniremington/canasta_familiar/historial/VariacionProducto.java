@@ -0,0 +1,15 @@
+package com.uniremington.canasta_familiar.historial;
+
+/**
+ * Variación del precio unitario de un producto en un rango del historial
+ * @param nombre nombre del producto, como se agregó la primera vez
+ * @param precioInicial primer precio observado en el rango
+ * @param precioFinal último precio observado en el rango
+ * @param precioMinimo precio más bajo del rango
+ * @param precioMaximo precio más alto del rango
+ * @param variacion cambio porcentual entre el precio inicial y el final (inflación)
+ * @param observaciones veces que se agregó el producto en el rango
+ */
+public record VariacionProducto(String nombre, double precioInicial, double precioFinal, double precioMinimo,
+        double precioMaximo, double variacion, long observaciones) {
+}
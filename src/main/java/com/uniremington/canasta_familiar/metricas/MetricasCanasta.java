@@ -0,0 +1,236 @@
+package com.uniremington.canasta_familiar.metricas;
+
+import com.uniremington.canasta_familiar.store.RegistroCanastas;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Métricas de las canastas y del PDF (Micrometer, expuestas en /actuator/prometheus)
+ * Se encarga de:
+ * - Tiempo de agregar items y de limpiar, e items agregados
+ * - Tiempo de los cálculos sobre la canasta (total, promedio, más costosos, estadísticas)
+ * - Canastas e items en memoria y expulsiones, leídos del registro al consultar
+ * - Tiempo de generación del PDF (histograma), bytes y filas
+ * - Reportes asíncronos: cola y reportes en curso (leídos al consultar),
+ *   tiempo en cola y de generación, y pedidos rechazados
+ * Las operaciones frecuentes (agregar y calcular) se miden por muestreo:
+ * con canasta.metricas.muestreo=N se cronometra una de cada N al azar.
+ * Los contadores de items siempre cuentan todo; el conteo de los tiempos
+ * es solo el de las muestras. Con N=1 se mide todo
+ */
+@Component
+public class MetricasCanasta {
+
+    public static final int MUESTREO_POR_DEFECTO = 1;
+
+    private final MeterRegistry registro;
+    private final int muestreo;
+
+    private final Timer agregar;
+    private final Timer limpiar;
+    private final Counter itemsAgregados;
+    private final Map<String, Timer> calculos = new ConcurrentHashMap<>();
+    private final Timer generacionPdf;
+    private final DistributionSummary bytesPdf;
+    private final DistributionSummary filasPdf;
+    private final Timer esperaReporte;
+    private final Timer reporteListo;
+    private final Timer reporteFallido;
+    private final Counter reportesRechazados;
+
+    /**
+     * @param registro registro de métricas de la aplicación
+     * @param muestreo se mide una de cada tantas operaciones frecuentes (1 = todas)
+     */
+    @Autowired
+    public MetricasCanasta(MeterRegistry registro,
+            @Value("${canasta.metricas.muestreo:1}") int muestreo) {
+        if (muestreo <= 0) {
+            throw new IllegalArgumentException("El muestreo debe ser mayor a cero");
+        }
+        this.registro = registro;
+        this.muestreo = muestreo;
+        this.agregar = Timer.builder("canasta.agregar")
+                .description("Tiempo de agregar items a una canasta (muestreado)")
+                .register(registro);
+        this.limpiar = Timer.builder("canasta.limpiar")
+                .description("Tiempo de limpiar una canasta")
+                .register(registro);
+        this.itemsAgregados = Counter.builder("canasta.items.agregados")
+                .description("Items agregados (cuenta todas las operaciones)")
+                .baseUnit("items")
+                .register(registro);
+        this.generacionPdf = Timer.builder("canasta.pdf.generacion")
+                .description("Tiempo de generar el resumen PDF")
+                .publishPercentileHistogram()
+                .register(registro);
+        this.bytesPdf = DistributionSummary.builder("canasta.pdf.bytes")
+                .description("Tamaño de los PDF generados")
+                .baseUnit("bytes")
+                .register(registro);
+        this.filasPdf = DistributionSummary.builder("canasta.pdf.filas")
+                .description("Filas de productos de los PDF generados")
+                .baseUnit("filas")
+                .register(registro);
+        this.esperaReporte = Timer.builder("canasta.reportes.espera")
+                .description("Tiempo que un reporte espera en la cola antes de generarse")
+                .register(registro);
+        this.reporteListo = Timer.builder("canasta.reportes.generacion")
+                .description("Tiempo de generar un reporte asíncrono")
+                .tag("resultado", "listo")
+                .publishPercentileHistogram()
+                .register(registro);
+        this.reporteFallido = Timer.builder("canasta.reportes.generacion")
+                .description("Tiempo de generar un reporte asíncrono")
+                .tag("resultado", "fallido")
+                .publishPercentileHistogram()
+                .register(registro);
+        this.reportesRechazados = Counter.builder("canasta.reportes.rechazados")
+                .description("Pedidos de reporte rechazados por cola llena")
+                .register(registro);
+    }
+
+    /**
+     * Métricas que no se publican en ningún lado
+     * Para crear los servicios fuera de Spring (pruebas, benchmarks)
+     */
+    public static MetricasCanasta deshabilitadas() {
+        return new MetricasCanasta(new CompositeMeterRegistry(), MUESTREO_POR_DEFECTO);
+    }
+
+    /**
+     * Publica el tamaño del registro de canastas
+     * Los valores se leen al consultar las métricas, no en cada operación
+     * @param canastas registro de canastas en memoria
+     */
+    public void vigilar(RegistroCanastas canastas) {
+        Gauge.builder("canasta.canastas", canastas, r -> r.estadisticas().canastas())
+                .description("Canastas en memoria")
+                .register(registro);
+        Gauge.builder("canasta.items.residentes", canastas, r -> r.estadisticas().items())
+                .description("Items en memoria entre todas las canastas")
+                .baseUnit("items")
+                .register(registro);
+        FunctionCounter.builder("canasta.expulsiones", canastas,
+                        r -> r.estadisticas().expulsionesPorInactividad())
+                .tag("motivo", "inactividad")
+                .register(registro);
+        FunctionCounter.builder("canasta.expulsiones", canastas,
+                        r -> r.estadisticas().expulsionesPorCapacidad())
+                .tag("motivo", "capacidad")
+                .register(registro);
+    }
+
+    /**
+     * Publica la cola de los reportes asíncronos
+     * Los valores se leen al consultar las métricas, no en cada operación
+     * @param ejecutor grupo de hilos que genera los reportes
+     */
+    public void vigilarReportes(ThreadPoolExecutor ejecutor) {
+        Gauge.builder("canasta.reportes.cola", ejecutor, e -> e.getQueue().size())
+                .description("Reportes esperando turno")
+                .register(registro);
+        Gauge.builder("canasta.reportes.generando", ejecutor, ThreadPoolExecutor::getActiveCount)
+                .description("Reportes generándose")
+                .register(registro);
+    }
+
+    /**
+     * Empieza a medir una operación frecuente, si le toca por el muestreo
+     * @return instante de inicio para {@link #terminarAgregar}, o 0 si no se mide
+     */
+    public long iniciarAgregar() {
+        return muestrear() ? inicio() : 0;
+    }
+
+    /**
+     * Termina de medir una operación de agregar
+     * @param inicio valor devuelto por {@link #iniciarAgregar}
+     * @param items cantidad de items agregados
+     */
+    public void terminarAgregar(long inicio, int items) {
+        itemsAgregados.increment(items);
+        if (inicio != 0) {
+            agregar.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Mide una limpieza de canasta (no es frecuente: se mide siempre)
+     */
+    public <T> T medirLimpiar(Supplier<T> limpieza) {
+        return limpiar.record(limpieza);
+    }
+
+    /**
+     * Mide un cálculo sobre la canasta, si le toca por el muestreo
+     * @param operacion nombre del cálculo (etiqueta "operacion"); pocos valores fijos
+     * @param calculo cálculo a ejecutar
+     * @return resultado del cálculo
+     */
+    public <T> T medirCalculo(String operacion, Supplier<T> calculo) {
+        if (!muestrear()) {
+            return calculo.get();
+        }
+        return calculos.computeIfAbsent(operacion, nombre -> Timer.builder("canasta.calculo")
+                .description("Tiempo de los cálculos sobre la canasta (muestreado)")
+                .tag("operacion", nombre)
+                .register(registro))
+                .record(calculo);
+    }
+
+    /**
+     * Registra una generación de PDF terminada
+     * @param nanos tiempo de generación
+     * @param bytes tamaño del documento
+     * @param filas filas de la tabla de productos
+     */
+    public void registrarPdf(long nanos, long bytes, int filas) {
+        generacionPdf.record(nanos, TimeUnit.NANOSECONDS);
+        bytesPdf.record(bytes);
+        filasPdf.record(filas);
+    }
+
+    /**
+     * Registra un reporte asíncrono terminado
+     * @param nanosEnCola tiempo que esperó turno
+     * @param nanosGenerando tiempo de generación
+     * @param listo true si se generó, false si falló
+     */
+    public void registrarReporte(long nanosEnCola, long nanosGenerando, boolean listo) {
+        esperaReporte.record(nanosEnCola, TimeUnit.NANOSECONDS);
+        (listo ? reporteListo : reporteFallido).record(nanosGenerando, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Registra un pedido de reporte rechazado
+     */
+    public void registrarReporteRechazado() {
+        reportesRechazados.increment();
+    }
+
+    private boolean muestrear() {
+        return muestreo == 1 || ThreadLocalRandom.current().nextInt(muestreo) == 0;
+    }
+
+    // Nunca devuelve 0, que indica "no se mide"
+    private static long inicio() {
+        long ahora = System.nanoTime();
+        return ahora == 0 ? 1 : ahora;
+    }
+}
@@ -0,0 +1,93 @@
+package com.uniremington.canasta_familiar.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Monto de dinero en centavos (punto fijo)
+ * Las sumas y multiplicaciones son exactas y detectan el desbordamiento
+ * (ArithmeticException) en lugar de perder precisión como un double
+ *
+ * @param centavos monto en centavos
+ */
+public record Dinero(long centavos) implements Comparable<Dinero> {
+
+    public static final Dinero CERO = new Dinero(0);
+
+    // Monto más grande que se acepta desde un double: más allá de 2^53
+    // centavos un double ya no distingue centavos consecutivos
+    public static final long MAX_CENTAVOS_DESDE_DOUBLE = 1L << 53;
+
+    /**
+     * Crea un monto a partir de centavos
+     * @param centavos monto en centavos
+     * @return el monto
+     */
+    public static Dinero deCentavos(long centavos) {
+        return centavos == 0 ? CERO : new Dinero(centavos);
+    }
+
+    /**
+     * Convierte un monto en pesos, redondeando al centavo más cercano
+     * @param monto monto en pesos (por ejemplo 1500.25)
+     * @return el monto en centavos
+     * @throws ArithmeticException si no es un número finito o no se puede
+     *         representar con precisión de centavos
+     */
+    public static Dinero de(double monto) {
+        if (!esRepresentable(monto)) {
+            throw new ArithmeticException("El monto " + monto + " excede el rango permitido");
+        }
+        return deCentavos(Math.round(monto * 100));
+    }
+
+    /**
+     * Indica si un monto en pesos se puede convertir con {@link #de(double)}
+     * @param monto monto en pesos
+     * @return true si es finito y cabe con precisión de centavos
+     */
+    public static boolean esRepresentable(double monto) {
+        // Falso también para NaN
+        return Math.abs(monto) * 100 < MAX_CENTAVOS_DESDE_DOUBLE;
+    }
+
+    /**
+     * @throws ArithmeticException si la suma desborda
+     */
+    public Dinero sumar(Dinero otro) {
+        return deCentavos(Math.addExact(centavos, otro.centavos));
+    }
+
+    /**
+     * @throws ArithmeticException si el producto desborda
+     */
+    public Dinero multiplicar(long factor) {
+        return deCentavos(Math.multiplyExact(centavos, factor));
+    }
+
+    /**
+     * Obtiene el monto en pesos como double
+     * Es exacto mientras el monto no supere 2^53 centavos
+     * @return monto en pesos
+     */
+    public double aDouble() {
+        return centavos / 100.0;
+    }
+
+    /**
+     * Obtiene el monto en pesos sin pérdida de precisión
+     * @return monto en pesos con dos decimales
+     */
+    public BigDecimal aBigDecimal() {
+        return BigDecimal.valueOf(centavos, 2);
+    }
+
+    @Override
+    public int compareTo(Dinero otro) {
+        return Long.compare(centavos, otro.centavos);
+    }
+
+    @Override
+    public String toString() {
+        return aBigDecimal().toPlainString();
+    }
+}
@@ -1,14 +1,23 @@
 package com.uniremington.canasta_familiar.model;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
 /**
  * Representa un producto de la canasta familiar
  * Contiene nombre, precio y cantidad
+ * El precio se guarda en centavos (ver {@link Dinero}); getPrecio y
+ * setPrecio lo convierten a pesos para el formulario y el JSON
  * No usa base de datos ni anotaciones JPA
  */
+// El campo ya no se llama precio: se fija el orden del JSON de siempre
+@JsonPropertyOrder({ "nombre", "precio", "cantidad" })
 public class ItemCanasta {
 
+    // Marca un precio que no se pudo convertir a centavos (NaN, infinito o enorme)
+    private static final long PRECIO_INVALIDO = Long.MIN_VALUE;
+
     private String nombre;
-    private double precio;
+    private long precioCentavos;
     private int cantidad;
 
     // Constructor vacío
@@ -18,7 +27,14 @@ public class ItemCanasta {
     // Constructor con parámetros
     public ItemCanasta(String nombre, double precio, int cantidad) {
         this.nombre = nombre;
-        this.precio = precio;
+        setPrecio(precio);
+        this.cantidad = cantidad;
+    }
+
+    // Constructor con el precio en centavos
+    public ItemCanasta(String nombre, Dinero precio, int cantidad) {
+        this.nombre = nombre;
+        this.precioCentavos = precio.centavos();
         this.cantidad = cantidad;
     }
 
@@ -31,12 +47,21 @@ public class ItemCanasta {
         this.nombre = nombre;
     }
 
+    /**
+     * @return precio en pesos, NaN si el precio recibido no era válido
+     */
     public double getPrecio() {
-        return precio;
+        return tienePrecioValido() ? precioCentavos / 100.0 : Double.NaN;
     }
 
+    /**
+     * Guarda el precio redondeado al centavo
+     * Un precio que no se puede representar queda marcado como inválido y
+     * lo rechaza CanastaService.validarItem
+     * @param precio precio en pesos
+     */
     public void setPrecio(double precio) {
-        this.precio = precio;
+        this.precioCentavos = Dinero.esRepresentable(precio) ? Dinero.de(precio).centavos() : PRECIO_INVALIDO;
     }
 
     public int getCantidad() {
@@ -47,22 +72,59 @@ public class ItemCanasta {
         this.cantidad = cantidad;
     }
 
+    /**
+     * Indica si el precio recibido se pudo convertir a centavos
+     * @return false si era NaN, infinito o demasiado grande
+     */
+    public boolean tienePrecioValido() {
+        return precioCentavos != PRECIO_INVALIDO;
+    }
+
+    /**
+     * Obtiene el precio en centavos, sin crear objetos
+     * @return precio unitario en centavos
+     */
+    public long precioEnCentavos() {
+        return precioCentavos;
+    }
+
+    /**
+     * Obtiene el precio unitario
+     * @return precio en centavos
+     * @throws IllegalStateException si el precio no es válido
+     */
+    public Dinero precioUnitario() {
+        if (!tienePrecioValido()) {
+            throw new IllegalStateException("El precio no es un número válido");
+        }
+        return Dinero.deCentavos(precioCentavos);
+    }
+
+    /**
+     * Obtiene el subtotal exacto (precio * cantidad)
+     * @return subtotal en centavos
+     * @throws ArithmeticException si el subtotal desborda
+     */
+    public Dinero subtotal() {
+        return precioUnitario().multiplicar(cantidad);
+    }
+
     /**
      * Calcula el subtotal del item (precio * cantidad)
-     * 
+     *
      * @return subtotal calculado
      */
     public double calcularSubtotal() {
-        return this.precio * this.cantidad;
+        return subtotal().aDouble();
     }
 
     @Override
     public String toString() {
         return "ItemCanasta{" +
                 "nombre='" + nombre + '\'' +
-                ", precio=" + precio +
+                ", precio=" + getPrecio() +
                 ", cantidad=" + cantidad +
-                ", subtotal=" + calcularSubtotal() +
+                ", subtotal=" + getPrecio() * cantidad +
                 '}';
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,320 @@
+package com.uniremington.canasta_familiar.persistencia;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Bitácora de solo-anexar (write-ahead log) repartida en segmentos
+ * Cada registro tiene una posición: su desplazamiento desde el comienzo de
+ * la bitácora, que crece sin repetirse aunque se cambie de segmento. Cada
+ * segmento se llama como la posición de su primer byte
+ * Escritura agrupada (group commit): los hilos dejan su registro en un
+ * búfer compartido y esperan; un único hilo escritor toma todo lo
+ * acumulado, lo escribe y hace un solo fsync por tanda. Mientras el disco
+ * confirma una tanda se va llenando la siguiente, así con muchos
+ * escritores a la vez cada fsync cubre muchos registros
+ */
+final class Bitacora implements Closeable {
+
+    static final String PREFIJO = "bitacora-";
+    static final String EXTENSION = ".log";
+
+    private static final int TAMANO_INICIAL_BUFER = 64 * 1024;
+
+    private final Path directorio;
+    private final boolean fsync;
+
+    private final ReentrantLock candado = new ReentrantLock();
+    // Hay registros pendientes (o se pidió cerrar): despierta al escritor
+    private final Condition hayPendientes = candado.newCondition();
+    // Avanzó la posición escrita: despierta a los que esperan su registro
+    private final Condition avanzoEscrito = candado.newCondition();
+
+    // Protegidos por el candado
+    private byte[] pendientes = new byte[TAMANO_INICIAL_BUFER];
+    private byte[] libre = new byte[TAMANO_INICIAL_BUFER];
+    private int usados;
+    private long siguiente;
+    private long escrito;
+    private boolean escribiendo;
+    private boolean cerrada;
+    private IOException error;
+    private FileChannel segmento;
+    private long inicioSegmento;
+    private long registros;
+    private long tandas;
+
+    private final Thread escritor;
+
+    /**
+     * Abre la bitácora para seguir escribiendo desde una posición
+     * Empieza un segmento nuevo; los anteriores quedan para leerlos
+     * @param directorio directorio de los segmentos
+     * @param posicion posición del próximo registro (fin de lo ya escrito)
+     * @param fsync true para confirmar cada tanda en disco antes de responder
+     */
+    Bitacora(Path directorio, long posicion, boolean fsync) throws IOException {
+        this.directorio = directorio;
+        this.fsync = fsync;
+        this.siguiente = posicion;
+        this.escrito = posicion;
+        this.inicioSegmento = posicion;
+        this.segmento = abrirSegmento(posicion);
+        this.escritor = new Thread(this::escribirTandas, "bitacora-canastas");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Deja un registro para escribir, sin esperar al disco
+     * @param registro registro ya codificado
+     * @return posición del fin del registro; se pasa a {@link #esperar}
+     */
+    long anexar(byte[] registro) {
+        candado.lock();
+        try {
+            verificarAbierta();
+            if (pendientes.length - usados < registro.length) {
+                byte[] mayor = new byte[Math.max(pendientes.length * 2, usados + registro.length)];
+                System.arraycopy(pendientes, 0, mayor, 0, usados);
+                pendientes = mayor;
+            }
+            System.arraycopy(registro, 0, pendientes, usados, registro.length);
+            usados += registro.length;
+            siguiente += registro.length;
+            registros++;
+            hayPendientes.signal();
+            return siguiente;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Espera a que la bitácora esté escrita (y confirmada, con fsync) hasta una posición
+     * @param posicion posición devuelta por {@link #anexar}
+     * @throws UncheckedIOException si falló la escritura
+     */
+    void esperar(long posicion) {
+        candado.lock();
+        try {
+            // Al cerrar, el escritor termina lo pendiente: solo un error corta la espera
+            while (escrito < posicion) {
+                if (error != null) {
+                    throw new UncheckedIOException("No se pudo escribir la bitácora", error);
+                }
+                avanzoEscrito.awaitUninterruptibly();
+            }
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * @return posición del próximo registro; los registros ya anexados están antes
+     */
+    long posicion() {
+        candado.lock();
+        try {
+            return siguiente;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Termina el segmento actual y empieza otro
+     * Espera a que lo pendiente quede escrito en el segmento que termina; mientras
+     * tanto los demás hilos esperan para anexar
+     * @return posición donde empieza el segmento nuevo
+     */
+    long rotar() throws IOException {
+        candado.lock();
+        try {
+            while (escrito < siguiente || escribiendo) {
+                verificarAbierta();
+                avanzoEscrito.awaitUninterruptibly();
+            }
+            FileChannel anterior = segmento;
+            segmento = abrirSegmento(siguiente);
+            inicioSegmento = siguiente;
+            anterior.close();
+            return siguiente;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Borra los segmentos que terminan antes de una posición
+     * @param posicion posición hasta la cual la bitácora ya no se necesita
+     */
+    void eliminarHasta(long posicion) throws IOException {
+        long actual;
+        candado.lock();
+        try {
+            actual = inicioSegmento;
+        } finally {
+            candado.unlock();
+        }
+        for (Path archivo : segmentos(directorio)) {
+            long inicio = inicioDe(archivo);
+            if (inicio < posicion && inicio < actual) {
+                Files.deleteIfExists(archivo);
+            }
+        }
+    }
+
+    long registros() {
+        candado.lock();
+        try {
+            return registros;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    long tandas() {
+        candado.lock();
+        try {
+            return tandas;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    private void escribirTandas() {
+        while (true) {
+            byte[] tanda;
+            int largo;
+            long fin;
+            FileChannel canal;
+            candado.lock();
+            try {
+                while (usados == 0 && !cerrada) {
+                    hayPendientes.awaitUninterruptibly();
+                }
+                if (usados == 0) {
+                    return;
+                }
+                tanda = pendientes;
+                largo = usados;
+                fin = siguiente;
+                canal = segmento;
+                pendientes = libre;
+                usados = 0;
+                escribiendo = true;
+            } finally {
+                candado.unlock();
+            }
+
+            IOException fallo = null;
+            try {
+                ByteBuffer datos = ByteBuffer.wrap(tanda, 0, largo);
+                while (datos.hasRemaining()) {
+                    canal.write(datos);
+                }
+                if (fsync) {
+                    canal.force(false);
+                }
+            } catch (IOException e) {
+                fallo = e;
+            }
+
+            candado.lock();
+            try {
+                escribiendo = false;
+                libre = tanda;
+                tandas++;
+                if (fallo != null) {
+                    error = fallo;
+                    cerrada = true;
+                } else {
+                    escrito = fin;
+                }
+                avanzoEscrito.signalAll();
+                if (fallo != null) {
+                    return;
+                }
+            } finally {
+                candado.unlock();
+            }
+        }
+    }
+
+    private void verificarAbierta() {
+        if (error != null) {
+            throw new UncheckedIOException("No se pudo escribir la bitácora", error);
+        }
+        if (cerrada) {
+            throw new IllegalStateException("La bitácora está cerrada");
+        }
+    }
+
+    private FileChannel abrirSegmento(long inicio) throws IOException {
+        return FileChannel.open(directorio.resolve(nombreSegmento(inicio)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Escribe lo pendiente y cierra el segmento actual
+     */
+    @Override
+    public void close() throws IOException {
+        candado.lock();
+        try {
+            cerrada = true;
+            hayPendientes.signal();
+        } finally {
+            candado.unlock();
+        }
+        try {
+            escritor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        candado.lock();
+        try {
+            avanzoEscrito.signalAll();
+            segmento.close();
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    static String nombreSegmento(long inicio) {
+        return String.format("%s%016x%s", PREFIJO, inicio, EXTENSION);
+    }
+
+    static long inicioDe(Path segmento) {
+        String nombre = segmento.getFileName().toString();
+        return Long.parseUnsignedLong(nombre.substring(PREFIJO.length(), nombre.length() - EXTENSION.length()), 16);
+    }
+
+    /**
+     * @return segmentos del directorio, ordenados por posición de inicio
+     */
+    static List<Path> segmentos(Path directorio) throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            List<Path> segmentos = new ArrayList<>(archivos
+                    .filter(archivo -> {
+                        String nombre = archivo.getFileName().toString();
+                        return nombre.startsWith(PREFIJO) && nombre.endsWith(EXTENSION);
+                    })
+                    .toList());
+            segmentos.sort((a, b) -> Long.compare(inicioDe(a), inicioDe(b)));
+            return segmentos;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.uniremington.canasta_familiar.persistencia;
+
+/**
+ * Métricas de la persistencia en disco
+ * @param itemsRecuperados items cargados al arrancar (punto de control y bitácora)
+ * @param registrosReproducidos registros de la bitácora aplicados al arrancar
+ * @param milisRecuperacion tiempo que tomó la recuperación al arrancar
+ * @param registrosEscritos registros anexados a la bitácora desde el arranque
+ * @param tandasEscritas escrituras a disco (una por tanda agrupada, con su fsync)
+ * @param bytesDesdePuntoControl bytes de bitácora escritos desde el último punto de control
+ * @param puntosControl puntos de control escritos desde el arranque
+ * @param milisUltimoPuntoControl tiempo que tomó escribir el último punto de control
+ */
+public record EstadisticasPersistencia(long itemsRecuperados, long registrosReproducidos, long milisRecuperacion,
+        long registrosEscritos, long tandasEscritas, long bytesDesdePuntoControl, long puntosControl,
+        long milisUltimoPuntoControl) {
+}
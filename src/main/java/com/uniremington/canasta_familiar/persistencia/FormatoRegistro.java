@@ -0,0 +1,151 @@
+package com.uniremington.canasta_familiar.persistencia;
+
+import com.uniremington.canasta_familiar.model.Dinero;
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Formato binario de los registros de la bitácora
+ * Cada registro es: largo del cuerpo (int), CRC32C del cuerpo (int) y el
+ * cuerpo: tipo (byte), canasta (texto) y, si agrega items, la cantidad
+ * (int) y por cada item nombre (texto), precio en centavos (long) y
+ * cantidad (int). Un texto es su largo (int) y sus bytes UTF-8
+ * Un registro cortado o con CRC distinto marca el final de la bitácora:
+ * es lo que queda de una escritura interrumpida
+ */
+final class FormatoRegistro {
+
+    static final byte AGREGAR = 1;
+    static final byte LIMPIAR = 2;
+    static final byte ELIMINAR = 3;
+
+    // Largo y CRC del cuerpo
+    static final int CABECERA = 8;
+
+    // Nombres distintos que se reutilizan al leer; más allá se empieza de nuevo
+    private static final int MAX_NOMBRES_COMPARTIDOS = 100_000;
+
+    private FormatoRegistro() {
+    }
+
+    /**
+     * Recibe los registros leídos, con su posición en la bitácora
+     */
+    interface Destino {
+
+        void agregar(long posicion, String idCanasta, List<ItemCanasta> items);
+
+        void limpiar(long posicion, String idCanasta);
+
+        void eliminar(long posicion, String idCanasta);
+    }
+
+    static byte[] agregar(String idCanasta, List<ItemCanasta> items) {
+        byte[] id = idCanasta.getBytes(StandardCharsets.UTF_8);
+        byte[][] nombres = new byte[items.size()][];
+        int largo = 1 + 4 + id.length + 4;
+        for (int i = 0; i < nombres.length; i++) {
+            nombres[i] = items.get(i).getNombre().getBytes(StandardCharsets.UTF_8);
+            largo += 4 + nombres[i].length + 8 + 4;
+        }
+
+        ByteBuffer registro = iniciar(largo, AGREGAR, id);
+        registro.putInt(nombres.length);
+        for (int i = 0; i < nombres.length; i++) {
+            ItemCanasta item = items.get(i);
+            registro.putInt(nombres[i].length).put(nombres[i]);
+            registro.putLong(item.precioEnCentavos());
+            registro.putInt(item.getCantidad());
+        }
+        return terminar(registro);
+    }
+
+    static byte[] limpiar(String idCanasta) {
+        byte[] id = idCanasta.getBytes(StandardCharsets.UTF_8);
+        return terminar(iniciar(1 + 4 + id.length, LIMPIAR, id));
+    }
+
+    static byte[] eliminar(String idCanasta) {
+        byte[] id = idCanasta.getBytes(StandardCharsets.UTF_8);
+        return terminar(iniciar(1 + 4 + id.length, ELIMINAR, id));
+    }
+
+    private static ByteBuffer iniciar(int largo, byte tipo, byte[] id) {
+        ByteBuffer registro = ByteBuffer.allocate(CABECERA + largo);
+        registro.putInt(largo).putInt(0);
+        registro.put(tipo).putInt(id.length).put(id);
+        return registro;
+    }
+
+    private static byte[] terminar(ByteBuffer registro) {
+        CRC32C crc = new CRC32C();
+        crc.update(registro.array(), CABECERA, registro.capacity() - CABECERA);
+        registro.putInt(4, (int) crc.getValue());
+        return registro.array();
+    }
+
+    /**
+     * Lee los registros de un segmento hasta el final o hasta el primer
+     * registro incompleto o dañado
+     * @param lector lector del segmento, al comienzo
+     * @param inicioSegmento posición en la bitácora del primer byte del segmento
+     * @param destino recibe cada registro válido
+     * @return bytes válidos del segmento (fin del último registro completo)
+     */
+    static long leer(LectorMapeado lector, long inicioSegmento, Destino destino) throws IOException {
+        Map<String, String> nombres = new HashMap<>();
+        CRC32C crc = new CRC32C();
+        while (lector.quedan(CABECERA)) {
+            long posicion = lector.posicion();
+            int largo = lector.leerInt();
+            int esperado = lector.leerInt();
+            if (largo <= 0 || largo > LectorMapeado.VENTANA || !lector.quedan(largo)) {
+                return posicion;
+            }
+            crc.reset();
+            lector.sumarCrc(crc, largo);
+            if ((int) crc.getValue() != esperado) {
+                return posicion;
+            }
+
+            byte tipo = lector.leerByte();
+            String idCanasta = lector.leerTexto();
+            long enBitacora = inicioSegmento + posicion;
+            switch (tipo) {
+                case AGREGAR -> {
+                    int cantidad = lector.leerInt();
+                    List<ItemCanasta> items = new ArrayList<>(cantidad);
+                    for (int i = 0; i < cantidad; i++) {
+                        String nombre = compartir(nombres, lector.leerTexto());
+                        long centavos = lector.leerLong();
+                        items.add(new ItemCanasta(nombre, Dinero.deCentavos(centavos), lector.leerInt()));
+                    }
+                    destino.agregar(enBitacora, idCanasta, items);
+                }
+                case LIMPIAR -> destino.limpiar(enBitacora, idCanasta);
+                case ELIMINAR -> destino.eliminar(enBitacora, idCanasta);
+                default -> throw new IOException("Tipo de registro desconocido: " + tipo);
+            }
+        }
+        return lector.posicion();
+    }
+
+    private static String compartir(Map<String, String> nombres, String nombre) {
+        String previo = nombres.putIfAbsent(nombre, nombre);
+        if (previo != null) {
+            return previo;
+        }
+        if (nombres.size() > MAX_NOMBRES_COMPARTIDOS) {
+            nombres.clear();
+        }
+        return nombre;
+    }
+}
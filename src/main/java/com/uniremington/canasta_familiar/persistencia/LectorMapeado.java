@@ -0,0 +1,126 @@
+package com.uniremington.canasta_familiar.persistencia;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Lectura secuencial de un archivo mapeado en memoria
+ * El archivo se mapea por ventanas (un MappedByteBuffer no pasa de 2 GB);
+ * cuando a la ventana actual le faltan bytes se mapea otra desde la
+ * posición de lectura. Los datos se leen del caché de páginas del sistema
+ * operativo, sin copiarlos a un búfer intermedio
+ */
+final class LectorMapeado implements Closeable {
+
+    // Tamaño máximo de cada ventana mapeada
+    static final int VENTANA = 1 << 30;
+
+    private final FileChannel canal;
+    private final long tamano;
+    private final byte[] texto = new byte[256];
+    private long inicioVentana;
+    private MappedByteBuffer ventana;
+
+    LectorMapeado(Path archivo) throws IOException {
+        this(archivo, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param archivo archivo a leer
+     * @param limite bytes a leer como máximo desde el comienzo
+     */
+    LectorMapeado(Path archivo, long limite) throws IOException {
+        canal = FileChannel.open(archivo, StandardOpenOption.READ);
+        tamano = Math.min(limite, canal.size());
+        mapear(0);
+    }
+
+    long posicion() {
+        return inicioVentana + ventana.position();
+    }
+
+    long tamano() {
+        return tamano;
+    }
+
+    /**
+     * @param bytes cantidad de bytes que se quieren leer
+     * @return true si quedan al menos esos bytes en el archivo
+     */
+    boolean quedan(long bytes) {
+        return tamano - posicion() >= bytes;
+    }
+
+    byte leerByte() throws IOException {
+        asegurar(1);
+        return ventana.get();
+    }
+
+    int leerInt() throws IOException {
+        asegurar(4);
+        return ventana.getInt();
+    }
+
+    long leerLong() throws IOException {
+        asegurar(8);
+        return ventana.getLong();
+    }
+
+    /**
+     * Lee un texto escrito como largo (int) y bytes UTF-8
+     */
+    String leerTexto() throws IOException {
+        int largo = leerInt();
+        if (largo < 0 || largo > VENTANA) {
+            throw new IOException("Texto con largo inválido: " + largo);
+        }
+        asegurar(largo);
+        byte[] bytes = largo <= texto.length ? texto : new byte[largo];
+        ventana.get(bytes, 0, largo);
+        return new String(bytes, 0, largo, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Suma los bytes siguientes a un CRC sin avanzar la lectura
+     * @param crc suma de verificación a actualizar
+     * @param bytes cantidad de bytes a sumar
+     */
+    void sumarCrc(CRC32C crc, int bytes) throws IOException {
+        asegurar(bytes);
+        crc.update(ventana.slice(ventana.position(), bytes));
+    }
+
+    /**
+     * Avanza la lectura sin leer los bytes
+     * @param bytes cantidad de bytes a saltar
+     */
+    void saltar(int bytes) throws IOException {
+        asegurar(bytes);
+        ventana.position(ventana.position() + bytes);
+    }
+
+    private void asegurar(int bytes) throws IOException {
+        if (ventana.remaining() < bytes) {
+            if (!quedan(bytes) || bytes > VENTANA) {
+                throw new IOException("Fin de archivo inesperado en la posición " + posicion());
+            }
+            mapear(posicion());
+        }
+    }
+
+    private void mapear(long desde) throws IOException {
+        inicioVentana = desde;
+        ventana = canal.map(FileChannel.MapMode.READ_ONLY, desde, Math.min(VENTANA, tamano - desde));
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+}
@@ -0,0 +1,410 @@
+package com.uniremington.canasta_familiar.persistencia;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.store.CanastaStore;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import com.uniremington.canasta_familiar.store.RegistroCanastas;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Persistencia opcional de las canastas en disco
+ * Se encarga de:
+ * - Anotar en la bitácora cada item agregado, cada limpieza y cada canasta
+ *   expulsada, y responder recién cuando el registro está en disco
+ * - Escribir periódicamente un punto de control compactado y borrar la
+ *   bitácora que ya quedó incluida en él
+ * - Al arrancar, cargar el último punto de control (mapeado en memoria) y
+ *   reproducir la bitácora posterior
+ * Anotar y aplicar un cambio se hace bajo el candado de la canasta (uno
+ * por franja de identificadores), así la bitácora tiene los cambios de
+ * cada canasta en el mismo orden que la memoria. La espera del disco es
+ * fuera del candado, para que muchas peticiones compartan cada fsync
+ * Se activa con canasta.persistencia.habilitada=true
+ */
+@Component
+@ConditionalOnProperty(name = "canasta.persistencia.habilitada", havingValue = "true")
+public class PersistenciaCanastas {
+
+    public static final long COMPACTAR_BYTES_POR_DEFECTO = 64L << 20;
+
+    // Candados por franja de identificadores: potencia de dos
+    private static final int FRANJAS = 64;
+    // Items que se acumulan por canasta antes de aplicarlos al reproducir
+    private static final int LOTE_REPRODUCCION = 10_000;
+    // Items pendientes entre todas las canastas antes de aplicarlos al reproducir
+    private static final int MAX_PENDIENTES_REPRODUCCION = 200_000;
+
+    private final RegistroCanastas registro;
+    private final Path directorio;
+    private final boolean fsync;
+    private final long compactarBytes;
+    private final ReentrantLock[] franjas = new ReentrantLock[FRANJAS];
+    // Solo un punto de control a la vez
+    private final ReentrantLock compactando = new ReentrantLock();
+    // Se guarda para poder quitarla del registro al detenerse
+    private final BiConsumer<String, CanastaStore> anotarExpulsion = this::anotarExpulsion;
+
+    private volatile Bitacora bitacora;
+    private volatile long inicioPuntoControl;
+
+    private long itemsRecuperados;
+    private long registrosReproducidos;
+    private long milisRecuperacion;
+    private final AtomicLong puntosControl = new AtomicLong();
+    private volatile long milisUltimoPuntoControl;
+
+    /**
+     * @param registro canastas en memoria
+     * @param directorio directorio de la bitácora y los puntos de control
+     * @param fsync true para confirmar cada tanda en disco antes de responder
+     * @param compactarBytes bytes de bitácora desde los cuales se escribe un punto de control
+     */
+    @Autowired
+    public PersistenciaCanastas(RegistroCanastas registro,
+            @Value("${canasta.persistencia.directorio:datos}") String directorio,
+            @Value("${canasta.persistencia.fsync:true}") boolean fsync,
+            @Value("${canasta.persistencia.compactar-bytes:67108864}") long compactarBytes) {
+        this(registro, Path.of(directorio), fsync, compactarBytes);
+    }
+
+    public PersistenciaCanastas(RegistroCanastas registro, Path directorio, boolean fsync, long compactarBytes) {
+        if (compactarBytes <= 0) {
+            throw new IllegalArgumentException("Los bytes para compactar deben ser mayores a cero");
+        }
+        this.registro = registro;
+        this.directorio = directorio;
+        this.fsync = fsync;
+        this.compactarBytes = compactarBytes;
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Recupera las canastas del disco y abre la bitácora
+     * Se ejecuta antes de que la aplicación empiece a atender peticiones
+     * La recuperación no aplica los límites del registro: se recupera todo y
+     * después se expulsan (anotándolo) las canastas menos usadas que ya no
+     * entran, por ejemplo si se bajó canasta.registro.max-items
+     * @throws IOException si los archivos no se pueden leer o el punto de control está dañado
+     */
+    @PostConstruct
+    public void iniciar() throws IOException {
+        long inicio = System.nanoTime();
+        Files.createDirectories(directorio);
+        long fin = recuperar();
+        bitacora = new Bitacora(directorio, fin, fsync);
+        registro.alExpulsar(anotarExpulsion);
+        registro.aplicarLimites();
+        milisRecuperacion = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+    }
+
+    /**
+     * Agrega items a una canasta y los anota en la bitácora
+     * @param idCanasta identificador de la canasta
+     * @param store almacenamiento de la canasta
+     * @param items items ya validados
+     * @throws UncheckedIOException si no se pudo escribir la bitácora
+     */
+    public void agregar(String idCanasta, CanastaStore store, List<ItemCanasta> items) {
+        byte[] anotacion = FormatoRegistro.agregar(idCanasta, items);
+        long posicion;
+        ReentrantLock franja = franja(idCanasta);
+        franja.lock();
+        try {
+            posicion = bitacora.anexar(anotacion);
+            if (items.size() == 1) {
+                store.agregar(items.get(0));
+            } else {
+                store.agregarTodos(items);
+            }
+        } finally {
+            franja.unlock();
+        }
+        bitacora.esperar(posicion);
+    }
+
+    /**
+     * Limpia una canasta y lo anota en la bitácora
+     * @param idCanasta identificador de la canasta
+     * @param store almacenamiento de la canasta
+     * @return cantidad de items eliminados
+     * @throws UncheckedIOException si no se pudo escribir la bitácora
+     */
+    public int limpiar(String idCanasta, CanastaStore store) {
+        byte[] anotacion = FormatoRegistro.limpiar(idCanasta);
+        long posicion;
+        int eliminados;
+        ReentrantLock franja = franja(idCanasta);
+        franja.lock();
+        try {
+            posicion = bitacora.anexar(anotacion);
+            eliminados = store.limpiar();
+        } finally {
+            franja.unlock();
+        }
+        bitacora.esperar(posicion);
+        return eliminados;
+    }
+
+    // La canasta expulsada no vuelve al reiniciar; no hace falta esperar al disco
+    private void anotarExpulsion(String idCanasta, CanastaStore store) {
+        ReentrantLock franja = franja(idCanasta);
+        franja.lock();
+        try {
+            bitacora.anexar(FormatoRegistro.eliminar(idCanasta));
+        } finally {
+            franja.unlock();
+        }
+    }
+
+    /**
+     * Escribe un punto de control si la bitácora creció lo suficiente desde el último
+     */
+    @Scheduled(fixedDelayString = "${canasta.persistencia.compactar-ms:60000}")
+    public void compactarSiHaceFalta() {
+        if (bitacora.posicion() - inicioPuntoControl >= compactarBytes) {
+            compactar();
+        }
+    }
+
+    /**
+     * Escribe un punto de control con todas las canastas y borra la bitácora anterior
+     * Cada canasta se copia de una instantánea, sin detener las escrituras
+     * @throws UncheckedIOException si no se pudo escribir el punto de control
+     */
+    public void compactar() {
+        if (!compactando.tryLock()) {
+            return;
+        }
+        try {
+            long comienzo = System.nanoTime();
+            long inicio = bitacora.rotar();
+            try (PuntoControl.Escritor escritor = new PuntoControl.Escritor(directorio, inicio)) {
+                registro.recorrer((idCanasta, store) -> escribirCanasta(escritor, idCanasta, store));
+                Path punto = escritor.terminar(inicio);
+                for (Path anterior : PuntoControl.existentes(directorio)) {
+                    if (!anterior.equals(punto)) {
+                        Files.deleteIfExists(anterior);
+                    }
+                }
+            }
+            bitacora.eliminarHasta(inicio);
+            inicioPuntoControl = inicio;
+            puntosControl.incrementAndGet();
+            milisUltimoPuntoControl = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - comienzo);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir el punto de control", e);
+        } finally {
+            compactando.unlock();
+        }
+    }
+
+    private void escribirCanasta(PuntoControl.Escritor escritor, String idCanasta, CanastaStore store) {
+        InstantaneaCanasta items;
+        long marca;
+        ReentrantLock franja = franja(idCanasta);
+        franja.lock();
+        try {
+            // Los cambios anotados antes de la marca ya están en la instantánea
+            items = store.instantanea();
+            marca = bitacora.posicion();
+        } finally {
+            franja.unlock();
+        }
+        try {
+            escritor.canasta(idCanasta, marca, items);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Obtiene las métricas de la persistencia
+     * @return recuperación, escrituras agrupadas y puntos de control
+     */
+    public EstadisticasPersistencia estadisticas() {
+        return new EstadisticasPersistencia(itemsRecuperados, registrosReproducidos, milisRecuperacion,
+                bitacora.registros(), bitacora.tandas(), bitacora.posicion() - inicioPuntoControl,
+                puntosControl.get(), milisUltimoPuntoControl);
+    }
+
+    /**
+     * Escribe un punto de control (así el próximo arranque no reproduce
+     * bitácora) y cierra la bitácora
+     */
+    @PreDestroy
+    public void cerrar() throws IOException {
+        if (bitacora.posicion() > inicioPuntoControl) {
+            compactar();
+        }
+        detener();
+    }
+
+    /**
+     * Cierra la bitácora sin escribir un punto de control
+     * El próximo arranque reproduce la bitácora, como después de una caída
+     */
+    public void detener() throws IOException {
+        registro.dejarDeAvisar(anotarExpulsion);
+        bitacora.close();
+    }
+
+    private ReentrantLock franja(String idCanasta) {
+        int hash = idCanasta.hashCode();
+        return franjas[(hash ^ (hash >>> 16)) & (FRANJAS - 1)];
+    }
+
+    /**
+     * Carga el último punto de control y reproduce la bitácora posterior
+     * Recorta el registro incompleto que pudo dejar una escritura interrumpida
+     * @return posición de la bitácora donde se sigue escribiendo
+     */
+    private long recuperar() throws IOException {
+        Map<String, Long> marcas = new HashMap<>();
+        long inicio = 0;
+        List<Path> puntos = PuntoControl.existentes(directorio);
+        if (!puntos.isEmpty()) {
+            inicio = PuntoControl.leer(puntos.get(0), new PuntoControl.Destino() {
+
+                private String idCanasta;
+                private CanastaStore store;
+
+                @Override
+                public void iniciarCanasta(String id, long marca) {
+                    idCanasta = id;
+                    store = registro.restaurar(id);
+                    marcas.put(id, marca);
+                }
+
+                @Override
+                public void agregar(List<ItemCanasta> lote) {
+                    registro.registrarRestaurados(lote.size());
+                    store.agregarTodos(lote);
+                    itemsRecuperados += lote.size();
+                }
+            });
+        }
+        inicioPuntoControl = inicio;
+
+        Reproductor reproductor = new Reproductor(marcas);
+        long fin = inicio;
+        for (Path segmento : Bitacora.segmentos(directorio)) {
+            long inicioSegmento = Bitacora.inicioDe(segmento);
+            if (inicioSegmento < inicio) {
+                // Terminó antes del punto de control: ya está incluido
+                continue;
+            }
+            long validos;
+            try (LectorMapeado lector = new LectorMapeado(segmento)) {
+                validos = FormatoRegistro.leer(lector, inicioSegmento, reproductor);
+            }
+            if (validos < Files.size(segmento)) {
+                try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+                    canal.truncate(validos);
+                }
+            }
+            fin = Math.max(fin, inicioSegmento + validos);
+        }
+        reproductor.aplicarPendientes();
+        return fin;
+    }
+
+    /**
+     * Aplica los registros de la bitácora posteriores a la marca de cada canasta
+     * Junta los items consecutivos de una canasta para agregarlos por lotes
+     */
+    private final class Reproductor implements FormatoRegistro.Destino {
+
+        private final Map<String, Long> marcas;
+        private final Map<String, List<ItemCanasta>> pendientes = new HashMap<>();
+        private int cantidadPendientes;
+
+        Reproductor(Map<String, Long> marcas) {
+            this.marcas = marcas;
+        }
+
+        private boolean incluido(long posicion, String idCanasta) {
+            Long marca = marcas.get(idCanasta);
+            return marca != null && posicion < marca;
+        }
+
+        @Override
+        public void agregar(long posicion, String idCanasta, List<ItemCanasta> items) {
+            if (incluido(posicion, idCanasta)) {
+                return;
+            }
+            registrosReproducidos++;
+            List<ItemCanasta> lote = pendientes.computeIfAbsent(idCanasta, id -> new ArrayList<>());
+            lote.addAll(items);
+            cantidadPendientes += items.size();
+            if (lote.size() >= LOTE_REPRODUCCION) {
+                aplicar(idCanasta, pendientes.remove(idCanasta));
+            }
+            if (cantidadPendientes >= MAX_PENDIENTES_REPRODUCCION) {
+                aplicarPendientes();
+            }
+        }
+
+        @Override
+        public void limpiar(long posicion, String idCanasta) {
+            if (incluido(posicion, idCanasta)) {
+                return;
+            }
+            registrosReproducidos++;
+            descartar(idCanasta);
+            registro.registrarLimpieza(registro.restaurar(idCanasta).limpiar());
+        }
+
+        @Override
+        public void eliminar(long posicion, String idCanasta) {
+            if (incluido(posicion, idCanasta)) {
+                return;
+            }
+            registrosReproducidos++;
+            descartar(idCanasta);
+            registro.eliminar(idCanasta);
+        }
+
+        void aplicarPendientes() {
+            pendientes.forEach(this::aplicar);
+            pendientes.clear();
+        }
+
+        private void descartar(String idCanasta) {
+            List<ItemCanasta> lote = pendientes.remove(idCanasta);
+            if (lote != null) {
+                cantidadPendientes -= lote.size();
+            }
+        }
+
+        private void aplicar(String idCanasta, List<ItemCanasta> lote) {
+            CanastaStore store = registro.restaurar(idCanasta);
+            registro.registrarRestaurados(lote.size());
+            store.agregarTodos(lote);
+            cantidadPendientes -= lote.size();
+            itemsRecuperados += lote.size();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.uniremington.canasta_familiar.persistencia;
+
+import com.uniremington.canasta_familiar.model.Dinero;
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Punto de control: copia compactada de todas las canastas
+ * Guarda, para cada canasta, sus items y la posición de la bitácora hasta
+ * la cual ya están incluidos; al recuperar solo se reproduce lo posterior
+ * Los nombres de cada canasta se guardan una vez (diccionario) y cada
+ * item ocupa 16 bytes: índice del nombre, precio en centavos y cantidad
+ * Formato: mágico, versión, posición de inicio; por canasta un byte 1,
+ * identificador, marca, nombres e items; al final un byte 0 y el CRC32C
+ * de todo lo anterior. Se escribe en un temporal y se renombra al terminar
+ */
+final class PuntoControl {
+
+    static final String PREFIJO = "punto-control-";
+    static final String EXTENSION = ".bin";
+
+    private static final int MAGICO = 0x43465043;
+    private static final int VERSION = 1;
+    private static final int TAMANO_BUFER = 1 << 20;
+    // Items que se entregan juntos al recuperar
+    private static final int LOTE = 10_000;
+
+    private PuntoControl() {
+    }
+
+    /**
+     * Recibe las canastas leídas de un punto de control
+     */
+    interface Destino {
+
+        void iniciarCanasta(String idCanasta, long marca);
+
+        void agregar(List<ItemCanasta> lote);
+    }
+
+    /**
+     * Escribe un punto de control canasta por canasta
+     */
+    static final class Escritor implements Closeable {
+
+        private final Path temporal;
+        private final FileOutputStream archivo;
+        private final CheckedOutputStream conCrc;
+        private final DataOutputStream salida;
+
+        /**
+         * @param directorio directorio de la persistencia
+         * @param inicio posición de la bitácora desde la cual hay que reproducir
+         */
+        Escritor(Path directorio, long inicio) throws IOException {
+            temporal = directorio.resolve(PREFIJO + "temporal" + EXTENSION);
+            archivo = new FileOutputStream(temporal.toFile());
+            conCrc = new CheckedOutputStream(archivo, new CRC32C());
+            salida = new DataOutputStream(new BufferedOutputStream(conCrc, TAMANO_BUFER));
+            salida.writeInt(MAGICO);
+            salida.writeInt(VERSION);
+            salida.writeLong(inicio);
+        }
+
+        /**
+         * @param idCanasta identificador de la canasta
+         * @param marca posición de la bitácora hasta la cual la canasta está incluida
+         * @param items instantánea de la canasta tomada en esa posición
+         */
+        void canasta(String idCanasta, long marca, InstantaneaCanasta items) throws IOException {
+            Map<String, Integer> indices = new HashMap<>();
+            List<String> nombres = new ArrayList<>();
+            int tamano = items.size();
+            for (int i = 0; i < tamano; i++) {
+                String nombre = items.nombre(i);
+                if (indices.putIfAbsent(nombre, nombres.size()) == null) {
+                    nombres.add(nombre);
+                }
+            }
+
+            salida.writeByte(1);
+            escribirTexto(idCanasta);
+            salida.writeLong(marca);
+            salida.writeInt(nombres.size());
+            for (String nombre : nombres) {
+                escribirTexto(nombre);
+            }
+            salida.writeInt(tamano);
+            for (int i = 0; i < tamano; i++) {
+                salida.writeInt(indices.get(items.nombre(i)));
+                salida.writeLong(items.precioCentavos(i));
+                salida.writeInt(items.cantidad(i));
+            }
+        }
+
+        /**
+         * Cierra el punto de control, lo confirma en disco y lo deja con su nombre definitivo
+         * @return archivo del punto de control
+         */
+        Path terminar(long inicio) throws IOException {
+            salida.writeByte(0);
+            salida.flush();
+            salida.writeInt((int) conCrc.getChecksum().getValue());
+            salida.flush();
+            archivo.getChannel().force(true);
+            salida.close();
+            Path destino = temporal.resolveSibling(nombre(inicio));
+            return Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        private void escribirTexto(String texto) throws IOException {
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            salida.writeInt(bytes.length);
+            salida.write(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            salida.close();
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    /**
+     * Lee un punto de control mapeándolo en memoria
+     * Primero verifica el CRC de todo el archivo y después entrega las canastas
+     * @param archivo punto de control
+     * @param destino recibe las canastas y sus items por lotes
+     * @return posición de la bitácora desde la cual hay que reproducir
+     * @throws IOException si el archivo está dañado o no se puede leer
+     */
+    static long leer(Path archivo, Destino destino) throws IOException {
+        verificar(archivo);
+        try (LectorMapeado lector = new LectorMapeado(archivo)) {
+            if (lector.leerInt() != MAGICO || lector.leerInt() != VERSION) {
+                throw new IOException("El archivo no es un punto de control: " + archivo);
+            }
+            long inicio = lector.leerLong();
+            while (lector.leerByte() == 1) {
+                destino.iniciarCanasta(lector.leerTexto(), lector.leerLong());
+                String[] nombres = new String[lector.leerInt()];
+                for (int i = 0; i < nombres.length; i++) {
+                    nombres[i] = lector.leerTexto();
+                }
+                int tamano = lector.leerInt();
+                List<ItemCanasta> lote = new ArrayList<>(Math.min(tamano, LOTE));
+                for (int i = 0; i < tamano; i++) {
+                    String nombre = nombres[lector.leerInt()];
+                    long centavos = lector.leerLong();
+                    lote.add(new ItemCanasta(nombre, Dinero.deCentavos(centavos), lector.leerInt()));
+                    if (lote.size() == LOTE) {
+                        destino.agregar(lote);
+                        lote = new ArrayList<>(Math.min(tamano - i - 1, LOTE));
+                    }
+                }
+                if (!lote.isEmpty()) {
+                    destino.agregar(lote);
+                }
+            }
+            return inicio;
+        }
+    }
+
+    private static void verificar(Path archivo) throws IOException {
+        try (LectorMapeado lector = new LectorMapeado(archivo)) {
+            long datos = lector.tamano() - 4;
+            if (datos < 0) {
+                throw new IOException("Punto de control incompleto: " + archivo);
+            }
+            CRC32C crc = new CRC32C();
+            while (lector.posicion() < datos) {
+                int tramo = (int) Math.min(LectorMapeado.VENTANA, datos - lector.posicion());
+                lector.sumarCrc(crc, tramo);
+                lector.saltar(tramo);
+            }
+            if (lector.leerInt() != (int) crc.getValue()) {
+                throw new IOException("Punto de control dañado: " + archivo);
+            }
+        }
+    }
+
+    static String nombre(long inicio) {
+        return String.format("%s%016x%s", PREFIJO, inicio, EXTENSION);
+    }
+
+    /**
+     * @return puntos de control del directorio, del más reciente al más antiguo
+     */
+    static List<Path> existentes(Path directorio) throws IOException {
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            List<Path> puntos = new ArrayList<>(archivos
+                    .filter(archivo -> {
+                        String nombre = archivo.getFileName().toString();
+                        return nombre.startsWith(PREFIJO) && nombre.endsWith(EXTENSION)
+                                && !nombre.contains("temporal");
+                    })
+                    .toList());
+            puntos.sort((a, b) -> b.getFileName().toString().compareTo(a.getFileName().toString()));
+            return puntos;
+        }
+    }
+}
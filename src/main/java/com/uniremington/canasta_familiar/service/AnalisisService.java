@@ -0,0 +1,290 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.uniremington.canasta_familiar.metricas.MetricasCanasta;
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Servicio de análisis de canastas grandes
+ * Calcula en un solo recorrido de una instantánea la cantidad, el total,
+ * el promedio, el precio mínimo y máximo y los K más costosos
+ * Desde cierto tamaño la instantánea se parte en tramos que se recorren
+ * en paralelo (fork-join) y se combinan al final; por debajo se recorre
+ * en el mismo hilo, donde repartir costaría más que lo que se gana
+ * Cada tramo lee las columnas por tandas (precio y cantidad en arreglos
+ * primitivos), sin crear un ItemCanasta por línea
+ */
+@Service
+public class AnalisisService {
+
+    public static final int UMBRAL_PARALELO_POR_DEFECTO = 250_000;
+    public static final int MAX_TOP = 1_000;
+
+    // Líneas mínimas por tramo: por debajo, crear la tarea cuesta más que recorrerla
+    static final int TRAMO_MINIMO = 65_536;
+
+    // Posiciones copiadas por tanda dentro de cada tramo
+    private static final int TANDA = 4_096;
+
+    private final int umbralParalelo;
+    private final ForkJoinPool pool;
+    private final boolean poolPropio;
+    private final MetricasCanasta metricas;
+
+    /**
+     * @param umbralParalelo líneas desde las cuales el recorrido es paralelo
+     * @param hilos hilos del recorrido paralelo; 0 usa el pool común de Java
+     * @param metricas métricas donde se registra el tiempo de cada análisis
+     */
+    @Autowired
+    public AnalisisService(
+            @Value("${canasta.analisis.umbral-paralelo:250000}") int umbralParalelo,
+            @Value("${canasta.analisis.hilos:0}") int hilos,
+            MetricasCanasta metricas) {
+        this(umbralParalelo, hilos > 0 ? new ForkJoinPool(hilos) : ForkJoinPool.commonPool(), hilos > 0, metricas);
+    }
+
+    /**
+     * @param umbralParalelo líneas desde las cuales el recorrido es paralelo
+     * @param pool pool donde se recorren los tramos (no se cierra)
+     */
+    public AnalisisService(int umbralParalelo, ForkJoinPool pool) {
+        this(umbralParalelo, pool, false, MetricasCanasta.deshabilitadas());
+    }
+
+    private AnalisisService(int umbralParalelo, ForkJoinPool pool, boolean poolPropio, MetricasCanasta metricas) {
+        if (umbralParalelo < 0) {
+            throw new IllegalArgumentException("El umbral paralelo no puede ser negativo");
+        }
+        this.umbralParalelo = umbralParalelo;
+        this.pool = pool;
+        this.poolPropio = poolPropio;
+        this.metricas = metricas;
+    }
+
+    /**
+     * Calcula las estadísticas de una instantánea
+     * @param canasta instantánea de la canasta
+     * @param top cantidad de productos más costosos a incluir
+     * @return estadísticas de la instantánea
+     * @throws IllegalArgumentException si top no está entre 1 y {@link #MAX_TOP}
+     * @throws ArithmeticException si el total excede el rango permitido
+     */
+    public EstadisticasCanasta analizar(InstantaneaCanasta canasta, int top) {
+        if (top <= 0 || top > MAX_TOP) {
+            throw new IllegalArgumentException("La cantidad de productos debe estar entre 1 y " + MAX_TOP);
+        }
+        return metricas.medirCalculo("estadisticas", () -> recorrer(canasta, top));
+    }
+
+    private EstadisticasCanasta recorrer(InstantaneaCanasta canasta, int top) {
+        int tamano = canasta.size();
+        Parcial parcial;
+        if (tamano < umbralParalelo) {
+            parcial = Tramo.recorrer(canasta, 0, tamano, top);
+        } else {
+            int tramo = Math.max(TRAMO_MINIMO, tamano / (pool.getParallelism() * 8));
+            parcial = pool.invoke(new Tramo(canasta, 0, tamano, tramo, top));
+        }
+
+        if (parcial.desbordado) {
+            throw new ArithmeticException("El total de la canasta excede el rango permitido");
+        }
+        return new EstadisticasCanasta(parcial.cantidad, parcial.totalCentavos / 100.0,
+                parcial.cantidad == 0 ? 0 : parcial.sumaPreciosCentavos / 100.0 / parcial.cantidad,
+                parcial.cantidad == 0 ? 0 : parcial.minimoCentavos / 100.0,
+                parcial.cantidad == 0 ? 0 : parcial.maximoCentavos / 100.0,
+                parcial.masCostosos(canasta));
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        if (poolPropio) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Tramo [desde, hasta) de la instantánea; se parte en dos hasta quedar
+     * por debajo del tamaño de tramo
+     */
+    private static final class Tramo extends RecursiveTask<Parcial> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final InstantaneaCanasta canasta;
+        private final int desde;
+        private final int hasta;
+        private final int tramo;
+        private final int top;
+
+        Tramo(InstantaneaCanasta canasta, int desde, int hasta, int tramo, int top) {
+            this.canasta = canasta;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.tramo = tramo;
+            this.top = top;
+        }
+
+        @Override
+        protected Parcial compute() {
+            if (hasta - desde <= tramo) {
+                return recorrer(canasta, desde, hasta, top);
+            }
+            int medio = (desde + hasta) >>> 1;
+            Tramo izquierda = new Tramo(canasta, desde, medio, tramo, top);
+            izquierda.fork();
+            Parcial derecha = new Tramo(canasta, medio, hasta, tramo, top).compute();
+            return izquierda.join().combinar(derecha);
+        }
+
+        static Parcial recorrer(InstantaneaCanasta canasta, int desde, int hasta, int top) {
+            Parcial parcial = new Parcial(top);
+            long[] precios = new long[Math.min(TANDA, Math.max(hasta - desde, 1))];
+            int[] cantidades = new int[precios.length];
+            for (int inicio = desde; inicio < hasta; inicio += precios.length) {
+                int fin = Math.min(hasta, inicio + precios.length);
+                canasta.copiarColumnas(inicio, fin, precios, cantidades);
+                for (int i = 0; i < fin - inicio; i++) {
+                    parcial.agregar(inicio + i, precios[i], cantidades[i]);
+                }
+            }
+            return parcial;
+        }
+    }
+
+    /**
+     * Agregados de un tramo
+     * Los más costosos se guardan en un montículo acotado cuya raíz es el
+     * peor de los guardados (menor precio; con el mismo precio, el agregado
+     * después), así cada línea se compara solo contra la raíz
+     */
+    private static final class Parcial {
+
+        int cantidad;
+        long totalCentavos;
+        long sumaPreciosCentavos;
+        long minimoCentavos = Long.MAX_VALUE;
+        long maximoCentavos = Long.MIN_VALUE;
+        boolean desbordado;
+
+        private final long[] preciosTop;
+        private final int[] indicesTop;
+        private int tamanoTop;
+
+        Parcial(int top) {
+            preciosTop = new long[top];
+            indicesTop = new int[top];
+        }
+
+        void agregar(int indice, long precio, int cantidadItem) {
+            cantidad++;
+            // El subtotal de cada item ya se validó; solo las sumas pueden desbordar
+            totalCentavos = sumar(totalCentavos, precio * cantidadItem);
+            sumaPreciosCentavos = sumar(sumaPreciosCentavos, precio);
+            minimoCentavos = Math.min(minimoCentavos, precio);
+            maximoCentavos = Math.max(maximoCentavos, precio);
+            ofrecer(precio, indice);
+        }
+
+        Parcial combinar(Parcial otro) {
+            cantidad += otro.cantidad;
+            totalCentavos = sumar(totalCentavos, otro.totalCentavos);
+            sumaPreciosCentavos = sumar(sumaPreciosCentavos, otro.sumaPreciosCentavos);
+            minimoCentavos = Math.min(minimoCentavos, otro.minimoCentavos);
+            maximoCentavos = Math.max(maximoCentavos, otro.maximoCentavos);
+            desbordado |= otro.desbordado;
+            for (int i = 0; i < otro.tamanoTop; i++) {
+                ofrecer(otro.preciosTop[i], otro.indicesTop[i]);
+            }
+            return this;
+        }
+
+        private long sumar(long a, long b) {
+            long suma = a + b;
+            if (((a ^ suma) & (b ^ suma)) < 0) {
+                desbordado = true;
+            }
+            return suma;
+        }
+
+        private void ofrecer(long precio, int indice) {
+            if (tamanoTop < preciosTop.length) {
+                preciosTop[tamanoTop] = precio;
+                indicesTop[tamanoTop] = indice;
+                subir(tamanoTop++);
+            } else if (esPeor(preciosTop[0], indicesTop[0], precio, indice)) {
+                preciosTop[0] = precio;
+                indicesTop[0] = indice;
+                bajar(0);
+            }
+        }
+
+        private static boolean esPeor(long precioA, int indiceA, long precioB, int indiceB) {
+            return precioA < precioB || (precioA == precioB && indiceA > indiceB);
+        }
+
+        private void subir(int posicion) {
+            while (posicion > 0) {
+                int padre = (posicion - 1) >>> 1;
+                if (!esPeor(preciosTop[posicion], indicesTop[posicion], preciosTop[padre], indicesTop[padre])) {
+                    return;
+                }
+                intercambiar(posicion, padre);
+                posicion = padre;
+            }
+        }
+
+        private void bajar(int posicion) {
+            while (true) {
+                int peor = posicion;
+                for (int hijo = 2 * posicion + 1; hijo <= 2 * posicion + 2 && hijo < tamanoTop; hijo++) {
+                    if (esPeor(preciosTop[hijo], indicesTop[hijo], preciosTop[peor], indicesTop[peor])) {
+                        peor = hijo;
+                    }
+                }
+                if (peor == posicion) {
+                    return;
+                }
+                intercambiar(posicion, peor);
+                posicion = peor;
+            }
+        }
+
+        private void intercambiar(int a, int b) {
+            long precio = preciosTop[a];
+            preciosTop[a] = preciosTop[b];
+            preciosTop[b] = precio;
+            int indice = indicesTop[a];
+            indicesTop[a] = indicesTop[b];
+            indicesTop[b] = indice;
+        }
+
+        List<ItemCanasta> masCostosos(InstantaneaCanasta canasta) {
+            Integer[] orden = new Integer[tamanoTop];
+            for (int i = 0; i < tamanoTop; i++) {
+                orden[i] = i;
+            }
+            // Mayor precio primero; con el mismo precio, el agregado antes
+            Arrays.sort(orden, (a, b) -> preciosTop[a] != preciosTop[b]
+                    ? Long.compare(preciosTop[b], preciosTop[a])
+                    : Integer.compare(indicesTop[a], indicesTop[b]));
+
+            List<ItemCanasta> items = new ArrayList<>(tamanoTop);
+            for (int posicion : orden) {
+                items.add(canasta.get(indicesTop[posicion]));
+            }
+            return items;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.uniremington.canasta_familiar.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caché de resúmenes PDF ya generados
+ * Se encarga de:
+ * - Guardar el último PDF de cada canasta junto con la versión con que se generó
+ * - Entregarlo solo si la canasta sigue en esa misma versión
+ * - Limitar la memoria total, expulsando primero los PDF menos usados
+ * - No guardar PDF demasiado grandes (canastas enormes se generan siempre en streaming)
+ * Usa un ReentrantLock en lugar de synchronized: con hilos virtuales (Java
+ * 21) un hilo que espera el candado se desmonta y libera su hilo portador
+ */
+@Component
+public class CachePdf {
+
+    public static final long MAX_BYTES_POR_DEFECTO = 32L * 1024 * 1024;
+    public static final int MAX_BYTES_POR_PDF_POR_DEFECTO = 2 * 1024 * 1024;
+
+    private final long maxBytes;
+    private final int maxBytesPorPdf;
+
+    // Un PDF por canasta, en orden de acceso (el primero es el menos usado)
+    private final LinkedHashMap<String, PdfGuardado> pdfs = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final ReentrantLock candado = new ReentrantLock();
+
+    // Protegidos por el candado, igual que el mapa
+    private long bytes;
+    private long aciertos;
+    private long fallos;
+
+    public CachePdf() {
+        this(MAX_BYTES_POR_DEFECTO, MAX_BYTES_POR_PDF_POR_DEFECTO);
+    }
+
+    /**
+     * @param maxBytes memoria máxima sumando todos los PDF guardados
+     * @param maxBytesPorPdf tamaño máximo de un PDF para guardarlo
+     */
+    @Autowired
+    public CachePdf(@Value("${canasta.pdf.cache.max-bytes:33554432}") long maxBytes,
+            @Value("${canasta.pdf.cache.max-bytes-por-pdf:2097152}") int maxBytesPorPdf) {
+        if (maxBytes < 0 || maxBytesPorPdf < 0) {
+            throw new IllegalArgumentException("Los límites de la caché de PDF no pueden ser negativos");
+        }
+        this.maxBytes = maxBytes;
+        this.maxBytesPorPdf = maxBytesPorPdf;
+    }
+
+    /**
+     * Busca el PDF de la canasta generado para la versión indicada
+     * @param idCanasta identificador de la canasta
+     * @param version versión de la canasta
+     * @return bytes del PDF, o null si no está o se generó con otra versión
+     */
+    public byte[] obtener(String idCanasta, long version) {
+        candado.lock();
+        try {
+            PdfGuardado guardado = pdfs.get(idCanasta);
+            if (guardado == null || guardado.version != version) {
+                fallos++;
+                return null;
+            }
+            aciertos++;
+            return guardado.pdf;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Guarda el PDF de una versión de la canasta, reemplazando el anterior
+     * Un PDF de una versión más vieja que la guardada se descarta
+     * @param idCanasta identificador de la canasta
+     * @param version versión con que se generó el PDF
+     * @param pdf bytes del PDF (no se deben modificar después)
+     */
+    public void guardar(String idCanasta, long version, byte[] pdf) {
+        if (pdf.length > maxBytesPorPdf || pdf.length > maxBytes) {
+            return;
+        }
+        candado.lock();
+        try {
+            PdfGuardado anterior = pdfs.get(idCanasta);
+            if (anterior != null) {
+                if (anterior.version > version) {
+                    return;
+                }
+                bytes -= anterior.pdf.length;
+            }
+            pdfs.put(idCanasta, new PdfGuardado(version, pdf));
+            bytes += pdf.length;
+
+            Iterator<PdfGuardado> menosUsados = pdfs.values().iterator();
+            while (bytes > maxBytes) {
+                bytes -= menosUsados.next().pdf.length;
+                menosUsados.remove();
+            }
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Envuelve la salida para copiar lo escrito, hasta el tamaño máximo de un PDF
+     * @param salida flujo de la respuesta
+     * @return salida que escribe en ambos lados
+     */
+    public Captura capturar(OutputStream salida) {
+        return new Captura(salida, maxBytesPorPdf);
+    }
+
+    /**
+     * Obtiene las métricas de la caché
+     * @return PDF y bytes guardados, aciertos y fallos acumulados
+     */
+    public EstadisticasCachePdf estadisticas() {
+        candado.lock();
+        try {
+            return new EstadisticasCachePdf(pdfs.size(), bytes, aciertos, fallos);
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    private record PdfGuardado(long version, byte[] pdf) {
+    }
+
+    /**
+     * Salida que escribe en el destino y guarda una copia mientras no supere
+     * el límite; si lo supera descarta la copia y sigue solo con el destino
+     */
+    public static final class Captura extends OutputStream {
+
+        private final OutputStream destino;
+        private final int limite;
+        private ByteArrayOutputStream copia = new ByteArrayOutputStream();
+
+        private Captura(OutputStream destino, int limite) {
+            this.destino = destino;
+            this.limite = limite;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            destino.write(b);
+            copiar(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int desde, int cantidad) throws IOException {
+            destino.write(b, desde, cantidad);
+            copiar(b, desde, cantidad);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            destino.flush();
+        }
+
+        /**
+         * @return todo lo escrito, o null si superó el límite
+         */
+        public byte[] capturado() {
+            return copia == null ? null : copia.toByteArray();
+        }
+
+        private void copiar(byte[] b, int desde, int cantidad) {
+            if (copia == null) {
+                return;
+            }
+            if (copia.size() + cantidad > limite) {
+                copia = null;
+                return;
+            }
+            copia.write(b, desde, cantidad);
+        }
+    }
+}
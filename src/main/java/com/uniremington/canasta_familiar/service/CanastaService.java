@@ -1,27 +1,126 @@
 package com.uniremington.canasta_familiar.service;
 
+import com.uniremington.canasta_familiar.eventos.CambioCanasta;
+import com.uniremington.canasta_familiar.eventos.DifusionCambios;
+import com.uniremington.canasta_familiar.eventos.EstadisticasDifusion;
+import com.uniremington.canasta_familiar.eventos.Suscriptor;
+import com.uniremington.canasta_familiar.historial.ConsultaHistorial;
+import com.uniremington.canasta_familiar.historial.HistorialService;
+import com.uniremington.canasta_familiar.historial.Resolucion;
+import com.uniremington.canasta_familiar.metricas.MetricasCanasta;
+import com.uniremington.canasta_familiar.model.Dinero;
 import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.persistencia.EstadisticasPersistencia;
+import com.uniremington.canasta_familiar.persistencia.PersistenciaCanastas;
+import com.uniremington.canasta_familiar.store.CanastaStore;
+import com.uniremington.canasta_familiar.store.EstadisticasRegistro;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import com.uniremington.canasta_familiar.store.RegistroCanastas;
+import com.uniremington.canasta_familiar.store.TotalesProducto;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Base64;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.regex.Pattern;
 
 /**
  * Clase de servicio donde se implementa toda la lógica de negocio
  * Se encarga de:
  * - Validar datos (precio, cantidad, nombre)
- * - Almacenar productos en memoria (List)
+ * - Almacenar productos en memoria, una canasta por sesión o identificador
+ *   (RegistroCanastas, con límites de memoria y expulsión por inactividad)
  * - Calcular total de la canasta
  * - Calcular promedio de precios
  * - Obtener los productos más costosos
+ * - Consultar cantidad y subtotal por producto, juntando las líneas del
+ *   mismo nombre (sin importar tildes ni mayúsculas)
+ * - Buscar productos por el comienzo del nombre o de una de sus palabras
+ * - Anotar los cambios en disco cuando la persistencia está habilitada
+ * - Medir agregados, limpiezas y cálculos ({@link MetricasCanasta})
+ * - Anotar precios y totales en el historial cuando está habilitado ({@link HistorialService})
+ * - Avisar cada cambio a los suscriptores de la canasta ({@link DifusionCambios})
+ * Los métodos sin identificador operan sobre la canasta por defecto
  */
 @Service
 public class CanastaService {
 
-    // Almacenamiento en memoria de los items
-    private List<ItemCanasta> items = new ArrayList<>();
+    // Canasta usada cuando no se indica un identificador
+    public static final String CANASTA_POR_DEFECTO = "default";
+
+    // Identificadores que puede enviar un cliente (cabecera, parámetro o lote)
+    private static final Pattern IDENTIFICADOR_VALIDO = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    // Items por página cuando no se indica un límite, y máximo permitido
+    public static final int LIMITE_PAGINA_POR_DEFECTO = 50;
+    public static final int MAX_LIMITE_PAGINA = 1_000;
+
+    // Resultados de búsqueda cuando no se indica un límite, y máximo permitido
+    public static final int LIMITE_BUSQUEDA_POR_DEFECTO = 10;
+    public static final int MAX_LIMITE_BUSQUEDA = 100;
+
+    // Canastas en memoria, compartidas por todos los hilos de Tomcat
+    private final RegistroCanastas canastas;
+
+    // Bitácora en disco; null si la persistencia no está habilitada
+    private final PersistenciaCanastas persistencia;
+
+    private final MetricasCanasta metricas;
+
+    // Historial de precios; null si no está habilitado
+    private final HistorialService historial;
+
+    private final DifusionCambios cambios;
+
+    public CanastaService() {
+        this(new RegistroCanastas());
+    }
+
+    public CanastaService(RegistroCanastas canastas) {
+        this(canastas, (PersistenciaCanastas) null);
+    }
+
+    public CanastaService(RegistroCanastas canastas, PersistenciaCanastas persistencia) {
+        this(canastas, persistencia, MetricasCanasta.deshabilitadas());
+    }
+
+    @Autowired
+    public CanastaService(RegistroCanastas canastas, ObjectProvider<PersistenciaCanastas> persistencia,
+            MetricasCanasta metricas, ObjectProvider<HistorialService> historial, DifusionCambios cambios) {
+        this(canastas, persistencia.getIfAvailable(), metricas, historial.getIfAvailable(), cambios);
+    }
+
+    public CanastaService(RegistroCanastas canastas, PersistenciaCanastas persistencia, MetricasCanasta metricas) {
+        this(canastas, persistencia, metricas, null, new DifusionCambios());
+    }
+
+    public CanastaService(RegistroCanastas canastas, PersistenciaCanastas persistencia, MetricasCanasta metricas,
+            HistorialService historial, DifusionCambios cambios) {
+        this.canastas = canastas;
+        this.persistencia = persistencia;
+        this.metricas = metricas;
+        this.historial = historial;
+        this.cambios = cambios;
+        metricas.vigilar(canastas);
+        if (historial != null) {
+            // Una canasta expulsada no vuelve: su historial tampoco se conserva
+            canastas.alExpulsar((id, store) -> historial.eliminar(id));
+        }
+    }
+
+    /**
+     * Indica si un identificador de canasta enviado por un cliente es válido:
+     * de 1 a 64 letras sin tilde, dígitos, '_' o '-'
+     * @param idCanasta identificador a revisar
+     * @return true si es válido
+     */
+    public static boolean esIdentificadorValido(String idCanasta) {
+        return idCanasta != null && IDENTIFICADOR_VALIDO.matcher(idCanasta).matches();
+    }
 
     /**
      * Agrega un item a la canasta después de validarlo
@@ -29,8 +128,66 @@ public class CanastaService {
      * @throws IllegalArgumentException si los datos no son válidos
      */
     public void agregarItem(ItemCanasta item) {
+        agregarItem(CANASTA_POR_DEFECTO, item);
+    }
+
+    /**
+     * Agrega un item a la canasta indicada después de validarlo
+     * @param idCanasta identificador de la canasta
+     * @param item el item a agregar
+     * @throws IllegalArgumentException si los datos no son válidos
+     *         o se alcanzó el máximo de items de todas las canastas
+     * @throws java.io.UncheckedIOException si no se pudo anotar en disco
+     */
+    public void agregarItem(String idCanasta, ItemCanasta item) {
+        long inicio = metricas.iniciarAgregar();
         validarItem(item);
-        items.add(item);
+        CanastaStore store = canastas.obtener(idCanasta);
+        canastas.registrarItems(idCanasta, 1);
+        if (persistencia != null) {
+            persistencia.agregar(idCanasta, store, List.of(item));
+        } else {
+            store.agregar(item);
+        }
+        registrarCambio(idCanasta, store, List.of(item));
+        metricas.terminarAgregar(inicio, 1);
+    }
+
+    /**
+     * Agrega a la canasta un lote de items ya validados con {@link #validarItem}
+     * Los items quedan en posiciones consecutivas
+     * @param idCanasta identificador de la canasta
+     * @param lote items a agregar
+     * @throws IllegalArgumentException si se alcanzó el máximo de items de todas las canastas
+     * @throws java.io.UncheckedIOException si no se pudo anotar en disco
+     */
+    public void agregarLote(String idCanasta, List<ItemCanasta> lote) {
+        long inicio = metricas.iniciarAgregar();
+        CanastaStore store = canastas.obtener(idCanasta);
+        canastas.registrarItems(idCanasta, lote.size());
+        if (persistencia != null) {
+            persistencia.agregar(idCanasta, store, lote);
+        } else {
+            store.agregarTodos(lote);
+        }
+        registrarCambio(idCanasta, store, lote);
+        metricas.terminarAgregar(inicio, lote.size());
+    }
+
+    // Anota los precios y el total en el historial, si está habilitado (un total
+    // desbordado no se anota), y avisa a los suscriptores de la canasta, si hay
+    private void registrarCambio(String idCanasta, CanastaStore store, List<ItemCanasta> items) {
+        InstantaneaCanasta canasta = store.instantanea();
+        if (historial != null) {
+            try {
+                historial.registrarAgregados(idCanasta, items, canasta.total().centavos());
+            } catch (ArithmeticException e) {
+                // El historial solo guarda totales representables
+            }
+        }
+        if (cambios.tieneSuscriptores(idCanasta)) {
+            cambios.publicar(idCanasta, CambioCanasta.de(canasta, items, false));
+        }
     }
 
     /**
@@ -38,18 +195,50 @@ public class CanastaService {
      * @param item el item a validar
      * @throws IllegalArgumentException si algún dato es inválido
      */
-    private void validarItem(ItemCanasta item) {
+    public void validarItem(ItemCanasta item) {
         if (item.getNombre() == null || item.getNombre().trim().isEmpty()) {
             throw new IllegalArgumentException("El nombre del producto no puede estar vacío");
         }
 
-        if (item.getPrecio() <= 0) {
+        // NaN, infinito o un monto que no cabe en centavos
+        if (!item.tienePrecioValido()) {
+            throw new IllegalArgumentException("El precio no es un número válido");
+        }
+
+        // El precio se compara ya redondeado al centavo
+        if (item.precioEnCentavos() <= 0) {
             throw new IllegalArgumentException("El precio debe ser mayor a cero");
         }
 
         if (item.getCantidad() <= 0) {
             throw new IllegalArgumentException("La cantidad debe ser mayor a cero");
         }
+
+        try {
+            item.subtotal();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("El subtotal del producto excede el rango permitido");
+        }
+    }
+
+    /**
+     * Obtiene una instantánea consistente de la canasta
+     * Útil cuando una misma petición necesita items, total y promedio
+     * calculados sobre el mismo estado
+     * @return instantánea inmutable de la canasta
+     */
+    public InstantaneaCanasta obtenerInstantanea() {
+        return obtenerInstantanea(CANASTA_POR_DEFECTO);
+    }
+
+    /**
+     * Obtiene una instantánea consistente de la canasta indicada
+     * No crea la canasta si todavía no existe
+     * @param idCanasta identificador de la canasta
+     * @return instantánea inmutable de la canasta
+     */
+    public InstantaneaCanasta obtenerInstantanea(String idCanasta) {
+        return canastas.instantanea(idCanasta);
     }
 
     /**
@@ -57,7 +246,78 @@ public class CanastaService {
      * @return lista de items
      */
     public List<ItemCanasta> obtenerItems() {
-        return new ArrayList<>(items);
+        return new ArrayList<>(obtenerInstantanea());
+    }
+
+    /**
+     * Obtiene una página de items a partir de una posición
+     * El costo depende solo del tamaño de la página, no de la canasta
+     * @param idCanasta identificador de la canasta
+     * @param desde posición del primer item (desde 0)
+     * @param limite cantidad máxima de items de la página
+     * @return página de items, vacía si la posición supera la canasta
+     * @throws IllegalArgumentException si la posición o el límite no son válidos
+     */
+    public PaginaItems obtenerPagina(String idCanasta, int desde, int limite) {
+        return obtenerPagina(obtenerInstantanea(idCanasta), desde, limite);
+    }
+
+    /**
+     * Obtiene una página de una instantánea ya tomada
+     * Útil cuando la misma petición también muestra el total u otros agregados
+     * @param canasta instantánea de la canasta
+     * @param desde posición del primer item (desde 0)
+     * @param limite cantidad máxima de items de la página
+     * @return página de items, vacía si la posición supera la canasta
+     * @throws IllegalArgumentException si la posición o el límite no son válidos
+     */
+    public PaginaItems obtenerPagina(InstantaneaCanasta canasta, int desde, int limite) {
+        if (desde < 0) {
+            throw new IllegalArgumentException("La posición inicial no puede ser negativa");
+        }
+        return crearPagina(canasta, desde, limite);
+    }
+
+    /**
+     * Obtiene la página que sigue a un cursor devuelto en una página anterior
+     * A diferencia de la posición, el cursor detecta si la canasta se limpió
+     * entre una página y otra
+     * @param idCanasta identificador de la canasta
+     * @param cursor valor de {@link PaginaItems#siguiente()}
+     * @param limite cantidad máxima de items de la página
+     * @return página de items
+     * @throws IllegalArgumentException si el cursor no es válido o la canasta se limpió
+     */
+    public PaginaItems obtenerPaginaDesdeCursor(String idCanasta, String cursor, int limite) {
+        String etiqueta;
+        int desde;
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            int separador = texto.lastIndexOf(':');
+            etiqueta = texto.substring(0, separador);
+            desde = Integer.parseInt(texto.substring(separador + 1));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            // NumberFormatException también es IllegalArgumentException
+            throw new IllegalArgumentException("El cursor no es válido");
+        }
+
+        InstantaneaCanasta canasta = obtenerInstantanea(idCanasta);
+        if (desde < 0 || !canasta.contieneEtiqueta(etiqueta)) {
+            throw new IllegalArgumentException("El cursor ya no es válido: la canasta cambió");
+        }
+        return crearPagina(canasta, desde, limite);
+    }
+
+    private static PaginaItems crearPagina(InstantaneaCanasta canasta, int desde, int limite) {
+        if (limite <= 0 || limite > MAX_LIMITE_PAGINA) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + MAX_LIMITE_PAGINA);
+        }
+        int total = canasta.size();
+        int inicio = Math.min(desde, total);
+        int fin = (int) Math.min((long) inicio + limite, total);
+        String siguiente = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((canasta.etiqueta() + ":" + fin).getBytes(StandardCharsets.US_ASCII));
+        return new PaginaItems(canasta.subList(inicio, fin), inicio, total, siguiente, fin < total);
     }
 
     /**
@@ -65,9 +325,17 @@ public class CanastaService {
      * @return total de la canasta
      */
     public double calcularTotal() {
-        return items.stream()
-                .mapToDouble(ItemCanasta::calcularSubtotal)
-                .sum();
+        return calcularTotal(obtenerInstantanea()).aDouble();
+    }
+
+    /**
+     * Calcula el total de una instantánea ya tomada
+     * @param canasta instantánea de la canasta
+     * @return total de la canasta
+     * @throws ArithmeticException si la suma excede el rango permitido
+     */
+    public Dinero calcularTotal(InstantaneaCanasta canasta) {
+        return metricas.medirCalculo("total", canasta::total);
     }
 
     /**
@@ -75,14 +343,17 @@ public class CanastaService {
      * @return promedio de precios, 0 si no hay items
      */
     public double calcularPromedio() {
-        if (items.isEmpty()) {
-            return 0;
-        }
+        return calcularPromedio(obtenerInstantanea());
+    }
 
-        return items.stream()
-                .mapToDouble(ItemCanasta::getPrecio)
-                .average()
-                .orElse(0);
+    /**
+     * Calcula el promedio de precios de una instantánea ya tomada
+     * @param canasta instantánea de la canasta
+     * @return promedio de precios, 0 si no hay items
+     * @throws ArithmeticException si la suma excede el rango permitido
+     */
+    public double calcularPromedio(InstantaneaCanasta canasta) {
+        return metricas.medirCalculo("promedio", canasta::calcularPromedio);
     }
 
     /**
@@ -90,17 +361,108 @@ public class CanastaService {
      * @return lista de hasta 3 productos más costosos
      */
     public List<ItemCanasta> obtenerProductosMasCostosos() {
-        return items.stream()
-                .sorted(Comparator.comparingDouble(ItemCanasta::getPrecio).reversed())
-                .limit(3)
-                .collect(Collectors.toList());
+        return obtenerProductosMasCostosos(3);
+    }
+
+    /**
+     * Obtiene los N productos más costosos (por precio unitario)
+     * @param cantidad número de productos a devolver
+     * @return lista de hasta {@code cantidad} productos más costosos
+     * @throws IllegalArgumentException si la cantidad no está entre 1 y {@link AnalisisService#MAX_TOP}
+     */
+    public List<ItemCanasta> obtenerProductosMasCostosos(int cantidad) {
+        return obtenerProductosMasCostosos(obtenerInstantanea(), cantidad);
+    }
+
+    /**
+     * Obtiene los N productos más costosos de una instantánea ya tomada
+     * @param canasta instantánea de la canasta
+     * @param cantidad número de productos a devolver
+     * @return lista de hasta {@code cantidad} productos más costosos
+     * @throws IllegalArgumentException si la cantidad no está entre 1 y {@link AnalisisService#MAX_TOP}
+     */
+    public List<ItemCanasta> obtenerProductosMasCostosos(InstantaneaCanasta canasta, int cantidad) {
+        // Más allá del ranking se ordena la canasta completa: el máximo acota ese costo
+        if (cantidad <= 0 || cantidad > AnalisisService.MAX_TOP) {
+            throw new IllegalArgumentException("La cantidad de productos debe estar entre 1 y "
+                    + AnalisisService.MAX_TOP);
+        }
+        return metricas.medirCalculo("mas-costosos", () -> canasta.obtenerMasCostosos(cantidad));
+    }
+
+    /**
+     * Obtiene la cantidad y el subtotal de un producto, sumando todas las
+     * líneas con el mismo nombre ("Arroz", "arroz" y "ARRÓZ" son el mismo)
+     * La consulta es O(1): usa el índice que mantiene la canasta al agregar
+     * @param idCanasta identificador de la canasta
+     * @param nombre nombre del producto
+     * @return totales del producto, o null si no está en la canasta
+     * @throws IllegalArgumentException si el nombre está vacío
+     */
+    public TotalesProducto obtenerTotalesProducto(String idCanasta, String nombre) {
+        if (nombre == null || nombre.trim().isEmpty()) {
+            throw new IllegalArgumentException("El nombre del producto no puede estar vacío");
+        }
+        CanastaStore store = canastas.buscar(idCanasta);
+        return store == null ? null : store.totalesProducto(nombre);
+    }
+
+    /**
+     * Obtiene la cantidad y el subtotal de cada producto distinto de la canasta
+     * @param idCanasta identificador de la canasta
+     * @return totales por producto, ordenados por nombre
+     */
+    public List<TotalesProducto> obtenerTotalesProductos(String idCanasta) {
+        CanastaStore store = canastas.buscar(idCanasta);
+        return store == null ? List.of() : store.totalesProductos();
+    }
+
+    /**
+     * Busca productos de la canasta por el comienzo del nombre o de una de
+     * sus palabras ("arr" encuentra "Arroz" y "Leche de arroz")
+     * Usa los índices ordenados de la canasta: el costo depende del límite,
+     * no de la cantidad de items
+     * @param idCanasta identificador de la canasta
+     * @param texto texto escrito por el usuario
+     * @param limite cantidad máxima de resultados
+     * @return totales de los productos encontrados, los que empiezan con el
+     *         texto primero; vacía si el texto está vacío
+     * @throws IllegalArgumentException si el límite está fuera de rango
+     */
+    public List<TotalesProducto> buscarProductos(String idCanasta, String texto, int limite) {
+        if (limite <= 0 || limite > MAX_LIMITE_BUSQUEDA) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + MAX_LIMITE_BUSQUEDA);
+        }
+        CanastaStore store = canastas.buscar(idCanasta);
+        if (store == null || texto == null) {
+            return List.of();
+        }
+        return store.buscarProductos(texto, limite);
     }
 
     /**
      * Limpia todos los items de la canasta
      */
     public void limpiarCanasta() {
-        items.clear();
+        limpiarCanasta(CANASTA_POR_DEFECTO);
+    }
+
+    /**
+     * Limpia todos los items de la canasta indicada
+     * @param idCanasta identificador de la canasta
+     * @throws java.io.UncheckedIOException si no se pudo anotar en disco
+     */
+    public void limpiarCanasta(String idCanasta) {
+        CanastaStore store = canastas.obtener(idCanasta);
+        int eliminados = metricas.medirLimpiar(
+                () -> persistencia != null ? persistencia.limpiar(idCanasta, store) : store.limpiar());
+        canastas.registrarLimpieza(eliminados);
+        if (historial != null) {
+            historial.registrarLimpieza(idCanasta);
+        }
+        if (cambios.tieneSuscriptores(idCanasta)) {
+            cambios.publicar(idCanasta, CambioCanasta.de(store.instantanea(), List.of(), true));
+        }
     }
 
     /**
@@ -108,6 +470,73 @@ public class CanastaService {
      * @return número de items
      */
     public int obtenerCantidadItems() {
-        return items.size();
+        return obtenerInstantanea().size();
+    }
+
+    /**
+     * Obtiene la versión de la canasta indicada
+     * Cambia con cada modificación; sirve para reutilizar resultados ya calculados
+     * @param idCanasta identificador de la canasta
+     * @return versión actual de la canasta
+     */
+    public long obtenerVersion(String idCanasta) {
+        return obtenerInstantanea(idCanasta).version();
+    }
+
+    /**
+     * Obtiene las métricas de memoria del registro de canastas
+     * @return canastas e items residentes y expulsiones
+     */
+    public EstadisticasRegistro obtenerEstadisticasRegistro() {
+        return canastas.estadisticas();
+    }
+
+    /**
+     * Consulta el historial de precios de la canasta indicada
+     * @param idCanasta identificador de la canasta
+     * @param desde comienzo del rango
+     * @param hasta fin del rango
+     * @param resolucion resolución del total, o null para elegirla según el rango
+     * @return evolución del total y variación de precio por producto,
+     *         o null si el historial no está habilitado
+     * @throws IllegalArgumentException si el rango está invertido
+     */
+    public ConsultaHistorial consultarHistorial(String idCanasta, Instant desde, Instant hasta,
+            Resolucion resolucion) {
+        if (historial == null) {
+            return null;
+        }
+        return historial.consultar(idCanasta, desde, hasta, resolucion);
+    }
+
+    /**
+     * Suscribe a los cambios de la canasta indicada
+     * Primero se envía el estado actual y después cada cambio (items
+     * agregados, limpieza, total, promedio y más costosos)
+     * @param idCanasta identificador de la canasta
+     * @param suscriptor destino de los cambios
+     * @return acción que cancela la suscripción
+     * @throws com.uniremington.canasta_familiar.eventos.SuscriptoresAgotadosException
+     *         si se alcanzó el máximo de suscriptores
+     */
+    public Runnable suscribirCambios(String idCanasta, Suscriptor suscriptor) {
+        return cambios.suscribir(idCanasta, suscriptor,
+                CambioCanasta.de(obtenerInstantanea(idCanasta), List.of(), false));
+    }
+
+    /**
+     * Obtiene las métricas de la difusión de cambios
+     * @return suscriptores, cambios enviados y combinados y suscriptores descartados
+     */
+    public EstadisticasDifusion obtenerEstadisticasDifusion() {
+        return cambios.estadisticas();
+    }
+
+    /**
+     * Obtiene las métricas de la persistencia en disco
+     * @return recuperación, escrituras y puntos de control, o null si no está habilitada
+     */
+    public EstadisticasPersistencia obtenerEstadisticasPersistencia() {
+        return persistencia == null ? null : persistencia.estadisticas();
     }
-}
\ No newline at end of file
+}
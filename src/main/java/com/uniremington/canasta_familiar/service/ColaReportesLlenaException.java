@@ -0,0 +1,14 @@
+package com.uniremington.canasta_familiar.service;
+
+/**
+ * Se lanza cuando no hay lugar para otro reporte asíncrono
+ * El cliente debe reintentar más tarde (HTTP 429)
+ */
+public class ColaReportesLlenaException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ColaReportesLlenaException(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -0,0 +1,143 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.uniremington.canasta_familiar.model.Dinero;
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import tools.jackson.core.JsonEncoding;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.core.ObjectWriteContext;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.core.json.JsonFactory;
+
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Escritura de la canasta en JSON a medida que se recorre
+ * Cada item se escribe directo en la salida con un generador, sin armar
+ * antes un mapa ni una copia de la lista: la memoria usada y el tiempo
+ * hasta el primer byte no dependen del tamaño de la canasta
+ * Los campos de cada item son los mismos que produce Jackson con ItemCanasta
+ */
+public final class EscritorJson {
+
+    // Al cerrar el generador se vacía su búfer, pero no se cierra la salida
+    private static final JsonFactory JSON = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    // JSON Lines: un objeto por línea
+    private static final JsonFactory LINEAS = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .rootValueSeparator("\n")
+            .build();
+
+    private EscritorJson() {
+    }
+
+    /**
+     * Escribe los items como arreglo JSON
+     * @param items items a escribir (por ejemplo una instantánea)
+     * @param salida flujo donde se escribe el JSON (no se cierra)
+     */
+    public static void escribirItems(List<ItemCanasta> items, OutputStream salida) {
+        try (JsonGenerator generador = crearGenerador(salida)) {
+            escribirArreglo(generador, items);
+        }
+    }
+
+    /**
+     * Escribe una página de items: items, desde, total, siguiente y hayMas
+     * @param pagina página obtenida de CanastaService
+     * @param salida flujo donde se escribe el JSON (no se cierra)
+     */
+    public static void escribirPagina(PaginaItems pagina, OutputStream salida) {
+        try (JsonGenerator generador = crearGenerador(salida)) {
+            generador.writeStartObject();
+            generador.writeName("items");
+            escribirArreglo(generador, pagina.items());
+            generador.writeNumberProperty("desde", pagina.desde());
+            generador.writeNumberProperty("total", pagina.total());
+            generador.writeStringProperty("siguiente", pagina.siguiente());
+            generador.writeBooleanProperty("hayMas", pagina.hayMas());
+            generador.writeEndObject();
+        }
+    }
+
+    /**
+     * Escribe el resumen de la canasta: cantidadItems, total, promedio,
+     * productosMasCostosos e items
+     * Los agregados van primero (ya calculados sobre la instantánea) y la
+     * lista completa al final
+     * @param canasta instantánea de la canasta
+     * @param total total de la misma instantánea
+     * @param promedio promedio de precios de la misma instantánea
+     * @param masCostosos productos más costosos de la misma instantánea
+     * @param salida flujo donde se escribe el JSON (no se cierra)
+     */
+    public static void escribirResumen(InstantaneaCanasta canasta, Dinero total, double promedio,
+            List<ItemCanasta> masCostosos, OutputStream salida) {
+        try (JsonGenerator generador = crearGenerador(salida)) {
+            generador.writeStartObject();
+            generador.writeNumberProperty("cantidadItems", canasta.size());
+            escribirMonto(generador, "total", total);
+            generador.writeNumberProperty("promedio", promedio);
+            generador.writeName("productosMasCostosos");
+            escribirArreglo(generador, masCostosos);
+            generador.writeName("items");
+            escribirArreglo(generador, canasta);
+            generador.writeEndObject();
+        }
+    }
+
+    /**
+     * Escribe los items en JSON Lines: un objeto por línea con los mismos
+     * campos que el arreglo de items
+     * Lee las columnas de la instantánea sin crear un ItemCanasta por línea
+     * @param canasta instantánea de la canasta
+     * @param salida flujo donde se escriben las líneas (no se cierra)
+     */
+    public static void escribirLineas(InstantaneaCanasta canasta, OutputStream salida) {
+        try (JsonGenerator generador = LINEAS.createGenerator(ObjectWriteContext.empty(), salida,
+                JsonEncoding.UTF8)) {
+            for (int i = 0, n = canasta.size(); i < n; i++) {
+                generador.writeStartObject();
+                generador.writeStringProperty("nombre", canasta.nombre(i));
+                generador.writeNumberProperty("precio", canasta.precio(i));
+                generador.writeNumberProperty("cantidad", canasta.cantidad(i));
+                generador.writeEndObject();
+            }
+            if (canasta.size() > 0) {
+                generador.writeRaw('\n');
+            }
+        }
+    }
+
+    // Los montos se escriben en pesos como número; un double es exacto hasta
+    // 2^53 centavos, más allá se escribe el decimal completo
+    private static void escribirMonto(JsonGenerator generador, String nombre, Dinero monto) {
+        if (Math.abs(monto.centavos()) < Dinero.MAX_CENTAVOS_DESDE_DOUBLE) {
+            generador.writeNumberProperty(nombre, monto.aDouble());
+        } else {
+            generador.writeNumberProperty(nombre, monto.aBigDecimal());
+        }
+    }
+
+    private static JsonGenerator crearGenerador(OutputStream salida) {
+        return JSON.createGenerator(ObjectWriteContext.empty(), salida, JsonEncoding.UTF8);
+    }
+
+    private static void escribirArreglo(JsonGenerator generador, List<ItemCanasta> items) {
+        generador.writeStartArray();
+        // Recorrido por índice: la instantánea es RandomAccess y no crea iteradores
+        for (int i = 0, n = items.size(); i < n; i++) {
+            ItemCanasta item = items.get(i);
+            generador.writeStartObject();
+            generador.writeStringProperty("nombre", item.getNombre());
+            generador.writeNumberProperty("precio", item.getPrecio());
+            generador.writeNumberProperty("cantidad", item.getCantidad());
+            generador.writeEndObject();
+        }
+        generador.writeEndArray();
+    }
+}
@@ -0,0 +1,11 @@
+package com.uniremington.canasta_familiar.service;
+
+/**
+ * Métricas de la caché de resúmenes PDF
+ * @param pdfs PDF guardados (uno por canasta como máximo)
+ * @param bytes memoria ocupada por los PDF guardados
+ * @param aciertos descargas servidas desde la caché
+ * @param fallos descargas que tuvieron que generar el PDF
+ */
+public record EstadisticasCachePdf(int pdfs, long bytes, long aciertos, long fallos) {
+}
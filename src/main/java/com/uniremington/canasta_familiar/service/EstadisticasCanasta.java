@@ -0,0 +1,20 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+
+import java.util.List;
+
+/**
+ * Estadísticas de una instantánea de la canasta, calculadas en un solo recorrido
+ * Los montos se suman en centavos y se entregan en pesos
+ * @param cantidadItems cantidad de líneas de la canasta
+ * @param total suma de los subtotales
+ * @param promedio promedio de los precios unitarios, 0 si no hay items
+ * @param precioMinimo menor precio unitario, 0 si no hay items
+ * @param precioMaximo mayor precio unitario, 0 si no hay items
+ * @param masCostosos productos más costosos por precio unitario; con el mismo
+ *        precio va primero el que se agregó antes
+ */
+public record EstadisticasCanasta(int cantidadItems, double total, double promedio, double precioMinimo,
+        double precioMaximo, List<ItemCanasta> masCostosos) {
+}
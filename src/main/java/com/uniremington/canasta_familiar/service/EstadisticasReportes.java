@@ -0,0 +1,17 @@
+package com.uniremington.canasta_familiar.service;
+
+/**
+ * Métricas de los reportes PDF asíncronos
+ * @param enCola reportes esperando un hilo
+ * @param generando reportes que se están generando
+ * @param guardados reportes guardados (pendientes y terminados sin expirar)
+ * @param completados reportes generados con éxito
+ * @param fallidos reportes que no se pudieron generar
+ * @param rechazados pedidos rechazados por cola llena
+ * @param promedioEnColaMs tiempo promedio de espera en la cola
+ * @param promedioGeneracionMs tiempo promedio de generación
+ * @param maximoGeneracionMs tiempo máximo de generación
+ */
+public record EstadisticasReportes(int enCola, int generando, int guardados, long completados, long fallidos,
+        long rechazados, double promedioEnColaMs, double promedioGeneracionMs, double maximoGeneracionMs) {
+}
@@ -0,0 +1,11 @@
+package com.uniremington.canasta_familiar.service;
+
+/**
+ * Etapas de un reporte PDF asíncrono
+ */
+public enum EstadoReporte {
+    EN_COLA,
+    GENERANDO,
+    LISTO,
+    FALLIDO
+}
@@ -0,0 +1,142 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Chunk;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.FontFactory;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.pdf.DefaultSplitCharacter;
+import com.itextpdf.text.pdf.PdfChunk;
+import com.uniremington.canasta_familiar.model.Dinero;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * Estilos del resumen en PDF, construidos una sola vez
+ * Todos los PdfService en ejecución comparten estas fuentes, colores y
+ * formatos: ninguno se modifica después de crearlo, por eso se pueden
+ * usar desde varios hilos a la vez
+ */
+final class EstilosPdf {
+
+    // ========== COLORES ==========
+
+    static final BaseColor AZUL = new BaseColor(41, 128, 185);
+    static final BaseColor AZUL_CLARO = new BaseColor(52, 152, 219);
+    static final BaseColor AZUL_OSCURO = new BaseColor(52, 73, 94);
+    static final BaseColor VERDE = new BaseColor(46, 204, 113);
+    static final BaseColor MORADO = new BaseColor(155, 89, 182);
+    static final BaseColor GRIS_FILA = new BaseColor(236, 240, 241);
+
+    // ========== FUENTES ==========
+
+    static final Font TITULO = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 24, AZUL);
+    static final Font SUBTITULO = FontFactory.getFont(FontFactory.HELVETICA, 16, BaseColor.DARK_GRAY);
+    static final Font FECHA = FontFactory.getFont(FontFactory.HELVETICA, 10, BaseColor.GRAY);
+    static final Font TITULO_SECCION = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14, AZUL_OSCURO);
+    static final Font ENCABEZADO_TABLA = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11, BaseColor.WHITE);
+    static final Font DATOS = FontFactory.getFont(FontFactory.HELVETICA, 10);
+    static final Font TOTAL_ETIQUETA = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12);
+    static final Font TOTAL_VALOR = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, BaseColor.WHITE);
+    static final Font RANKING = FontFactory.getFont(FontFactory.HELVETICA, 11);
+    static final Font NOTA = FontFactory.getFont(FontFactory.HELVETICA_OBLIQUE, 9, BaseColor.GRAY);
+    static final Font PIE = FontFactory.getFont(FontFactory.HELVETICA, 8, BaseColor.GRAY);
+    static final Font ESTADISTICA_TITULO = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10, BaseColor.WHITE);
+    static final Font ESTADISTICA_TOTAL = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, VERDE);
+    static final Font ESTADISTICA_PROMEDIO = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, AZUL_CLARO);
+    static final Font ESTADISTICA_PRODUCTOS = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, MORADO);
+
+    // ========== FORMATOS ==========
+
+    // DateTimeFormatter es inmutable, a diferencia de SimpleDateFormat
+    static final DateTimeFormatter FORMATO_FECHA =
+            DateTimeFormatter.ofPattern("dd 'de' MMMM 'de' yyyy - HH:mm", Locale.forLanguageTag("es-CO"));
+
+    // Montos a partir de los cuales se usa DecimalFormat en lugar del formato rápido
+    private static final double MONTO_MAXIMO_RAPIDO = 1e15;
+
+    /**
+     * Corta líneas en espacios y guiones como el separador por defecto de iText,
+     * pero sin buscar fechas: DefaultSplitCharacter copia todo el texto de la
+     * línea por cada carácter que revisa, y en una tabla grande esa copia es la
+     * mayor parte de la memoria asignada
+     */
+    private static final DefaultSplitCharacter SEPARADOR = new DefaultSplitCharacter() {
+        @Override
+        public boolean isSplitCharacter(int inicio, int actual, int fin, char[] texto, PdfChunk[] chunks) {
+            char c = getCurrentCharacter(actual, texto, chunks);
+            return c <= ' ' || c == '-' || c == '\u2010'
+                    || (c >= 0x2002 && c <= 0x200b)
+                    || (c >= 0x2e80 && c < 0xd7a0)
+                    || (c >= 0xf900 && c < 0xfb00)
+                    || (c >= 0xfe30 && c < 0xfe50)
+                    || (c >= 0xff61 && c < 0xffa0);
+        }
+    };
+
+    private EstilosPdf() {
+    }
+
+    /**
+     * Crea el texto de una celda o párrafo con la fuente indicada
+     * @param texto contenido
+     * @param fuente una de las fuentes de esta clase
+     * @return frase nueva, lista para agregar al documento
+     */
+    static Phrase frase(String texto, Font fuente) {
+        Chunk chunk = new Chunk(texto, fuente);
+        chunk.setSplitCharacter(SEPARADOR);
+        return new Phrase(chunk);
+    }
+
+    /**
+     * Formatea un monto en pesos sin decimales, p. ej. $13,000
+     * Redondea igual que DecimalFormat (HALF_EVEN) y se puede llamar desde varios hilos
+     * @param valor monto a formatear
+     * @return monto con separador de miles
+     */
+    static String moneda(double valor) {
+        double redondeado = Math.rint(valor);
+        if (!(Math.abs(redondeado) < MONTO_MAXIMO_RAPIDO)) {
+            // NaN, infinitos o montos enormes: caso raro, no vale la pena optimizarlo
+            return new DecimalFormat("$#,##0", DecimalFormatSymbols.getInstance(Locale.US)).format(valor);
+        }
+
+        return formatearPesos((long) redondeado);
+    }
+
+    /**
+     * Formatea un monto exacto en pesos sin decimales, p. ej. $13,000
+     * Redondea los centavos igual que {@link #moneda(double)} (HALF_EVEN),
+     * sin pasar por double
+     * @param valor monto a formatear
+     * @return monto con separador de miles
+     */
+    static String moneda(Dinero valor) {
+        long centavos = valor.centavos();
+        long pesos = Math.floorDiv(centavos, 100);
+        long resto = Math.floorMod(centavos, 100);
+        if (resto > 50 || (resto == 50 && (pesos & 1) != 0)) {
+            pesos++;
+        }
+        return formatearPesos(pesos);
+    }
+
+    private static String formatearPesos(long pesos) {
+        String digitos = pesos == Long.MIN_VALUE ? "9223372036854775808" : Long.toString(Math.abs(pesos));
+        StringBuilder texto = new StringBuilder(digitos.length() + digitos.length() / 3 + 2);
+        if (pesos < 0) {
+            texto.append('-');
+        }
+        texto.append('$');
+        int primerGrupo = digitos.length() % 3 == 0 ? 3 : digitos.length() % 3;
+        texto.append(digitos, 0, primerGrupo);
+        for (int i = primerGrupo; i < digitos.length(); i += 3) {
+            texto.append(',').append(digitos, i, i + 3);
+        }
+        return texto.toString();
+    }
+}
@@ -0,0 +1,12 @@
+package com.uniremington.canasta_familiar.service;
+
+/**
+ * Estado de un reporte PDF asíncrono, tal como se informa al cliente
+ * @param id identificador del reporte
+ * @param estado etapa en que se encuentra
+ * @param bytes tamaño del PDF (0 hasta que está listo)
+ * @param duracionMs tiempo de generación (0 hasta que termina)
+ * @param error motivo de la falla, solo si falló
+ */
+public record InfoReporte(String id, EstadoReporte estado, long bytes, long duracionMs, String error) {
+}
@@ -0,0 +1,268 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.ObjectReadContext;
+import tools.jackson.core.json.JsonFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Servicio de carga masiva de items
+ * Se encarga de:
+ * - Leer un arreglo JSON o un CSV a medida que llega, sin guardar todo el cuerpo
+ * - Validar cada item con las mismas reglas de CanastaService.validarItem
+ * - Agregar los items válidos a la canasta en lotes
+ * - Informar cuántos items se aceptaron y cuáles líneas se rechazaron
+ */
+@Service
+public class IngestaService {
+
+    // Items que se agregan a la canasta de una sola vez
+    public static final int TAMANO_LOTE = 1_000;
+
+    // Líneas rechazadas que se detallan en la respuesta
+    public static final int MAX_ERRORES_REPORTADOS = 100;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final CanastaService canastaService;
+
+    @Autowired
+    public IngestaService(CanastaService canastaService) {
+        this.canastaService = canastaService;
+    }
+
+    /**
+     * Carga un arreglo JSON de items: [{"nombre": ..., "precio": ..., "cantidad": ...}, ...]
+     * @param idCanasta identificador de la canasta
+     * @param entrada cuerpo de la petición
+     * @return conteo de aceptados y rechazados
+     */
+    public ResultadoIngesta ingerirJson(String idCanasta, InputStream entrada) {
+        Acumulador acumulador = new Acumulador(idCanasta);
+        long linea = 0;
+
+        try (JsonParser parser = JSON.createParser(ObjectReadContext.empty(), entrada)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("El cuerpo debe ser un arreglo JSON de items");
+            }
+
+            JsonToken token;
+            while (!acumulador.detenido && (token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                linea++;
+                if (token == null) {
+                    acumulador.rechazar(linea, "El arreglo JSON está incompleto");
+                    break;
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    acumulador.rechazar(linea, "Se esperaba un objeto con nombre, precio y cantidad");
+                    continue;
+                }
+                leerObjeto(parser, linea, acumulador);
+            }
+        } catch (JacksonException e) {
+            // JSON mal formado: no se puede seguir leyendo, se informa lo cargado hasta aquí
+            acumulador.rechazar(linea + 1, "JSON mal formado: " + e.getOriginalMessage());
+        }
+
+        return acumulador.terminar();
+    }
+
+    /**
+     * Carga un CSV con columnas nombre,precio,cantidad (encabezado opcional)
+     * @param idCanasta identificador de la canasta
+     * @param entrada cuerpo de la petición
+     * @return conteo de aceptados y rechazados
+     * @throws IOException si falla la lectura del cuerpo
+     */
+    public ResultadoIngesta ingerirCsv(String idCanasta, Reader entrada) throws IOException {
+        Acumulador acumulador = new Acumulador(idCanasta);
+        BufferedReader lector = new BufferedReader(entrada);
+        long linea = 0;
+        String texto;
+
+        while (!acumulador.detenido && (texto = lector.readLine()) != null) {
+            linea++;
+            if (texto.isBlank()) {
+                continue;
+            }
+
+            List<String> campos = separarCampos(texto);
+            if (campos == null || campos.size() != 3) {
+                acumulador.rechazar(linea, "Se esperaban 3 columnas: nombre,precio,cantidad");
+                continue;
+            }
+            if (linea == 1 && campos.get(0).trim().equalsIgnoreCase("nombre")) {
+                continue;
+            }
+
+            try {
+                double precio = Double.parseDouble(campos.get(1).trim());
+                int cantidad = Integer.parseInt(campos.get(2).trim());
+                acumulador.aceptar(linea, new ItemCanasta(campos.get(0).trim(), precio, cantidad));
+            } catch (NumberFormatException e) {
+                acumulador.rechazar(linea, "El precio o la cantidad no son números válidos");
+            }
+        }
+
+        return acumulador.terminar();
+    }
+
+    private void leerObjeto(JsonParser parser, long linea, Acumulador acumulador) {
+        String nombre = null;
+        double precio = 0;
+        int cantidad = 0;
+        String error = null;
+
+        while (parser.nextToken() == JsonToken.PROPERTY_NAME) {
+            String campo = parser.currentName();
+            JsonToken valor = parser.nextToken();
+            switch (campo) {
+                case "nombre" -> {
+                    if (valor == JsonToken.VALUE_STRING) {
+                        nombre = parser.getString();
+                    } else {
+                        error = "El nombre debe ser un texto";
+                    }
+                }
+                case "precio" -> {
+                    if (valor == JsonToken.VALUE_NUMBER_INT || valor == JsonToken.VALUE_NUMBER_FLOAT) {
+                        precio = parser.getDoubleValue();
+                    } else {
+                        error = "El precio debe ser un número";
+                    }
+                }
+                case "cantidad" -> {
+                    if (valor == JsonToken.VALUE_NUMBER_INT) {
+                        cantidad = parser.getIntValue();
+                    } else {
+                        error = "La cantidad debe ser un número entero";
+                    }
+                }
+                default -> {
+                    // Campo desconocido: se ignora
+                }
+            }
+            if (valor == JsonToken.START_OBJECT || valor == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+            }
+        }
+
+        if (error != null) {
+            acumulador.rechazar(linea, error);
+        } else {
+            acumulador.aceptar(linea, new ItemCanasta(nombre, precio, cantidad));
+        }
+    }
+
+    /**
+     * Separa una línea CSV en campos, respetando comillas dobles
+     * ("Arroz, Diana" es un solo campo y "" dentro de comillas es una comilla)
+     * @return campos de la línea, o null si las comillas no cierran
+     */
+    static List<String> separarCampos(String linea) {
+        List<String> campos = new ArrayList<>(3);
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+
+        if (entreComillas) {
+            return null;
+        }
+        campos.add(campo.toString());
+        return campos;
+    }
+
+    /**
+     * Acumula los items válidos en un lote y lleva los conteos de la carga
+     */
+    private final class Acumulador {
+
+        private final String idCanasta;
+        private final List<ItemCanasta> lote = new ArrayList<>(TAMANO_LOTE);
+        private final List<ResultadoIngesta.ErrorLinea> errores = new ArrayList<>();
+        private long primeraLineaLote;
+        private long aceptados;
+        private long rechazados;
+        private boolean detenido;
+
+        private Acumulador(String idCanasta) {
+            this.idCanasta = idCanasta;
+        }
+
+        void aceptar(long linea, ItemCanasta item) {
+            try {
+                canastaService.validarItem(item);
+            } catch (IllegalArgumentException e) {
+                rechazar(linea, e.getMessage());
+                return;
+            }
+            if (lote.isEmpty()) {
+                primeraLineaLote = linea;
+            }
+            lote.add(item);
+            if (lote.size() == TAMANO_LOTE) {
+                vaciarLote();
+            }
+        }
+
+        void rechazar(long linea, String mensaje) {
+            rechazados++;
+            if (errores.size() < MAX_ERRORES_REPORTADOS) {
+                errores.add(new ResultadoIngesta.ErrorLinea(linea, mensaje));
+            }
+        }
+
+        ResultadoIngesta terminar() {
+            vaciarLote();
+            return new ResultadoIngesta(aceptados, rechazados, errores, rechazados > errores.size());
+        }
+
+        private void vaciarLote() {
+            if (lote.isEmpty()) {
+                return;
+            }
+            try {
+                canastaService.agregarLote(idCanasta, lote);
+                aceptados += lote.size();
+            } catch (IllegalArgumentException e) {
+                // La canasta se llenó: se rechaza el lote y se deja de leer
+                rechazados += lote.size() - 1;
+                rechazar(primeraLineaLote, e.getMessage());
+                detenido = true;
+            }
+            lote.clear();
+        }
+    }
+}
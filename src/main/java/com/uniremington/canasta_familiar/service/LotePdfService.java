@@ -0,0 +1,366 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.PdfCopy;
+import com.itextpdf.text.pdf.PdfReader;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Servicio que genera los resúmenes PDF de muchas canastas en una sola pasada
+ * Se encarga de:
+ * - Generar los PDF de las canastas en paralelo, en un grupo de hilos propio
+ * - Escribirlos en el orden pedido a medida que terminan, como un solo PDF
+ *   con una sección y un marcador por canasta o como un ZIP con un PDF por canasta
+ * - Acotar la memoria: los PDF generados que esperan turno no pasan de un
+ *   máximo de filas entre todos los lotes en curso, y cada lote tiene a lo
+ *   sumo dos documentos por hilo adelantados
+ * - Esperar turno en el presupuesto a lo sumo un tiempo máximo: si no hay
+ *   lugar, el lote falla con {@link ColaReportesLlenaException} (HTTP 429
+ *   si todavía no se empezó a responder)
+ * La instantánea de cada canasta se toma justo antes de generar su PDF
+ */
+@Service
+public class LotePdfService {
+
+    public static final int MAX_CANASTAS_POR_DEFECTO = 10_000;
+    public static final int MAX_FILAS_EN_VUELO_POR_DEFECTO = 500_000;
+    public static final long ESPERA_MS_POR_DEFECTO = 30_000;
+
+    private final PdfService pdfService;
+    private final CanastaService canastaService;
+    private final ExecutorService ejecutor;
+    private final boolean ejecutorPropio;
+    private final int documentosEnVuelo;
+    private final int maxFilas;
+    private final int maxCanastas;
+    private final long esperaMs;
+
+    // Filas (más una por documento) de los PDF generados o en generación que aún no se escribieron
+    private final Semaphore presupuesto;
+
+    /**
+     * @param pdfService generador de cada PDF
+     * @param canastaService origen de las instantáneas
+     * @param hilos PDF que se generan a la vez; 0 usa un hilo por procesador
+     * @param maxFilas filas de los PDF en vuelo entre todos los lotes
+     * @param maxCanastas canastas por lote
+     */
+    public LotePdfService(PdfService pdfService, CanastaService canastaService, int hilos, int maxFilas,
+            int maxCanastas) {
+        this(pdfService, canastaService, hilos, maxFilas, maxCanastas, ESPERA_MS_POR_DEFECTO);
+    }
+
+    /**
+     * @param pdfService generador de cada PDF
+     * @param canastaService origen de las instantáneas
+     * @param hilos PDF que se generan a la vez; 0 usa un hilo por procesador
+     * @param maxFilas filas de los PDF en vuelo entre todos los lotes
+     * @param maxCanastas canastas por lote
+     * @param esperaMs milisegundos que un lote espera lugar en el presupuesto de filas
+     */
+    @Autowired
+    public LotePdfService(PdfService pdfService, CanastaService canastaService,
+            @Value("${canasta.lote.hilos:0}") int hilos,
+            @Value("${canasta.lote.max-filas-en-vuelo:500000}") int maxFilas,
+            @Value("${canasta.lote.max-canastas:10000}") int maxCanastas,
+            @Value("${canasta.lote.espera-ms:30000}") long esperaMs) {
+        this(pdfService, canastaService, crearEjecutor(hilos), true,
+                2 * (hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors()), maxFilas, maxCanastas,
+                esperaMs);
+    }
+
+    /**
+     * @param ejecutor grupo de hilos donde se generan los PDF (no se cierra)
+     * @param documentosEnVuelo PDF que un lote adelanta mientras escribe el siguiente
+     */
+    LotePdfService(PdfService pdfService, CanastaService canastaService, ExecutorService ejecutor,
+            int documentosEnVuelo, int maxFilas, int maxCanastas, long esperaMs) {
+        this(pdfService, canastaService, ejecutor, false, documentosEnVuelo, maxFilas, maxCanastas, esperaMs);
+    }
+
+    private LotePdfService(PdfService pdfService, CanastaService canastaService, ExecutorService ejecutor,
+            boolean ejecutorPropio, int documentosEnVuelo, int maxFilas, int maxCanastas, long esperaMs) {
+        if (documentosEnVuelo <= 0 || maxFilas <= 0 || maxCanastas <= 0 || esperaMs <= 0) {
+            throw new IllegalArgumentException("Los límites de los lotes deben ser mayores a cero");
+        }
+        this.pdfService = pdfService;
+        this.canastaService = canastaService;
+        this.ejecutor = ejecutor;
+        this.ejecutorPropio = ejecutorPropio;
+        this.documentosEnVuelo = documentosEnVuelo;
+        this.maxFilas = maxFilas;
+        this.maxCanastas = maxCanastas;
+        this.esperaMs = esperaMs;
+        this.presupuesto = new Semaphore(maxFilas);
+    }
+
+    /**
+     * Valida los identificadores de un lote antes de empezar a escribirlo
+     * @param idsCanastas canastas del lote, en el orden en que se escriben
+     * @return identificadores sin repetidos
+     * @throws IllegalArgumentException si el lote está vacío, es demasiado
+     *         grande o tiene un identificador no válido (la misma regla que
+     *         la cabecera X-Canasta-Id)
+     */
+    public List<String> validar(List<String> idsCanastas) {
+        if (idsCanastas == null || idsCanastas.isEmpty()) {
+            throw new IllegalArgumentException("El lote debe tener al menos una canasta");
+        }
+        LinkedHashSet<String> ids = new LinkedHashSet<>();
+        for (String id : idsCanastas) {
+            if (!CanastaService.esIdentificadorValido(id)) {
+                throw new IllegalArgumentException("El identificador de canasta no es válido: " + id);
+            }
+            ids.add(id);
+        }
+        if (ids.size() > maxCanastas) {
+            throw new IllegalArgumentException("El lote no puede tener más de " + maxCanastas + " canastas");
+        }
+        return List.copyOf(ids);
+    }
+
+    /**
+     * Escribe un solo PDF con el resumen de cada canasta; cada resumen
+     * empieza en una página nueva y tiene un marcador con el id de la canasta
+     * @param idsCanastas canastas del lote, en orden
+     * @param salida flujo donde se escribe el PDF (no se cierra)
+     * @return cantidad de canastas escritas
+     * @throws IOException si falla la generación o la escritura
+     * @throws ArithmeticException si el total de alguna canasta excede el rango permitido
+     * @throws ColaReportesLlenaException si no hubo lugar en el presupuesto de filas a tiempo
+     */
+    public int escribirPdf(List<String> idsCanastas, OutputStream salida) throws IOException {
+        List<String> ids = validar(idsCanastas);
+        Document documento = new Document();
+        try {
+            PdfCopy copia = new PdfCopy(documento, salida);
+            copia.setCloseStream(false);
+            documento.open();
+
+            List<HashMap<String, Object>> marcadores = new ArrayList<>(ids.size());
+            int[] paginas = { 0 };
+            generar(ids, (id, pdf) -> {
+                PdfReader lector = new PdfReader(pdf);
+                try {
+                    HashMap<String, Object> marcador = new HashMap<>();
+                    marcador.put("Title", "Canasta " + id);
+                    marcador.put("Action", "GoTo");
+                    marcador.put("Page", (paginas[0] + 1) + " Fit");
+                    marcadores.add(marcador);
+                    for (int pagina = 1; pagina <= lector.getNumberOfPages(); pagina++) {
+                        copia.addPage(copia.getImportedPage(lector, pagina));
+                    }
+                    paginas[0] += lector.getNumberOfPages();
+                    // Escribe lo que queda de este documento y suelta sus objetos
+                    copia.freeReader(lector);
+                } catch (DocumentException e) {
+                    throw new IOException("No se pudo agregar el resumen de la canasta " + id, e);
+                } finally {
+                    lector.close();
+                }
+            });
+            copia.setOutlines(marcadores);
+            documento.close();
+        } catch (DocumentException e) {
+            throw new IOException("No se pudo generar el PDF del lote", e);
+        }
+        return ids.size();
+    }
+
+    /**
+     * Escribe un ZIP con un PDF por canasta, a medida que se generan
+     * Los PDF ya vienen comprimidos: se guardan sin volver a comprimir
+     * @param idsCanastas canastas del lote, en orden
+     * @param salida flujo donde se escribe el ZIP (no se cierra)
+     * @return cantidad de canastas escritas
+     * @throws IOException si falla la generación o la escritura
+     * @throws ArithmeticException si el total de alguna canasta excede el rango permitido
+     * @throws ColaReportesLlenaException si no hubo lugar en el presupuesto de filas a tiempo
+     */
+    public int escribirZip(List<String> idsCanastas, OutputStream salida) throws IOException {
+        List<String> ids = validar(idsCanastas);
+        ZipOutputStream zip = new ZipOutputStream(new FilterOutputStream(salida) {
+            @Override
+            public void write(byte[] b, int desde, int largo) throws IOException {
+                out.write(b, desde, largo);
+            }
+
+            @Override
+            public void close() throws IOException {
+                // La salida es de quien llama: no se cierra
+                flush();
+            }
+        });
+        int[] numero = { 0 };
+        CRC32 crc = new CRC32();
+        generar(ids, (id, pdf) -> {
+            ZipEntry entrada = new ZipEntry(nombreArchivo(++numero[0], id));
+            entrada.setMethod(ZipEntry.STORED);
+            entrada.setSize(pdf.length);
+            crc.reset();
+            crc.update(pdf);
+            entrada.setCrc(crc.getValue());
+            zip.putNextEntry(entrada);
+            zip.write(pdf);
+            zip.closeEntry();
+        });
+        zip.finish();
+        zip.flush();
+        return ids.size();
+    }
+
+    /**
+     * @return filas que todavía se pueden adelantar entre todos los lotes
+     */
+    int filasDisponibles() {
+        return presupuesto.availablePermits();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        if (ejecutorPropio) {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    // Numerado para conservar el orden y no repetir nombres; el id se limpia para usarlo como archivo
+    static String nombreArchivo(int numero, String idCanasta) {
+        String limpio = idCanasta.replaceAll("[^A-Za-z0-9._-]", "_");
+        if (limpio.length() > 100) {
+            limpio = limpio.substring(0, 100);
+        }
+        return String.format("%05d-canasta-%s.pdf", numero, limpio);
+    }
+
+    /**
+     * Genera los PDF en paralelo y se los pasa al destino en el orden de los ids
+     * Se adelantan documentos mientras haya lugar en la ventana del lote y en
+     * el presupuesto de filas; si no hay lugar se escribe primero el más antiguo.
+     * Un lote sin nada pendiente espera su turno sin retener presupuesto, a lo
+     * sumo esperaMs: así otros lotes que acaparan el presupuesto no lo dejan
+     * esperando para siempre
+     */
+    private void generar(List<String> ids, Destino destino) throws IOException {
+        ArrayDeque<Pendiente> pendientes = new ArrayDeque<>();
+        int siguiente = 0;
+        try {
+            while (siguiente < ids.size() || !pendientes.isEmpty()) {
+                while (siguiente < ids.size() && pendientes.size() < documentosEnVuelo) {
+                    String id = ids.get(siguiente);
+                    InstantaneaCanasta canasta = canastaService.obtenerInstantanea(id);
+                    int filas = (int) Math.min(maxFilas, canasta.size() + 1L);
+                    if (!presupuesto.tryAcquire(filas)) {
+                        if (!pendientes.isEmpty()) {
+                            break;
+                        }
+                        if (!presupuesto.tryAcquire(filas, esperaMs, TimeUnit.MILLISECONDS)) {
+                            throw new ColaReportesLlenaException(
+                                    "Hay demasiados lotes generándose, intente más tarde");
+                        }
+                    }
+                    pendientes.add(new Pendiente(id, filas,
+                            CompletableFuture.supplyAsync(() -> renderizar(canasta), ejecutor)));
+                    siguiente++;
+                }
+
+                Pendiente pendiente = pendientes.poll();
+                byte[] pdf;
+                try {
+                    pdf = esperar(pendiente);
+                } finally {
+                    presupuesto.release(pendiente.filas);
+                }
+                destino.escribir(pendiente.id, pdf);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Se interrumpió la generación del lote", e);
+        } finally {
+            // Si el lote falla, lo adelantado se descarta y se devuelve su presupuesto
+            for (Pendiente pendiente : pendientes) {
+                pendiente.pdf.cancel(false);
+                presupuesto.release(pendiente.filas);
+            }
+        }
+    }
+
+    private byte[] renderizar(InstantaneaCanasta canasta) {
+        try {
+            ByteArrayOutputStream pdf = new ByteArrayOutputStream(16 * 1024 + canasta.size() * 96);
+            pdfService.generarPdfResumen(canasta, canasta.total(), canasta.calcularPromedio(),
+                    canasta.obtenerMasCostosos(3), pdf);
+            return pdf.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] esperar(Pendiente pendiente) throws IOException, InterruptedException {
+        try {
+            return pendiente.pdf.get();
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (causa instanceof RuntimeException error) {
+                throw error;
+            }
+            throw new IOException("No se pudo generar el resumen de la canasta " + pendiente.id, causa);
+        }
+    }
+
+    private static ExecutorService crearEjecutor(int hilos) {
+        if (hilos < 0) {
+            throw new IllegalArgumentException("Los hilos de los lotes no pueden ser negativos");
+        }
+        AtomicInteger numero = new AtomicInteger();
+        return Executors.newFixedThreadPool(hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors(),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "lote-pdf-" + numero.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+    }
+
+    /**
+     * Recibe cada PDF del lote, en orden
+     */
+    @FunctionalInterface
+    private interface Destino {
+
+        void escribir(String idCanasta, byte[] pdf) throws IOException;
+    }
+
+    /**
+     * PDF adelantado: su canasta, las filas que reservó y el resultado
+     */
+    private record Pendiente(String id, int filas, CompletableFuture<byte[]> pdf) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+
+import java.util.List;
+
+/**
+ * Página de items de la canasta
+ * Los items son una vista de la instantánea, sin copiarlos
+ * @param items items de la página
+ * @param desde posición del primer item de la página (desde 0)
+ * @param total cantidad de items de la canasta al leer la página
+ * @param siguiente cursor para pedir la página siguiente; al final de la canasta
+ *        sirve para leer luego solo los items agregados después
+ * @param hayMas true si la canasta tenía más items después de esta página
+ */
+public record PaginaItems(List<ItemCanasta> items, int desde, int total, String siguiente, boolean hayMas) {
+}
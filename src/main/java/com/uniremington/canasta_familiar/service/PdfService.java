@@ -3,75 +3,197 @@ package com.uniremington.canasta_familiar.service;
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.*;
 import com.itextpdf.text.pdf.draw.LineSeparator;
+import com.uniremington.canasta_familiar.exportacion.Exportador;
+import com.uniremington.canasta_familiar.metricas.MetricasCanasta;
+import com.uniremington.canasta_familiar.model.Dinero;
 import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
-import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
+import static com.uniremington.canasta_familiar.service.EstilosPdf.*;
+
+/**
+ * Servicio que genera el resumen de la canasta en PDF
+ * El documento se escribe directamente en el flujo de salida y la tabla
+ * de productos se envía por bloques, así la memoria no crece con el
+ * tamaño de la canasta
+ * Fuentes, colores y formatos vienen de {@link EstilosPdf}, compartidos por
+ * todas las descargas
+ * Si la canasta no cambió desde la última descarga, el PDF sale de {@link CachePdf}
+ * Cada generación registra su tiempo, bytes y filas en {@link MetricasCanasta}
+ * Es también el formato "pdf" de la exportación ({@link Exportador})
+ */
 @Service
-public class PdfService {
+public class PdfService implements Exportador {
+
+    // Filas de la tabla que se acumulan antes de enviarlas al documento
+    static final int FILAS_POR_BLOQUE = 500;
+
+    // Pie de página y número de página; no guarda estado, se comparte entre documentos
+    private static final PdfPageEventHelper PIE_DE_PAGINA = new PdfPageEventHelper() {
+        @Override
+        public void onEndPage(PdfWriter writer, Document document) {
+            ColumnText.showTextAligned(writer.getDirectContent(),
+                    Element.ALIGN_CENTER,
+                    frase("Universidad de Remington - Canasta Familiar", PIE),
+                    297.5f, 30, 0);
+
+            ColumnText.showTextAligned(writer.getDirectContent(),
+                    Element.ALIGN_RIGHT,
+                    frase("Página " + writer.getPageNumber(), PIE),
+                    550, 30, 0);
+        }
+    };
+
+    private final CachePdf cache;
+    private final MetricasCanasta metricas;
+
+    public PdfService() {
+        this(new CachePdf());
+    }
+
+    public PdfService(CachePdf cache) {
+        this(cache, MetricasCanasta.deshabilitadas());
+    }
+
+    @Autowired
+    public PdfService(CachePdf cache, MetricasCanasta metricas) {
+        this.cache = cache;
+        this.metricas = metricas;
+    }
+
+    /**
+     * Escribe el resumen de la canasta, reutilizando el PDF ya generado
+     * para la misma versión (con la fecha de esa primera generación)
+     * @param idCanasta identificador de la canasta
+     * @param canasta instantánea de la canasta
+     * @param salida flujo donde se escribe el PDF (no se cierra)
+     * @throws IOException si falla la escritura o la construcción del documento
+     */
+    public void escribirResumen(String idCanasta, InstantaneaCanasta canasta, OutputStream salida)
+            throws IOException {
+        byte[] guardado = cache.obtener(idCanasta, canasta.version());
+        if (guardado != null) {
+            salida.write(guardado);
+            return;
+        }
+
+        CachePdf.Captura captura = cache.capturar(salida);
+        generarPdfResumen(canasta, canasta.total(), canasta.calcularPromedio(),
+                canasta.obtenerMasCostosos(3), captura);
+        byte[] pdf = captura.capturado();
+        if (pdf != null) {
+            cache.guardar(idCanasta, canasta.version(), pdf);
+        }
+    }
+
+    @Override
+    public String formato() {
+        return "pdf";
+    }
+
+    @Override
+    public String tipoContenido() {
+        return "application/pdf";
+    }
+
+    @Override
+    public String extension() {
+        return "pdf";
+    }
 
-    private final DecimalFormat formatoMoneda = new DecimalFormat("$#,##0");
+    /**
+     * Exporta el resumen en PDF; igual que {@link #escribirResumen}
+     */
+    @Override
+    public void exportar(String idCanasta, InstantaneaCanasta canasta, OutputStream salida) throws IOException {
+        escribirResumen(idCanasta, canasta, salida);
+    }
 
+    /**
+     * Genera el resumen en memoria
+     * Para canastas grandes conviene la versión que escribe en un OutputStream
+     * @return bytes del PDF, vacío si ocurre un error
+     */
     public byte[] generarPdfResumen(List<ItemCanasta> items, double total,
             double promedio, List<ItemCanasta> costosos) {
         try {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            generarPdfResumen(items, total, promedio, costosos, baos);
+            return baos.toByteArray();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new byte[0];
+        }
+    }
+
+    /**
+     * Genera el resumen escribiéndolo directamente en la salida
+     * @param salida flujo donde se escribe el PDF (no se cierra)
+     * @throws IOException si falla la escritura o la construcción del documento
+     */
+    public void generarPdfResumen(List<ItemCanasta> items, double total,
+            double promedio, List<ItemCanasta> costosos, OutputStream salida) throws IOException {
+        generarPdfResumen(items, Dinero.de(total), promedio, costosos, salida);
+    }
+
+    /**
+     * Genera el resumen escribiéndolo directamente en la salida, con el
+     * total exacto en centavos
+     * @param salida flujo donde se escribe el PDF (no se cierra)
+     * @throws IOException si falla la escritura o la construcción del documento
+     */
+    public void generarPdfResumen(List<ItemCanasta> items, Dinero total,
+            double promedio, List<ItemCanasta> costosos, OutputStream salida) throws IOException {
+        long inicio = System.nanoTime();
+        ContadorBytes contador = new ContadorBytes(salida);
+        escribirDocumento(items, total, promedio, costosos, contador);
+        metricas.registrarPdf(System.nanoTime() - inicio, contador.bytes, items.size());
+    }
+
+    private void escribirDocumento(List<ItemCanasta> items, Dinero total,
+            double promedio, List<ItemCanasta> costosos, OutputStream salida) throws IOException {
+        try {
             Document documento = new Document(PageSize.A4);
-            PdfWriter writer = PdfWriter.getInstance(documento, baos);
+            PdfWriter writer = PdfWriter.getInstance(documento, salida);
+            writer.setCloseStream(false);
 
             // Agregar encabezado y pie de página
-            writer.setPageEvent(new PdfPageEventHelper() {
-                @Override
-                public void onEndPage(PdfWriter writer, Document document) {
-                    // Pie de página
-                    ColumnText.showTextAligned(writer.getDirectContent(),
-                            Element.ALIGN_CENTER,
-                            new Phrase("Universidad de Remington - Canasta Familiar",
-                                    FontFactory.getFont(FontFactory.HELVETICA, 8, BaseColor.GRAY)),
-                            297.5f, 30, 0);
-
-                    // Número de página
-                    ColumnText.showTextAligned(writer.getDirectContent(),
-                            Element.ALIGN_RIGHT,
-                            new Phrase("Página " + writer.getPageNumber(),
-                                    FontFactory.getFont(FontFactory.HELVETICA, 8, BaseColor.GRAY)),
-                            550, 30, 0);
-                }
-            });
+            writer.setPageEvent(PIE_DE_PAGINA);
 
             documento.open();
 
             // ========== ENCABEZADO ==========
 
             // Título principal
-            Font tituloFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 24, new BaseColor(41, 128, 185));
-            Paragraph titulo = new Paragraph("🛒 CANASTA FAMILIAR", tituloFont);
+            Paragraph titulo = new Paragraph(frase("🛒 CANASTA FAMILIAR", TITULO));
             titulo.setAlignment(Element.ALIGN_CENTER);
             titulo.setSpacingAfter(10);
             documento.add(titulo);
 
             // Subtítulo
-            Font subtituloFont = FontFactory.getFont(FontFactory.HELVETICA, 16, BaseColor.DARK_GRAY);
-            Paragraph subtitulo = new Paragraph("Resumen de Compra", subtituloFont);
+            Paragraph subtitulo = new Paragraph(frase("Resumen de Compra", SUBTITULO));
             subtitulo.setAlignment(Element.ALIGN_CENTER);
             subtitulo.setSpacingAfter(20);
             documento.add(subtitulo);
 
             // Línea separadora
             LineSeparator linea = new LineSeparator();
-            linea.setLineColor(new BaseColor(41, 128, 185));
+            linea.setLineColor(AZUL);
             documento.add(new Chunk(linea));
             documento.add(new Paragraph(" "));
 
             // Fecha y hora
-            String fecha = new SimpleDateFormat("dd 'de' MMMM 'de' yyyy - HH:mm").format(new Date());
-            Font fechaFont = FontFactory.getFont(FontFactory.HELVETICA, 10, BaseColor.GRAY);
-            Paragraph fechaP = new Paragraph("Generado el: " + fecha, fechaFont);
+            String fecha = FORMATO_FECHA.format(LocalDateTime.now());
+            Paragraph fechaP = new Paragraph(frase("Generado el: " + fecha, FECHA));
             fechaP.setAlignment(Element.ALIGN_RIGHT);
             fechaP.setSpacingAfter(20);
             documento.add(fechaP);
@@ -84,32 +206,22 @@ public class PdfService {
             panelEstadisticas.setSpacingAfter(20);
 
             // Celda 1: Total
-            PdfPCell celdaTotal = crearCeldaEstadistica(
-                    "TOTAL A PAGAR",
-                    formatoMoneda.format(total),
-                    new BaseColor(46, 204, 113));
-            panelEstadisticas.addCell(celdaTotal);
+            panelEstadisticas.addCell(crearCeldaEstadistica(
+                    "TOTAL A PAGAR", moneda(total), VERDE, ESTADISTICA_TOTAL));
 
             // Celda 2: Promedio
-            PdfPCell celdaPromedio = crearCeldaEstadistica(
-                    "PROMEDIO",
-                    formatoMoneda.format(promedio),
-                    new BaseColor(52, 152, 219));
-            panelEstadisticas.addCell(celdaPromedio);
+            panelEstadisticas.addCell(crearCeldaEstadistica(
+                    "PROMEDIO", moneda(promedio), AZUL_CLARO, ESTADISTICA_PROMEDIO));
 
             // Celda 3: Cantidad
-            PdfPCell celdaCantidad = crearCeldaEstadistica(
-                    "PRODUCTOS",
-                    String.valueOf(items.size()),
-                    new BaseColor(155, 89, 182));
-            panelEstadisticas.addCell(celdaCantidad);
+            panelEstadisticas.addCell(crearCeldaEstadistica(
+                    "PRODUCTOS", String.valueOf(items.size()), MORADO, ESTADISTICA_PRODUCTOS));
 
             documento.add(panelEstadisticas);
 
             // ========== TABLA DE PRODUCTOS ==========
 
-            Font tituloSeccionFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14, new BaseColor(52, 73, 94));
-            Paragraph tituloTabla = new Paragraph("📋 DETALLE DE PRODUCTOS", tituloSeccionFont);
+            Paragraph tituloTabla = new Paragraph(frase("📋 DETALLE DE PRODUCTOS", TITULO_SECCION));
             tituloTabla.setSpacingBefore(10);
             tituloTabla.setSpacingAfter(10);
             documento.add(tituloTabla);
@@ -118,63 +230,68 @@ public class PdfService {
             tabla.setWidthPercentage(100);
             tabla.setWidths(new int[] { 1, 4, 2, 2, 2 });
             tabla.setSpacingBefore(10);
+            // Tabla incompleta: cada documento.add() escribe y libera las filas acumuladas
+            tabla.setComplete(false);
+            tabla.setHeaderRows(1);
+
+            // La celda por defecto de la tabla sirve de plantilla: addCell(Phrase)
+            // la copia, así cada celda se crea una sola vez
+            PdfPCell plantilla = tabla.getDefaultCell();
+            plantilla.setPadding(8);
+            plantilla.setBorderWidth(0);
+            plantilla.setHorizontalAlignment(Element.ALIGN_CENTER);
+            plantilla.setBackgroundColor(AZUL_OSCURO);
 
             // Encabezados de la tabla
             String[] encabezados = { "N°", "Producto", "Precio", "Cant.", "Subtotal" };
             for (String encabezado : encabezados) {
-                PdfPCell celda = new PdfPCell(new Phrase(encabezado,
-                        FontFactory.getFont(FontFactory.HELVETICA_BOLD, 11, BaseColor.WHITE)));
-                celda.setBackgroundColor(new BaseColor(52, 73, 94));
-                celda.setHorizontalAlignment(Element.ALIGN_CENTER);
-                celda.setPadding(8);
-                celda.setBorderWidth(0);
-                tabla.addCell(celda);
+                tabla.addCell(frase(encabezado, ENCABEZADO_TABLA));
             }
 
             // Datos de la tabla
+            plantilla.setPadding(6);
             int contador = 1;
-            Font datosFont = FontFactory.getFont(FontFactory.HELVETICA, 10);
             boolean colorAlternado = false;
 
             for (ItemCanasta item : items) {
-                BaseColor colorFondo = colorAlternado ? new BaseColor(236, 240, 241) : BaseColor.WHITE;
-
-                tabla.addCell(crearCeldaDatos(String.valueOf(contador++), datosFont, colorFondo, Element.ALIGN_CENTER));
-                tabla.addCell(crearCeldaDatos(item.getNombre(), datosFont, colorFondo, Element.ALIGN_LEFT));
-                tabla.addCell(crearCeldaDatos(formatoMoneda.format(item.getPrecio()), datosFont, colorFondo,
-                        Element.ALIGN_RIGHT));
-                tabla.addCell(crearCeldaDatos(String.valueOf(item.getCantidad()), datosFont, colorFondo,
-                        Element.ALIGN_CENTER));
-                tabla.addCell(crearCeldaDatos(formatoMoneda.format(item.calcularSubtotal()), datosFont, colorFondo,
-                        Element.ALIGN_RIGHT));
+                plantilla.setBackgroundColor(colorAlternado ? GRIS_FILA : BaseColor.WHITE);
+
+                plantilla.setHorizontalAlignment(Element.ALIGN_CENTER);
+                tabla.addCell(frase(String.valueOf(contador++), DATOS));
+                plantilla.setHorizontalAlignment(Element.ALIGN_LEFT);
+                tabla.addCell(frase(item.getNombre(), DATOS));
+                plantilla.setHorizontalAlignment(Element.ALIGN_RIGHT);
+                tabla.addCell(frase(moneda(item.precioUnitario()), DATOS));
+                plantilla.setHorizontalAlignment(Element.ALIGN_CENTER);
+                tabla.addCell(frase(String.valueOf(item.getCantidad()), DATOS));
+                plantilla.setHorizontalAlignment(Element.ALIGN_RIGHT);
+                tabla.addCell(frase(moneda(item.subtotal()), DATOS));
 
                 colorAlternado = !colorAlternado;
+
+                if ((contador - 1) % FILAS_POR_BLOQUE == 0) {
+                    documento.add(tabla);
+                }
             }
 
             // Fila de total
-            PdfPCell celdaTotalLabel = new PdfPCell(new Phrase("TOTAL",
-                    FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12)));
-            celdaTotalLabel.setColspan(4);
-            celdaTotalLabel.setHorizontalAlignment(Element.ALIGN_RIGHT);
-            celdaTotalLabel.setBackgroundColor(new BaseColor(52, 73, 94));
-            celdaTotalLabel.setPadding(8);
-            celdaTotalLabel.setBorderWidth(0);
-            tabla.addCell(celdaTotalLabel);
-
-            PdfPCell celdaTotalValor = new PdfPCell(new Phrase(formatoMoneda.format(total),
-                    FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, BaseColor.WHITE)));
-            celdaTotalValor.setHorizontalAlignment(Element.ALIGN_RIGHT);
-            celdaTotalValor.setBackgroundColor(new BaseColor(46, 204, 113));
-            celdaTotalValor.setPadding(8);
-            celdaTotalValor.setBorderWidth(0);
-            tabla.addCell(celdaTotalValor);
+            plantilla.setPadding(8);
+            plantilla.setHorizontalAlignment(Element.ALIGN_RIGHT);
+            plantilla.setBackgroundColor(AZUL_OSCURO);
+            plantilla.setColspan(4);
+            tabla.addCell(frase("TOTAL", TOTAL_ETIQUETA));
+
+            plantilla.setBackgroundColor(VERDE);
+            plantilla.setColspan(1);
+            tabla.addCell(frase(moneda(total), TOTAL_VALOR));
 
+            tabla.setComplete(true);
             documento.add(tabla);
 
             // ========== TOP 3 PRODUCTOS MÁS COSTOSOS ==========
 
             if (!costosos.isEmpty()) {
-                Paragraph tituloTop3 = new Paragraph("🏆 TOP 3 PRODUCTOS MÁS COSTOSOS", tituloSeccionFont);
+                Paragraph tituloTop3 = new Paragraph(frase("🏆 TOP 3 PRODUCTOS MÁS COSTOSOS", TITULO_SECCION));
                 tituloTop3.setSpacingBefore(20);
                 tituloTop3.setSpacingAfter(10);
                 documento.add(tituloTop3);
@@ -182,12 +299,11 @@ public class PdfService {
                 int posicion = 1;
                 for (ItemCanasta item : costosos) {
                     String emoji = posicion == 1 ? "🥇" : posicion == 2 ? "🥈" : "🥉";
-                    Font rankFont = FontFactory.getFont(FontFactory.HELVETICA, 11);
 
-                    Paragraph itemTop = new Paragraph(
+                    Paragraph itemTop = new Paragraph(frase(
                             emoji + " " + posicion + ". " + item.getNombre() +
-                                    " - " + formatoMoneda.format(item.getPrecio()),
-                            rankFont);
+                                    " - " + moneda(item.precioUnitario()),
+                            RANKING));
                     itemTop.setSpacingAfter(5);
                     itemTop.setIndentationLeft(20);
                     documento.add(itemTop);
@@ -200,32 +316,28 @@ public class PdfService {
             documento.add(new Paragraph(" "));
             documento.add(new Paragraph(" "));
 
-            Font notaFont = FontFactory.getFont(FontFactory.HELVETICA_OBLIQUE, 9, BaseColor.GRAY);
-            Paragraph nota = new Paragraph(
+            Paragraph nota = new Paragraph(frase(
                     "Este documento fue generado automáticamente por el sistema de Canasta Familiar. " +
                             "Los precios y cantidades reflejan la información ingresada por el usuario.",
-                    notaFont);
+                    NOTA));
             nota.setAlignment(Element.ALIGN_JUSTIFIED);
             nota.setSpacingBefore(30);
             documento.add(nota);
 
             documento.close();
-            return baos.toByteArray();
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return new byte[0];
+        } catch (DocumentException e) {
+            throw new IOException("No se pudo generar el PDF del resumen", e);
         }
     }
 
     // Método auxiliar para crear celdas de estadísticas
-    private PdfPCell crearCeldaEstadistica(String titulo, String valor, BaseColor color) throws DocumentException {
+    private PdfPCell crearCeldaEstadistica(String titulo, String valor, BaseColor color, Font fuenteValor) {
         PdfPTable miniTabla = new PdfPTable(1);
         miniTabla.setWidthPercentage(100);
 
         // Título
-        PdfPCell celdaTitulo = new PdfPCell(new Phrase(titulo,
-                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10, BaseColor.WHITE)));
+        PdfPCell celdaTitulo = new PdfPCell(frase(titulo, ESTADISTICA_TITULO));
         celdaTitulo.setBackgroundColor(color);
         celdaTitulo.setHorizontalAlignment(Element.ALIGN_CENTER);
         celdaTitulo.setPadding(8);
@@ -233,8 +345,7 @@ public class PdfService {
         miniTabla.addCell(celdaTitulo);
 
         // Valor
-        PdfPCell celdaValor = new PdfPCell(new Phrase(valor,
-                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 16, color)));
+        PdfPCell celdaValor = new PdfPCell(frase(valor, fuenteValor));
         celdaValor.setHorizontalAlignment(Element.ALIGN_CENTER);
         celdaValor.setPadding(10);
         celdaValor.setBorder(0);
@@ -248,13 +359,30 @@ public class PdfService {
         return contenedor;
     }
 
-    // Método auxiliar para crear celdas de datos
-    private PdfPCell crearCeldaDatos(String texto, Font font, BaseColor colorFondo, int alineacion) {
-        PdfPCell celda = new PdfPCell(new Phrase(texto, font));
-        celda.setBackgroundColor(colorFondo);
-        celda.setHorizontalAlignment(alineacion);
-        celda.setPadding(6);
-        celda.setBorderWidth(0);
-        return celda;
+    // Cuenta los bytes que pasan hacia la salida, sin copiarlos
+    private static final class ContadorBytes extends FilterOutputStream {
+
+        private long bytes;
+
+        ContadorBytes(OutputStream salida) {
+            super(salida);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int desde, int largo) throws IOException {
+            out.write(b, desde, largo);
+            bytes += largo;
+        }
+
+        @Override
+        public void close() {
+            // La salida es de quien llama: no se cierra
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,297 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.uniremington.canasta_familiar.metricas.MetricasCanasta;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Servicio de reportes PDF asíncronos
+ * Se encarga de:
+ * - Recibir pedidos de reporte y generarlos fuera de los hilos de Tomcat,
+ *   en un grupo de hilos propio con una cola acotada
+ * - Rechazar pedidos cuando la cola está llena (el cliente reintenta más tarde)
+ * - Guardar cada PDF terminado en un archivo temporal hasta que expira
+ * - Llevar métricas de la cola y del tiempo de generación (también en {@link MetricasCanasta})
+ * El reporte se genera sobre la instantánea tomada al recibir el pedido
+ */
+@Service
+public class ReportesService {
+
+    public static final int HILOS_POR_DEFECTO = 2;
+    public static final int COLA_POR_DEFECTO = 50;
+    public static final int MAX_REPORTES_POR_DEFECTO = 1_000;
+    public static final long RETENCION_MINUTOS_POR_DEFECTO = 10;
+
+    private final PdfService pdfService;
+    private final MetricasCanasta metricas;
+    private final ThreadPoolExecutor ejecutor;
+    private final int maxReportes;
+    private final long retencionNanos;
+    private final LongSupplier reloj;
+
+    private final ConcurrentHashMap<String, Reporte> reportes = new ConcurrentHashMap<>();
+
+    private final AtomicLong completados = new AtomicLong();
+    private final AtomicLong fallidos = new AtomicLong();
+    private final AtomicLong rechazados = new AtomicLong();
+    private final AtomicLong nanosEnCola = new AtomicLong();
+    private final AtomicLong nanosGenerando = new AtomicLong();
+    private final AtomicLong maxNanosGenerando = new AtomicLong();
+
+    /**
+     * @param pdfService generador del PDF
+     * @param metricas métricas publicadas de la cola y la generación
+     * @param hilos reportes que se generan a la vez
+     * @param cola reportes que pueden esperar turno
+     * @param maxReportes reportes guardados a la vez (pendientes y terminados)
+     * @param retencionMinutos minutos que se guarda un reporte terminado
+     */
+    @Autowired
+    public ReportesService(PdfService pdfService, MetricasCanasta metricas,
+            @Value("${canasta.reportes.hilos:2}") int hilos,
+            @Value("${canasta.reportes.cola:50}") int cola,
+            @Value("${canasta.reportes.max-reportes:1000}") int maxReportes,
+            @Value("${canasta.reportes.retencion-minutos:10}") long retencionMinutos) {
+        this(pdfService, metricas, crearEjecutor(hilos, cola), maxReportes,
+                TimeUnit.MINUTES.toNanos(retencionMinutos), System::nanoTime);
+    }
+
+    ReportesService(PdfService pdfService, MetricasCanasta metricas, ThreadPoolExecutor ejecutor, int maxReportes,
+            long retencionNanos, LongSupplier reloj) {
+        if (maxReportes <= 0 || retencionNanos <= 0) {
+            throw new IllegalArgumentException("Los límites de los reportes deben ser mayores a cero");
+        }
+        this.pdfService = pdfService;
+        this.metricas = metricas;
+        this.ejecutor = ejecutor;
+        this.maxReportes = maxReportes;
+        this.retencionNanos = retencionNanos;
+        this.reloj = reloj;
+        metricas.vigilarReportes(ejecutor);
+    }
+
+    /**
+     * Pide la generación del reporte de una canasta
+     * @param idCanasta identificador de la canasta
+     * @param canasta instantánea que se va a imprimir
+     * @return estado inicial del reporte, con su identificador
+     * @throws ColaReportesLlenaException si no hay lugar para más reportes
+     */
+    public InfoReporte solicitar(String idCanasta, InstantaneaCanasta canasta) {
+        if (reportes.size() >= maxReportes) {
+            expirarTerminados();
+            if (reportes.size() >= maxReportes) {
+                rechazados.incrementAndGet();
+                metricas.registrarReporteRechazado();
+                throw new ColaReportesLlenaException("Hay demasiados reportes guardados, intente más tarde");
+            }
+        }
+
+        Reporte reporte = new Reporte(UUID.randomUUID().toString(), idCanasta, reloj.getAsLong());
+        reportes.put(reporte.id, reporte);
+        try {
+            ejecutor.execute(() -> generar(reporte, canasta));
+        } catch (RejectedExecutionException e) {
+            reportes.remove(reporte.id);
+            rechazados.incrementAndGet();
+            metricas.registrarReporteRechazado();
+            throw new ColaReportesLlenaException("La cola de reportes está llena, intente más tarde");
+        }
+        return reporte.info();
+    }
+
+    /**
+     * Consulta el estado de un reporte
+     * @param idCanasta canasta que pidió el reporte
+     * @param idReporte identificador devuelto por {@link #solicitar}
+     * @return estado del reporte, o null si no existe o es de otra canasta
+     */
+    public InfoReporte consultar(String idCanasta, String idReporte) {
+        Reporte reporte = buscar(idCanasta, idReporte);
+        return reporte == null ? null : reporte.info();
+    }
+
+    /**
+     * Abre el PDF de un reporte terminado
+     * Se abre antes de empezar la respuesta: si el reporte expira después,
+     * el archivo abierto se sigue pudiendo leer aunque ya se haya borrado
+     * @param idCanasta canasta que pidió el reporte
+     * @param idReporte identificador del reporte
+     * @return flujo del PDF (lo cierra quien lo recibe), o null si el
+     *         reporte no existe, aún no está listo o ya expiró
+     * @throws IOException si falla la apertura del archivo
+     */
+    public InputStream abrirPdf(String idCanasta, String idReporte) throws IOException {
+        Reporte reporte = buscar(idCanasta, idReporte);
+        if (reporte == null || reporte.estado != EstadoReporte.LISTO) {
+            return null;
+        }
+        try {
+            return Files.newInputStream(reporte.archivo);
+        } catch (NoSuchFileException e) {
+            // Expiró entre la búsqueda y la apertura
+            return null;
+        }
+    }
+
+    /**
+     * Elimina los reportes terminados que superaron el tiempo de retención
+     */
+    @Scheduled(fixedDelayString = "${canasta.reportes.barrido-ms:60000}")
+    public void expirarTerminados() {
+        long limite = reloj.getAsLong() - retencionNanos;
+        for (Reporte reporte : reportes.values()) {
+            if (reporte.terminado() && reporte.fin - limite < 0 && reportes.remove(reporte.id, reporte)) {
+                borrarArchivo(reporte);
+            }
+        }
+    }
+
+    /**
+     * Obtiene las métricas de los reportes
+     * @return profundidad de la cola, reportes en curso y tiempos promedio
+     */
+    public EstadisticasReportes estadisticas() {
+        long terminados = completados.get() + fallidos.get();
+        return new EstadisticasReportes(
+                ejecutor.getQueue().size(),
+                ejecutor.getActiveCount(),
+                reportes.size(),
+                completados.get(),
+                fallidos.get(),
+                rechazados.get(),
+                terminados == 0 ? 0 : nanosEnCola.get() / terminados / 1_000_000.0,
+                terminados == 0 ? 0 : nanosGenerando.get() / terminados / 1_000_000.0,
+                maxNanosGenerando.get() / 1_000_000.0);
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        ejecutor.shutdownNow();
+        for (Reporte reporte : reportes.values()) {
+            borrarArchivo(reporte);
+        }
+        reportes.clear();
+    }
+
+    private void generar(Reporte reporte, InstantaneaCanasta canasta) {
+        long inicio = reloj.getAsLong();
+        reporte.nanosEnCola = inicio - reporte.creado;
+        nanosEnCola.addAndGet(reporte.nanosEnCola);
+        reporte.estado = EstadoReporte.GENERANDO;
+        try {
+            Path archivo = Files.createTempFile("reporte-canasta-", ".pdf");
+            reporte.archivo = archivo;
+            try (OutputStream salida = new BufferedOutputStream(Files.newOutputStream(archivo))) {
+                pdfService.escribirResumen(reporte.idCanasta, canasta, salida);
+            }
+            reporte.bytes = Files.size(archivo);
+            terminar(reporte, EstadoReporte.LISTO, null, inicio);
+            completados.incrementAndGet();
+        } catch (IOException | RuntimeException e) {
+            borrarArchivo(reporte);
+            terminar(reporte, EstadoReporte.FALLIDO, "No se pudo generar el reporte", inicio);
+            fallidos.incrementAndGet();
+        }
+    }
+
+    private void terminar(Reporte reporte, EstadoReporte estado, String error, long inicio) {
+        long fin = reloj.getAsLong();
+        long duracion = fin - inicio;
+        nanosGenerando.addAndGet(duracion);
+        maxNanosGenerando.accumulateAndGet(duracion, Math::max);
+        reporte.duracionNanos = duracion;
+        reporte.error = error;
+        reporte.fin = fin;
+        metricas.registrarReporte(reporte.nanosEnCola, duracion, estado == EstadoReporte.LISTO);
+        // El estado se publica al final: quien lo ve LISTO ve también el archivo
+        reporte.estado = estado;
+    }
+
+    private Reporte buscar(String idCanasta, String idReporte) {
+        Reporte reporte = reportes.get(idReporte);
+        return reporte == null || !reporte.idCanasta.equals(idCanasta) ? null : reporte;
+    }
+
+    private static void borrarArchivo(Reporte reporte) {
+        if (reporte.archivo != null) {
+            try {
+                Files.deleteIfExists(reporte.archivo);
+            } catch (IOException e) {
+                // Se intentará de nuevo al salir de la JVM
+                reporte.archivo.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor crearEjecutor(int hilos, int cola) {
+        if (hilos <= 0 || cola <= 0) {
+            throw new IllegalArgumentException("Los hilos y la cola de reportes deben ser mayores a cero");
+        }
+        AtomicInteger numero = new AtomicInteger();
+        // AbortPolicy (por defecto): con la cola llena execute() lanza RejectedExecutionException
+        return new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(cola),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "reporte-pdf-" + numero.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+    }
+
+    /**
+     * Reporte pedido; lo escribe un solo hilo de generación y lo leen las consultas
+     */
+    private static final class Reporte {
+
+        private final String id;
+        private final String idCanasta;
+        private final long creado;
+        private volatile EstadoReporte estado = EstadoReporte.EN_COLA;
+        private volatile Path archivo;
+        private volatile long bytes;
+        private volatile long nanosEnCola;
+        private volatile long duracionNanos;
+        private volatile long fin;
+        private volatile String error;
+
+        private Reporte(String id, String idCanasta, long creado) {
+            this.id = id;
+            this.idCanasta = idCanasta;
+            this.creado = creado;
+        }
+
+        boolean terminado() {
+            return estado == EstadoReporte.LISTO || estado == EstadoReporte.FALLIDO;
+        }
+
+        InfoReporte info() {
+            EstadoReporte actual = estado;
+            boolean terminado = actual == EstadoReporte.LISTO || actual == EstadoReporte.FALLIDO;
+            return new InfoReporte(id, actual,
+                    actual == EstadoReporte.LISTO ? bytes : 0,
+                    terminado ? duracionNanos / 1_000_000 : 0,
+                    actual == EstadoReporte.FALLIDO ? error : null);
+        }
+    }
+}
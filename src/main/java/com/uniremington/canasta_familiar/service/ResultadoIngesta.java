@@ -0,0 +1,24 @@
+package com.uniremington.canasta_familiar.service;
+
+import java.util.List;
+
+/**
+ * Resultado de una carga masiva de items
+ * Solo se detallan las líneas rechazadas (hasta un máximo), para que
+ * la respuesta no crezca con el tamaño de la carga
+ * @param aceptados items agregados a la canasta
+ * @param rechazados items que no se agregaron
+ * @param errores detalle de las primeras líneas rechazadas
+ * @param erroresOmitidos true si hubo más rechazos que los detallados
+ */
+public record ResultadoIngesta(long aceptados, long rechazados, List<ErrorLinea> errores,
+        boolean erroresOmitidos) {
+
+    /**
+     * Línea rechazada de la carga
+     * @param linea número de línea (CSV) o posición en el arreglo (JSON), desde 1
+     * @param mensaje motivo del rechazo
+     */
+    public record ErrorLinea(long linea, String mensaje) {
+    }
+}
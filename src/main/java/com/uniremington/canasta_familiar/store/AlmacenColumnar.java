@@ -0,0 +1,146 @@
+package com.uniremington.canasta_familiar.store;
+
+import com.uniremington.canasta_familiar.model.Dinero;
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Almacén en columnas: precios (en centavos), cantidades y nombres en
+ * arreglos primitivos paralelos, en bloques que duplican su tamaño
+ * Cada nombre distinto se guarda una sola vez en un diccionario y las
+ * líneas guardan su número, así una línea ocupa 16 bytes en lugar de un
+ * objeto ItemCanasta más su referencia. Leer un item completo crea un
+ * ItemCanasta nuevo; precio, cantidad y nombre se leen sin crear objetos
+ * Conviene cuando la canasta tiene muchas líneas con nombres repetidos
+ */
+final class AlmacenColumnar implements AlmacenItems {
+
+    private static final VarHandle NOMBRE = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final AtomicReferenceArray<Columnas> bloques = new AtomicReferenceArray<>(Bloques.NUMERO_BLOQUES);
+
+    private final Diccionario diccionario = new Diccionario();
+
+    @Override
+    public void escribir(int indice, ItemCanasta item) {
+        int bloque = Bloques.bloqueDe(indice);
+        int posicion = indice - Bloques.inicioDe(bloque);
+        Columnas columnas = bloqueEscritura(bloque);
+        columnas.precios[posicion] = item.precioEnCentavos();
+        columnas.cantidades[posicion] = item.getCantidad();
+        // El nombre se escribe al final y con release: marca la posición como escrita
+        NOMBRE.setRelease(columnas.nombres, posicion, diccionario.numero(item.getNombre()) + 1);
+    }
+
+    @Override
+    public boolean escrito(int indice) {
+        int bloque = Bloques.bloqueDe(indice);
+        Columnas columnas = bloques.get(bloque);
+        return columnas != null && (int) NOMBRE.getAcquire(columnas.nombres, indice - Bloques.inicioDe(bloque)) != 0;
+    }
+
+    @Override
+    public ItemCanasta leer(int indice) {
+        return new ItemCanasta(nombre(indice), Dinero.deCentavos(precioCentavos(indice)), cantidad(indice));
+    }
+
+    @Override
+    public long precioCentavos(int indice) {
+        int bloque = Bloques.bloqueDe(indice);
+        return bloques.get(bloque).precios[indice - Bloques.inicioDe(bloque)];
+    }
+
+    @Override
+    public int cantidad(int indice) {
+        int bloque = Bloques.bloqueDe(indice);
+        return bloques.get(bloque).cantidades[indice - Bloques.inicioDe(bloque)];
+    }
+
+    @Override
+    public String nombre(int indice) {
+        int bloque = Bloques.bloqueDe(indice);
+        return diccionario.nombre(bloques.get(bloque).nombres[indice - Bloques.inicioDe(bloque)] - 1);
+    }
+
+    @Override
+    public void copiarColumnas(int desde, int hasta, long[] precios, int[] cantidades) {
+        int destino = 0;
+        while (desde < hasta) {
+            int bloque = Bloques.bloqueDe(desde);
+            int inicio = Bloques.inicioDe(bloque);
+            int fin = Math.min(hasta, inicio + Bloques.tamanoDe(bloque));
+            Columnas columnas = bloques.get(bloque);
+            System.arraycopy(columnas.precios, desde - inicio, precios, destino, fin - desde);
+            System.arraycopy(columnas.cantidades, desde - inicio, cantidades, destino, fin - desde);
+            destino += fin - desde;
+            desde = fin;
+        }
+    }
+
+    private Columnas bloqueEscritura(int bloque) {
+        Columnas columnas = bloques.get(bloque);
+        if (columnas == null) {
+            columnas = new Columnas(Bloques.tamanoDe(bloque));
+            if (!bloques.compareAndSet(bloque, null, columnas)) {
+                columnas = bloques.get(bloque);
+            }
+        }
+        return columnas;
+    }
+
+    /**
+     * Un bloque de posiciones; nombres guarda el número del nombre + 1
+     * (0 indica una posición todavía sin escribir)
+     */
+    private static final class Columnas {
+
+        final long[] precios;
+        final int[] cantidades;
+        final int[] nombres;
+
+        Columnas(int tamano) {
+            precios = new long[tamano];
+            cantidades = new int[tamano];
+            nombres = new int[tamano];
+        }
+    }
+
+    /**
+     * Nombres distintos de la generación, numerados en orden de aparición
+     */
+    private static final class Diccionario {
+
+        private final ConcurrentHashMap<String, Integer> numeros = new ConcurrentHashMap<>();
+        private final AtomicReferenceArray<String[]> nombres = new AtomicReferenceArray<>(Bloques.NUMERO_BLOQUES);
+        private final AtomicInteger siguiente = new AtomicInteger();
+
+        int numero(String nombre) {
+            Integer numero = numeros.get(nombre);
+            if (numero != null) {
+                return numero;
+            }
+            // El nombre queda en la tabla antes de que alguien reciba su número
+            return numeros.computeIfAbsent(nombre, nuevo -> {
+                int asignado = siguiente.getAndIncrement();
+                int bloque = Bloques.bloqueDe(asignado);
+                String[] tabla = nombres.get(bloque);
+                if (tabla == null) {
+                    nombres.compareAndSet(bloque, null, new String[Bloques.tamanoDe(bloque)]);
+                    tabla = nombres.get(bloque);
+                }
+                tabla[asignado - Bloques.inicioDe(bloque)] = nuevo;
+                return asignado;
+            });
+        }
+
+        String nombre(int numero) {
+            int bloque = Bloques.bloqueDe(numero);
+            return nombres.get(bloque)[numero - Bloques.inicioDe(bloque)];
+        }
+    }
+}
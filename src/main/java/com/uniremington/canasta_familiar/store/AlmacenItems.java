@@ -0,0 +1,50 @@
+package com.uniremington.canasta_familiar.store;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+
+/**
+ * Almacenamiento de los items de una generación de la canasta
+ * CanastaStore reserva las posiciones y decide cuándo se publican; el
+ * almacén solo guarda los datos de cada posición
+ * Cada posición la escribe un único hilo, una sola vez. Después de ver
+ * {@link #escrito} en true, las lecturas de esa posición ven el item completo
+ */
+interface AlmacenItems {
+
+    /**
+     * Guarda el item en una posición reservada
+     * @param indice posición reservada por el escritor
+     * @param item item ya validado
+     */
+    void escribir(int indice, ItemCanasta item);
+
+    /**
+     * Indica si la posición ya fue escrita (puede ser una aún no publicada)
+     * @param indice posición
+     * @return true si la posición tiene un item
+     */
+    boolean escrito(int indice);
+
+    /**
+     * Obtiene el item de una posición escrita
+     * @param indice posición
+     * @return item de esa posición
+     */
+    ItemCanasta leer(int indice);
+
+    long precioCentavos(int indice);
+
+    int cantidad(int indice);
+
+    String nombre(int indice);
+
+    /**
+     * Copia precios (en centavos) y cantidades de un rango de posiciones
+     * escritas; permite recorrer la canasta con ciclos sobre arreglos primitivos
+     * @param desde primera posición (incluida)
+     * @param hasta última posición (excluida)
+     * @param precios destino de los precios en centavos, desde su posición 0
+     * @param cantidades destino de las cantidades, desde su posición 0
+     */
+    void copiarColumnas(int desde, int hasta, long[] precios, int[] cantidades);
+}
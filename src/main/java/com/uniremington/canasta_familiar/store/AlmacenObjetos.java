@@ -0,0 +1,80 @@
+package com.uniremington.canasta_familiar.store;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Almacén que guarda cada item como objeto, en bloques de referencias
+ * Es el almacén por defecto: leer un item no crea objetos
+ */
+final class AlmacenObjetos implements AlmacenItems {
+
+    private static final VarHandle CELDA = MethodHandles.arrayElementVarHandle(ItemCanasta[].class);
+
+    private final AtomicReferenceArray<ItemCanasta[]> bloques = new AtomicReferenceArray<>(Bloques.NUMERO_BLOQUES);
+
+    @Override
+    public void escribir(int indice, ItemCanasta item) {
+        int bloque = Bloques.bloqueDe(indice);
+        CELDA.setRelease(bloqueEscritura(bloque), indice - Bloques.inicioDe(bloque), item);
+    }
+
+    @Override
+    public boolean escrito(int indice) {
+        int bloque = Bloques.bloqueDe(indice);
+        ItemCanasta[] items = bloques.get(bloque);
+        return items != null && CELDA.getAcquire(items, indice - Bloques.inicioDe(bloque)) != null;
+    }
+
+    @Override
+    public ItemCanasta leer(int indice) {
+        int bloque = Bloques.bloqueDe(indice);
+        return bloques.get(bloque)[indice - Bloques.inicioDe(bloque)];
+    }
+
+    @Override
+    public long precioCentavos(int indice) {
+        return leer(indice).precioEnCentavos();
+    }
+
+    @Override
+    public int cantidad(int indice) {
+        return leer(indice).getCantidad();
+    }
+
+    @Override
+    public String nombre(int indice) {
+        return leer(indice).getNombre();
+    }
+
+    @Override
+    public void copiarColumnas(int desde, int hasta, long[] precios, int[] cantidades) {
+        int destino = 0;
+        while (desde < hasta) {
+            int bloque = Bloques.bloqueDe(desde);
+            int inicio = Bloques.inicioDe(bloque);
+            int fin = Math.min(hasta, inicio + Bloques.tamanoDe(bloque));
+            ItemCanasta[] items = bloques.get(bloque);
+            for (int i = desde - inicio; i < fin - inicio; i++, destino++) {
+                ItemCanasta item = items[i];
+                precios[destino] = item.precioEnCentavos();
+                cantidades[destino] = item.getCantidad();
+            }
+            desde = fin;
+        }
+    }
+
+    private ItemCanasta[] bloqueEscritura(int bloque) {
+        ItemCanasta[] items = bloques.get(bloque);
+        if (items == null) {
+            items = new ItemCanasta[Bloques.tamanoDe(bloque)];
+            if (!bloques.compareAndSet(bloque, null, items)) {
+                items = bloques.get(bloque);
+            }
+        }
+        return items;
+    }
+}
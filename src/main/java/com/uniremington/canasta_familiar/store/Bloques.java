@@ -0,0 +1,27 @@
+package com.uniremington.canasta_familiar.store;
+
+/**
+ * Cálculo de bloques de los almacenes de items
+ * Los bloques duplican su tamaño (16, 32, 64, ...), así que una canasta
+ * pequeña ocupa poca memoria y una grande no copia datos al crecer
+ */
+final class Bloques {
+
+    static final int BITS_BLOQUE_INICIAL = 4;
+    static final int NUMERO_BLOQUES = 27;
+
+    private Bloques() {
+    }
+
+    static int bloqueDe(int indice) {
+        return 31 - Integer.numberOfLeadingZeros((indice >>> BITS_BLOQUE_INICIAL) + 1);
+    }
+
+    static int inicioDe(int bloque) {
+        return ((1 << bloque) - 1) << BITS_BLOQUE_INICIAL;
+    }
+
+    static int tamanoDe(int bloque) {
+        return 1 << (bloque + BITS_BLOQUE_INICIAL);
+    }
+}
@@ -0,0 +1,594 @@
+package com.uniremington.canasta_familiar.store;
+
+import com.uniremington.canasta_familiar.model.Dinero;
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Almacenamiento concurrente de los items de una canasta
+ * Se encarga de:
+ * - Guardar los items en un registro de solo-anexar dividido en bloques,
+ *   como objetos o en columnas primitivas (TipoAlmacen)
+ * - Permitir que muchos hilos agreguen a la vez sin un candado global:
+ *   cada escritor reserva su posición con una operación atómica
+ * - Publicar las posiciones en orden, para que los lectores vean siempre
+ *   un prefijo consistente de la canasta (instantánea) sin copiarla
+ * - Mantener los agregados (total, suma de precios, cantidad) al publicar,
+ *   de modo que consultarlos no recorre los items
+ * - Mantener un ranking acotado de los items más costosos al publicar
+ * - Mantener un índice por nombre de producto (sin tildes ni mayúsculas)
+ *   con la cantidad y el subtotal acumulados, consultable en O(1)
+ * - Mantener los nombres ordenados para buscar productos por prefijo
+ * - Limpiar la canasta sellando la generación actual y reemplazándola
+ * - Si un escritor falla después de reservar, abandonar su posición y
+ *   reemplazar la generación por una con el prefijo publicado, así los
+ *   escritores que reservaron después repiten su escritura en vez de esperar
+ * - Numerar cada estado publicado con una versión creciente, que sirve
+ *   para saber si la canasta cambió sin compararla
+ */
+public class CanastaStore {
+
+    // Tamaño del ranking de más costosos cuando no se indica otro
+    public static final int CAPACIDAD_RANKING_POR_DEFECTO = 100;
+
+    // Identifica este arranque del proceso: las versiones se numeran de nuevo
+    // en cada arranque, así que lo que sale del proceso (ETag, cursores) las
+    // acompaña de este valor para no confundirse con las de un arranque anterior
+    static final String ARRANQUE = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+
+    // Cantidad máxima de items que guarda el ranking de más costosos
+    private final int capacidadRanking;
+
+    // Forma de guardar los items de cada generación
+    private final TipoAlmacen tipoAlmacen;
+
+    // Generación vigente; limpiar() la reemplaza por una vacía
+    private final AtomicReference<Generacion> actual;
+
+    public CanastaStore() {
+        this(CAPACIDAD_RANKING_POR_DEFECTO);
+    }
+
+    /**
+     * @param capacidadRanking cuántos items más costosos se mantienen indexados
+     */
+    public CanastaStore(int capacidadRanking) {
+        this(capacidadRanking, TipoAlmacen.OBJETOS);
+    }
+
+    /**
+     * @param capacidadRanking cuántos items más costosos se mantienen indexados
+     * @param tipoAlmacen forma de guardar los items
+     */
+    public CanastaStore(int capacidadRanking, TipoAlmacen tipoAlmacen) {
+        if (capacidadRanking <= 0) {
+            throw new IllegalArgumentException("La capacidad del ranking debe ser mayor a cero");
+        }
+        this.capacidadRanking = capacidadRanking;
+        this.tipoAlmacen = tipoAlmacen;
+        this.actual = new AtomicReference<>(new Generacion(capacidadRanking, tipoAlmacen.crear()));
+    }
+
+    /**
+     * Agrega un item al final de la canasta
+     * @param item el item a agregar (ya validado)
+     */
+    public void agregar(ItemCanasta item) {
+        while (true) {
+            Generacion generacion = actual.get();
+            int indice = generacion.reservar(1);
+            if (indice < 0) {
+                // La generación fue sellada por limpiar() o quedó incompleta: reintentar en la nueva
+                reemplazarSiIncompleta(generacion);
+                continue;
+            }
+            boolean escrito = false;
+            try {
+                generacion.escribir(indice, item);
+                escrito = true;
+            } finally {
+                if (!escrito) {
+                    // Sin esto, los escritores reservados después esperarían para siempre su turno
+                    generacion.abandonar(indice);
+                }
+            }
+            if (generacion.publicar(indice)) {
+                return;
+            }
+            // Quedó detrás de una posición abandonada: el item se agrega de nuevo
+        }
+    }
+
+    /**
+     * Agrega un lote de items en posiciones consecutivas
+     * Reserva todas las posiciones con una sola operación atómica
+     * @param lote items a agregar (ya validados)
+     */
+    public void agregarTodos(List<ItemCanasta> lote) {
+        if (lote.isEmpty()) {
+            return;
+        }
+        while (true) {
+            Generacion generacion = actual.get();
+            int inicio = generacion.reservar(lote.size());
+            if (inicio < 0) {
+                reemplazarSiIncompleta(generacion);
+                continue;
+            }
+            // Desde el final hacia el inicio: la primera posición se escribe al
+            // último, así ninguna parte del lote se publica si la escritura falla
+            boolean escrito = false;
+            try {
+                for (int i = lote.size() - 1; i >= 0; i--) {
+                    generacion.escribir(inicio + i, lote.get(i));
+                }
+                escrito = true;
+            } finally {
+                if (!escrito) {
+                    generacion.abandonar(inicio);
+                }
+            }
+            if (generacion.publicar(inicio + lote.size() - 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reemplaza una generación con posiciones abandonadas por una nueva con
+     * su prefijo publicado; lo hace el primer escritor que la encuentra
+     * sellada (mientras tanto los lectores siguen viendo ese prefijo)
+     * Las escrituras que quedaron después de la posición abandonada se
+     * descartan y sus escritores las repiten en la nueva generación
+     */
+    private void reemplazarSiIncompleta(Generacion generacion) {
+        if (!generacion.incompleta() || actual.get() != generacion) {
+            return;
+        }
+        int cantidad = generacion.esperarPrefijo();
+        Generacion nueva = new Generacion(capacidadRanking, tipoAlmacen.crear());
+        if (cantidad > 0) {
+            nueva.reservar(cantidad);
+            for (int i = 0; i < cantidad; i++) {
+                nueva.escribir(i, generacion.leer(i));
+            }
+            nueva.publicar(cantidad - 1);
+        }
+        actual.compareAndSet(generacion, nueva);
+    }
+
+    /**
+     * Obtiene una vista inmutable de los items publicados hasta este momento
+     * @return instantánea consistente de la canasta
+     */
+    public InstantaneaCanasta instantanea() {
+        Generacion generacion = actual.get();
+        return new InstantaneaCanasta(generacion, generacion.estado());
+    }
+
+    /**
+     * Elimina todos los items de la canasta
+     * Las escrituras que ya reservaron posición en la generación anterior
+     * quedan ordenadas antes de la limpieza
+     * @return cantidad de items publicados al momento de limpiar
+     */
+    public int limpiar() {
+        Generacion anterior = actual.getAndSet(new Generacion(capacidadRanking, tipoAlmacen.crear()));
+        anterior.sellar();
+        return anterior.estado().cantidad;
+    }
+
+    /**
+     * Obtiene la cantidad de items publicados
+     * @return número de items
+     */
+    public int tamano() {
+        return actual.get().estado().cantidad;
+    }
+
+    /**
+     * Obtiene los totales de un producto, sumando todas sus líneas
+     * Refleja los items publicados hasta el momento de la consulta
+     * @param nombre nombre del producto (sin importar tildes ni mayúsculas)
+     * @return totales del producto, o null si no está en la canasta
+     */
+    public TotalesProducto totalesProducto(String nombre) {
+        Acumulado acumulado = actual.get().productos.get(NombreProducto.normalizar(nombre));
+        return acumulado == null ? null : acumulado.totales();
+    }
+
+    /**
+     * Obtiene los totales de todos los productos de la canasta
+     * @return totales por producto, ordenados por nombre normalizado
+     */
+    public List<TotalesProducto> totalesProductos() {
+        Generacion generacion = actual.get();
+        List<TotalesProducto> totales = new ArrayList<>(generacion.productos.size());
+        for (String clave : generacion.nombres) {
+            totales.add(generacion.productos.get(clave).totales());
+        }
+        return totales;
+    }
+
+    /**
+     * Busca productos cuyo nombre, o alguna palabra del nombre, empieza con
+     * el texto indicado (sin importar tildes ni mayúsculas)
+     * Primero van los nombres que empiezan con el texto (el nombre exacto
+     * antes que los más largos) y después los que lo tienen en otra palabra;
+     * dentro de cada grupo, en orden alfabético
+     * El costo es O(log n + limite): se recorren solo los rangos ordenados
+     * que coinciden, sin mirar el resto de la canasta
+     * @param texto comienzo del nombre o de una palabra
+     * @param limite cantidad máxima de resultados
+     * @return totales de los productos encontrados
+     */
+    public List<TotalesProducto> buscarProductos(String texto, int limite) {
+        String prefijo = NombreProducto.normalizar(texto);
+        List<TotalesProducto> encontrados = new ArrayList<>(Math.min(limite, 16));
+        if (prefijo.isEmpty()) {
+            return encontrados;
+        }
+
+        Generacion generacion = actual.get();
+        String finRango = prefijo + Character.MAX_VALUE;
+        Set<String> claves = new HashSet<>();
+        for (String clave : generacion.nombres.subSet(prefijo, finRango)) {
+            if (encontrados.size() == limite) {
+                return encontrados;
+            }
+            claves.add(clave);
+            encontrados.add(generacion.productos.get(clave).totales());
+        }
+        for (String sufijo : generacion.sufijos.subSet(prefijo, finRango)) {
+            if (encontrados.size() == limite) {
+                break;
+            }
+            String clave = sufijo.substring(sufijo.indexOf(Generacion.SEPARADOR_SUFIJO) + 1);
+            if (claves.add(clave)) {
+                encontrados.add(generacion.productos.get(clave).totales());
+            }
+        }
+        return encontrados;
+    }
+
+    /**
+     * Obtiene la versión del estado publicado
+     * @return versión actual, ver {@link InstantaneaCanasta#version()}
+     */
+    public long version() {
+        Generacion generacion = actual.get();
+        return generacion.version(generacion.estado());
+    }
+
+    /**
+     * Agregados de un prefijo publicado de la canasta
+     * Los montos se suman en centavos (punto fijo), así el valor mantenido
+     * coincide exactamente con recalcularlo sobre todos los items
+     * Si una suma desborda, el estado queda marcado como desbordado (hasta
+     * limpiar) en lugar de lanzar la excepción en el hilo que publica
+     * El ranking guarda los items más costosos de mayor a menor precio;
+     * ante precios iguales conserva el orden de inserción
+     */
+    static final class Estado {
+
+        static final Estado VACIO = new Estado(0, 0, 0, false, new ItemCanasta[0]);
+
+        final int cantidad;
+        final long totalCentavos;
+        final long sumaPreciosCentavos;
+        final boolean desbordado;
+        final ItemCanasta[] masCostosos;
+
+        private Estado(int cantidad, long totalCentavos, long sumaPreciosCentavos, boolean desbordado,
+                ItemCanasta[] masCostosos) {
+            this.cantidad = cantidad;
+            this.totalCentavos = totalCentavos;
+            this.sumaPreciosCentavos = sumaPreciosCentavos;
+            this.desbordado = desbordado;
+            this.masCostosos = masCostosos;
+        }
+
+        /**
+         * Calcula el estado que resulta de publicar las posiciones ya escritas
+         * a continuación de este prefijo (un solo objeto por tanda publicada)
+         */
+        Estado avanzar(Generacion generacion) {
+            int nuevaCantidad = cantidad;
+            long nuevoTotal = totalCentavos;
+            long nuevaSumaPrecios = sumaPreciosCentavos;
+            boolean nuevoDesbordado = desbordado;
+            ItemCanasta[] nuevoRanking = masCostosos;
+
+            AlmacenItems items = generacion.items;
+            int limite = generacion.abandonada();
+            while (nuevaCantidad < limite && items.escrito(nuevaCantidad)) {
+                long precio = items.precioCentavos(nuevaCantidad);
+                int cantidadItem = items.cantidad(nuevaCantidad);
+                // El subtotal de cada item ya se validó; solo las sumas pueden desbordar
+                long subtotal = precio * cantidadItem;
+                if (!nuevoDesbordado) {
+                    try {
+                        nuevoTotal = Math.addExact(nuevoTotal, subtotal);
+                        nuevaSumaPrecios = Math.addExact(nuevaSumaPrecios, precio);
+                    } catch (ArithmeticException e) {
+                        nuevoDesbordado = true;
+                    }
+                }
+                generacion.acumularProducto(items.nombre(nuevaCantidad), cantidadItem, subtotal);
+                nuevoRanking = rankingCon(nuevoRanking, items, nuevaCantidad, precio,
+                        generacion.capacidadRanking());
+                nuevaCantidad++;
+            }
+
+            if (nuevaCantidad == cantidad) {
+                return this;
+            }
+            return new Estado(nuevaCantidad, nuevoTotal, nuevaSumaPrecios, nuevoDesbordado, nuevoRanking);
+        }
+
+        /**
+         * Inserta el item de la posición en el ranking si le corresponde un lugar
+         * Si no entra, se reutiliza el mismo arreglo (sin copiar ni leer el item)
+         */
+        private static ItemCanasta[] rankingCon(ItemCanasta[] masCostosos, AlmacenItems items, int indice,
+                long precio, int capacidad) {
+            int tamano = masCostosos.length;
+            if (tamano == capacidad && precio <= masCostosos[tamano - 1].precioEnCentavos()) {
+                return masCostosos;
+            }
+
+            // Primera posición con precio estrictamente menor (búsqueda binaria)
+            int bajo = 0;
+            int alto = tamano;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (masCostosos[medio].precioEnCentavos() >= precio) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+
+            ItemCanasta[] nuevo = Arrays.copyOf(masCostosos, Math.min(tamano + 1, capacidad));
+            System.arraycopy(masCostosos, bajo, nuevo, bajo + 1, nuevo.length - bajo - 1);
+            nuevo[bajo] = items.leer(indice);
+            return nuevo;
+        }
+
+        static long aCentavos(double monto) {
+            return Dinero.de(monto).centavos();
+        }
+    }
+
+    /**
+     * Totales de un producto en una generación; inmutable, el publicador
+     * lo reemplaza en el índice con cada línea nueva del producto
+     */
+    private static final class Acumulado {
+
+        final String nombre;
+        final long cantidad;
+        final long subtotalCentavos;
+        final int lineas;
+
+        Acumulado(String nombre, long cantidad, long subtotalCentavos, int lineas) {
+            this.nombre = nombre;
+            this.cantidad = cantidad;
+            this.subtotalCentavos = subtotalCentavos;
+            this.lineas = lineas;
+        }
+
+        TotalesProducto totales() {
+            return new TotalesProducto(nombre, cantidad, subtotalCentavos / 100.0, lineas);
+        }
+    }
+
+    /**
+     * Registro de solo-anexar de una generación de la canasta
+     * Los datos de cada posición los guarda el almacén (AlmacenItems); la
+     * generación reserva las posiciones y publica el estado
+     */
+    static final class Generacion {
+
+        private static final int CAPACIDAD_MAXIMA = 1 << 30;
+        private static final int SELLO = Integer.MIN_VALUE;
+        // Bits bajos de la versión que guardan la cantidad publicada
+        static final int BITS_CANTIDAD_VERSION = 31;
+        // Separa el sufijo del nombre completo; ordena antes que cualquier letra
+        static final char SEPARADOR_SUFIJO = '\u0000';
+
+        // Numeración global de generaciones: una canasta expulsada y creada de
+        // nuevo con el mismo identificador no repite versiones (dentro de un
+        // mismo arranque, ver ARRANQUE)
+        private static final AtomicLong SECUENCIA = new AtomicLong();
+
+        private final AlmacenItems items;
+
+        private final int capacidadRanking;
+
+        private final long numero = SECUENCIA.incrementAndGet();
+
+        // Posiciones entregadas a escritores (el bit de signo marca la generación sellada)
+        private final AtomicInteger reservados = new AtomicInteger();
+
+        // Prefijo ya escrito y visible para los lectores, con sus agregados
+        private volatile Estado estado = Estado.VACIO;
+
+        // Turno para publicar: solo un hilo a la vez avanza el estado
+        private final AtomicBoolean publicando = new AtomicBoolean();
+
+        // Primera posición abandonada por un escritor que falló (MAX_VALUE si
+        // ninguna): no se publica nada desde ahí
+        private final AtomicInteger abandonada = new AtomicInteger(Integer.MAX_VALUE);
+
+        // Totales por nombre normalizado; lo escribe solo el hilo que tiene el
+        // turno de publicar (sin carreras entre escritores) y se lee sin candado
+        private final ConcurrentHashMap<String, Acumulado> productos = new ConcurrentHashMap<>();
+
+        // Nombres normalizados en orden, para buscar por prefijo del nombre
+        private final ConcurrentSkipListSet<String> nombres = new ConcurrentSkipListSet<>();
+
+        // Por cada palabra después de la primera, el resto del nombre desde esa
+        // palabra, SEPARADOR_SUFIJO y el nombre normalizado: la entrada
+        // "blanco" + SEPARADOR_SUFIJO + "arroz blanco" encuentra "Arroz blanco"
+        // al escribir "bla"
+        private final ConcurrentSkipListSet<String> sufijos = new ConcurrentSkipListSet<>();
+
+        Generacion(int capacidadRanking, AlmacenItems items) {
+            this.capacidadRanking = capacidadRanking;
+            this.items = items;
+        }
+
+        /**
+         * Reserva posiciones consecutivas para escribir
+         * @param cantidad número de posiciones
+         * @return primera posición reservada, o -1 si la generación está sellada
+         */
+        int reservar(int cantidad) {
+            while (true) {
+                int actuales = reservados.get();
+                if ((actuales & SELLO) != 0) {
+                    return -1;
+                }
+                if (actuales > CAPACIDAD_MAXIMA - cantidad) {
+                    throw new IllegalStateException("La canasta alcanzó su capacidad máxima");
+                }
+                if (reservados.compareAndSet(actuales, actuales + cantidad)) {
+                    return actuales;
+                }
+            }
+        }
+
+        void sellar() {
+            reservados.getAndUpdate(actuales -> actuales | SELLO);
+        }
+
+        void escribir(int indice, ItemCanasta item) {
+            items.escribir(indice, item);
+        }
+
+        /**
+         * Marca una posición reservada que su escritor no pudo escribir y
+         * sella la generación: las posiciones siguientes ya no se publican
+         */
+        void abandonar(int indice) {
+            abandonada.accumulateAndGet(indice, Math::min);
+            sellar();
+        }
+
+        boolean incompleta() {
+            return abandonada.get() != Integer.MAX_VALUE;
+        }
+
+        int abandonada() {
+            return abandonada.get();
+        }
+
+        /**
+         * Espera a que se publiquen todas las posiciones anteriores a la
+         * primera abandonada (sus escritores siguen en curso o también fallan)
+         * @return cantidad de posiciones publicadas
+         */
+        int esperarPrefijo() {
+            while (!publicar(abandonada.get() - 1)) {
+                // Otra posición anterior quedó abandonada: esperar un prefijo más corto
+            }
+            return abandonada.get();
+        }
+
+        /**
+         * Espera a que la posición escrita quede visible para los lectores
+         * Se publica siempre en orden de reserva: el hilo que logra el turno
+         * publica todas las posiciones contiguas ya escritas, también las de
+         * otros escritores, así nadie depende de que un hilo concreto avance
+         * @return false si la posición quedó detrás de una abandonada y no se publicará
+         */
+        boolean publicar(int indice) {
+            int intentos = 0;
+            while (estado.cantidad <= indice) {
+                if (indice >= abandonada.get()) {
+                    return false;
+                }
+                if (publicando.compareAndSet(false, true)) {
+                    try {
+                        estado = estado.avanzar(this);
+                    } finally {
+                        publicando.set(false);
+                    }
+                } else if (++intentos < 64) {
+                    Thread.onSpinWait();
+                } else {
+                    Thread.yield();
+                }
+            }
+            return true;
+        }
+
+        Estado estado() {
+            return estado;
+        }
+
+        /**
+         * Suma una línea a los totales de su producto
+         * Se llama al publicar, antes de que la línea sea visible en el estado
+         */
+        void acumularProducto(String nombre, int cantidad, long subtotal) {
+            String clave = NombreProducto.normalizar(nombre);
+            Acumulado previo = productos.get(clave);
+            if (previo != null) {
+                productos.put(clave, new Acumulado(previo.nombre, previo.cantidad + cantidad,
+                        sumarSinDesbordar(previo.subtotalCentavos, subtotal), previo.lineas + 1));
+                return;
+            }
+
+            // Producto nuevo: primero los totales, así quien lo encuentre en
+            // los índices ordenados ya puede leerlos
+            productos.put(clave, new Acumulado(nombre, cantidad, subtotal, 1));
+            nombres.add(clave);
+            for (int espacio = clave.indexOf(' '); espacio >= 0; espacio = clave.indexOf(' ', espacio + 1)) {
+                sufijos.add(clave.substring(espacio + 1) + SEPARADOR_SUFIJO + clave);
+            }
+        }
+
+        // Montos positivos: si la suma desborda se queda en el máximo (el total
+        // de la canasta ya marca el desbordamiento)
+        private static long sumarSinDesbordar(long a, long b) {
+            long suma = a + b;
+            return suma < a ? Long.MAX_VALUE : suma;
+        }
+
+        int capacidadRanking() {
+            return capacidadRanking;
+        }
+
+        /**
+         * Versión de un estado de esta generación: el número de generación en
+         * los bits altos y la cantidad publicada en los bajos (cabe en
+         * BITS_CANTIDAD_VERSION por CAPACIDAD_MAXIMA), así crece al agregar y
+         * también al limpiar
+         */
+        long version(Estado estado) {
+            return (numero << BITS_CANTIDAD_VERSION) | estado.cantidad;
+        }
+
+        ItemCanasta leer(int indice) {
+            return items.leer(indice);
+        }
+
+        AlmacenItems items() {
+            return items;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.uniremington.canasta_familiar.store;
+
+/**
+ * Métricas del registro de canastas
+ * @param canastas canastas residentes en memoria
+ * @param items items residentes sumando todas las canastas
+ * @param expulsionesPorInactividad canastas expulsadas por superar el tiempo sin uso
+ * @param expulsionesPorCapacidad canastas expulsadas por superar los límites
+ */
+public record EstadisticasRegistro(int canastas, long items, long expulsionesPorInactividad,
+        long expulsionesPorCapacidad) {
+}
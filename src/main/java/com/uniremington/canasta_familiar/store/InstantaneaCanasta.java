@@ -0,0 +1,222 @@
+package com.uniremington.canasta_familiar.store;
+
+import com.uniremington.canasta_familiar.model.Dinero;
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.Collectors;
+
+/**
+ * Vista inmutable de la canasta en un momento dado
+ * No copia los items: lee directamente del registro de solo-anexar,
+ * por lo que todas las consultas hechas sobre la misma instantánea
+ * (items, total, promedio, más costosos) son consistentes entre sí
+ * El total y el promedio salen de los agregados ya mantenidos, en O(1),
+ * y los más costosos del ranking acotado, en O(K)
+ */
+public class InstantaneaCanasta extends AbstractList<ItemCanasta> implements RandomAccess {
+
+    private final CanastaStore.Generacion generacion;
+    private final CanastaStore.Estado estado;
+    private final int tamano;
+
+    InstantaneaCanasta(CanastaStore.Generacion generacion, CanastaStore.Estado estado) {
+        this.generacion = generacion;
+        this.estado = estado;
+        this.tamano = estado.cantidad;
+    }
+
+    @Override
+    public ItemCanasta get(int indice) {
+        verificarIndice(indice);
+        return generacion.leer(indice);
+    }
+
+    /**
+     * Obtiene el precio del item de una posición sin leer el item completo
+     * Con el almacén en columnas no crea objetos: sirve para recorridos largos
+     * @param indice posición del item
+     * @return precio unitario en pesos
+     */
+    public double precio(int indice) {
+        return precioCentavos(indice) / 100.0;
+    }
+
+    /**
+     * Obtiene el precio en centavos del item de una posición
+     * @param indice posición del item
+     * @return precio unitario en centavos
+     */
+    public long precioCentavos(int indice) {
+        verificarIndice(indice);
+        return generacion.items().precioCentavos(indice);
+    }
+
+    /**
+     * Obtiene la cantidad del item de una posición sin leer el item completo
+     * @param indice posición del item
+     * @return cantidad
+     */
+    public int cantidad(int indice) {
+        verificarIndice(indice);
+        return generacion.items().cantidad(indice);
+    }
+
+    /**
+     * Obtiene el nombre del item de una posición sin leer el item completo
+     * @param indice posición del item
+     * @return nombre del producto
+     */
+    public String nombre(int indice) {
+        verificarIndice(indice);
+        return generacion.items().nombre(indice);
+    }
+
+    @Override
+    public int size() {
+        return tamano;
+    }
+
+    /**
+     * Obtiene la versión de la canasta en esta instantánea
+     * Crece cada vez que se agregan items o se limpia la canasta, y no se
+     * repite entre canastas: dos instantáneas con la misma versión tienen
+     * el mismo contenido
+     * @return versión de la instantánea
+     */
+    public long version() {
+        return generacion.version(estado);
+    }
+
+    /**
+     * Obtiene la versión para entregar fuera del proceso (ETag, cursores)
+     * Las versiones se numeran de nuevo en cada arranque; la etiqueta
+     * incluye el arranque, así que no se repite después de reiniciar
+     * @return arranque y versión, separados por un punto
+     */
+    public String etiqueta() {
+        return CanastaStore.ARRANQUE + "." + version();
+    }
+
+    /**
+     * Indica si los items de la versión de una etiqueta siguen en esta
+     * instantánea; una etiqueta de otro arranque nunca se acepta
+     * @param etiqueta valor de {@link #etiqueta()} de otra instantánea de la misma canasta
+     * @return true si esta instantánea extiende a esa versión
+     */
+    public boolean contieneEtiqueta(String etiqueta) {
+        int punto = etiqueta.indexOf('.');
+        if (punto < 0 || !etiqueta.substring(0, punto).equals(CanastaStore.ARRANQUE)) {
+            return false;
+        }
+        try {
+            return contieneVersion(Long.parseLong(etiqueta.substring(punto + 1)));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Indica si los items de una versión anterior siguen en esta instantánea,
+     * en las mismas posiciones (la canasta no se limpió desde esa versión)
+     * Sirve para validar cursores de paginación
+     * @param version versión tomada de otra instantánea de la misma canasta
+     * @return true si esta instantánea extiende a esa versión
+     */
+    public boolean contieneVersion(long version) {
+        long actual = version();
+        int bits = CanastaStore.Generacion.BITS_CANTIDAD_VERSION;
+        return (version >>> bits) == (actual >>> bits) && version <= actual;
+    }
+
+    /**
+     * Obtiene el total exacto (suma de subtotales) de la instantánea
+     * @return total de la canasta en centavos
+     * @throws ArithmeticException si la suma excede el rango de un long
+     */
+    public Dinero total() {
+        verificarDesbordamiento();
+        return Dinero.deCentavos(estado.totalCentavos);
+    }
+
+    /**
+     * Obtiene el total (suma de subtotales) de la instantánea
+     * @return total de la canasta
+     * @throws ArithmeticException si la suma excede el rango de un long
+     */
+    public double calcularTotal() {
+        return total().aDouble();
+    }
+
+    /**
+     * Obtiene el promedio de precios de la instantánea
+     * @return promedio de precios, 0 si no hay items
+     * @throws ArithmeticException si la suma excede el rango de un long
+     */
+    public double calcularPromedio() {
+        verificarDesbordamiento();
+        if (tamano == 0) {
+            return 0;
+        }
+        return estado.sumaPreciosCentavos / 100.0 / tamano;
+    }
+
+    private void verificarDesbordamiento() {
+        if (estado.desbordado) {
+            throw new ArithmeticException("El total de la canasta excede el rango permitido");
+        }
+    }
+
+    /**
+     * Copia precios y cantidades de un rango de la instantánea en arreglos
+     * primitivos, para recorrerla por tandas sin leer items completos
+     * Con el almacén en columnas es una copia directa de memoria
+     * @param desde primera posición (incluida)
+     * @param hasta última posición (excluida)
+     * @param precios destino de los precios en centavos, desde su posición 0
+     * @param cantidades destino de las cantidades, desde su posición 0
+     * @throws IndexOutOfBoundsException si el rango no está en la instantánea
+     *         o no cabe en los destinos
+     */
+    public void copiarColumnas(int desde, int hasta, long[] precios, int[] cantidades) {
+        if (desde < 0 || hasta > tamano || desde > hasta
+                || hasta - desde > precios.length || hasta - desde > cantidades.length) {
+            throw new IndexOutOfBoundsException("Rango: " + desde + " a " + hasta + ", tamaño: " + tamano);
+        }
+        generacion.items().copiarColumnas(desde, hasta, precios, cantidades);
+    }
+
+    private void verificarIndice(int indice) {
+        if (indice < 0 || indice >= tamano) {
+            throw new IndexOutOfBoundsException("Índice: " + indice + ", tamaño: " + tamano);
+        }
+    }
+
+    /**
+     * Obtiene los productos más costosos (por precio unitario)
+     * @param limite cantidad máxima de productos
+     * @return lista de hasta {@code limite} productos más costosos
+     * @throws IllegalArgumentException si el límite no es positivo
+     */
+    public List<ItemCanasta> obtenerMasCostosos(int limite) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("La cantidad de productos debe ser mayor a cero");
+        }
+
+        ItemCanasta[] ranking = estado.masCostosos;
+        if (limite <= generacion.capacidadRanking() || ranking.length == tamano) {
+            return new ArrayList<>(Arrays.asList(ranking).subList(0, Math.min(limite, ranking.length)));
+        }
+
+        // Piden más de lo que guarda el ranking: se ordena la instantánea completa
+        return stream()
+                .sorted(Comparator.comparingLong(ItemCanasta::precioEnCentavos).reversed())
+                .limit(limite)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,66 @@
+package com.uniremington.canasta_familiar.store;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Normalización de nombres de producto para el índice de la canasta
+ * "Arroz", " ARROZ " y "árroz" se consideran el mismo producto: se quitan
+ * tildes y mayúsculas, y los espacios se recortan y se reducen a uno
+ */
+public final class NombreProducto {
+
+    private NombreProducto() {
+    }
+
+    /**
+     * Obtiene la clave normalizada de un nombre
+     * @param nombre nombre tal como lo escribió el usuario
+     * @return clave sin tildes, en minúsculas y con espacios simples
+     */
+    public static String normalizar(String nombre) {
+        if (esNormal(nombre)) {
+            // Caso común: ASCII en minúsculas, no se crea ningún String
+            return nombre;
+        }
+
+        String sinTildes = Normalizer.normalize(nombre, Normalizer.Form.NFD);
+        StringBuilder clave = new StringBuilder(sinTildes.length());
+        boolean espacioPendiente = false;
+        for (int i = 0; i < sinTildes.length(); i++) {
+            char c = sinTildes.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                espacioPendiente = clave.length() > 0;
+                continue;
+            }
+            if (espacioPendiente) {
+                clave.append(' ');
+                espacioPendiente = false;
+            }
+            clave.append(c);
+        }
+        return clave.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean esNormal(String nombre) {
+        int n = nombre.length();
+        if (n == 0) {
+            return true;
+        }
+        if (nombre.charAt(0) == ' ' || nombre.charAt(n - 1) == ' ') {
+            return false;
+        }
+        char anterior = 0;
+        for (int i = 0; i < n; i++) {
+            char c = nombre.charAt(i);
+            if (c >= 0x80 || c < ' ' || (c >= 'A' && c <= 'Z') || (c == ' ' && anterior == ' ')) {
+                return false;
+            }
+            anterior = c;
+        }
+        return true;
+    }
+}
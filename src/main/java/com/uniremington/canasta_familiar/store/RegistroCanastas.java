@@ -0,0 +1,354 @@
+package com.uniremington.canasta_familiar.store;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro de canastas por sesión o por identificador del cliente
+ * Se encarga de:
+ * - Guardar una canasta independiente por cada identificador
+ * - Limitar la cantidad de canastas y de items en memoria
+ * - Expulsar las canastas menos usadas recientemente cuando se supera un límite
+ * - Expulsar periódicamente las canastas inactivas
+ * - Llevar métricas de expulsiones y tamaño residente
+ */
+@Component
+public class RegistroCanastas {
+
+    public static final int MAX_CANASTAS_POR_DEFECTO = 10_000;
+    public static final long MAX_ITEMS_POR_DEFECTO = 5_000_000;
+    public static final long INACTIVIDAD_MINUTOS_POR_DEFECTO = 30;
+
+    // Instantánea compartida para canastas que todavía no existen
+    private static final InstantaneaCanasta VACIA = new CanastaStore(1).instantanea();
+
+    private final ConcurrentHashMap<String, Entrada> canastas = new ConcurrentHashMap<>();
+
+    private final int maxCanastas;
+    private final long maxItems;
+    private final long inactividadNanos;
+    private final int capacidadRanking;
+    private final TipoAlmacen tipoAlmacen;
+    private final LongSupplier reloj;
+
+    // Items residentes; se corrige con el valor exacto en cada barrido
+    private final AtomicLong itemsResidentes = new AtomicLong();
+    private final AtomicLong expulsionesPorInactividad = new AtomicLong();
+    private final AtomicLong expulsionesPorCapacidad = new AtomicLong();
+
+    // Solo un hilo a la vez recorre el mapa para expulsar
+    private final ReentrantLock expulsando = new ReentrantLock();
+
+    // Se avisa de cada canasta expulsada (la persistencia lo anota en disco,
+    // el historial la descarta)
+    private final List<BiConsumer<String, CanastaStore>> alExpulsar = new CopyOnWriteArrayList<>();
+
+    public RegistroCanastas() {
+        this(MAX_CANASTAS_POR_DEFECTO, MAX_ITEMS_POR_DEFECTO, INACTIVIDAD_MINUTOS_POR_DEFECTO,
+                CanastaStore.CAPACIDAD_RANKING_POR_DEFECTO);
+    }
+
+    /**
+     * @param maxCanastas cantidad máxima de canastas en memoria
+     * @param maxItems cantidad máxima de items sumando todas las canastas
+     * @param inactividadMinutos minutos sin uso tras los cuales se expulsa una canasta
+     * @param capacidadRanking cuántos productos más costosos se indexan por canasta
+     */
+    public RegistroCanastas(int maxCanastas, long maxItems, long inactividadMinutos, int capacidadRanking) {
+        this(maxCanastas, maxItems, inactividadMinutos, capacidadRanking, TipoAlmacen.OBJETOS);
+    }
+
+    /**
+     * @param maxCanastas cantidad máxima de canastas en memoria
+     * @param maxItems cantidad máxima de items sumando todas las canastas
+     * @param inactividadMinutos minutos sin uso tras los cuales se expulsa una canasta
+     * @param capacidadRanking cuántos productos más costosos se indexan por canasta
+     * @param tipoAlmacen forma de guardar los items de cada canasta
+     */
+    @Autowired
+    public RegistroCanastas(@Value("${canasta.registro.max-canastas:10000}") int maxCanastas,
+            @Value("${canasta.registro.max-items:5000000}") long maxItems,
+            @Value("${canasta.registro.inactividad-minutos:30}") long inactividadMinutos,
+            @Value("${canasta.ranking.capacidad:100}") int capacidadRanking,
+            @Value("${canasta.almacen:objetos}") TipoAlmacen tipoAlmacen) {
+        this(maxCanastas, maxItems, TimeUnit.MINUTES.toNanos(inactividadMinutos), capacidadRanking,
+                tipoAlmacen, System::nanoTime);
+    }
+
+    RegistroCanastas(int maxCanastas, long maxItems, long inactividadNanos, int capacidadRanking,
+            TipoAlmacen tipoAlmacen, LongSupplier reloj) {
+        if (maxCanastas <= 0 || maxItems <= 0 || inactividadNanos <= 0) {
+            throw new IllegalArgumentException("Los límites del registro deben ser mayores a cero");
+        }
+        this.maxCanastas = maxCanastas;
+        this.maxItems = maxItems;
+        this.inactividadNanos = inactividadNanos;
+        this.capacidadRanking = capacidadRanking;
+        this.tipoAlmacen = tipoAlmacen;
+        this.reloj = reloj;
+    }
+
+    /**
+     * Obtiene la canasta del identificador, creándola si no existe
+     * @param id identificador de la canasta
+     * @return almacenamiento de la canasta
+     */
+    public CanastaStore obtener(String id) {
+        Entrada entrada = canastas.get(id);
+        if (entrada == null) {
+            if (canastas.size() >= maxCanastas) {
+                expulsarMenosUsadas(id);
+            }
+            entrada = canastas.computeIfAbsent(id, clave -> new Entrada(new CanastaStore(capacidadRanking, tipoAlmacen)));
+        }
+        entrada.ultimoAcceso = reloj.getAsLong();
+        return entrada.store;
+    }
+
+    /**
+     * Obtiene la canasta del identificador, creándola sin expulsar otras
+     * Solo para recuperar la persistencia al arrancar: lo recuperado puede
+     * superar los límites (por ejemplo si se bajaron), y se ajusta después
+     * con {@link #aplicarLimites()}, cuando las expulsiones ya se anotan
+     * @param id identificador de la canasta
+     * @return almacenamiento de la canasta
+     */
+    public CanastaStore restaurar(String id) {
+        Entrada entrada = canastas.computeIfAbsent(id, clave -> new Entrada(new CanastaStore(capacidadRanking, tipoAlmacen)));
+        entrada.ultimoAcceso = reloj.getAsLong();
+        return entrada.store;
+    }
+
+    /**
+     * Registra items recuperados de la persistencia sin aplicar el límite de items
+     * @param cantidad items recuperados
+     */
+    public void registrarRestaurados(int cantidad) {
+        itemsResidentes.addAndGet(cantidad);
+    }
+
+    /**
+     * Expulsa las canastas menos usadas hasta volver bajo los límites de
+     * canastas y de items; se usa después de {@link #restaurar}
+     * Una canasta que sola supera el límite de items también se expulsa
+     */
+    public void aplicarLimites() {
+        expulsando.lock();
+        try {
+            while ((canastas.size() > maxCanastas || itemsResidentes.get() > maxItems)
+                    && expulsarMenosUsadas(null) > 0) {
+                // Seguir expulsando lotes hasta volver bajo los límites
+            }
+        } finally {
+            expulsando.unlock();
+        }
+    }
+
+    /**
+     * Obtiene una instantánea de la canasta sin crearla si no existe
+     * @param id identificador de la canasta
+     * @return instantánea de la canasta, vacía si no existe
+     */
+    public InstantaneaCanasta instantanea(String id) {
+        Entrada entrada = canastas.get(id);
+        if (entrada == null) {
+            return VACIA;
+        }
+        entrada.ultimoAcceso = reloj.getAsLong();
+        return entrada.store.instantanea();
+    }
+
+    /**
+     * Obtiene la canasta del identificador sin crearla si no existe
+     * @param id identificador de la canasta
+     * @return almacenamiento de la canasta, o null si no existe
+     */
+    public CanastaStore buscar(String id) {
+        Entrada entrada = canastas.get(id);
+        if (entrada == null) {
+            return null;
+        }
+        entrada.ultimoAcceso = reloj.getAsLong();
+        return entrada.store;
+    }
+
+    /**
+     * Elimina una canasta del registro
+     * @param id identificador de la canasta
+     */
+    public void eliminar(String id) {
+        Entrada entrada = canastas.remove(id);
+        if (entrada != null) {
+            itemsResidentes.addAndGet(-entrada.store.tamano());
+        }
+    }
+
+    /**
+     * Recorre las canastas en memoria
+     * @param accion recibe el identificador y el almacenamiento de cada canasta
+     */
+    public void recorrer(BiConsumer<String, CanastaStore> accion) {
+        canastas.forEach((id, entrada) -> accion.accept(id, entrada.store));
+    }
+
+    /**
+     * Agrega qué hacer con cada canasta expulsada por inactividad o capacidad
+     * @param accion recibe el identificador y el almacenamiento de la canasta
+     */
+    public void alExpulsar(BiConsumer<String, CanastaStore> accion) {
+        alExpulsar.add(accion);
+    }
+
+    /**
+     * Quita una acción agregada con {@link #alExpulsar}
+     * @param accion la misma instancia que se agregó
+     */
+    public void dejarDeAvisar(BiConsumer<String, CanastaStore> accion) {
+        alExpulsar.remove(accion);
+    }
+
+    private void avisarExpulsion(String id, CanastaStore store) {
+        for (BiConsumer<String, CanastaStore> accion : alExpulsar) {
+            accion.accept(id, store);
+        }
+    }
+
+    /**
+     * Registra items agregados y expulsa otras canastas si se supera el límite
+     * @param id canasta que recibió los items (no se expulsa)
+     * @param cantidad items agregados
+     * @throws IllegalArgumentException si no queda lugar aunque se expulsen
+     *         todas las demás canastas (el límite es la suma de todas)
+     */
+    public void registrarItems(String id, int cantidad) {
+        if (itemsResidentes.addAndGet(cantidad) > maxItems) {
+            // Si otro hilo está expulsando (o barriendo inactivas) se espera a que
+            // termine y se vuelve a mirar: puede haber liberado el lugar que falta
+            expulsando.lock();
+            try {
+                while (itemsResidentes.get() > maxItems && expulsarMenosUsadas(id) > 0) {
+                    // Seguir expulsando lotes hasta volver bajo el límite
+                }
+            } finally {
+                expulsando.unlock();
+            }
+            if (itemsResidentes.get() > maxItems) {
+                itemsResidentes.addAndGet(-cantidad);
+                throw new IllegalArgumentException("Se alcanzó el máximo de items de todas las canastas ("
+                        + maxItems + ")");
+            }
+        }
+    }
+
+    /**
+     * Registra que una canasta fue vaciada
+     * @param cantidad items eliminados
+     */
+    public void registrarLimpieza(int cantidad) {
+        itemsResidentes.addAndGet(-cantidad);
+    }
+
+    /**
+     * Expulsa las canastas que superaron el tiempo de inactividad
+     * y recalcula el total exacto de items residentes
+     */
+    @Scheduled(fixedDelayString = "${canasta.registro.barrido-ms:60000}")
+    public void expulsarInactivas() {
+        expulsando.lock();
+        try {
+            long limite = reloj.getAsLong() - inactividadNanos;
+            long items = 0;
+            for (Map.Entry<String, Entrada> canasta : canastas.entrySet()) {
+                Entrada entrada = canasta.getValue();
+                if (entrada.ultimoAcceso - limite < 0 && canastas.remove(canasta.getKey(), entrada)) {
+                    expulsionesPorInactividad.incrementAndGet();
+                    avisarExpulsion(canasta.getKey(), entrada.store);
+                } else {
+                    items += entrada.store.tamano();
+                }
+            }
+            itemsResidentes.set(items);
+        } finally {
+            expulsando.unlock();
+        }
+    }
+
+    /**
+     * Obtiene las métricas actuales del registro
+     * @return canastas e items residentes y expulsiones acumuladas
+     */
+    public EstadisticasRegistro estadisticas() {
+        return new EstadisticasRegistro(canastas.size(), Math.max(0, itemsResidentes.get()),
+                expulsionesPorInactividad.get(), expulsionesPorCapacidad.get());
+    }
+
+    /**
+     * Expulsa en lote el 1% de canastas menos usadas recientemente
+     * Un solo recorrido con un montículo acotado libera muchas canastas,
+     * así el costo por canasta creada no crece con el tamaño del mapa
+     * @return canastas expulsadas (0 si otro hilo ya estaba expulsando; quien
+     *         ya tiene el candado, como registrarItems, siempre expulsa)
+     */
+    private int expulsarMenosUsadas(String protegida) {
+        if (!expulsando.tryLock()) {
+            // Otro hilo ya está expulsando; el exceso es temporal
+            return 0;
+        }
+        try {
+            int lote = Math.max(1, maxCanastas / 100);
+            // Montículo de máximos: arriba queda la más reciente de las candidatas
+            PriorityQueue<Candidata> masAntiguas = new PriorityQueue<>(lote + 1,
+                    Comparator.comparingLong(Candidata::acceso).reversed());
+            for (Map.Entry<String, Entrada> canasta : canastas.entrySet()) {
+                if (canasta.getKey().equals(protegida)) {
+                    continue;
+                }
+                Entrada entrada = canasta.getValue();
+                masAntiguas.offer(new Candidata(canasta.getKey(), entrada, entrada.ultimoAcceso));
+                if (masAntiguas.size() > lote) {
+                    masAntiguas.poll();
+                }
+            }
+
+            int expulsadas = 0;
+            for (Candidata candidata : masAntiguas) {
+                if (canastas.remove(candidata.id(), candidata.entrada())) {
+                    expulsionesPorCapacidad.incrementAndGet();
+                    itemsResidentes.addAndGet(-candidata.entrada().store.tamano());
+                    avisarExpulsion(candidata.id(), candidata.entrada().store);
+                    expulsadas++;
+                }
+            }
+            return expulsadas;
+        } finally {
+            expulsando.unlock();
+        }
+    }
+
+    private record Candidata(String id, Entrada entrada, long acceso) {
+    }
+
+    private static final class Entrada {
+
+        private final CanastaStore store;
+        private volatile long ultimoAcceso;
+
+        private Entrada(CanastaStore store) {
+            this.store = store;
+        }
+    }
+}
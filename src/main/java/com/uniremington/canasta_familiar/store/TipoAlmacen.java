@@ -0,0 +1,22 @@
+package com.uniremington.canasta_familiar.store;
+
+/**
+ * Forma de guardar los items de cada canasta (propiedad canasta.almacen)
+ */
+public enum TipoAlmacen {
+
+    /**
+     * Un objeto ItemCanasta por línea; leer no crea objetos
+     */
+    OBJETOS,
+
+    /**
+     * Columnas primitivas y nombres en diccionario; menos memoria por línea
+     * cuando los nombres se repiten
+     */
+    COLUMNAR;
+
+    AlmacenItems crear() {
+        return this == COLUMNAR ? new AlmacenColumnar() : new AlmacenObjetos();
+    }
+}
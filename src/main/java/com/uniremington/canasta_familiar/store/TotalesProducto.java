@@ -0,0 +1,11 @@
+package com.uniremington.canasta_familiar.store;
+
+/**
+ * Totales de un producto en la canasta, sumando todas sus líneas
+ * @param nombre nombre con que se agregó el producto por primera vez
+ * @param cantidad unidades sumadas de todas las líneas
+ * @param subtotal precio por cantidad sumado de todas las líneas
+ * @param lineas cantidad de veces que se agregó el producto
+ */
+public record TotalesProducto(String nombre, long cantidad, double subtotal, int lineas) {
+}
@@ -0,0 +1,67 @@
+package com.uniremington.canasta_familiar.controller;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.service.CanastaService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pruebas HTTP del controlador de las vistas
+ * Usa MockMvc sobre la aplicación completa
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class CanastaControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CanastaService canastaService;
+
+    // PRUEBA 1: El PDF responde 304 mientras la canasta no cambia y 200 con otro ETag cuando cambia
+    @Test
+    @DisplayName("Test: ETag del PDF")
+    void testEtagPdf() throws Exception {
+        canastaService.agregarItem("etag-pdf", new ItemCanasta("Arroz", 5000, 2));
+
+        String etag = descargar(null);
+        assertTrue(etag.startsWith("W/\""));
+
+        mockMvc.perform(get("/descargar-pdf")
+                        .header(IdentificadorCanasta.CABECERA, "etag-pdf")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        canastaService.agregarItem("etag-pdf", new ItemCanasta("Leche", 3000, 1));
+        String nueva = descargar(etag);
+        assertNotEquals(etag, nueva);
+    }
+
+    // Descarga el PDF (200) y devuelve su ETag
+    private String descargar(String etagAnterior) throws Exception {
+        var peticion = get("/descargar-pdf").header(IdentificadorCanasta.CABECERA, "etag-pdf");
+        if (etagAnterior != null) {
+            peticion.header(HttpHeaders.IF_NONE_MATCH, etagAnterior);
+        }
+        MvcResult inicio = mockMvc.perform(peticion).andReturn();
+        MvcResult resultado = mockMvc.perform(asyncDispatch(inicio))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/pdf"))
+                .andReturn();
+        assertTrue(resultado.getResponse().getContentAsByteArray().length > 0);
+        return resultado.getResponse().getHeader(HttpHeaders.ETAG);
+    }
+}
@@ -0,0 +1,55 @@
+package com.uniremington.canasta_familiar.controller;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpSession;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de cómo se elige la canasta de cada petición
+ */
+class IdentificadorCanastaTest {
+
+    // PRUEBA 1: La cabecera tiene prioridad sobre el parámetro y los identificadores no válidos se rechazan
+    @Test
+    @DisplayName("Test: Identificador enviado por el cliente")
+    void testIdentificadorEnviado() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(IdentificadorCanasta.CABECERA, "familia-1");
+        request.setParameter(IdentificadorCanasta.PARAMETRO, "otra");
+        assertEquals("familia-1", IdentificadorCanasta.resolverApi(request));
+        assertEquals("familia-1", IdentificadorCanasta.resolver(request));
+
+        MockHttpServletRequest porParametro = new MockHttpServletRequest();
+        porParametro.setParameter(IdentificadorCanasta.PARAMETRO, "otra");
+        assertEquals("otra", IdentificadorCanasta.resolverApi(porParametro));
+
+        for (String invalido : new String[] { "", "sesion:abc", "ana/../juan", "a".repeat(65) }) {
+            MockHttpServletRequest conInvalido = new MockHttpServletRequest();
+            conInvalido.addHeader(IdentificadorCanasta.CABECERA, invalido);
+            assertThrows(IllegalArgumentException.class, () -> IdentificadorCanasta.resolverApi(conInvalido));
+            assertThrows(IllegalArgumentException.class, () -> IdentificadorCanasta.resolver(conInvalido));
+        }
+    }
+
+    // PRUEBA 2: Sin identificador las vistas usan la sesión; la API solo una sesión que ya existe
+    @Test
+    @DisplayName("Test: Sesión como respaldo")
+    void testSesion() {
+        MockHttpServletRequest api = new MockHttpServletRequest();
+        assertThrows(IllegalArgumentException.class, () -> IdentificadorCanasta.resolverApi(api));
+        assertNull(api.getSession(false));
+
+        MockHttpServletRequest vista = new MockHttpServletRequest();
+        String id = IdentificadorCanasta.resolver(vista);
+        assertNotNull(vista.getSession(false));
+        assertEquals("sesion:" + vista.getSession(false).getId(), id);
+
+        // La página del navegador consulta la API con su sesión
+        MockHttpServletRequest desdeLaPagina = new MockHttpServletRequest();
+        desdeLaPagina.setSession((MockHttpSession) vista.getSession(false));
+        assertEquals(id, IdentificadorCanasta.resolverApi(desdeLaPagina));
+    }
+}
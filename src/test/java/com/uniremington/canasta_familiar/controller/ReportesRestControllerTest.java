@@ -0,0 +1,53 @@
+package com.uniremington.canasta_familiar.controller;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.service.CanastaService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Pruebas HTTP de los reportes
+ * Usa MockMvc sobre la aplicación completa
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class ReportesRestControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CanastaService canastaService;
+
+    // PRUEBA 1: Solo la descarga de un lote usa el límite asíncrono largo
+    @Test
+    @DisplayName("Test: Límite asíncrono del lote")
+    void testTimeoutLote() throws Exception {
+        canastaService.agregarItem("lote-1", new ItemCanasta("Arroz", 5000, 2));
+
+        MvcResult lote = mockMvc.perform(post("/api/canasta/reportes/lote")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[\"lote-1\"]"))
+                .andReturn();
+        assertEquals(1_800_000, lote.getRequest().getAsyncContext().getTimeout());
+        mockMvc.perform(asyncDispatch(lote)).andExpect(status().isOk());
+
+        MvcResult items = mockMvc.perform(get("/api/canasta/items")
+                        .header(IdentificadorCanasta.CABECERA, "lote-1"))
+                .andReturn();
+        assertNotEquals(1_800_000, items.getRequest().getAsyncContext().getTimeout());
+        mockMvc.perform(asyncDispatch(items)).andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,99 @@
+package com.uniremington.canasta_familiar.controller;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.service.CanastaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.math.BigDecimal;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de los fragmentos de las vistas y del contenido del resumen guardado por versión
+ * Usa las plantillas reales, sin levantar el servidor
+ */
+class VistaResumenTest {
+
+    private SpringTemplateEngine motor;
+    private CanastaService canastaService;
+
+    @BeforeEach
+    void setUp() {
+        ClassLoaderTemplateResolver plantillas = new ClassLoaderTemplateResolver();
+        plantillas.setPrefix("templates/");
+        plantillas.setSuffix(".html");
+        plantillas.setTemplateMode(TemplateMode.HTML);
+        plantillas.setCharacterEncoding("UTF-8");
+        motor = new SpringTemplateEngine();
+        motor.setTemplateResolver(plantillas);
+        canastaService = new CanastaService();
+    }
+
+    // PRUEBA 1: El contenido se reutiliza mientras la canasta no cambia
+    @Test
+    @DisplayName("Test: Contenido del resumen por versión")
+    void testContenidoPorVersion() {
+        VistaResumen vista = new VistaResumen(motor, canastaService, 1_000_000);
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+
+        String primero = vista.contenido("ana", canastaService.obtenerInstantanea("ana"));
+        assertTrue(primero.contains("$10,000"), primero);
+        assertTrue(primero.contains("Arroz"));
+        assertSame(primero, vista.contenido("ana", canastaService.obtenerInstantanea("ana")));
+
+        canastaService.agregarItem("ana", new ItemCanasta("Leche", 4000, 1));
+        String segundo = vista.contenido("ana", canastaService.obtenerInstantanea("ana"));
+        assertNotSame(primero, segundo);
+        assertTrue(segundo.contains("$14,000"), segundo);
+    }
+
+    // PRUEBA 2: Al superar la memoria máxima se expulsa el menos usado
+    @Test
+    @DisplayName("Test: Expulsión del contenido por tamaño")
+    void testExpulsionPorTamano() {
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+        canastaService.agregarItem("luis", new ItemCanasta("Arroz", 5000, 2));
+        int tamano = new VistaResumen(motor, canastaService, 1_000_000)
+                .contenido("ana", canastaService.obtenerInstantanea("ana")).length();
+        VistaResumen vista = new VistaResumen(motor, canastaService, tamano + tamano / 2);
+
+        String ana = vista.contenido("ana", canastaService.obtenerInstantanea("ana"));
+        vista.contenido("luis", canastaService.obtenerInstantanea("luis"));
+        assertNotSame(ana, vista.contenido("ana", canastaService.obtenerInstantanea("ana")));
+    }
+
+    // PRUEBA 3: La respuesta de un producto agregado tiene solo la fila nueva y los totales
+    @Test
+    @DisplayName("Test: Fragmento de producto agregado")
+    void testFragmentoAgregado() {
+        Context contexto = new Context();
+        contexto.setVariable("item", new ItemCanasta("Leche", 4000, 3));
+        contexto.setVariable("numero", 120);
+        contexto.setVariable("cantidadItems", 120);
+        contexto.setVariable("total", new BigDecimal("987654"));
+        contexto.setVariable("pagina", 3);
+        contexto.setVariable("totalPaginas", 1);
+        contexto.setVariable("mensaje", "Producto agregado exitosamente");
+        contexto.setVariable("tipoMensaje", "success");
+
+        String html = motor.process("fragmentos/canasta", Set.of("agregado"), contexto);
+
+        assertEquals(1, html.split("<tr", -1).length - 1, html);
+        assertTrue(html.contains("<td>120</td>"));
+        assertTrue(html.contains("$12,000"));
+        assertTrue(html.contains("120 items"));
+        assertTrue(html.contains("$987,654"));
+        assertTrue(html.contains("alert-success"));
+
+        // Si la fila no cae en la página visible solo van los totales
+        contexto.setVariable("item", null);
+        assertFalse(motor.process("fragmentos/canasta", Set.of("agregado"), contexto).contains("<tr"));
+    }
+}
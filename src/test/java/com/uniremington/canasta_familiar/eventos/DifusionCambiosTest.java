@@ -0,0 +1,222 @@
+package com.uniremington.canasta_familiar.eventos;
+
+import com.uniremington.canasta_familiar.historial.HistorialService;
+import com.uniremington.canasta_familiar.metricas.MetricasCanasta;
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.persistencia.PersistenciaCanastas;
+import com.uniremington.canasta_familiar.service.CanastaService;
+import com.uniremington.canasta_familiar.store.RegistroCanastas;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la difusión de cambios a los suscriptores
+ * Las tareas de envío quedan en una cola y se ejecutan a mano, así se
+ * simula un suscriptor atrasado sin hilos ni esperas
+ */
+class DifusionCambiosTest {
+
+    private static final long MAX_ATRASO = 1_000;
+
+    private Queue<Runnable> tareas;
+    private long ahora;
+    private DifusionCambios difusion;
+    private CanastaService servicio;
+
+    @BeforeEach
+    void setUp() {
+        tareas = new ArrayDeque<>();
+        ahora = 1;
+        difusion = new DifusionCambios(tareas::add, 2, MAX_ATRASO, () -> ahora);
+        servicio = new CanastaService(new RegistroCanastas(), (PersistenciaCanastas) null,
+                MetricasCanasta.deshabilitadas(), new HistorialService(), difusion);
+    }
+
+    private void ejecutarTareas() {
+        while (!tareas.isEmpty()) {
+            tareas.poll().run();
+        }
+    }
+
+    // PRUEBA 1: Primero llega el estado actual y después cada cambio
+    @Test
+    @DisplayName("Test: Estado inicial y cambios publicados")
+    void testEstadoInicialYCambios() {
+        servicio.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+        Registro registro = new Registro();
+        servicio.suscribirCambios("ana", registro);
+        ejecutarTareas();
+
+        assertEquals(1, registro.cambios.size());
+        CambioCanasta inicial = registro.cambios.get(0);
+        assertTrue(inicial.agregados().isEmpty());
+        assertEquals(1, inicial.cantidadItems());
+        assertEquals(10_000.0, inicial.total());
+
+        servicio.agregarItem("ana", new ItemCanasta("Leche", 4000, 1));
+        servicio.agregarItem("luis", new ItemCanasta("Pan", 1000, 1));
+        ejecutarTareas();
+
+        assertEquals(2, registro.cambios.size());
+        CambioCanasta cambio = registro.cambios.get(1);
+        assertEquals("Leche", cambio.agregados().get(0).getNombre());
+        assertEquals(14_000.0, cambio.total());
+        assertEquals(2, cambio.cantidadItems());
+        assertEquals("Arroz", cambio.masCostosos().get(0).getNombre());
+        assertFalse(difusion.tieneSuscriptores("luis"));
+    }
+
+    // PRUEBA 2: Los cambios de un suscriptor atrasado se juntan en uno solo
+    @Test
+    @DisplayName("Test: Cambios combinados para un suscriptor atrasado")
+    void testCambiosCombinados() {
+        Registro registro = new Registro();
+        servicio.suscribirCambios("ana", registro);
+        servicio.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+        servicio.limpiarCanasta("ana");
+        for (int i = 0; i < CambioCanasta.MAX_AGREGADOS + 5; i++) {
+            servicio.agregarItem("ana", new ItemCanasta("Producto " + i, 1000, 1));
+        }
+        ejecutarTareas();
+
+        assertEquals(1, registro.cambios.size());
+        CambioCanasta cambio = registro.cambios.get(0);
+        assertTrue(cambio.limpiada());
+        assertEquals(CambioCanasta.MAX_AGREGADOS, cambio.agregados().size());
+        assertEquals(5, cambio.omitidos());
+        // Se conservan los últimos agregados
+        assertEquals("Producto 5", cambio.agregados().get(0).getNombre());
+        assertEquals(CambioCanasta.MAX_AGREGADOS + 5, cambio.cantidadItems());
+        assertEquals(servicio.obtenerVersion("ana"), cambio.version());
+        assertEquals(CambioCanasta.MAX_AGREGADOS + 7, difusion.estadisticas().combinados());
+    }
+
+    // PRUEBA 3: Los latidos van a los suscriptores libres; el atrasado se descarta
+    @Test
+    @DisplayName("Test: Latidos y descarte de suscriptores atrasados")
+    void testLatidosYDescarte() {
+        Registro libre = new Registro();
+        Registro atrasado = new Registro();
+        servicio.suscribirCambios("ana", libre);
+        ejecutarTareas();
+        servicio.suscribirCambios("ana", atrasado);
+
+        // La tarea del segundo sigue en cola: no alcanza a enviar
+        ahora += MAX_ATRASO + 1;
+        difusion.latir();
+        ejecutarTareas();
+
+        assertEquals(1, libre.latidos);
+        assertTrue(atrasado.cerrado);
+        assertTrue(atrasado.cambios.isEmpty());
+        assertEquals(1, difusion.estadisticas().suscriptores());
+        assertEquals(1, difusion.estadisticas().descartados());
+    }
+
+    // PRUEBA 4: Un error al enviar descarta al suscriptor; cancelar libera el lugar
+    @Test
+    @DisplayName("Test: Máximo de suscriptores, errores y cancelación")
+    void testMaximoErroresYCancelacion() {
+        Registro roto = new Registro();
+        roto.fallar = true;
+        servicio.suscribirCambios("ana", roto);
+        Runnable cancelar = servicio.suscribirCambios("ana", new Registro());
+        assertThrows(SuscriptoresAgotadosException.class,
+                () -> servicio.suscribirCambios("luis", new Registro()));
+
+        ejecutarTareas();
+        assertTrue(roto.cerrado);
+        cancelar.run();
+        cancelar.run();
+
+        assertEquals(0, difusion.estadisticas().suscriptores());
+        assertFalse(difusion.tieneSuscriptores("ana"));
+        servicio.suscribirCambios("luis", new Registro());
+        assertTrue(difusion.tieneSuscriptores("luis"));
+    }
+
+    // PRUEBA 5: Un suscriptor que no puede recibir no retiene la tarea; al liberarse recibe lo acumulado
+    @Test
+    @DisplayName("Test: Suscriptor ocupado sin bloquear hilos")
+    void testSuscriptorOcupado() {
+        Registro ocupado = new Registro();
+        ocupado.listo = false;
+        servicio.suscribirCambios("ana", ocupado);
+        ejecutarTareas();
+        servicio.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+        servicio.agregarItem("ana", new ItemCanasta("Leche", 4000, 1));
+        ejecutarTareas();
+
+        // Ninguna tarea quedó en cola ni en curso esperando al suscriptor
+        assertTrue(tareas.isEmpty());
+        assertTrue(ocupado.cambios.isEmpty());
+
+        ocupado.listo = true;
+        ocupado.aviso.run();
+        ejecutarTareas();
+        assertEquals(1, ocupado.cambios.size());
+        assertEquals(2, ocupado.cambios.get(0).agregados().size());
+
+        // Ocupado por más del atraso permitido: los latidos lo cancelan y el cierre va a un hilo de envío
+        ocupado.listo = false;
+        servicio.agregarItem("ana", new ItemCanasta("Pan", 1000, 1));
+        ejecutarTareas();
+        ahora += MAX_ATRASO + 1;
+        difusion.latir();
+        assertFalse(ocupado.cerrado);
+        assertFalse(difusion.tieneSuscriptores("ana"));
+        ejecutarTareas();
+        assertTrue(ocupado.cerrado);
+        assertEquals(1, difusion.estadisticas().descartados());
+    }
+
+    /**
+     * Suscriptor que guarda lo recibido
+     */
+    private static final class Registro implements Suscriptor {
+
+        private final List<CambioCanasta> cambios = new ArrayList<>();
+        private int latidos;
+        private boolean cerrado;
+        private boolean fallar;
+        private boolean listo = true;
+        private Runnable aviso;
+
+        @Override
+        public void alLiberarse(Runnable aviso) {
+            this.aviso = aviso;
+        }
+
+        @Override
+        public boolean listo() {
+            return listo;
+        }
+
+        @Override
+        public void enviar(CambioCanasta cambio) throws IOException {
+            if (fallar) {
+                throw new IOException("Conexión cerrada");
+            }
+            cambios.add(cambio);
+        }
+
+        @Override
+        public void latir() {
+            latidos++;
+        }
+
+        @Override
+        public void cerrar() {
+            cerrado = true;
+        }
+    }
+}
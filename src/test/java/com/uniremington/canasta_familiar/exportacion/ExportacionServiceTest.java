@@ -0,0 +1,114 @@
+package com.uniremington.canasta_familiar.exportacion;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.service.CanastaService;
+import com.uniremington.canasta_familiar.service.IngestaService;
+import com.uniremington.canasta_familiar.service.PdfService;
+import com.uniremington.canasta_familiar.service.ResultadoIngesta;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de los formatos de exportación
+ */
+class ExportacionServiceTest {
+
+    private CanastaService canastaService;
+    private ExportacionService exportacion;
+
+    @BeforeEach
+    void setUp() {
+        canastaService = new CanastaService();
+        exportacion = new ExportacionService(List.of(new ExportadorCsv(), new ExportadorJsonl(), new PdfService()));
+    }
+
+    private String exportar(String formato, String idCanasta) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        exportacion.buscar(formato).exportar(idCanasta, canastaService.obtenerInstantanea(idCanasta), salida);
+        return salida.toString(StandardCharsets.UTF_8);
+    }
+
+    // PRUEBA 1: El CSV tiene encabezado, precios con dos decimales y comillas cuando hacen falta
+    @Test
+    @DisplayName("Test: Exportación CSV")
+    void testExportacionCsv() throws IOException {
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+        canastaService.agregarItem("ana", new ItemCanasta("Café \"Sello Rojo\", 500g", 12345.67, 1));
+        canastaService.agregarItem("ana", new ItemCanasta("Ñame", 0.05, 10));
+
+        assertEquals("""
+                nombre,precio,cantidad
+                Arroz,5000.00,2
+                "Café ""Sello Rojo"", 500g",12345.67,1
+                Ñame,0.05,10
+                """, exportar("CSV", "ana"));
+        assertEquals("nombre,precio,cantidad\n", exportar("csv", "vacia"));
+    }
+
+    // PRUEBA 2: Un CSV exportado se vuelve a cargar igual, también cuando supera el búfer
+    @Test
+    @DisplayName("Test: El CSV exportado se puede volver a cargar")
+    void testCsvIdaYVuelta() throws IOException {
+        for (int i = 0; i < 5_000; i++) {
+            canastaService.agregarItem("ana", new ItemCanasta("Producto, " + i, 1000 + i * 0.37, 1 + i % 7));
+        }
+        String csv = exportar("csv", "ana");
+        assertTrue(csv.length() > 64 * 1024);
+
+        ResultadoIngesta resultado = new IngestaService(canastaService).ingerirCsv("copia", new StringReader(csv));
+        assertEquals(5_000, resultado.aceptados());
+        assertEquals(0, resultado.rechazados());
+        InstantaneaCanasta original = canastaService.obtenerInstantanea("ana");
+        InstantaneaCanasta copia = canastaService.obtenerInstantanea("copia");
+        assertEquals(original.total(), copia.total());
+        assertEquals(original.nombre(4_321), copia.nombre(4_321));
+        assertEquals(original.precioCentavos(4_321), copia.precioCentavos(4_321));
+    }
+
+    // PRUEBA 3: JSON Lines escribe un objeto por línea con los campos de siempre
+    @Test
+    @DisplayName("Test: Exportación JSON Lines")
+    void testExportacionJsonLines() throws IOException {
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+        canastaService.agregarItem("ana", new ItemCanasta("Leche \"entera\"", 4000.5, 1));
+
+        String jsonl = exportar("jsonl", "ana");
+        assertTrue(jsonl.endsWith("}\n"));
+        String[] lineas = jsonl.split("\n");
+        assertEquals(2, lineas.length);
+
+        JsonMapper json = JsonMapper.builder().build();
+        JsonNode segunda = json.readTree(lineas[1]);
+        assertEquals("Leche \"entera\"", segunda.get("nombre").asString());
+        assertEquals(4000.5, segunda.get("precio").asDouble());
+        assertEquals(1, segunda.get("cantidad").asInt());
+        assertEquals("", exportar("jsonl", "vacia"));
+    }
+
+    // PRUEBA 4: PDF es un formato más; un formato desconocido es un error que los lista
+    @Test
+    @DisplayName("Test: Formatos disponibles")
+    void testFormatos() throws IOException {
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+
+        assertTrue(exportar("pdf", "ana").startsWith("%PDF"));
+        assertEquals(List.of("csv", "jsonl", "pdf"), exportacion.formatos());
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> exportacion.buscar("xlsx"));
+        assertTrue(error.getMessage().contains("csv, jsonl, pdf"));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ExportacionService(List.of(new ExportadorCsv(), new ExportadorCsv())));
+    }
+}
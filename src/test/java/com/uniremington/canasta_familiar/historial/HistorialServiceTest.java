@@ -0,0 +1,252 @@
+package com.uniremington.canasta_familiar.historial;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del historial de precios y de la serie temporal comprimida
+ * Usa un reloj manual para simular meses de observaciones
+ */
+class HistorialServiceTest {
+
+    private static final long INICIO = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+
+    private long ahora;
+    private HistorialService historial;
+
+    @BeforeEach
+    void setUp() {
+        ahora = INICIO;
+        historial = new HistorialService(10, 100, () -> ahora);
+    }
+
+    // PRUEBA 1: Los puntos se recuperan exactos después de comprimirlos, en varios bloques
+    @Test
+    @DisplayName("Test: Serie temporal comprimida conserva los puntos")
+    void testSerieConservaPuntos() {
+        SerieTemporal serie = new SerieTemporal();
+        long[] valores = new long[1_000];
+        for (int i = 0; i < valores.length; i++) {
+            valores[i] = (i % 7 == 0 ? -1 : 1) * (long) i * 12_345L;
+            serie.agregar(INICIO + i * 1_000L, valores[i]);
+        }
+
+        List<long[]> leidos = new ArrayList<>();
+        serie.recorrer(INICIO, INICIO + 10_000_000L, Resolucion.PUNTOS,
+                (instante, primero, ultimo, minimo, maximo, cantidad) -> leidos.add(new long[] { instante, primero }));
+
+        assertEquals(valores.length, leidos.size());
+        for (int i = 0; i < valores.length; i++) {
+            assertEquals(INICIO + i * 1_000L, leidos.get(i)[0]);
+            assertEquals(valores[i], leidos.get(i)[1]);
+        }
+        assertTrue(serie.bytes() < valores.length * 16L / 3, "Compresión insuficiente: " + serie.bytes());
+
+        // Un rango que empieza en medio de un bloque
+        List<Long> rango = new ArrayList<>();
+        serie.recorrer(INICIO + 300_000L, INICIO + 302_000L, Resolucion.PUNTOS,
+                (instante, primero, ultimo, minimo, maximo, cantidad) -> rango.add(primero));
+        assertEquals(List.of(valores[300], valores[301], valores[302]), rango);
+    }
+
+    // PRUEBA 2: Los resúmenes por hora guardan primero, último, mínimo, máximo y cantidad
+    @Test
+    @DisplayName("Test: Resúmenes por hora")
+    void testResumenesPorHora() {
+        SerieTemporal serie = new SerieTemporal();
+        serie.agregar(INICIO, 500);
+        serie.agregar(INICIO + 60_000, 200);
+        serie.agregar(INICIO + 120_000, 900);
+        serie.agregar(INICIO + 3_600_000, 100);
+
+        List<long[]> tramos = new ArrayList<>();
+        serie.recorrer(INICIO, INICIO + 3_600_000, Resolucion.HORA,
+                (instante, primero, ultimo, minimo, maximo, cantidad) ->
+                        tramos.add(new long[] { instante, primero, ultimo, minimo, maximo, cantidad }));
+
+        assertEquals(2, tramos.size());
+        assertArrayEquals(new long[] { INICIO, 500, 900, 200, 900, 3 }, tramos.get(0));
+        assertArrayEquals(new long[] { INICIO + 3_600_000, 100, 100, 100, 100, 1 }, tramos.get(1));
+    }
+
+    // PRUEBA 3: La inflación de cada producto es la variación entre el primer y el último precio del rango
+    @Test
+    @DisplayName("Test: Variación de precio por producto")
+    void testVariacionPorProducto() {
+        historial.registrarAgregados("ana", List.of(new ItemCanasta("Arroz", 1000, 1),
+                new ItemCanasta("Leche", 4000, 1)), 500_000);
+        ahora += Duration.ofDays(10).toMillis();
+        historial.registrarAgregados("ana", List.of(new ItemCanasta("árroz ", 1200, 2)), 740_000);
+        ahora += Duration.ofDays(10).toMillis();
+        historial.registrarLimpieza("ana");
+
+        ConsultaHistorial consulta = historial.consultar("ana", Instant.ofEpochMilli(INICIO),
+                Instant.ofEpochMilli(ahora), null);
+
+        assertEquals(Resolucion.PUNTOS, consulta.resolucion());
+        assertEquals(List.of(5000.0, 7400.0, 0.0),
+                consulta.total().stream().map(PuntoHistorial::ultimo).toList());
+
+        assertEquals(2, consulta.productos().size());
+        VariacionProducto arroz = consulta.productos().get(0);
+        assertEquals("Arroz", arroz.nombre());
+        assertEquals(1000.0, arroz.precioInicial());
+        assertEquals(1200.0, arroz.precioFinal());
+        assertEquals(20.0, arroz.variacion(), 0.0001);
+        assertEquals(2, arroz.observaciones());
+        assertEquals(0.0, consulta.productos().get(1).variacion());
+
+        // Un rango sin observaciones del producto no lo incluye
+        ConsultaHistorial despues = historial.consultar("ana", Instant.ofEpochMilli(ahora),
+                Instant.ofEpochMilli(ahora), null);
+        assertTrue(despues.productos().isEmpty());
+    }
+
+    // PRUEBA 4: Un año de observaciones cada minuto se consulta desde los resúmenes diarios,
+    // también si se pidió cada punto
+    @Test
+    @DisplayName("Test: Consulta de un año con resolución automática")
+    void testConsultaDeUnAnio() {
+        List<ItemCanasta> lote = List.of(new ItemCanasta("Arroz", 1000, 1));
+        long anio = Duration.ofDays(365).toMillis();
+        for (long t = 0; t < anio; t += 60_000) {
+            ahora = INICIO + t;
+            historial.registrarAgregados("ana", lote, 1000 + t / 60_000);
+        }
+
+        Instant desde = Instant.ofEpochMilli(INICIO);
+        Instant hasta = Instant.ofEpochMilli(INICIO + anio);
+        historial.consultar("ana", desde, hasta, null);
+        long inicio = System.nanoTime();
+        ConsultaHistorial consulta = historial.consultar("ana", desde, hasta, null);
+        long milis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+        assertEquals(Resolucion.DIA, consulta.resolucion());
+        assertEquals(365, consulta.total().size());
+        assertEquals(1440, consulta.total().get(0).observaciones());
+        assertEquals(525_600, consulta.productos().get(0).observaciones());
+        assertTrue(milis < 10, "La consulta tardó " + milis + " ms");
+
+        // Un día del mismo año se entrega punto por punto
+        ConsultaHistorial dia = historial.consultar("ana", desde, desde.plus(Duration.ofHours(12)), null);
+        assertEquals(Resolucion.PUNTOS, dia.resolucion());
+        assertEquals(721, dia.total().size());
+
+        // Pedir cada punto del año no recorre las observaciones: se sube a días
+        ConsultaHistorial puntos = historial.consultar("ana", desde, hasta, Resolucion.PUNTOS);
+        assertEquals(Resolucion.DIA, puntos.resolucion());
+        assertEquals(365, puntos.total().size());
+        ConsultaHistorial horas = historial.consultar("ana", desde, desde.plus(Duration.ofDays(30)), Resolucion.PUNTOS);
+        assertEquals(Resolucion.HORA, horas.resolucion());
+        assertEquals(721, historial.consultar("ana", desde, desde.plus(Duration.ofHours(12)), Resolucion.PUNTOS)
+                .total().size());
+        assertEquals(Resolucion.DIA, historial.consultar("ana", desde, desde.plus(Duration.ofHours(12)),
+                Resolucion.DIA).resolucion());
+    }
+
+    // PRUEBA 6: Un lote en un solo milisegundo que llena más de un bloque se consulta completo desde ese instante
+    @Test
+    @DisplayName("Test: Puntos del mismo instante en varios bloques")
+    void testMismoInstanteEnVariosBloques() {
+        historial.registrarAgregados("ana", List.of(new ItemCanasta("Arroz", 4000, 1)), 400_000);
+        ahora += 1_000;
+        List<ItemCanasta> lote = new ArrayList<>();
+        for (int i = 0; i < SerieTemporal.PUNTOS_POR_BLOQUE + 44; i++) {
+            lote.add(new ItemCanasta("Arroz", 5000 + i, 1));
+        }
+        // El primer bloque termina con 255 puntos de este instante y el segundo empieza en él
+        historial.registrarAgregados("ana", lote, 999_999);
+
+        Instant instante = Instant.ofEpochMilli(ahora);
+        VariacionProducto arroz = historial.consultar("ana", instante, instante, Resolucion.PUNTOS)
+                .productos().get(0);
+        assertEquals(lote.size(), arroz.observaciones());
+        assertEquals(5000.0, arroz.precioInicial());
+
+        SerieTemporal serie = new SerieTemporal();
+        serie.agregar(ahora - 1, 1);
+        for (int i = 0; i < lote.size(); i++) {
+            serie.agregar(ahora, i);
+        }
+        assertTrue(serie.estimarPuntos(ahora, ahora) >= lote.size());
+    }
+
+    // PRUEBA 5: Un rango invertido es un error
+    @Test
+    @DisplayName("Test: Rango de fechas invertido")
+    void testRangoInvertido() {
+        Instant ahora = Instant.now();
+        assertThrows(IllegalArgumentException.class,
+                () -> historial.consultar("ana", ahora, ahora.minusSeconds(1), null));
+    }
+
+    // PRUEBA 7: Al superar el máximo de canastas se descarta el historial menos usado recientemente
+    @Test
+    @DisplayName("Test: Descarte del historial menos usado")
+    void testDescarteMenosUsado() {
+        for (int c = 0; c < 10; c++) {
+            historial.registrarAgregados("canasta-" + c, List.of(new ItemCanasta("Arroz", 4000, 1)), 4000);
+            ahora += 1_000;
+        }
+        Instant desde = Instant.ofEpochMilli(INICIO);
+        Instant hasta = Instant.ofEpochMilli(ahora);
+        // Consultar cuenta como uso: la menos usada pasa a ser canasta-1
+        assertEquals(1, historial.consultar("canasta-0", desde, hasta, null).total().size());
+        ahora += 1_000;
+
+        historial.registrarAgregados("nueva", List.of(new ItemCanasta("Arroz", 4000, 1)), 4000);
+        assertTrue(historial.consultar("canasta-1", desde, hasta, null).total().isEmpty());
+        assertEquals(1, historial.consultar("canasta-0", desde, hasta, null).total().size());
+        assertEquals(1, historial.consultar("canasta-2", desde, hasta, null).total().size());
+        assertEquals(1, historial.consultar("nueva", desde, Instant.ofEpochMilli(ahora), null).total().size());
+    }
+
+    // PRUEBA 8: Con retención se descartan las observaciones y horas viejas; los días se conservan
+    @Test
+    @DisplayName("Test: Retención de observaciones y resúmenes")
+    void testRetencion() {
+        long dia = TimeUnit.DAYS.toMillis(1);
+        HistorialService conRetencion = new HistorialService(10, 100, dia, 3 * dia, () -> ahora);
+        SerieTemporal serie = new SerieTemporal(dia, 3 * dia);
+        int minutos = 10 * 24 * 60;
+        for (int m = 0; m < minutos; m++) {
+            conRetencion.registrarAgregados("ana", List.of(new ItemCanasta("Arroz", 4000 + m % 100, 1)), 4000);
+            serie.agregar(ahora, m);
+            ahora += TimeUnit.MINUTES.toMillis(1);
+        }
+
+        // La serie no crece con los días; lo conservado empieza en un bloque y está completo después
+        assertTrue(serie.puntos() < 3 * 24 * 60);
+        assertTrue(serie.puntosDesde() >= ahora - 3 * dia && serie.puntosDesde() <= ahora - dia);
+        assertTrue(serie.horasDesde() >= ahora - 7 * dia && serie.horasDesde() <= ahora - 3 * dia);
+        List<Long> instantes = new ArrayList<>();
+        serie.recorrer(Long.MIN_VALUE, Long.MAX_VALUE, Resolucion.PUNTOS,
+                (instante, primero, ultimo, minimo, maximo, cantidad) -> instantes.add(instante));
+        assertEquals(serie.puntos(), instantes.size());
+        assertEquals(serie.puntosDesde() - 1, (long) instantes.get(0));
+
+        // Las últimas horas se consultan con cada observación
+        Instant hasta = Instant.ofEpochMilli(ahora);
+        ConsultaHistorial reciente = conRetencion.consultar("ana", hasta.minus(Duration.ofHours(12)), hasta, null);
+        assertEquals(Resolucion.PUNTOS, reciente.resolucion());
+        assertEquals(720, reciente.total().size());
+
+        // Cinco días atrás ya no hay observaciones ni horas: se responde por días, sin perder ninguna
+        Instant desde = Instant.ofEpochMilli(INICIO);
+        ConsultaHistorial todo = conRetencion.consultar("ana", desde, hasta, null);
+        assertEquals(Resolucion.DIA, todo.resolucion());
+        assertEquals(10, todo.total().size());
+        assertEquals(minutos, todo.total().stream().mapToLong(PuntoHistorial::observaciones).sum());
+        assertEquals(minutos, todo.productos().get(0).observaciones());
+    }
+}
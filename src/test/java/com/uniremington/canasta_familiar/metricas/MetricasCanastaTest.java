@@ -0,0 +1,114 @@
+package com.uniremington.canasta_familiar.metricas;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.persistencia.PersistenciaCanastas;
+import com.uniremington.canasta_familiar.service.CachePdf;
+import com.uniremington.canasta_familiar.service.CanastaService;
+import com.uniremington.canasta_familiar.service.PdfService;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import com.uniremington.canasta_familiar.store.RegistroCanastas;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de las métricas de canastas y PDF
+ * Usa un registro de Micrometer en memoria
+ */
+class MetricasCanastaTest {
+
+    private SimpleMeterRegistry registro;
+
+    @BeforeEach
+    void setUp() {
+        registro = new SimpleMeterRegistry();
+    }
+
+    private CanastaService crearServicio(int muestreo) {
+        return new CanastaService(new RegistroCanastas(), (PersistenciaCanastas) null,
+                new MetricasCanasta(registro, muestreo));
+    }
+
+    // PRUEBA 1: Sin muestreo se mide cada operación y se publica el tamaño del registro
+    @Test
+    @DisplayName("Test: Métricas de agregar, limpiar y tamaño del registro")
+    void testMetricasCompletas() {
+        CanastaService servicio = crearServicio(1);
+        servicio.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+        servicio.agregarLote("ana", List.of(new ItemCanasta("Leche", 4000, 1),
+                new ItemCanasta("Pan", 2000, 3)));
+        servicio.agregarItem(new ItemCanasta("Frijol", 3000, 1));
+        servicio.calcularTotal();
+
+        assertEquals(3, registro.get("canasta.agregar").timer().count());
+        assertEquals(4, registro.get("canasta.items.agregados").counter().count(), 0.0);
+        assertEquals(2, registro.get("canasta.canastas").gauge().value(), 0.0);
+        assertEquals(4, registro.get("canasta.items.residentes").gauge().value(), 0.0);
+        assertEquals(1, registro.get("canasta.calculo").tag("operacion", "total").timer().count());
+
+        servicio.limpiarCanasta("ana");
+        assertEquals(1, registro.get("canasta.limpiar").timer().count());
+        assertEquals(1, registro.get("canasta.items.residentes").gauge().value(), 0.0);
+    }
+
+    // PRUEBA 2: Con muestreo los tiempos se toman de algunas operaciones, los items se cuentan todos
+    @Test
+    @DisplayName("Test: Muestreo de las operaciones frecuentes")
+    void testMuestreo() {
+        CanastaService servicio = crearServicio(100);
+        for (int i = 0; i < 10_000; i++) {
+            servicio.agregarItem("ana", new ItemCanasta("Arroz", 1000, 1));
+        }
+
+        Timer agregar = registro.get("canasta.agregar").timer();
+        assertTrue(agregar.count() > 0 && agregar.count() < 1_000,
+                "Muestras fuera de lo esperado: " + agregar.count());
+        assertEquals(10_000, registro.get("canasta.items.agregados").counter().count(), 0.0);
+    }
+
+    // PRUEBA 3: Cada PDF generado registra tiempo, bytes y filas; la caché no genera
+    @Test
+    @DisplayName("Test: Métricas de generación del PDF")
+    void testMetricasPdf() throws IOException {
+        CanastaService servicio = crearServicio(1);
+        for (int i = 0; i < 25; i++) {
+            servicio.agregarItem("ana", new ItemCanasta("Producto " + i, 1000 + i, 1));
+        }
+        PdfService pdfService = new PdfService(new CachePdf(), new MetricasCanasta(registro, 1));
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        pdfService.escribirResumen("ana", servicio.obtenerInstantanea("ana"), salida);
+        pdfService.escribirResumen("ana", servicio.obtenerInstantanea("ana"), new ByteArrayOutputStream());
+
+        assertEquals(1, registro.get("canasta.pdf.generacion").timer().count());
+        DistributionSummary bytes = registro.get("canasta.pdf.bytes").summary();
+        assertEquals(salida.size(), bytes.totalAmount(), 0.0);
+        assertEquals(25, registro.get("canasta.pdf.filas").summary().totalAmount(), 0.0);
+    }
+
+    // PRUEBA 4: Los cálculos sobre una instantánea ya tomada (los que usan los controladores) se miden
+    @Test
+    @DisplayName("Test: Métricas de los cálculos sobre una instantánea")
+    void testCalculosSobreInstantanea() {
+        CanastaService servicio = crearServicio(1);
+        servicio.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+        InstantaneaCanasta canasta = servicio.obtenerInstantanea("ana");
+
+        assertEquals(10000.0, servicio.calcularTotal(canasta).aDouble());
+        assertEquals(5000.0, servicio.calcularPromedio(canasta));
+        assertEquals(1, servicio.obtenerProductosMasCostosos(canasta, 3).size());
+
+        for (String operacion : List.of("total", "promedio", "mas-costosos")) {
+            assertEquals(1, registro.get("canasta.calculo").tag("operacion", operacion).timer().count(), operacion);
+        }
+    }
+}
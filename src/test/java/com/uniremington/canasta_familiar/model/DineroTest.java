@@ -0,0 +1,50 @@
+package com.uniremington.canasta_familiar.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DineroTest {
+
+    // PRUEBA 1: La conversión desde pesos redondea al centavo más cercano
+    @Test
+    @DisplayName("Test: Conversión de pesos a centavos")
+    void testConversionDesdePesos() {
+        assertEquals(150_025, Dinero.de(1500.25).centavos());
+        assertEquals(1, Dinero.de(0.005).centavos());
+        assertEquals(-1, Dinero.de(-0.014).centavos());
+        assertEquals(Dinero.CERO, Dinero.de(0));
+        assertEquals(new BigDecimal("1500.25"), Dinero.de(1500.25).aBigDecimal());
+        assertEquals("0.30", Dinero.de(0.1).sumar(Dinero.de(0.2)).toString());
+    }
+
+    // PRUEBA 2: Montos que no caben con precisión de centavos se rechazan
+    @Test
+    @DisplayName("Test: Montos no representables lanzan excepción")
+    void testMontosNoRepresentables() {
+        assertFalse(Dinero.esRepresentable(Double.NaN));
+        assertFalse(Dinero.esRepresentable(Double.POSITIVE_INFINITY));
+        assertFalse(Dinero.esRepresentable(1e14));
+        assertTrue(Dinero.esRepresentable(9e13));
+        assertThrows(ArithmeticException.class, () -> Dinero.de(Double.NaN));
+        assertThrows(ArithmeticException.class, () -> Dinero.de(-1e300));
+    }
+
+    // PRUEBA 3: Sumas y productos exactos que detectan el desbordamiento
+    @Test
+    @DisplayName("Test: Operaciones exactas con desbordamiento")
+    void testOperacionesExactas() {
+        Dinero precio = Dinero.deCentavos(333);
+        assertEquals(Dinero.deCentavos(999), precio.multiplicar(3));
+        assertEquals(Dinero.deCentavos(666), precio.sumar(precio));
+        assertTrue(precio.compareTo(Dinero.deCentavos(334)) < 0);
+
+        Dinero maximo = Dinero.deCentavos(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> maximo.sumar(Dinero.deCentavos(1)));
+        assertThrows(ArithmeticException.class, () -> maximo.multiplicar(2));
+        assertEquals(new BigDecimal("92233720368547758.07"), maximo.aBigDecimal());
+    }
+}
@@ -0,0 +1,242 @@
+package com.uniremington.canasta_familiar.persistencia;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.service.CanastaService;
+import com.uniremington.canasta_familiar.store.RegistroCanastas;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la persistencia en disco
+ * Cada "reinicio" crea un registro vacío y lo recupera del mismo directorio
+ */
+class PersistenciaCanastasTest {
+
+    @TempDir
+    Path directorio;
+
+    private final List<PersistenciaCanastas> abiertas = new ArrayList<>();
+
+    private RegistroCanastas registro;
+    private PersistenciaCanastas persistencia;
+    private CanastaService canastaService;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (PersistenciaCanastas abierta : abiertas) {
+            abierta.detener();
+        }
+    }
+
+    // Arranca sobre el directorio, recuperando lo que haya
+    private void arrancar(long compactarBytes) throws IOException {
+        arrancar(compactarBytes, 1_000_000);
+    }
+
+    private void arrancar(long compactarBytes, long maxItems) throws IOException {
+        registro = new RegistroCanastas(3, maxItems, 30, 10);
+        persistencia = new PersistenciaCanastas(registro, directorio, true, compactarBytes);
+        persistencia.iniciar();
+        abiertas.add(persistencia);
+        canastaService = new CanastaService(registro, persistencia);
+    }
+
+    // Simula una caída: cierra la bitácora sin escribir punto de control
+    private void caer() throws IOException {
+        abiertas.remove(persistencia);
+        persistencia.detener();
+    }
+
+    // PRUEBA 1: Al reiniciar se reproduce la bitácora en el mismo orden
+    @Test
+    @DisplayName("Test: Reinicio reproduce agregados y limpiezas")
+    void testReinicioReproduceBitacora() throws IOException {
+        arrancar(PersistenciaCanastas.COMPACTAR_BYTES_POR_DEFECTO);
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+        canastaService.agregarItem("luis", new ItemCanasta("Viejo", 1000, 1));
+        canastaService.limpiarCanasta("luis");
+        canastaService.agregarLote("luis", List.of(new ItemCanasta("Frijol", 3000.5, 1),
+                new ItemCanasta("Leche", 4000, 3)));
+        caer();
+
+        arrancar(PersistenciaCanastas.COMPACTAR_BYTES_POR_DEFECTO);
+
+        assertEquals("[Arroz x2]", nombres("ana"));
+        assertEquals("[Frijol x1, Leche x3]", nombres("luis"));
+        assertEquals(1_500_050, canastaService.obtenerInstantanea("luis").total().centavos());
+        EstadisticasPersistencia estadisticas = persistencia.estadisticas();
+        assertEquals(4, estadisticas.registrosReproducidos());
+        assertEquals(3, estadisticas.itemsRecuperados());
+    }
+
+    // PRUEBA 2: El punto de control reemplaza la bitácora anterior; lo posterior se reproduce
+    @Test
+    @DisplayName("Test: Punto de control más bitácora posterior")
+    void testPuntoControlYBitacoraPosterior() throws IOException {
+        arrancar(PersistenciaCanastas.COMPACTAR_BYTES_POR_DEFECTO);
+        for (int i = 0; i < 100; i++) {
+            canastaService.agregarItem("ana", new ItemCanasta("Producto " + (i % 7), 1000 + i, 1));
+        }
+        persistencia.compactar();
+        canastaService.agregarItem("ana", new ItemCanasta("Después", 2000, 1));
+        caer();
+
+        assertEquals(1, PuntoControl.existentes(directorio).size());
+        arrancar(PersistenciaCanastas.COMPACTAR_BYTES_POR_DEFECTO);
+
+        assertEquals(101, canastaService.obtenerInstantanea("ana").size());
+        assertEquals("Después", canastaService.obtenerInstantanea("ana").nombre(100));
+        assertEquals(1, persistencia.estadisticas().registrosReproducidos());
+        assertEquals(101, persistencia.estadisticas().itemsRecuperados());
+    }
+
+    // PRUEBA 3: Un registro cortado por una caída se descarta y la bitácora sigue después
+    @Test
+    @DisplayName("Test: Registro incompleto al final de la bitácora")
+    void testRegistroIncompleto() throws IOException {
+        arrancar(PersistenciaCanastas.COMPACTAR_BYTES_POR_DEFECTO);
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+        canastaService.agregarItem("ana", new ItemCanasta("Cortado", 1000, 1));
+        caer();
+
+        Path segmento = Bitacora.segmentos(directorio).get(0);
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.WRITE)) {
+            canal.truncate(canal.size() - 5);
+        }
+
+        arrancar(PersistenciaCanastas.COMPACTAR_BYTES_POR_DEFECTO);
+        assertEquals("[Arroz x2]", nombres("ana"));
+        canastaService.agregarItem("ana", new ItemCanasta("Leche", 4000, 1));
+        caer();
+
+        arrancar(PersistenciaCanastas.COMPACTAR_BYTES_POR_DEFECTO);
+        assertEquals("[Arroz x2, Leche x1]", nombres("ana"));
+    }
+
+    // PRUEBA 4: Con muchos escritores a la vez, cada fsync cubre varios registros
+    @Test
+    @DisplayName("Test: Escritura agrupada con escritores concurrentes")
+    void testEscrituraAgrupada() throws Exception {
+        arrancar(PersistenciaCanastas.COMPACTAR_BYTES_POR_DEFECTO);
+        int hilos = 8;
+        int porHilo = 200;
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            String id = "c" + (h % 3);
+            tareas.add(ejecutor.submit(() -> {
+                largada.await();
+                for (int i = 0; i < porHilo; i++) {
+                    canastaService.agregarItem(id, new ItemCanasta("Arroz", 1000, 1));
+                }
+                return null;
+            }));
+        }
+        largada.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        ejecutor.shutdown();
+
+        EstadisticasPersistencia estadisticas = persistencia.estadisticas();
+        assertEquals(hilos * porHilo, estadisticas.registrosEscritos());
+        assertTrue(estadisticas.tandasEscritas() < estadisticas.registrosEscritos());
+        caer();
+
+        arrancar(PersistenciaCanastas.COMPACTAR_BYTES_POR_DEFECTO);
+        int total = 0;
+        for (int c = 0; c < 3; c++) {
+            total += canastaService.obtenerInstantanea("c" + c).size();
+        }
+        assertEquals(hilos * porHilo, total);
+    }
+
+    // PRUEBA 5: Una canasta expulsada de memoria no vuelve al reiniciar
+    @Test
+    @DisplayName("Test: Expulsión anotada en la bitácora")
+    void testExpulsionAnotada() throws IOException {
+        arrancar(PersistenciaCanastas.COMPACTAR_BYTES_POR_DEFECTO);
+        for (int i = 0; i < 4; i++) {
+            canastaService.agregarItem("c" + i, new ItemCanasta("Arroz", 1000, 1));
+        }
+        assertNull(registro.buscar("c0"));
+        caer();
+
+        arrancar(PersistenciaCanastas.COMPACTAR_BYTES_POR_DEFECTO);
+        assertNull(registro.buscar("c0"));
+        assertEquals(3, registro.estadisticas().canastas());
+    }
+
+    // PRUEBA 6: Al superar los bytes configurados se compacta y se borra la bitácora anterior
+    @Test
+    @DisplayName("Test: Compactación automática por tamaño")
+    void testCompactacionPorTamano() throws IOException {
+        arrancar(1_000);
+        for (int i = 0; i < 50; i++) {
+            canastaService.agregarItem("ana", new ItemCanasta("Arroz", 1000, 1));
+        }
+        persistencia.compactarSiHaceFalta();
+        canastaService.limpiarCanasta("ana");
+
+        EstadisticasPersistencia estadisticas = persistencia.estadisticas();
+        assertEquals(1, estadisticas.puntosControl());
+        assertTrue(estadisticas.bytesDesdePuntoControl() < 1_000);
+        assertEquals(1, Bitacora.segmentos(directorio).size());
+        caer();
+
+        arrancar(1_000);
+        assertEquals(0, canastaService.obtenerInstantanea("ana").size());
+        assertEquals(1, persistencia.estadisticas().registrosReproducidos());
+    }
+
+    // PRUEBA 7: Si lo recuperado supera un límite más bajo, se arranca igual y se expulsa
+    // (anotándolo) lo menos usado hasta entrar
+    @Test
+    @DisplayName("Test: Recuperación con un límite de items más bajo")
+    void testRecuperacionConLimiteMenor() throws IOException {
+        arrancar(PersistenciaCanastas.COMPACTAR_BYTES_POR_DEFECTO);
+        for (int i = 0; i < 5; i++) {
+            canastaService.agregarItem("ana", new ItemCanasta("Arroz", 1000, 1));
+        }
+        persistencia.compactar();
+        for (int i = 0; i < 5; i++) {
+            canastaService.agregarItem("luis", new ItemCanasta("Leche", 3000, 1));
+        }
+        caer();
+
+        arrancar(PersistenciaCanastas.COMPACTAR_BYTES_POR_DEFECTO, 6);
+        assertNull(registro.buscar("ana"));
+        assertEquals(5, canastaService.obtenerInstantanea("luis").size());
+        assertEquals(5, registro.estadisticas().items());
+        assertEquals(10, persistencia.estadisticas().itemsRecuperados());
+        caer();
+
+        arrancar(PersistenciaCanastas.COMPACTAR_BYTES_POR_DEFECTO);
+        assertNull(registro.buscar("ana"));
+        assertEquals(5, canastaService.obtenerInstantanea("luis").size());
+    }
+
+    private String nombres(String idCanasta) {
+        List<String> nombres = new ArrayList<>();
+        for (ItemCanasta item : canastaService.obtenerInstantanea(idCanasta)) {
+            nombres.add(item.getNombre() + " x" + item.getCantidad());
+        }
+        return nombres.toString();
+    }
+}
@@ -0,0 +1,112 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.store.CanastaStore;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import com.uniremington.canasta_familiar.store.TipoAlmacen;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del análisis de canastas
+ * El recorrido paralelo (umbral 0, cuatro hilos) debe dar exactamente lo
+ * mismo que el secuencial y que los agregados que mantiene la canasta
+ */
+class AnalisisServiceTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void crearPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void cerrarPool() {
+        pool.shutdownNow();
+    }
+
+    // PRUEBA 1: Paralelo y secuencial coinciden con los agregados de la canasta
+    @Test
+    @DisplayName("Test: Estadísticas en paralelo iguales a las secuenciales")
+    void testParaleloIgualASecuencial() {
+        AnalisisService paralelo = new AnalisisService(0, pool);
+        AnalisisService secuencial = new AnalisisService(Integer.MAX_VALUE, pool);
+
+        for (TipoAlmacen almacen : TipoAlmacen.values()) {
+            InstantaneaCanasta canasta = canastaAleatoria(almacen, 300_000, 42);
+
+            EstadisticasCanasta esperadas = secuencial.analizar(canasta, 20);
+            EstadisticasCanasta obtenidas = paralelo.analizar(canasta, 20);
+
+            // Con el almacén en columnas cada lectura crea un item: se comparan por texto
+            assertEquals(esperadas.toString(), obtenidas.toString());
+            assertEquals(canasta.size(), obtenidas.cantidadItems());
+            assertEquals(canasta.calcularTotal(), obtenidas.total());
+            assertEquals(canasta.calcularPromedio(), obtenidas.promedio());
+            assertEquals(canasta.obtenerMasCostosos(20).toString(), obtenidas.masCostosos().toString());
+            assertEquals(1, obtenidas.precioMinimo());
+            assertEquals(500, obtenidas.precioMaximo());
+        }
+    }
+
+    // PRUEBA 2: Con precios repetidos, el más costoso agregado antes va primero
+    @Test
+    @DisplayName("Test: Empates del top en orden de llegada")
+    void testEmpatesEnOrdenDeLlegada() {
+        CanastaStore store = new CanastaStore();
+        List<ItemCanasta> lote = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            lote.add(new ItemCanasta("P" + i, i % 1_000 == 999 ? 7_000 : 100, 1));
+        }
+        store.agregarTodos(lote);
+
+        EstadisticasCanasta estadisticas = new AnalisisService(0, pool).analizar(store.instantanea(), 5);
+
+        List<String> nombres = estadisticas.masCostosos().stream().map(ItemCanasta::getNombre).toList();
+        assertEquals(List.of("P999", "P1999", "P2999", "P3999", "P4999"), nombres);
+    }
+
+    // PRUEBA 3: Canasta vacía, top inválido y total que desborda
+    @Test
+    @DisplayName("Test: Casos límite del análisis")
+    void testCasosLimite() {
+        AnalisisService analisis = new AnalisisService(0, pool);
+        CanastaStore store = new CanastaStore();
+
+        EstadisticasCanasta vacia = analisis.analizar(store.instantanea(), 3);
+        assertEquals(new EstadisticasCanasta(0, 0, 0, 0, 0, List.of()), vacia);
+
+        assertThrows(IllegalArgumentException.class, () -> analisis.analizar(store.instantanea(), 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> analisis.analizar(store.instantanea(), AnalisisService.MAX_TOP + 1));
+
+        ItemCanasta enorme = new ItemCanasta("Enorme", 80_000_000_000_000.0, 1_000);
+        store.agregar(enorme);
+        store.agregar(enorme);
+        assertThrows(ArithmeticException.class, () -> analisis.analizar(store.instantanea(), 3));
+    }
+
+    private static InstantaneaCanasta canastaAleatoria(TipoAlmacen almacen, int tamano, long semilla) {
+        Random aleatorio = new Random(semilla);
+        CanastaStore store = new CanastaStore(CanastaStore.CAPACIDAD_RANKING_POR_DEFECTO, almacen);
+        List<ItemCanasta> lote = new ArrayList<>(tamano);
+        for (int i = 0; i < tamano; i++) {
+            double precio = 1 + aleatorio.nextInt(49_900) / 100.0;
+            lote.add(new ItemCanasta("P" + aleatorio.nextInt(1_000), precio, 1 + aleatorio.nextInt(20)));
+        }
+        lote.set(tamano / 3, new ItemCanasta("Barato", 1, 1));
+        lote.set(tamano / 2, new ItemCanasta("Caro", 500, 1));
+        store.agregarTodos(lote);
+        return store.instantanea();
+    }
+}
@@ -0,0 +1,92 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la caché de resúmenes PDF
+ */
+class CachePdfTest {
+
+    // PRUEBA 1: Solo se entrega el PDF de la misma versión
+    @Test
+    @DisplayName("Test: PDF guardado por versión")
+    void testPdfPorVersion() {
+        CachePdf cache = new CachePdf(1_000, 100);
+        cache.guardar("ana", 5, new byte[10]);
+
+        assertNotNull(cache.obtener("ana", 5));
+        assertNull(cache.obtener("ana", 6));
+        assertNull(cache.obtener("luis", 5));
+
+        // Una versión vieja no reemplaza a la nueva
+        cache.guardar("ana", 4, new byte[20]);
+        assertEquals(10, cache.obtener("ana", 5).length);
+        assertEquals(1, cache.estadisticas().pdfs());
+    }
+
+    // PRUEBA 2: Al superar la memoria máxima se expulsa el menos usado
+    @Test
+    @DisplayName("Test: Expulsión por tamaño")
+    void testExpulsionPorTamano() {
+        CachePdf cache = new CachePdf(250, 100);
+        cache.guardar("a", 1, new byte[100]);
+        cache.guardar("b", 1, new byte[100]);
+        cache.obtener("a", 1);
+        cache.guardar("c", 1, new byte[100]);
+
+        assertNotNull(cache.obtener("a", 1));
+        assertNull(cache.obtener("b", 1));
+        assertNotNull(cache.obtener("c", 1));
+        assertEquals(200, cache.estadisticas().bytes());
+
+        // Un PDF más grande que el máximo por PDF no se guarda
+        cache.guardar("d", 1, new byte[101]);
+        assertNull(cache.obtener("d", 1));
+    }
+
+    // PRUEBA 3: La captura se descarta si supera el límite, sin cortar la salida
+    @Test
+    @DisplayName("Test: Captura limitada de la salida")
+    void testCapturaLimitada() throws Exception {
+        CachePdf cache = new CachePdf(1_000, 8);
+        ByteArrayOutputStream destino = new ByteArrayOutputStream();
+        CachePdf.Captura captura = cache.capturar(destino);
+
+        captura.write(new byte[5], 0, 5);
+        assertEquals(5, captura.capturado().length);
+        captura.write(new byte[5], 0, 5);
+
+        assertNull(captura.capturado());
+        assertEquals(10, destino.size());
+    }
+
+    // PRUEBA 4: El segundo resumen de la misma versión sale de la caché
+    @Test
+    @DisplayName("Test: Resumen reutilizado mientras la canasta no cambia")
+    void testResumenReutilizado() throws Exception {
+        CanastaService canastaService = new CanastaService();
+        CachePdf cache = new CachePdf();
+        PdfService pdfService = new PdfService(cache);
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+
+        ByteArrayOutputStream primero = new ByteArrayOutputStream();
+        pdfService.escribirResumen("ana", canastaService.obtenerInstantanea("ana"), primero);
+        ByteArrayOutputStream segundo = new ByteArrayOutputStream();
+        pdfService.escribirResumen("ana", canastaService.obtenerInstantanea("ana"), segundo);
+
+        assertArrayEquals(primero.toByteArray(), segundo.toByteArray());
+        assertEquals(1, cache.estadisticas().aciertos());
+
+        canastaService.agregarItem("ana", new ItemCanasta("Frijol", 3000, 1));
+        InstantaneaCanasta nueva = canastaService.obtenerInstantanea("ana");
+        pdfService.escribirResumen("ana", nueva, new ByteArrayOutputStream());
+        assertEquals(2, cache.estadisticas().fallos());
+    }
+}
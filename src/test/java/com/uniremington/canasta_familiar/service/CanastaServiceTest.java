@@ -1,10 +1,17 @@
 package com.uniremington.canasta_familiar.service;
 
+import com.uniremington.canasta_familiar.eventos.DifusionCambios;
+import com.uniremington.canasta_familiar.historial.HistorialService;
+import com.uniremington.canasta_familiar.metricas.MetricasCanasta;
 import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.persistencia.PersistenciaCanastas;
+import com.uniremington.canasta_familiar.store.RegistroCanastas;
+import com.uniremington.canasta_familiar.store.TotalesProducto;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.time.Instant;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -170,4 +177,215 @@ class CanastaServiceTest {
         // Assert
         assertEquals(15000, subtotal, 0.01);
     }
-}
\ No newline at end of file
+
+    // PRUEBA 11: Top N configurable
+    @Test
+    @DisplayName("Test: Obtener los N productos más costosos")
+    void testObtenerProductosMasCostososConLimite() {
+        // Arrange
+        for (int i = 1; i <= 20; i++) {
+            canastaService.agregarItem(new ItemCanasta("Producto" + i, i * 1000, 1));
+        }
+
+        // Act
+        List<ItemCanasta> costosos = canastaService.obtenerProductosMasCostosos(10);
+
+        // Assert
+        assertEquals(10, costosos.size());
+        assertEquals("Producto20", costosos.get(0).getNombre());
+        assertEquals("Producto11", costosos.get(9).getNombre());
+    }
+
+    // PRUEBA 12: Top N con cantidad inválida
+    @Test
+    @DisplayName("Test: Top N con cantidad inválida lanza excepción")
+    void testProductosMasCostososCantidadInvalida() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            canastaService.obtenerProductosMasCostosos(0);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            canastaService.obtenerProductosMasCostosos(AnalisisService.MAX_TOP + 1);
+        });
+        assertTrue(canastaService.obtenerProductosMasCostosos(AnalisisService.MAX_TOP).isEmpty());
+    }
+
+    // PRUEBA 13: Paginación por posición
+    @Test
+    @DisplayName("Test: Página de items por posición y límite")
+    void testPaginaPorPosicion() {
+        // Arrange
+        for (int i = 0; i < 25; i++) {
+            canastaService.agregarItem("ana", new ItemCanasta("Producto" + i, 1000, 1));
+        }
+
+        // Act
+        PaginaItems pagina = canastaService.obtenerPagina("ana", 20, 10);
+
+        // Assert
+        assertEquals(5, pagina.items().size());
+        assertEquals("Producto20", pagina.items().get(0).getNombre());
+        assertEquals(25, pagina.total());
+        assertFalse(pagina.hayMas());
+        assertTrue(canastaService.obtenerPagina("ana", 100, 10).items().isEmpty());
+    }
+
+    // PRUEBA 14: El cursor recorre la canasta y luego ve los items nuevos
+    @Test
+    @DisplayName("Test: Recorrer la canasta con cursor")
+    void testPaginaConCursor() {
+        // Arrange
+        for (int i = 0; i < 7; i++) {
+            canastaService.agregarItem("ana", new ItemCanasta("Producto" + i, 1000, 1));
+        }
+
+        // Act
+        PaginaItems primera = canastaService.obtenerPagina("ana", 0, 3);
+        PaginaItems segunda = canastaService.obtenerPaginaDesdeCursor("ana", primera.siguiente(), 3);
+        PaginaItems tercera = canastaService.obtenerPaginaDesdeCursor("ana", segunda.siguiente(), 3);
+        canastaService.agregarItem("ana", new ItemCanasta("Nuevo", 1000, 1));
+        PaginaItems nuevos = canastaService.obtenerPaginaDesdeCursor("ana", tercera.siguiente(), 3);
+
+        // Assert
+        assertEquals("Producto3", segunda.items().get(0).getNombre());
+        assertEquals(1, tercera.items().size());
+        assertFalse(tercera.hayMas());
+        assertEquals(1, nuevos.items().size());
+        assertEquals("Nuevo", nuevos.items().get(0).getNombre());
+    }
+
+    // PRUEBA 15: El cursor deja de valer si la canasta se limpió o es de otra canasta
+    @Test
+    @DisplayName("Test: Cursor inválido después de limpiar")
+    void testCursorInvalido() {
+        // Arrange
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 1000, 1));
+        String cursor = canastaService.obtenerPagina("ana", 0, 1).siguiente();
+        canastaService.agregarItem("luis", new ItemCanasta("Frijol", 1000, 1));
+
+        // Act
+        canastaService.limpiarCanasta("ana");
+
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> {
+            canastaService.obtenerPaginaDesdeCursor("ana", cursor, 10);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            canastaService.obtenerPaginaDesdeCursor("luis", cursor, 10);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            canastaService.obtenerPaginaDesdeCursor("ana", "no-es-un-cursor", 10);
+        });
+    }
+
+    // PRUEBA 16: Límite de página fuera de rango
+    @Test
+    @DisplayName("Test: Límite de página inválido lanza excepción")
+    void testLimitePaginaInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            canastaService.obtenerPagina("ana", 0, 0);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            canastaService.obtenerPagina("ana", 0, CanastaService.MAX_LIMITE_PAGINA + 1);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            canastaService.obtenerPagina("ana", -1, 10);
+        });
+    }
+
+    // PRUEBA 17: Totales por producto, sin crear la canasta al consultar
+    @Test
+    @DisplayName("Test: Cantidad y subtotal por producto")
+    void testTotalesPorProducto() {
+        // Arrange
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+        canastaService.agregarItem("ana", new ItemCanasta("arroz", 5000, 1));
+
+        // Act
+        TotalesProducto arroz = canastaService.obtenerTotalesProducto("ana", "ARROZ");
+
+        // Assert
+        assertEquals(3, arroz.cantidad());
+        assertEquals(15000, arroz.subtotal(), 0.01);
+        assertEquals(1, canastaService.obtenerTotalesProductos("ana").size());
+        assertNull(canastaService.obtenerTotalesProducto("luis", "Arroz"));
+        assertTrue(canastaService.obtenerTotalesProductos("luis").isEmpty());
+        assertEquals(1, canastaService.obtenerEstadisticasRegistro().canastas());
+        assertThrows(IllegalArgumentException.class, () -> {
+            canastaService.obtenerTotalesProducto("ana", " ");
+        });
+    }
+
+    // PRUEBA 18: Búsqueda de productos con límite
+    @Test
+    @DisplayName("Test: Buscar productos por prefijo")
+    void testBuscarProductos() {
+        // Arrange
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+        canastaService.agregarItem("ana", new ItemCanasta("Leche de arroz", 9000, 1));
+
+        // Act
+        List<TotalesProducto> encontrados = canastaService.buscarProductos("ana", "arr", 10);
+
+        // Assert
+        assertEquals(2, encontrados.size());
+        assertEquals("Arroz", encontrados.get(0).nombre());
+        assertTrue(canastaService.buscarProductos("luis", "arr", 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> {
+            canastaService.buscarProductos("ana", "arr", CanastaService.MAX_LIMITE_BUSQUEDA + 1);
+        });
+    }
+
+    // PRUEBA 19: Precios no representables y subtotales que desbordan
+    @Test
+    @DisplayName("Test: Montos fuera de rango lanzan excepción")
+    void testMontosFueraDeRango() {
+        // Arrange
+        ItemCanasta noNumero = new ItemCanasta("Producto", Double.NaN, 1);
+        ItemCanasta enorme = new ItemCanasta("Producto", 1e300, 1);
+        ItemCanasta desborda = new ItemCanasta("Producto", 80_000_000_000_000.0, Integer.MAX_VALUE);
+
+        // Act & Assert
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+            canastaService.agregarItem(noNumero);
+        });
+        assertEquals("El precio no es un número válido", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> {
+            canastaService.agregarItem(enorme);
+        });
+        exception = assertThrows(IllegalArgumentException.class, () -> {
+            canastaService.agregarItem(desborda);
+        });
+        assertEquals("El subtotal del producto excede el rango permitido", exception.getMessage());
+        assertTrue(canastaService.obtenerItems().isEmpty());
+
+        // Los centavos se suman sin el error de redondeo de double
+        canastaService.agregarItem(new ItemCanasta("Dulce", 0.1, 1));
+        canastaService.agregarItem(new ItemCanasta("Chicle", 0.2, 1));
+        assertEquals(0.3, canastaService.calcularTotal());
+    }
+
+    // PRUEBA 20: El historial de una canasta expulsada del registro se descarta con ella
+    @Test
+    @DisplayName("Test: Historial de canastas expulsadas")
+    void testHistorialDeCanastaExpulsada() {
+        // Arrange: el registro guarda solo dos canastas
+        RegistroCanastas registro = new RegistroCanastas(2, 1_000, 30, 10);
+        CanastaService conHistorial = new CanastaService(registro, (PersistenciaCanastas) null, MetricasCanasta.deshabilitadas(),
+                new HistorialService(), new DifusionCambios());
+        Instant desde = Instant.now().minusSeconds(60);
+        Instant hasta = Instant.now().plusSeconds(60);
+
+        // Act
+        conHistorial.agregarItem("ana", new ItemCanasta("Arroz", 4000, 1));
+        assertEquals(1, conHistorial.consultarHistorial("ana", desde, hasta, null).total().size());
+        conHistorial.agregarItem("juan", new ItemCanasta("Arroz", 4000, 1));
+        conHistorial.agregarItem("luis", new ItemCanasta("Arroz", 4000, 1));
+
+        // Assert
+        assertEquals(1, registro.estadisticas().expulsionesPorCapacidad());
+        assertTrue(conHistorial.consultarHistorial("ana", desde, hasta, null).total().isEmpty());
+        assertEquals(1, conHistorial.consultarHistorial("luis", desde, hasta, null).total().size());
+        // Sin historial habilitado no hay nada que consultar
+        assertNull(canastaService.consultarHistorial("ana", desde, hasta, null));
+    }
+}
@@ -0,0 +1,102 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la escritura de la canasta en JSON
+ */
+class EscritorJsonTest {
+
+    private final JsonMapper mapper = JsonMapper.builder().build();
+
+    private CanastaService canastaService;
+
+    @BeforeEach
+    void setUp() {
+        canastaService = new CanastaService();
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz \"Diana\"", 5000.5, 2));
+        canastaService.agregarItem("ana", new ItemCanasta("Café", 12000, 1));
+        canastaService.agregarItem("ana", new ItemCanasta("Pan", 300, 3));
+    }
+
+    // PRUEBA 1: Los items quedan igual que con la serialización de Jackson
+    @Test
+    @DisplayName("Test: Items iguales a los de Jackson")
+    void testItemsIgualesAJackson() {
+        InstantaneaCanasta canasta = canastaService.obtenerInstantanea("ana");
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        EscritorJson.escribirItems(canasta, salida);
+
+        assertEquals(mapper.writeValueAsString(List.copyOf(canasta)), salida.toString(StandardCharsets.UTF_8));
+    }
+
+    // PRUEBA 2: Resumen con agregados, ranking e items
+    @Test
+    @DisplayName("Test: Resumen en JSON")
+    void testResumen() {
+        InstantaneaCanasta canasta = canastaService.obtenerInstantanea("ana");
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        EscritorJson.escribirResumen(canasta, canasta.total(), canasta.calcularPromedio(),
+                canasta.obtenerMasCostosos(2), salida);
+
+        JsonNode resumen = mapper.readTree(salida.toByteArray());
+        assertEquals(3, resumen.get("cantidadItems").asInt());
+        assertEquals(canasta.calcularTotal(), resumen.get("total").asDouble(), 0.001);
+        assertEquals(canasta.calcularPromedio(), resumen.get("promedio").asDouble(), 0.001);
+        assertEquals(2, resumen.get("productosMasCostosos").size());
+        assertEquals("Café", resumen.get("productosMasCostosos").get(0).get("nombre").asString());
+        assertEquals(mapper.valueToTree(List.copyOf(canasta)), resumen.get("items"));
+    }
+
+    // PRUEBA 3: La página queda igual que con la serialización de Jackson
+    @Test
+    @DisplayName("Test: Página en JSON")
+    void testPagina() {
+        PaginaItems pagina = canastaService.obtenerPagina("ana", 1, 5);
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+
+        EscritorJson.escribirPagina(pagina, salida);
+
+        assertEquals(mapper.writeValueAsString(pagina), salida.toString(StandardCharsets.UTF_8));
+    }
+
+    // PRUEBA 4: La salida no se cierra, así el servidor puede terminar la respuesta
+    @Test
+    @DisplayName("Test: La salida queda abierta")
+    void testSalidaAbierta() {
+        boolean[] cerrada = { false };
+        ByteArrayOutputStream destino = new ByteArrayOutputStream();
+        OutputStream salida = new OutputStream() {
+            @Override
+            public void write(int b) {
+                destino.write(b);
+            }
+
+            @Override
+            public void close() throws IOException {
+                cerrada[0] = true;
+            }
+        };
+
+        EscritorJson.escribirItems(canastaService.obtenerInstantanea("ana"), salida);
+
+        assertFalse(cerrada[0]);
+        assertTrue(destino.size() > 0);
+    }
+}
@@ -0,0 +1,192 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import com.uniremington.canasta_familiar.store.RegistroCanastas;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestaServiceTest {
+
+    private CanastaService canastaService;
+    private IngestaService ingestaService;
+
+    @BeforeEach
+    void setUp() {
+        canastaService = new CanastaService();
+        ingestaService = new IngestaService(canastaService);
+    }
+
+    // PRUEBA 1: Arreglo JSON válido
+    @Test
+    @DisplayName("Test: Carga JSON agrega todos los items válidos")
+    void testCargaJsonValida() {
+        String json = "[{\"nombre\":\"Arroz\",\"precio\":5000,\"cantidad\":2},"
+                + "{\"nombre\":\"Frijol\",\"precio\":3000.5,\"cantidad\":1,\"extra\":{\"a\":[1]}}]";
+
+        ResultadoIngesta resultado = ingestaService.ingerirJson("c", json(json));
+
+        assertEquals(2, resultado.aceptados());
+        assertEquals(0, resultado.rechazados());
+        assertEquals(13000.5, canastaService.obtenerInstantanea("c").calcularTotal(), 0.001);
+    }
+
+    // PRUEBA 2: Los items inválidos se rechazan con su posición y el resto se carga
+    @Test
+    @DisplayName("Test: Carga JSON informa los items rechazados")
+    void testCargaJsonConRechazos() {
+        String json = "[{\"nombre\":\"Arroz\",\"precio\":5000,\"cantidad\":2},"
+                + "{\"nombre\":\"\",\"precio\":1000,\"cantidad\":1},"
+                + "{\"nombre\":\"Sal\",\"precio\":\"caro\",\"cantidad\":1},"
+                + "7,"
+                + "{\"nombre\":\"Leche\",\"precio\":4000,\"cantidad\":1}]";
+
+        ResultadoIngesta resultado = ingestaService.ingerirJson("c", json(json));
+
+        assertEquals(2, resultado.aceptados());
+        assertEquals(3, resultado.rechazados());
+        assertEquals(2, resultado.errores().get(0).linea());
+        assertEquals("El nombre del producto no puede estar vacío", resultado.errores().get(0).mensaje());
+        assertEquals(3, resultado.errores().get(1).linea());
+        assertEquals(4, resultado.errores().get(2).linea());
+    }
+
+    // PRUEBA 3: JSON mal formado conserva lo cargado hasta el error
+    @Test
+    @DisplayName("Test: JSON mal formado detiene la carga")
+    void testJsonMalFormado() {
+        String json = "[{\"nombre\":\"Arroz\",\"precio\":5000,\"cantidad\":2},{\"nombre\":";
+
+        ResultadoIngesta resultado = ingestaService.ingerirJson("c", json(json));
+
+        assertEquals(1, resultado.aceptados());
+        assertEquals(1, resultado.rechazados());
+    }
+
+    // PRUEBA 4: El cuerpo JSON debe ser un arreglo
+    @Test
+    @DisplayName("Test: Cuerpo JSON que no es arreglo lanza excepción")
+    void testJsonNoEsArreglo() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            ingestaService.ingerirJson("c", json("{\"nombre\":\"Arroz\"}"));
+        });
+    }
+
+    // PRUEBA 5: CSV con encabezado, comillas y líneas inválidas
+    @Test
+    @DisplayName("Test: Carga CSV con encabezado y comillas")
+    void testCargaCsv() throws IOException {
+        String csv = "nombre,precio,cantidad\n"
+                + "\"Arroz, Diana\",5000,2\n"
+                + "\n"
+                + "Frijol,abc,1\n"
+                + "Sal,100\n"
+                + "Leche,-4000,1\n"
+                + "\"Aceite \"\"Premium\"\"\",12000,1\n";
+
+        ResultadoIngesta resultado = ingestaService.ingerirCsv("c", new StringReader(csv));
+
+        assertEquals(2, resultado.aceptados());
+        assertEquals(3, resultado.rechazados());
+        assertEquals(4, resultado.errores().get(0).linea());
+        assertEquals(5, resultado.errores().get(1).linea());
+        assertEquals(6, resultado.errores().get(2).linea());
+
+        InstantaneaCanasta canasta = canastaService.obtenerInstantanea("c");
+        assertEquals("Arroz, Diana", canasta.get(0).getNombre());
+        assertEquals("Aceite \"Premium\"", canasta.get(1).getNombre());
+    }
+
+    // PRUEBA 6: Cargas grandes se reparten en lotes y conservan el orden
+    @Test
+    @DisplayName("Test: Carga CSV de 200.000 líneas sin guardar el cuerpo")
+    void testCargaCsvGrande() throws IOException {
+        int lineas = 200_000;
+
+        ResultadoIngesta resultado = ingestaService.ingerirCsv("c", new CsvGenerado(lineas));
+
+        assertEquals(lineas, resultado.aceptados());
+        InstantaneaCanasta canasta = canastaService.obtenerInstantanea("c");
+        assertEquals(lineas, canasta.size());
+        assertEquals("P0", canasta.get(0).getNombre());
+        assertEquals("P" + (lineas - 1), canasta.get(lineas - 1).getNombre());
+    }
+
+    // PRUEBA 7: Se detalla un máximo de errores
+    @Test
+    @DisplayName("Test: Errores reportados acotados")
+    void testErroresAcotados() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            csv.append("P,0,1\n");
+        }
+
+        ResultadoIngesta resultado = ingestaService.ingerirCsv("c", new StringReader(csv.toString()));
+
+        assertEquals(500, resultado.rechazados());
+        assertEquals(IngestaService.MAX_ERRORES_REPORTADOS, resultado.errores().size());
+        assertTrue(resultado.erroresOmitidos());
+    }
+
+    // PRUEBA 8: Cuando la canasta se llena se deja de leer
+    @Test
+    @DisplayName("Test: Carga detenida al alcanzar el máximo de items")
+    void testCargaDetenidaPorCapacidad() throws IOException {
+        canastaService = new CanastaService(new RegistroCanastas(10, 2_500, 30, 10));
+        ingestaService = new IngestaService(canastaService);
+
+        ResultadoIngesta resultado = ingestaService.ingerirCsv("c", new CsvGenerado(5_000));
+
+        assertEquals(2_000, resultado.aceptados());
+        assertEquals(1_000, resultado.rechazados());
+        assertEquals(2_000, canastaService.obtenerInstantanea("c").size());
+    }
+
+    private static ByteArrayInputStream json(String texto) {
+        return new ByteArrayInputStream(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * CSV generado sobre la marcha, para no tener la carga completa en memoria
+     */
+    private static final class CsvGenerado extends Reader {
+
+        private final int lineas;
+        private int linea;
+        private String pendiente = "";
+        private int posicion;
+
+        private CsvGenerado(int lineas) {
+            this.lineas = lineas;
+        }
+
+        @Override
+        public int read(char[] destino, int desde, int cantidad) {
+            if (posicion == pendiente.length()) {
+                if (linea == lineas) {
+                    return -1;
+                }
+                pendiente = "P" + linea + "," + (1 + linea % 1000) + ",1\n";
+                posicion = 0;
+                linea++;
+            }
+            int copiados = Math.min(cantidad, pendiente.length() - posicion);
+            pendiente.getChars(posicion, posicion + copiados, destino, desde);
+            posicion += copiados;
+            return copiados;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
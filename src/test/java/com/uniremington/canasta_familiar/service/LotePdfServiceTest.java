@@ -0,0 +1,245 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.SimpleBookmark;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import com.uniremington.canasta_familiar.model.Dinero;
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de los resúmenes PDF por lotes
+ * Usa un presupuesto de filas pequeño para que los lotes tengan que
+ * escribir antes de seguir adelantando documentos
+ */
+class LotePdfServiceTest {
+
+    private static final int MAX_FILAS = 200;
+
+    private CanastaService canastaService;
+    private ExecutorService ejecutor;
+    private LotePdfService lotes;
+
+    @BeforeEach
+    void setUp() {
+        canastaService = new CanastaService();
+        ejecutor = Executors.newFixedThreadPool(4);
+        lotes = new LotePdfService(new PdfService(), canastaService, ejecutor, 8, MAX_FILAS, 50, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ejecutor.shutdownNow();
+    }
+
+    private List<String> llenarCanastas(int canastas) {
+        List<String> ids = new ArrayList<>();
+        for (int c = 0; c < canastas; c++) {
+            String id = "canasta-" + c;
+            for (int i = 0; i <= c % 7 * 20; i++) {
+                canastaService.agregarItem(id, new ItemCanasta("Producto " + c + "-" + i, 1000 + i, 1));
+            }
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    // PRUEBA 1: Un solo PDF con las páginas de cada canasta, en orden y con un marcador por canasta
+    @Test
+    @DisplayName("Test: Lote en un solo PDF con marcadores")
+    void testLotePdf() throws Exception {
+        List<String> ids = llenarCanastas(12);
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        assertEquals(12, lotes.escribirPdf(ids, salida));
+
+        PdfReader lector = new PdfReader(salida.toByteArray());
+        List<HashMap<String, Object>> marcadores = SimpleBookmark.getBookmark(lector);
+        assertEquals(12, marcadores.size());
+        int paginaEsperada = 1;
+        for (int c = 0; c < ids.size(); c++) {
+            HashMap<String, Object> marcador = marcadores.get(c);
+            assertEquals("Canasta " + ids.get(c), marcador.get("Title"));
+            int pagina = Integer.parseInt(((String) marcador.get("Page")).split(" ")[0]);
+            assertEquals(paginaEsperada, pagina);
+            assertTrue(PdfTextExtractor.getTextFromPage(lector, pagina).contains("Producto " + c + "-0"));
+            paginaEsperada += paginas(ids.get(c));
+        }
+        assertEquals(paginaEsperada - 1, lector.getNumberOfPages());
+        lector.close();
+        assertEquals(MAX_FILAS, lotes.filasDisponibles());
+    }
+
+    // PRUEBA 2: Un ZIP con un PDF por canasta, en orden y sin repetir canastas
+    @Test
+    @DisplayName("Test: Lote en ZIP")
+    void testLoteZip() throws Exception {
+        List<String> ids = new ArrayList<>(llenarCanastas(10));
+        ids.add("canasta-3");
+        ids.add("ana_juan-2");
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        assertEquals(11, lotes.escribirZip(ids, salida));
+
+        List<String> nombres = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(salida.toByteArray()))) {
+            ZipEntry entrada;
+            while ((entrada = zip.getNextEntry()) != null) {
+                nombres.add(entrada.getName());
+                byte[] pdf = zip.readAllBytes();
+                PdfReader lector = new PdfReader(pdf);
+                assertTrue(lector.getNumberOfPages() >= 1);
+                lector.close();
+            }
+        }
+        assertEquals(11, nombres.size());
+        assertEquals("00001-canasta-canasta-0.pdf", nombres.get(0));
+        assertEquals("00010-canasta-canasta-9.pdf", nombres.get(9));
+        assertEquals("00011-canasta-ana_juan-2.pdf", nombres.get(10));
+        assertEquals(MAX_FILAS, lotes.filasDisponibles());
+    }
+
+    // PRUEBA 3: Una canasta más grande que el presupuesto se genera sola; los lotes a la vez terminan
+    @Test
+    @DisplayName("Test: Presupuesto de filas compartido")
+    void testPresupuestoCompartido() throws Exception {
+        List<String> ids = llenarCanastas(20);
+        for (int i = 0; i < MAX_FILAS * 2; i++) {
+            canastaService.agregarItem("grande", new ItemCanasta("Grande " + i, 500, 1));
+        }
+        ids.add(5, "grande");
+
+        List<Throwable> errores = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> hilos = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread hilo = new Thread(() -> {
+                try {
+                    lotes.escribirZip(ids, OutputStream.nullOutputStream());
+                } catch (Throwable e) {
+                    errores.add(e);
+                }
+            });
+            hilos.add(hilo);
+            hilo.start();
+        }
+        for (Thread hilo : hilos) {
+            hilo.join(60_000);
+            assertFalse(hilo.isAlive());
+        }
+        assertEquals(List.of(), errores);
+        assertEquals(MAX_FILAS, lotes.filasDisponibles());
+    }
+
+    // PRUEBA 4: Un lote inválido (o con identificadores que la API no acepta) se rechaza antes de
+    // escribir; un error al generar devuelve el presupuesto
+    @Test
+    @DisplayName("Test: Errores del lote")
+    void testErrores() {
+        assertThrows(IllegalArgumentException.class, () -> lotes.validar(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> lotes.validar(List.of("ana", " ")));
+        assertThrows(IllegalArgumentException.class, () -> lotes.validar(List.of("ana/../juan")));
+        assertThrows(IllegalArgumentException.class, () -> lotes.validar(List.of("sesion:ABC123")));
+        assertThrows(IllegalArgumentException.class, () -> lotes.validar(List.of("a".repeat(65))));
+        assertEquals(List.of("a".repeat(64), "ana_juan-2"), lotes.validar(List.of("a".repeat(64), "ana_juan-2")));
+        List<String> demasiadas = new ArrayList<>();
+        for (int i = 0; i < 51; i++) {
+            demasiadas.add("canasta-" + i);
+        }
+        assertThrows(IllegalArgumentException.class, () -> lotes.validar(demasiadas));
+
+        List<String> ids = llenarCanastas(10);
+        PdfService fallaEnUnaCanasta = new PdfService() {
+            @Override
+            public void generarPdfResumen(List<ItemCanasta> items, Dinero total, double promedio,
+                    List<ItemCanasta> costosos, OutputStream salida) throws IOException {
+                // Solo la canasta-2 tiene 41 items
+                if (items.size() == 41) {
+                    throw new IOException("Falla de prueba");
+                }
+                super.generarPdfResumen(items, total, promedio, costosos, salida);
+            }
+        };
+        LotePdfService conFalla = new LotePdfService(fallaEnUnaCanasta, canastaService, ejecutor, 8, MAX_FILAS, 50, 60_000);
+        IOException error = assertThrows(IOException.class,
+                () -> conFalla.escribirPdf(ids, OutputStream.nullOutputStream()));
+        assertEquals("Falla de prueba", error.getMessage());
+        assertEquals(MAX_FILAS, conFalla.filasDisponibles());
+    }
+
+    // PRUEBA 5: Un lote que no consigue lugar en el presupuesto a tiempo falla en vez de esperar para siempre
+    @Test
+    @DisplayName("Test: Espera máxima por el presupuesto")
+    void testEsperaMaxima() throws Exception {
+        for (int i = 0; i < MAX_FILAS * 2; i++) {
+            canastaService.agregarItem("grande", new ItemCanasta("Grande " + i, 500, 1));
+        }
+        llenarCanastas(3);
+        CountDownLatch generando = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        PdfService lento = new PdfService() {
+            @Override
+            public void generarPdfResumen(List<ItemCanasta> items, Dinero total, double promedio,
+                    List<ItemCanasta> costosos, OutputStream salida) throws IOException {
+                if (items.size() > MAX_FILAS) {
+                    generando.countDown();
+                    try {
+                        liberar.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.generarPdfResumen(items, total, promedio, costosos, salida);
+            }
+        };
+        LotePdfService conEspera = new LotePdfService(lento, canastaService, ejecutor, 8, MAX_FILAS, 50, 100);
+
+        // La canasta grande ocupa todo el presupuesto mientras se genera
+        List<Throwable> errores = Collections.synchronizedList(new ArrayList<>());
+        Thread acaparador = new Thread(() -> {
+            try {
+                conEspera.escribirZip(List.of("grande"), OutputStream.nullOutputStream());
+            } catch (Throwable e) {
+                errores.add(e);
+            }
+        });
+        acaparador.start();
+        generando.await();
+
+        assertThrows(ColaReportesLlenaException.class,
+                () -> conEspera.escribirZip(List.of("canasta-0", "canasta-1"), OutputStream.nullOutputStream()));
+        assertEquals(0, conEspera.filasDisponibles());
+
+        liberar.countDown();
+        acaparador.join(60_000);
+        assertEquals(List.of(), errores);
+        assertEquals(MAX_FILAS, conEspera.filasDisponibles());
+    }
+
+    private int paginas(String id) throws IOException {
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+        new PdfService(new CachePdf(0, 0)).escribirResumen(id, canastaService.obtenerInstantanea(id), pdf);
+        PdfReader lector = new PdfReader(pdf.toByteArray());
+        int paginas = lector.getNumberOfPages();
+        lector.close();
+        return paginas;
+    }
+}
@@ -0,0 +1,166 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import com.uniremington.canasta_familiar.model.Dinero;
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.store.InstantaneaCanasta;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfServiceTest {
+
+    private PdfService pdfService;
+
+    @BeforeEach
+    void setUp() {
+        pdfService = new PdfService();
+    }
+
+    // PRUEBA 1: El PDF contiene los productos y el total
+    @Test
+    @DisplayName("Test: PDF generado contiene productos y total")
+    void testPdfContieneProductos() throws Exception {
+        List<ItemCanasta> items = List.of(
+                new ItemCanasta("Arroz", 5000, 2),
+                new ItemCanasta("Frijol", 3000, 1));
+
+        byte[] pdf = pdfService.generarPdfResumen(items, 13000, 4000, items);
+
+        PdfReader lector = new PdfReader(pdf);
+        String texto = PdfTextExtractor.getTextFromPage(lector, 1);
+        assertTrue(texto.contains("Arroz"));
+        assertTrue(texto.contains("Frijol"));
+        assertTrue(texto.contains("$13,000"));
+        lector.close();
+    }
+
+    // PRUEBA 2: Una canasta grande se escribe por bloques sin cerrar la salida
+    @Test
+    @DisplayName("Test: PDF de 20.000 filas escrito directamente en la salida")
+    void testPdfGrandeEnStreaming() throws Exception {
+        CanastaService canastaService = new CanastaService();
+        List<ItemCanasta> lote = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            lote.add(new ItemCanasta("Producto" + i, 1000 + i, 1));
+        }
+        canastaService.agregarLote("grande", lote);
+        InstantaneaCanasta canasta = canastaService.obtenerInstantanea("grande");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SalidaVigilada salida = new SalidaVigilada(bytes);
+        pdfService.generarPdfResumen(canasta, canasta.calcularTotal(), canasta.calcularPromedio(),
+                canasta.obtenerMasCostosos(3), salida);
+
+        assertFalse(salida.cerrada);
+        PdfReader lector = new PdfReader(bytes.toByteArray());
+        assertTrue(lector.getNumberOfPages() > 100);
+        String ultimaPagina = PdfTextExtractor.getTextFromPage(lector, lector.getNumberOfPages() - 1)
+                + PdfTextExtractor.getTextFromPage(lector, lector.getNumberOfPages());
+        assertTrue(ultimaPagina.contains("Producto19999"));
+        lector.close();
+    }
+
+    // PRUEBA 3: El formato de moneda compartido redondea igual que DecimalFormat
+    @Test
+    @DisplayName("Test: Formato de moneda equivalente a DecimalFormat")
+    void testFormatoMoneda() {
+        DecimalFormat referencia = new DecimalFormat("$#,##0", DecimalFormatSymbols.getInstance(Locale.US));
+        double[] casos = { 0, 0.5, 1.5, 2.5, 999, 999.5, 1000, 13000, 1234567.49, 1e14 + 0.5, 1e20 };
+        for (double valor : casos) {
+            assertEquals(referencia.format(valor), EstilosPdf.moneda(valor));
+        }
+        Random aleatorio = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            double valor = aleatorio.nextInt(100_000_000) / 100.0;
+            assertEquals(referencia.format(valor), EstilosPdf.moneda(valor));
+        }
+    }
+
+    // PRUEBA 4: Varias descargas a la vez comparten los estilos sin mezclarse
+    @Test
+    @DisplayName("Test: PDFs generados en paralelo")
+    void testPdfsConcurrentes() throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<byte[]>> pdfs = new ArrayList<>();
+            for (int h = 0; h < 16; h++) {
+                int precio = 1000 * (h + 1);
+                pdfs.add(hilos.submit(() -> {
+                    List<ItemCanasta> items = new ArrayList<>();
+                    for (int i = 0; i < 300; i++) {
+                        items.add(new ItemCanasta("Producto" + i, precio, 1));
+                    }
+                    return pdfService.generarPdfResumen(items, precio * 300.0, precio, items.subList(0, 3));
+                }));
+            }
+
+            for (int h = 0; h < 16; h++) {
+                PdfReader lector = new PdfReader(pdfs.get(h).get());
+                String texto = PdfTextExtractor.getTextFromPage(lector, 1);
+                assertTrue(texto.contains(EstilosPdf.moneda(1000.0 * (h + 1) * 300)));
+                lector.close();
+            }
+        } finally {
+            hilos.shutdown();
+        }
+    }
+
+    // PRUEBA 5: Los montos exactos se formatean igual, sin pasar por double
+    @Test
+    @DisplayName("Test: Formato de montos en centavos equivalente a DecimalFormat")
+    void testFormatoMonedaDinero() {
+        DecimalFormat referencia = new DecimalFormat("$#,##0", DecimalFormatSymbols.getInstance(Locale.US));
+        long[] casos = { 0, 50, 150, 250, -250, -251, 99_950, 1_234_567_49, Long.MAX_VALUE, Long.MIN_VALUE };
+        for (long centavos : casos) {
+            Dinero monto = Dinero.deCentavos(centavos);
+            assertEquals(referencia.format(monto.aBigDecimal()), EstilosPdf.moneda(monto));
+        }
+        Random aleatorio = new Random(11);
+        for (int i = 0; i < 10_000; i++) {
+            Dinero monto = Dinero.deCentavos(aleatorio.nextLong());
+            assertEquals(referencia.format(monto.aBigDecimal()), EstilosPdf.moneda(monto));
+        }
+    }
+
+    private static final class SalidaVigilada extends OutputStream {
+
+        private final OutputStream destino;
+        private boolean cerrada;
+
+        private SalidaVigilada(OutputStream destino) {
+            this.destino = destino;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            destino.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int desde, int cantidad) throws IOException {
+            destino.write(b, desde, cantidad);
+        }
+
+        @Override
+        public void close() {
+            cerrada = true;
+        }
+    }
+}
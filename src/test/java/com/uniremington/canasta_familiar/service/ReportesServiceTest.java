@@ -0,0 +1,152 @@
+package com.uniremington.canasta_familiar.service;
+
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import com.uniremington.canasta_familiar.metricas.MetricasCanasta;
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de los reportes PDF asíncronos
+ * Usa un grupo de un hilo con cola de uno para provocar el rechazo,
+ * y un reloj manual para la expiración
+ */
+class ReportesServiceTest {
+
+    private final AtomicLong reloj = new AtomicLong();
+    private final SimpleMeterRegistry metricas = new SimpleMeterRegistry();
+
+    private CanastaService canastaService;
+    private ThreadPoolExecutor ejecutor;
+    private ReportesService reportesService;
+
+    @BeforeEach
+    void setUp() {
+        canastaService = new CanastaService();
+        ejecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        reportesService = new ReportesService(new PdfService(), new MetricasCanasta(metricas, 1), ejecutor, 100,
+                1_000, reloj::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reportesService.cerrar();
+    }
+
+    // PRUEBA 1: El reporte se genera en segundo plano y se puede descargar
+    @Test
+    @DisplayName("Test: Reporte generado y descargado")
+    void testReporteGenerado() throws Exception {
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+
+        InfoReporte pedido = reportesService.solicitar("ana", canastaService.obtenerInstantanea("ana"));
+        InfoReporte listo = esperar("ana", pedido.id());
+
+        assertEquals(EstadoReporte.LISTO, listo.estado());
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+        try (InputStream archivo = reportesService.abrirPdf("ana", pedido.id())) {
+            archivo.transferTo(pdf);
+        }
+        assertEquals(listo.bytes(), pdf.size());
+        PdfReader lector = new PdfReader(pdf.toByteArray());
+        assertTrue(PdfTextExtractor.getTextFromPage(lector, 1).contains("Arroz"));
+        lector.close();
+        assertEquals(1, reportesService.estadisticas().completados());
+        assertEquals(1, metricas.get("canasta.reportes.generacion").tag("resultado", "listo").timer().count());
+        assertEquals(1, metricas.get("canasta.reportes.espera").timer().count());
+    }
+
+    // PRUEBA 2: Con el hilo ocupado y la cola llena se rechaza el pedido
+    @Test
+    @DisplayName("Test: Cola llena rechaza el reporte")
+    void testColaLlena() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        ejecutor.execute(() -> {
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        InfoReporte enCola = reportesService.solicitar("ana", canastaService.obtenerInstantanea("ana"));
+        assertEquals(EstadoReporte.EN_COLA, enCola.estado());
+        assertThrows(ColaReportesLlenaException.class, () -> {
+            reportesService.solicitar("ana", canastaService.obtenerInstantanea("ana"));
+        });
+
+        EstadisticasReportes estadisticas = reportesService.estadisticas();
+        assertEquals(1, estadisticas.enCola());
+        assertEquals(1, estadisticas.rechazados());
+        assertEquals(1, estadisticas.guardados());
+        assertEquals(1, metricas.get("canasta.reportes.cola").gauge().value(), 0.0);
+        assertEquals(1, metricas.get("canasta.reportes.generando").gauge().value(), 0.0);
+        assertEquals(1, metricas.get("canasta.reportes.rechazados").counter().count(), 0.0);
+
+        liberar.countDown();
+        assertEquals(EstadoReporte.LISTO, esperar("ana", enCola.id()).estado());
+    }
+
+    // PRUEBA 3: Otra canasta no ve el reporte y los terminados expiran
+    @Test
+    @DisplayName("Test: Reporte privado de la canasta y expiración")
+    void testReportePrivadoYExpiracion() throws Exception {
+        InfoReporte pedido = reportesService.solicitar("ana", canastaService.obtenerInstantanea("ana"));
+        esperar("ana", pedido.id());
+
+        assertNull(reportesService.consultar("luis", pedido.id()));
+        assertNull(reportesService.abrirPdf("luis", pedido.id()));
+
+        reloj.addAndGet(2_000);
+        reportesService.expirarTerminados();
+        assertNull(reportesService.consultar("ana", pedido.id()));
+        assertNull(reportesService.abrirPdf("ana", pedido.id()));
+        assertEquals(0, reportesService.estadisticas().guardados());
+    }
+
+    // PRUEBA 4: Un PDF ya abierto se descarga completo aunque el reporte expire durante la descarga
+    @Test
+    @DisplayName("Test: Descarga de un reporte que expira")
+    void testExpiraDuranteDescarga() throws Exception {
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+        InfoReporte pedido = reportesService.solicitar("ana", canastaService.obtenerInstantanea("ana"));
+        InfoReporte listo = esperar("ana", pedido.id());
+
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+        try (InputStream archivo = reportesService.abrirPdf("ana", pedido.id())) {
+            reloj.addAndGet(2_000);
+            reportesService.expirarTerminados();
+            assertNull(reportesService.abrirPdf("ana", pedido.id()));
+            archivo.transferTo(pdf);
+        }
+        assertEquals(listo.bytes(), pdf.size());
+        PdfReader lector = new PdfReader(pdf.toByteArray());
+        assertTrue(PdfTextExtractor.getTextFromPage(lector, 1).contains("Arroz"));
+        lector.close();
+    }
+
+    private InfoReporte esperar(String idCanasta, String idReporte) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        InfoReporte reporte = reportesService.consultar(idCanasta, idReporte);
+        while (reporte.estado() == EstadoReporte.EN_COLA || reporte.estado() == EstadoReporte.GENERANDO) {
+            assertTrue(System.nanoTime() < limite, "El reporte no terminó a tiempo");
+            Thread.sleep(10);
+            reporte = reportesService.consultar(idCanasta, idReporte);
+        }
+        return reporte;
+    }
+}
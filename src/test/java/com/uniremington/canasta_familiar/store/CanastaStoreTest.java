@@ -0,0 +1,406 @@
+package com.uniremington.canasta_familiar.store;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.service.CanastaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de concurrencia del almacenamiento de la canasta
+ * Varios hilos escriben a la vez para comprobar que no se pierden items
+ */
+class CanastaStoreTest {
+
+    private static final int ESCRITORES = 64;
+    private static final int ITEMS_POR_ESCRITOR = 5_000;
+
+    private CanastaStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new CanastaStore();
+    }
+
+    // PRUEBA 1: Los items se leen en el orden en que se agregaron
+    @Test
+    @DisplayName("Test: Orden de inserción a través de varios bloques")
+    void testOrdenDeInsercion() {
+        for (int i = 0; i < 10_000; i++) {
+            store.agregar(new ItemCanasta("P" + i, i + 1, 1));
+        }
+
+        InstantaneaCanasta instantanea = store.instantanea();
+
+        assertEquals(10_000, instantanea.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals("P" + i, instantanea.get(i).getNombre());
+        }
+    }
+
+    // PRUEBA 2: 64 escritores concurrentes no pierden ningún item
+    @Test
+    @DisplayName("Test: 64 escritores concurrentes sin pérdida de items")
+    void testEscritoresConcurrentesSinPerdidas() throws Exception {
+        ejecutarEnParalelo(ESCRITORES, hilo -> {
+            for (int i = 0; i < ITEMS_POR_ESCRITOR; i++) {
+                store.agregar(new ItemCanasta(hilo + ":" + i, 1, 1));
+            }
+        });
+
+        InstantaneaCanasta instantanea = store.instantanea();
+        assertEquals(ESCRITORES * ITEMS_POR_ESCRITOR, instantanea.size());
+
+        // Cada escritor debe aparecer completo y en su propio orden
+        int[] siguiente = new int[ESCRITORES];
+        for (ItemCanasta item : instantanea) {
+            String[] partes = item.getNombre().split(":");
+            int hilo = Integer.parseInt(partes[0]);
+            assertEquals(siguiente[hilo]++, Integer.parseInt(partes[1]));
+        }
+        for (int hilo = 0; hilo < ESCRITORES; hilo++) {
+            assertEquals(ITEMS_POR_ESCRITOR, siguiente[hilo]);
+        }
+    }
+
+    // PRUEBA 3: Las instantáneas tomadas durante la escritura son consistentes
+    @Test
+    @DisplayName("Test: Lecturas concurrentes ven prefijos completos")
+    void testLecturasConcurrentesConsistentes() throws Exception {
+        AtomicBoolean escribiendo = new AtomicBoolean(true);
+        ExecutorService lectores = Executors.newFixedThreadPool(4);
+        List<Future<?>> lecturas = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            lecturas.add(lectores.submit(() -> {
+                int anterior = 0;
+                while (escribiendo.get()) {
+                    InstantaneaCanasta instantanea = store.instantanea();
+                    assertTrue(instantanea.size() >= anterior);
+                    for (ItemCanasta item : instantanea) {
+                        assertNotNull(item);
+                    }
+                    double total = instantanea.calcularTotal();
+                    assertEquals(instantanea.size(), total, 0.01);
+                    anterior = instantanea.size();
+                }
+                return null;
+            }));
+        }
+
+        ejecutarEnParalelo(ESCRITORES, hilo -> {
+            for (int i = 0; i < ITEMS_POR_ESCRITOR / 10; i++) {
+                store.agregar(new ItemCanasta("P", 1, 1));
+            }
+        });
+        escribiendo.set(false);
+
+        for (Future<?> lectura : lecturas) {
+            lectura.get(30, TimeUnit.SECONDS);
+        }
+        lectores.shutdown();
+        assertEquals(ESCRITORES * (ITEMS_POR_ESCRITOR / 10), store.tamano());
+    }
+
+    // PRUEBA 4: Limpiar mientras otros hilos agregan no deja la canasta corrupta
+    @Test
+    @DisplayName("Test: Limpiar durante escrituras concurrentes")
+    void testLimpiarDuranteEscrituras() throws Exception {
+        ejecutarEnParalelo(ESCRITORES, hilo -> {
+            for (int i = 0; i < ITEMS_POR_ESCRITOR / 10; i++) {
+                if (hilo == 0 && i % 50 == 0) {
+                    store.limpiar();
+                } else {
+                    store.agregar(new ItemCanasta("P", 1, 1));
+                }
+            }
+        });
+
+        InstantaneaCanasta instantanea = store.instantanea();
+        for (ItemCanasta item : instantanea) {
+            assertNotNull(item);
+        }
+        store.limpiar();
+        assertEquals(0, store.tamano());
+    }
+
+    // PRUEBA 5: El servicio no pierde items ni total bajo concurrencia
+    @Test
+    @DisplayName("Test: CanastaService con 64 escritores concurrentes")
+    void testServicioConcurrente() throws Exception {
+        CanastaService servicio = new CanastaService();
+
+        ejecutarEnParalelo(ESCRITORES, hilo -> {
+            for (int i = 0; i < 1_000; i++) {
+                servicio.agregarItem(new ItemCanasta("Arroz", 1000, 2));
+            }
+        });
+
+        assertEquals(ESCRITORES * 1_000, servicio.obtenerCantidadItems());
+        assertEquals(ESCRITORES * 1_000 * 2000.0, servicio.calcularTotal(), 0.01);
+    }
+
+    private void ejecutarEnParalelo(int hilos, TareaHilo tarea) throws Exception {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        CountDownLatch inicio = new CountDownLatch(1);
+        List<Future<?>> resultados = new ArrayList<>();
+
+        for (int hilo = 0; hilo < hilos; hilo++) {
+            int numero = hilo;
+            resultados.add(ejecutor.submit(() -> {
+                inicio.await();
+                tarea.ejecutar(numero);
+                return null;
+            }));
+        }
+
+        inicio.countDown();
+        for (Future<?> resultado : resultados) {
+            resultado.get(60, TimeUnit.SECONDS);
+        }
+        ejecutor.shutdown();
+    }
+
+    @FunctionalInterface
+    private interface TareaHilo {
+        void ejecutar(int hilo);
+    }
+
+    // PRUEBA 6: La versión crece al agregar y al limpiar, no se repite entre canastas y su
+    // etiqueta no se repite entre arranques
+    @Test
+    @DisplayName("Test: Versión creciente de la canasta")
+    void testVersionCreciente() {
+        long inicial = store.version();
+        store.agregar(new ItemCanasta("Arroz", 1000, 1));
+        long conUnItem = store.version();
+        InstantaneaCanasta instantanea = store.instantanea();
+        store.limpiar();
+        long limpia = store.version();
+
+        assertTrue(inicial < conUnItem);
+        assertTrue(conUnItem < limpia);
+        assertEquals(conUnItem, instantanea.version());
+        assertNotEquals(limpia, new CanastaStore().version());
+
+        // La etiqueta agrega el arranque: la misma versión de otro arranque no se acepta
+        store.agregar(new ItemCanasta("Leche", 3000, 1));
+        InstantaneaCanasta actual = store.instantanea();
+        String etiqueta = actual.etiqueta();
+        assertEquals(CanastaStore.ARRANQUE + "." + actual.version(), etiqueta);
+        assertTrue(actual.contieneEtiqueta(etiqueta));
+        assertFalse(actual.contieneEtiqueta("otro" + etiqueta.substring(etiqueta.indexOf('.'))));
+        assertFalse(actual.contieneEtiqueta(String.valueOf(actual.version())));
+        assertFalse(actual.contieneEtiqueta(CanastaStore.ARRANQUE + ".x"));
+    }
+
+    // PRUEBA 7: El índice por producto junta líneas sin importar tildes ni mayúsculas
+    @Test
+    @DisplayName("Test: Totales por producto")
+    void testTotalesPorProducto() {
+        store.agregar(new ItemCanasta("Arroz", 1000, 2));
+        store.agregar(new ItemCanasta("Café", 12000, 1));
+        store.agregar(new ItemCanasta("  ARRÓZ ", 1500.5, 1));
+        store.agregar(new ItemCanasta("cafe", 12000, 2));
+
+        TotalesProducto arroz = store.totalesProducto("arroz");
+        assertEquals("Arroz", arroz.nombre());
+        assertEquals(3, arroz.cantidad());
+        assertEquals(3500.5, arroz.subtotal(), 0.001);
+        assertEquals(2, arroz.lineas());
+        assertEquals(3, store.totalesProducto("CAFÉ").cantidad());
+        assertNull(store.totalesProducto("Pan"));
+        assertEquals(List.of("Arroz", "Café"),
+                store.totalesProductos().stream().map(TotalesProducto::nombre).toList());
+
+        store.limpiar();
+        assertNull(store.totalesProducto("arroz"));
+    }
+
+    // PRUEBA 8: El índice no pierde cantidades con escritores concurrentes
+    @Test
+    @DisplayName("Test: Totales por producto bajo concurrencia")
+    void testTotalesPorProductoConcurrentes() throws Exception {
+        ejecutarEnParalelo(ESCRITORES, hilo -> {
+            for (int i = 0; i < ITEMS_POR_ESCRITOR; i++) {
+                store.agregar(new ItemCanasta(i % 2 == 0 ? "Leche" : "LECHE", 100, 1 + hilo % 3));
+            }
+        });
+
+        long cantidadEsperada = 0;
+        for (int hilo = 0; hilo < ESCRITORES; hilo++) {
+            cantidadEsperada += (long) ITEMS_POR_ESCRITOR * (1 + hilo % 3);
+        }
+        TotalesProducto leche = store.totalesProducto("leche");
+        assertEquals(ESCRITORES * ITEMS_POR_ESCRITOR, leche.lineas());
+        assertEquals(cantidadEsperada, leche.cantidad());
+        assertEquals(store.instantanea().calcularTotal(), leche.subtotal(), 0.001);
+    }
+
+    // PRUEBA 9: Normalización de nombres
+    @Test
+    @DisplayName("Test: Nombre normalizado sin tildes, mayúsculas ni espacios extra")
+    void testNombreNormalizado() {
+        assertEquals("arroz", NombreProducto.normalizar("arroz"));
+        assertEquals("pina colada", NombreProducto.normalizar("  Piña\tColada "));
+        assertEquals("azucar morena", NombreProducto.normalizar("AZÚCAR  MORENA"));
+        assertEquals("", NombreProducto.normalizar("   "));
+    }
+
+    // PRUEBA 10: Búsqueda por prefijo del nombre y de sus palabras, ordenada
+    @Test
+    @DisplayName("Test: Búsqueda de productos por prefijo")
+    void testBusquedaPorPrefijo() {
+        store.agregar(new ItemCanasta("Leche de arroz", 9000, 1));
+        store.agregar(new ItemCanasta("Arroz integral", 6000, 1));
+        store.agregar(new ItemCanasta("Arroz", 5000, 1));
+        store.agregar(new ItemCanasta("ARRÓZ", 5000, 2));
+        store.agregar(new ItemCanasta("Arepas", 4000, 1));
+        store.agregar(new ItemCanasta("Pan", 300, 1));
+
+        List<TotalesProducto> encontrados = store.buscarProductos("arr", 10);
+
+        assertEquals(List.of("Arroz", "Arroz integral", "Leche de arroz"),
+                encontrados.stream().map(TotalesProducto::nombre).toList());
+        assertEquals(3, encontrados.get(0).cantidad());
+        assertEquals(List.of("Leche de arroz"),
+                store.buscarProductos("DE ARR", 10).stream().map(TotalesProducto::nombre).toList());
+        assertEquals(2, store.buscarProductos("ar", 2).size());
+        assertTrue(store.buscarProductos("xyz", 10).isEmpty());
+        assertTrue(store.buscarProductos("  ", 10).isEmpty());
+
+        store.limpiar();
+        assertTrue(store.buscarProductos("arr", 10).isEmpty());
+    }
+
+    // PRUEBA 11: El almacén en columnas devuelve lo mismo que el de objetos
+    @Test
+    @DisplayName("Test: Almacén columnar equivalente al de objetos")
+    void testAlmacenColumnarEquivalente() {
+        CanastaStore objetos = new CanastaStore(5, TipoAlmacen.OBJETOS);
+        CanastaStore columnar = new CanastaStore(5, TipoAlmacen.COLUMNAR);
+        for (int i = 0; i < 10_000; i++) {
+            ItemCanasta item = new ItemCanasta("Producto " + (i % 37), 100 + (i * 7919) % 5_000, 1 + i % 4);
+            objetos.agregar(item);
+            columnar.agregar(item);
+        }
+
+        InstantaneaCanasta esperada = objetos.instantanea();
+        InstantaneaCanasta obtenida = columnar.instantanea();
+        assertEquals(esperada.size(), obtenida.size());
+        for (int i = 0; i < esperada.size(); i++) {
+            assertEquals(esperada.get(i).toString(), obtenida.get(i).toString());
+            assertEquals(esperada.precio(i), obtenida.precio(i));
+            assertEquals(esperada.cantidad(i), obtenida.cantidad(i));
+            assertSame(obtenida.nombre(0), obtenida.nombre(37));
+        }
+        assertEquals(esperada.calcularTotal(), obtenida.calcularTotal());
+        assertEquals(esperada.calcularPromedio(), obtenida.calcularPromedio());
+        assertEquals(esperada.obtenerMasCostosos(20).toString(), obtenida.obtenerMasCostosos(20).toString());
+        assertEquals(objetos.totalesProductos(), columnar.totalesProductos());
+
+        // Copia de columnas por tandas que cruzan bordes de bloque
+        long[] precios = new long[100];
+        int[] cantidades = new int[100];
+        obtenida.copiarColumnas(4_050, 4_150, precios, cantidades);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(esperada.precioCentavos(4_050 + i), precios[i]);
+            assertEquals(esperada.cantidad(4_050 + i), cantidades[i]);
+        }
+        esperada.copiarColumnas(10, 20, precios, cantidades);
+        assertEquals(esperada.precioCentavos(15), precios[5]);
+        assertThrows(IndexOutOfBoundsException.class, () -> obtenida.copiarColumnas(9_950, 10_001, precios, cantidades));
+    }
+
+    // PRUEBA 12: El almacén en columnas no pierde items con escritores concurrentes
+    @Test
+    @DisplayName("Test: Almacén columnar con escritores concurrentes")
+    void testAlmacenColumnarConcurrente() throws Exception {
+        store = new CanastaStore(CanastaStore.CAPACIDAD_RANKING_POR_DEFECTO, TipoAlmacen.COLUMNAR);
+        ejecutarEnParalelo(ESCRITORES, hilo -> {
+            for (int i = 0; i < ITEMS_POR_ESCRITOR; i++) {
+                store.agregar(new ItemCanasta(hilo + ":" + i, 1 + hilo, 1));
+            }
+        });
+
+        InstantaneaCanasta instantanea = store.instantanea();
+        assertEquals(ESCRITORES * ITEMS_POR_ESCRITOR, instantanea.size());
+        int[] siguiente = new int[ESCRITORES];
+        for (int i = 0; i < instantanea.size(); i++) {
+            String[] partes = instantanea.nombre(i).split(":");
+            int hilo = Integer.parseInt(partes[0]);
+            assertEquals(siguiente[hilo]++, Integer.parseInt(partes[1]));
+            assertEquals(1 + hilo, instantanea.precio(i));
+        }
+    }
+
+    // PRUEBA 13: Un escritor que falla después de reservar no deja esperando a los que reservaron
+    // después, y un lote que falla no publica ninguno de sus items
+    @Test
+    @DisplayName("Test: Escritor que falla después de reservar")
+    void testEscritorQueFalla() throws Exception {
+        store = new CanastaStore(CanastaStore.CAPACIDAD_RANKING_POR_DEFECTO, TipoAlmacen.COLUMNAR);
+        store.agregar(new ItemCanasta("Arroz", 2000, 1));
+        CountDownLatch escribiendo = new CountDownLatch(1);
+        CountDownLatch fallar = new CountDownLatch(1);
+        ItemCanasta defectuoso = new ItemCanasta("Defectuoso", 1000, 1) {
+            @Override
+            public long precioEnCentavos() {
+                escribiendo.countDown();
+                try {
+                    fallar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("Falla de prueba");
+            }
+        };
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(2);
+        Future<?> falla = ejecutor.submit(() -> store.agregar(defectuoso));
+        escribiendo.await();
+        Future<?> siguiente = ejecutor.submit(() -> store.agregar(new ItemCanasta("Leche", 3000, 2)));
+        // Da tiempo a que el segundo escritor reserve su posición detrás del defectuoso
+        Thread.sleep(100);
+        fallar.countDown();
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> falla.get(10, TimeUnit.SECONDS));
+        assertEquals("Falla de prueba", error.getCause().getMessage());
+        siguiente.get(10, TimeUnit.SECONDS);
+        ejecutor.shutdown();
+        InstantaneaCanasta instantanea = store.instantanea();
+        assertEquals(2, instantanea.size());
+        assertEquals("Arroz", instantanea.nombre(0));
+        assertEquals("Leche", instantanea.nombre(1));
+        assertEquals(800_000, instantanea.total().centavos());
+        assertNull(store.totalesProducto("Defectuoso"));
+
+        ItemCanasta fallaInmediata = new ItemCanasta("Defectuoso", 1000, 1) {
+            @Override
+            public long precioEnCentavos() {
+                throw new IllegalStateException("Falla de prueba");
+            }
+        };
+        assertThrows(IllegalStateException.class,
+                () -> store.agregarTodos(List.of(fallaInmediata, new ItemCanasta("Pan", 500, 1))));
+        store.agregar(new ItemCanasta("Huevos", 400, 3));
+        instantanea = store.instantanea();
+        assertEquals(3, instantanea.size());
+        assertEquals("Huevos", instantanea.nombre(2));
+        assertNull(store.totalesProducto("Pan"));
+        assertEquals(2, store.instantanea().obtenerMasCostosos(2).size());
+        assertEquals("Leche", store.instantanea().obtenerMasCostosos(1).get(0).getNombre());
+    }
+}
@@ -0,0 +1,177 @@
+package com.uniremington.canasta_familiar.store;
+
+import com.uniremington.canasta_familiar.model.Dinero;
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas basadas en propiedades de los agregados de la canasta
+ * Para secuencias aleatorias de agregar/limpiar, el total y el promedio
+ * mantenidos deben coincidir exactamente con recalcularlos desde cero
+ */
+class InstantaneaCanastaTest {
+
+    private static final int OPERACIONES = 2_000;
+
+    static LongStream semillas() {
+        return LongStream.rangeClosed(1, 50);
+    }
+
+    // PROPIEDAD: agregados mantenidos == recálculo completo, tras cada operación
+    @ParameterizedTest(name = "semilla {0}")
+    @MethodSource("semillas")
+    @DisplayName("Test: Agregados incrementales coinciden con el recálculo")
+    void testAgregadosCoincidenConRecalculo(long semilla) {
+        Random aleatorio = new Random(semilla);
+        CanastaStore store = new CanastaStore();
+        List<ItemCanasta> modelo = new ArrayList<>();
+
+        for (int i = 0; i < OPERACIONES; i++) {
+            if (aleatorio.nextInt(100) < 2) {
+                store.limpiar();
+                modelo.clear();
+            } else {
+                ItemCanasta item = itemAleatorio(aleatorio);
+                store.agregar(item);
+                modelo.add(item);
+            }
+
+            InstantaneaCanasta instantanea = store.instantanea();
+            assertEquals(modelo.size(), instantanea.size());
+            assertEquals(recalcularTotal(modelo), instantanea.calcularTotal());
+            assertEquals(recalcularPromedio(modelo), instantanea.calcularPromedio());
+        }
+    }
+
+    // PROPIEDAD: el total en punto fijo no se aleja de la suma en double
+    @ParameterizedTest(name = "semilla {0}")
+    @MethodSource("semillas")
+    @DisplayName("Test: Total en punto fijo cercano a la suma en double")
+    void testTotalCercanoASumaDouble(long semilla) {
+        Random aleatorio = new Random(semilla);
+        CanastaStore store = new CanastaStore();
+        double sumaDouble = 0;
+
+        for (int i = 0; i < OPERACIONES; i++) {
+            ItemCanasta item = itemAleatorio(aleatorio);
+            store.agregar(item);
+            sumaDouble += item.calcularSubtotal();
+        }
+
+        assertEquals(sumaDouble, store.instantanea().calcularTotal(), OPERACIONES * 0.01);
+    }
+
+    // PROPIEDAD: el total en centavos es exactamente la suma de los subtotales,
+    // con montos grandes y en ambos almacenes
+    @ParameterizedTest(name = "semilla {0}")
+    @MethodSource("semillas")
+    @DisplayName("Test: Total exacto en centavos con montos grandes")
+    void testTotalExactoEnCentavos(long semilla) {
+        Random aleatorio = new Random(semilla);
+        CanastaStore objetos = new CanastaStore(CanastaStore.CAPACIDAD_RANKING_POR_DEFECTO, TipoAlmacen.OBJETOS);
+        CanastaStore columnar = new CanastaStore(CanastaStore.CAPACIDAD_RANKING_POR_DEFECTO, TipoAlmacen.COLUMNAR);
+        Dinero esperado = Dinero.CERO;
+
+        for (int i = 0; i < OPERACIONES; i++) {
+            // Precios de hasta 10^12 pesos con centavos: en double la suma ya perdería centavos
+            long centavos = 1 + (aleatorio.nextLong() >>> 1) % 100_000_000_000_000L;
+            ItemCanasta item = new ItemCanasta("P" + i, centavos / 100.0, 1 + aleatorio.nextInt(50));
+            objetos.agregar(item);
+            columnar.agregar(item);
+            esperado = esperado.sumar(item.subtotal());
+        }
+
+        assertEquals(esperado, objetos.instantanea().total());
+        assertEquals(esperado, columnar.instantanea().total());
+    }
+
+    // Un total que desborda queda marcado (sin trabar la canasta) hasta limpiarla
+    @Test
+    @DisplayName("Test: Total desbordado se informa y se recupera al limpiar")
+    void testTotalDesbordado() {
+        CanastaStore store = new CanastaStore();
+        ItemCanasta enorme = new ItemCanasta("Enorme", 80_000_000_000_000.0, 1_000);
+        store.agregar(enorme);
+        store.agregar(enorme);
+
+        InstantaneaCanasta instantanea = store.instantanea();
+        assertEquals(2, instantanea.size());
+        assertThrows(ArithmeticException.class, instantanea::total);
+        assertThrows(ArithmeticException.class, instantanea::calcularPromedio);
+
+        // Los items siguientes se siguen publicando
+        store.agregar(new ItemCanasta("Arroz", 2500, 1));
+        assertEquals(3, store.instantanea().size());
+
+        store.limpiar();
+        store.agregar(new ItemCanasta("Arroz", 2500, 2));
+        assertEquals(Dinero.deCentavos(500_000), store.instantanea().total());
+    }
+
+    // PROPIEDAD: el ranking mantenido == ordenar todos los items y tomar K
+    @ParameterizedTest(name = "semilla {0}")
+    @MethodSource("semillas")
+    @DisplayName("Test: Ranking de más costosos coincide con el ordenamiento completo")
+    void testRankingCoincideConOrdenamiento(long semilla) {
+        Random aleatorio = new Random(semilla);
+        CanastaStore store = new CanastaStore(8);
+        List<ItemCanasta> modelo = new ArrayList<>();
+
+        for (int i = 0; i < OPERACIONES / 4; i++) {
+            // Pocos precios distintos para ejercitar empates
+            ItemCanasta item = new ItemCanasta("P" + i, 1 + aleatorio.nextInt(40), 1);
+            store.agregar(item);
+            modelo.add(item);
+
+            InstantaneaCanasta instantanea = store.instantanea();
+            for (int k : new int[] { 1, 3, 8, 20 }) {
+                assertEquals(ordenarYTomar(modelo, k), instantanea.obtenerMasCostosos(k));
+            }
+        }
+    }
+
+    private static List<ItemCanasta> ordenarYTomar(List<ItemCanasta> items, int limite) {
+        return items.stream()
+                .sorted(Comparator.comparingDouble(ItemCanasta::getPrecio).reversed())
+                .limit(limite)
+                .collect(Collectors.toList());
+    }
+
+    private static ItemCanasta itemAleatorio(Random aleatorio) {
+        // Precios con centavos para ejercitar el redondeo a punto fijo
+        double precio = 1 + aleatorio.nextInt(5_000_000) / 100.0;
+        int cantidad = 1 + aleatorio.nextInt(50);
+        return new ItemCanasta("P" + aleatorio.nextInt(1000), precio, cantidad);
+    }
+
+    private static double recalcularTotal(List<ItemCanasta> items) {
+        long centavos = 0;
+        for (ItemCanasta item : items) {
+            centavos += CanastaStore.Estado.aCentavos(item.getPrecio()) * item.getCantidad();
+        }
+        return centavos / 100.0;
+    }
+
+    private static double recalcularPromedio(List<ItemCanasta> items) {
+        if (items.isEmpty()) {
+            return 0;
+        }
+        long centavos = 0;
+        for (ItemCanasta item : items) {
+            centavos += CanastaStore.Estado.aCentavos(item.getPrecio());
+        }
+        return centavos / 100.0 / items.size();
+    }
+}
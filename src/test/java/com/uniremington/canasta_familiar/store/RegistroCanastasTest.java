@@ -0,0 +1,186 @@
+package com.uniremington.canasta_familiar.store;
+
+import com.uniremington.canasta_familiar.model.ItemCanasta;
+import com.uniremington.canasta_familiar.service.CanastaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del registro de canastas por sesión
+ * Usa un reloj manual para controlar la inactividad
+ */
+class RegistroCanastasTest {
+
+    private final AtomicLong reloj = new AtomicLong();
+
+    private RegistroCanastas registro;
+    private CanastaService canastaService;
+
+    @BeforeEach
+    void setUp() {
+        registro = new RegistroCanastas(100, 1_000, 1_000, 10, TipoAlmacen.OBJETOS, reloj::get);
+        canastaService = new CanastaService(registro);
+    }
+
+    // PRUEBA 1: Cada identificador tiene su propia canasta
+    @Test
+    @DisplayName("Test: Canastas independientes por identificador")
+    void testCanastasIndependientes() {
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 5000, 2));
+        canastaService.agregarItem("luis", new ItemCanasta("Frijol", 3000, 1));
+        canastaService.agregarItem("luis", new ItemCanasta("Leche", 4000, 1));
+
+        assertEquals(1, canastaService.obtenerInstantanea("ana").size());
+        assertEquals(10000, canastaService.obtenerInstantanea("ana").calcularTotal(), 0.01);
+        assertEquals(2, canastaService.obtenerInstantanea("luis").size());
+        assertEquals(0, canastaService.obtenerInstantanea("otra").size());
+    }
+
+    // PRUEBA 2: Consultar una canasta inexistente no la crea
+    @Test
+    @DisplayName("Test: Leer una canasta inexistente no ocupa memoria")
+    void testLecturaNoCreaCanasta() {
+        canastaService.obtenerInstantanea("nadie");
+
+        assertEquals(0, registro.estadisticas().canastas());
+    }
+
+    // PRUEBA 3: Al superar el máximo se expulsa la menos usada
+    @Test
+    @DisplayName("Test: Expulsión LRU al superar el máximo de canastas")
+    void testExpulsionMenosUsada() {
+        for (int i = 0; i < 100; i++) {
+            reloj.incrementAndGet();
+            canastaService.agregarItem("c" + i, new ItemCanasta("Arroz", 1000, 1));
+        }
+        // La canasta c0 se vuelve a usar y deja de ser la más antigua
+        reloj.incrementAndGet();
+        canastaService.obtenerInstantanea("c0");
+
+        reloj.incrementAndGet();
+        canastaService.agregarItem("nueva", new ItemCanasta("Arroz", 1000, 1));
+
+        EstadisticasRegistro estadisticas = registro.estadisticas();
+        assertEquals(100, estadisticas.canastas());
+        assertEquals(1, estadisticas.expulsionesPorCapacidad());
+        assertEquals(1, canastaService.obtenerInstantanea("c0").size());
+        assertEquals(0, canastaService.obtenerInstantanea("c1").size());
+    }
+
+    // PRUEBA 4: El barrido expulsa las canastas inactivas
+    @Test
+    @DisplayName("Test: Expulsión por inactividad")
+    void testExpulsionPorInactividad() {
+        canastaService.agregarItem("vieja", new ItemCanasta("Arroz", 1000, 3));
+        reloj.addAndGet(800);
+        canastaService.agregarItem("reciente", new ItemCanasta("Arroz", 1000, 1));
+        reloj.addAndGet(500);
+
+        registro.expulsarInactivas();
+
+        EstadisticasRegistro estadisticas = registro.estadisticas();
+        assertEquals(1, estadisticas.canastas());
+        assertEquals(1, estadisticas.items());
+        assertEquals(1, estadisticas.expulsionesPorInactividad());
+    }
+
+    // PRUEBA 5: Se respeta el máximo total de items
+    @Test
+    @DisplayName("Test: Máximo de items expulsa otras canastas")
+    void testMaximoDeItems() {
+        for (int i = 0; i < 600; i++) {
+            canastaService.agregarItem("grande", new ItemCanasta("Arroz", 1000, 1));
+        }
+        reloj.incrementAndGet();
+        for (int i = 0; i < 500; i++) {
+            canastaService.agregarItem("otra", new ItemCanasta("Arroz", 1000, 1));
+        }
+
+        assertEquals(0, canastaService.obtenerInstantanea("grande").size());
+        assertEquals(500, canastaService.obtenerInstantanea("otra").size());
+        assertTrue(registro.estadisticas().items() <= 1_000);
+    }
+
+    // PRUEBA 6: Una sola canasta no puede superar el máximo de items
+    @Test
+    @DisplayName("Test: Canasta que supera el máximo de items lanza excepción")
+    void testCanastaDemasiadoGrande() {
+        for (int i = 0; i < 1_000; i++) {
+            canastaService.agregarItem("grande", new ItemCanasta("Arroz", 1000, 1));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            canastaService.agregarItem("grande", new ItemCanasta("Arroz", 1000, 1));
+        });
+        assertEquals(1_000, canastaService.obtenerInstantanea("grande").size());
+    }
+
+    // PRUEBA 7: Limpiar descuenta los items residentes
+    @Test
+    @DisplayName("Test: Limpiar actualiza los items residentes")
+    void testLimpiarActualizaMetricas() {
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 1000, 1));
+        canastaService.agregarItem("ana", new ItemCanasta("Arroz", 1000, 1));
+
+        canastaService.limpiarCanasta("ana");
+
+        assertEquals(0, registro.estadisticas().items());
+    }
+
+    // PRUEBA 8: Un item que llega mientras otro hilo está expulsando espera y entra con el lugar liberado
+    @Test
+    @DisplayName("Test: Máximo de items con una expulsión en curso")
+    void testMaximoDeItemsDuranteExpulsion() throws Exception {
+        for (int i = 0; i < 600; i++) {
+            canastaService.agregarItem("vieja", new ItemCanasta("Arroz", 1000, 1));
+        }
+        reloj.addAndGet(800);
+        for (int i = 0; i < 400; i++) {
+            canastaService.agregarItem("otra", new ItemCanasta("Arroz", 1000, 1));
+        }
+        reloj.addAndGet(500);
+
+        // El barrido queda detenido a mitad de camino, con el candado tomado
+        CountDownLatch expulsando = new CountDownLatch(1);
+        CountDownLatch continuar = new CountDownLatch(1);
+        registro.alExpulsar((id, store) -> {
+            expulsando.countDown();
+            try {
+                continuar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Thread barrido = new Thread(registro::expulsarInactivas);
+        barrido.start();
+        expulsando.await();
+
+        List<Throwable> errores = Collections.synchronizedList(new ArrayList<>());
+        Thread agregando = new Thread(() -> {
+            try {
+                canastaService.agregarItem("otra", new ItemCanasta("Leche", 3000, 1));
+            } catch (Throwable e) {
+                errores.add(e);
+            }
+        });
+        agregando.start();
+        Thread.sleep(100);
+        assertTrue(agregando.isAlive(), "El item espera a que termine la expulsión");
+
+        continuar.countDown();
+        barrido.join(10_000);
+        agregando.join(10_000);
+        assertEquals(List.of(), errores);
+        assertEquals(401, canastaService.obtenerInstantanea("otra").size());
+        assertEquals(0, canastaService.obtenerInstantanea("vieja").size());
+    }
+}